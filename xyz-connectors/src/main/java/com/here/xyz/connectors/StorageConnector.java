@@ -19,6 +19,7 @@
 
 package com.here.xyz.connectors;
 
+import com.here.xyz.events.CancelQueryEvent;
 import com.here.xyz.events.DeleteChangesetsEvent;
 import com.here.xyz.events.Event;
 import com.here.xyz.events.GetChangesetStatisticsEvent;
@@ -90,6 +91,8 @@ public abstract class StorageConnector extends AbstractConnectorHandler {
       return processDeleteChangesetsEvent((DeleteChangesetsEvent) event);
     if (event instanceof OneTimeActionEvent)
       return processOneTimeActionEvent((OneTimeActionEvent) event);
+    if (event instanceof CancelQueryEvent)
+      return processCancelQueryEvent((CancelQueryEvent) event);
 
     return new ErrorResponse()
         .withStreamId(streamId)
@@ -170,6 +173,17 @@ public abstract class StorageConnector extends AbstractConnectorHandler {
     return new SuccessResponse();
   }
 
+  /**
+   * Processes a CancelQueryEvent event.
+   */
+  protected XyzResponse processCancelQueryEvent(CancelQueryEvent event) throws Exception {
+    //Default implementation does not support cancelling queries but may be overridden
+    return new ErrorResponse()
+        .withStreamId(streamId)
+        .withError(XyzError.NOT_IMPLEMENTED)
+        .withErrorMessage("Cancelling queries is not supported by this connector.");
+  }
+
   protected abstract XyzResponse processDeleteChangesetsEvent(DeleteChangesetsEvent event) throws Exception;
 
   protected abstract XyzResponse processIterateChangesetsEvent(IterateChangesetsEvent event) throws Exception;
@@ -19,12 +19,21 @@
 
 package com.here.xyz.httpconnector;
 
+import static com.here.xyz.hub.util.metrics.base.Metric.MetricUnit.BYTES_PER_SECOND;
+import static com.here.xyz.hub.util.metrics.base.Metric.MetricUnit.COUNT_PER_SECOND;
+import static com.here.xyz.hub.util.metrics.base.Metric.MetricUnit.MILLISECONDS;
+
 import com.here.xyz.httpconnector.config.AwsCWClient;
 import com.here.xyz.httpconnector.config.JobConfigClient;
 import com.here.xyz.httpconnector.config.JobS3Client;
 import com.here.xyz.httpconnector.util.scheduler.ExportQueue;
 import com.here.xyz.httpconnector.util.scheduler.ImportQueue;
 import com.here.xyz.httpconnector.util.scheduler.JobQueue;
+import com.here.xyz.httpconnector.util.scheduler.JobTelemetryCollector;
+import com.here.xyz.httpconnector.util.scheduler.JobTelemetryMetric;
+import com.here.xyz.hub.util.metrics.base.CWAttributedMetricCollectionPublisher;
+import com.here.xyz.hub.util.metrics.base.MetricPublisher;
+import com.here.xyz.util.TransferTelemetry;
 import com.here.xyz.util.service.Core;
 import com.here.xyz.util.web.HubWebClientAsync;
 import io.vertx.core.DeploymentOptions;
@@ -85,6 +94,13 @@ public class CService extends Core {
    */
   public static ExportQueue exportQueue;
 
+  /**
+   * Collector of the live telemetry of executing jobs
+   */
+  public static JobTelemetryCollector jobTelemetryCollector;
+
+  private static final List<MetricPublisher> metricPublishers = new ArrayList<>();
+
   /**
    * Service Configuration
    */
@@ -129,6 +145,7 @@ public class CService extends Core {
         supportedConnectors.add(cId);
         rdsLookupCapacity.put(cId, Integer.parseInt(splitConfig[1]));
       }
+      JobQueue.setTypePriorities(configuration.JOB_TYPE_PRIORITIES);
 
     } catch (Exception e) {
       logger.error("Configuration-Error - please check service config!");
@@ -156,10 +173,13 @@ public class CService extends Core {
           jobCWClient = new AwsCWClient();
           importQueue = new ImportQueue();
           exportQueue = new ExportQueue();
+          jobTelemetryCollector = new JobTelemetryCollector();
 
           /** Start Job-Schedulers */
           importQueue.commence();
           exportQueue.commence();
+          jobTelemetryCollector.commence();
+          startMetricPublishers();
 
           Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             System.out.println("HTTP Service is going down at " + new Date());
@@ -172,6 +192,18 @@ public class CService extends Core {
         .onFailure(t -> logger.error("Cant reach jobAPI backend - JOB-API deactivated!", t));
   }
 
+  private static void startMetricPublishers() {
+    if (configuration.PUBLISH_METRICS) {
+      String serviceName = "XYZ-HTTP-Connector-" + configuration.ENVIRONMENT_NAME;
+      metricPublishers.add(new CWAttributedMetricCollectionPublisher(new JobTelemetryMetric("JobRowsPerSecond", COUNT_PER_SECOND,
+          TransferTelemetry::getRowsPerSecond), serviceName));
+      metricPublishers.add(new CWAttributedMetricCollectionPublisher(new JobTelemetryMetric("JobBytesPerSecond", BYTES_PER_SECOND,
+          TransferTelemetry::getBytesPerSecond), serviceName));
+      metricPublishers.add(new CWAttributedMetricCollectionPublisher(new JobTelemetryMetric("JobMaxQueryLag", MILLISECONDS,
+          TransferTelemetry::getMaxThreadLag), serviceName));
+    }
+  }
+
   public static Future<JsonObject> initializeService(JsonObject config) {
     final DeploymentOptions options = new DeploymentOptions()
             .setConfig(config)
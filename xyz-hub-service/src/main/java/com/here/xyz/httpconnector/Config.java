@@ -55,6 +55,38 @@ public class Config extends BaseConfig {
    */
   public String JOBS_S3_BUCKET;
 
+  /**
+   * The engine which is used for exports: "aws_s3" (default) lets the database write the files using the aws_s3 extension,
+   * "copy" streams the data out of the database and writes the files by the service
+   */
+  public String JOB_EXPORT_ENGINE;
+
+  /**
+   * If set, the "copy" export engine writes the files into this local directory instead of the S3 bucket for imports/exports
+   */
+  public String JOB_EXPORT_LOCAL_DIRECTORY;
+
+  /**
+   * The maximum size of a file written by the "copy" export engine in MB
+   */
+  public int JOB_EXPORT_MAX_CHUNK_SIZE_MB = 1024;
+
+  /**
+   * Whether the files written by the "copy" export engine are compressed using gzip
+   */
+  public boolean JOB_EXPORT_COMPRESSION = true;
+
+  /**
+   * The maximum number of export files which are written by the service at the same time (for the "copy" export engine)
+   */
+  public int JOB_EXPORT_MAX_WORKERS = 8;
+
+  /**
+   * The maximum number of features which are kept in memory for incomplete tiles by a tiled export of the "copy" export engine.
+   * If exceeded, the export falls back to the SQL based tiled export.
+   */
+  public int JOB_EXPORT_MAX_PENDING_TILE_FEATURES = 250_000;
+
   /**
    * Region in which components are running/hosted
    */
@@ -95,6 +127,21 @@ public class Config extends BaseConfig {
    */
   public int JOB_MAX_RDS_MAX_RUNNING_EXPORT_QUERIES;
 
+  /**
+   * Maximum number of jobs per target database, which may run their database intensive stages at the same time
+   */
+  public int JOB_MAX_RUNNING_JOBS_PER_DB = 10;
+
+  /**
+   * List of "jobType:priority" (e.g. "Import:1"), jobs of types with a higher priority are processed first (default: 0)
+   */
+  public List<String> JOB_TYPE_PRIORITIES;
+
+  /**
+   * Whether to publish the live telemetry of executing jobs as metrics
+   */
+  public boolean PUBLISH_METRICS;
+
   /**
    * DB Pool size per client
    */
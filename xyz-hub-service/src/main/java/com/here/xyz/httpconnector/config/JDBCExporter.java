@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2017-2023 HERE Europe B.V.
+ * Copyright (C) 2017-2024 HERE Europe B.V.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -38,6 +38,13 @@ import com.here.xyz.httpconnector.config.query.ExportSpaceByGeometry;
 import com.here.xyz.httpconnector.config.query.ExportSpaceByProperties;
 import com.here.xyz.httpconnector.rest.HApiParam;
 import com.here.xyz.httpconnector.task.JdbcBasedHandler;
+import com.here.xyz.httpconnector.util.export.CopyExportEngine;
+import com.here.xyz.httpconnector.util.export.ExportSink;
+import com.here.xyz.httpconnector.util.export.GeoParquetExporter;
+import com.here.xyz.httpconnector.util.export.LocalDirectorySink;
+import com.here.xyz.httpconnector.util.export.S3MultipartSink;
+import com.here.xyz.httpconnector.util.export.TiledExportEngine;
+import com.here.xyz.httpconnector.util.export.TiledExportEngine.TooManyPendingFeaturesException;
 import com.here.xyz.httpconnector.util.jobs.Export;
 import com.here.xyz.httpconnector.util.jobs.Export.ExportStatistic;
 import com.here.xyz.httpconnector.util.jobs.Job.CSVFormat;
@@ -45,6 +52,10 @@ import com.here.xyz.httpconnector.util.web.LegacyHubWebClient;
 import com.here.xyz.hub.connectors.models.Connector;
 import com.here.xyz.hub.rest.ApiParam;
 import com.here.xyz.jobs.datasets.DatasetDescription.Space;
+import com.here.xyz.jobs.datasets.FileBasedTarget;
+import com.here.xyz.jobs.datasets.FileOutputSettings;
+import com.here.xyz.jobs.datasets.files.GeoParquet;
+import com.here.xyz.jobs.datasets.files.Partitioning.Tiles;
 import com.here.xyz.jobs.datasets.filters.Filters;
 import com.here.xyz.jobs.datasets.filters.SpatialFilter;
 import com.here.xyz.models.geojson.coordinates.WKTHelper;
@@ -53,10 +64,13 @@ import com.here.xyz.psql.query.SearchForFeatures;
 import com.here.xyz.util.Hasher;
 import com.here.xyz.util.db.JdbcClient;
 import com.here.xyz.util.db.SQLQuery;
+import com.here.xyz.util.service.Core;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
+import io.vertx.core.WorkerExecutor;
 import io.vertx.core.json.JsonObject;
+import java.nio.file.Paths;
 import java.sql.Array;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -65,6 +79,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -74,6 +89,10 @@ import org.apache.logging.log4j.Logger;
 public class JDBCExporter extends JdbcBasedHandler {
     private static final Logger logger = LogManager.getLogger();
     private static final JDBCExporter instance = new JDBCExporter();
+    private static final String COPY_EXPORT_ENGINE = "copy";
+    private static final long MAX_EXPORT_WORKER_EXECUTE_TIME_HOURS = 12;
+    private ExportSink exportSink;
+    private WorkerExecutor exportWorkers;
 
     private JDBCExporter() {
       super(CService.configuration.JOB_DB_POOL_SIZE_PER_CLIENT);
@@ -280,12 +299,14 @@ public class JDBCExporter extends JdbcBasedHandler {
               switch ( pseudoCsvFormat ) {
                   case PARTITIONID_FC_B64:                      exportQuery = generateFilteredExportQuery(client, schema, job.getTargetSpaceId(), propertyFilter, spatialFilter,
                               job.getTargetVersion(), job.getParams(), job.getCsvFormat(), null,
-                              compositeCalculation , job.getPartitionKey(), job.getOmitOnNull());
+                              compositeCalculation , job.getPartitionKey(), job.getOmitOnNull(), job.getFromVersion());
                       return calculateThreadCountForDownload(job, schema, exportQuery)
-                              .compose(threads -> {
+                              .compose(threads -> loadSerialRange(job, schema).compose(serialRange -> {
                                   try {
                                       Promise<Export.ExportStatistic> promise = Promise.promise();
                                       List<Future> exportFutures = new ArrayList<>();
+                                      //When partitioning by a property value, the custom where condition applies to the numbered partition keys
+                                      boolean partitionByPropertyValue = job.getPartitionKey() != null && !"id".equalsIgnoreCase(job.getPartitionKey());
                                       int tCount = threads,
                                               maxPartitionPerFile = 500000; /* tbd ? */
                                       if (job.getPartitionKey() == null || "id".equalsIgnoreCase(job.getPartitionKey()))
@@ -296,8 +317,16 @@ public class JDBCExporter extends JdbcBasedHandler {
                                               tCount = Math.max(threads, (int) Math.floor(job.getEstimatedFeatureCount() / (long) maxPartitionPerFile));
                                       for (int i = 0; i < tCount; i++) {
                                           String s3Prefix = i + "_";
+                                          SQLQuery customWhereCondition = tCount <= 1 ? null : partitionByPropertyValue
+                                              ? new SQLQuery("AND i%% " + tCount + " = " + i)
+                                              : buildSerialRangeCondition(serialRange, tCount, i);
+                                          if (useCopyExportEngine()) {
+                                              exportFutures.add(executeCopyExport(client, job, buildExportSelectString(client, job, schema,
+                                                  compositeCalculation, customWhereCondition), buildExportFilePath(s3Path, s3Prefix)));
+                                              continue;
+                                          }
                                           SQLQuery q2 = buildPartIdVMLExportQuery(client, job, schema, s3Bucket, s3Path, s3Prefix, s3Region, compositeCalculation,
-                                                  tCount > 1 ? new SQLQuery("AND i%% " + tCount + " = " + i) : null);
+                                                  customWhereCondition);
                                         String clientId = job.getTargetConnector();
                                         exportFutures.add(executeExportQuery(clientId, q2, job, s3Path));
                                       }
@@ -307,13 +336,25 @@ public class JDBCExporter extends JdbcBasedHandler {
                                       logger.warn("job[{}] ", job.getId(), e);
                                       return Future.failedFuture(e);
                                   }
-                              });
+                              }));
 
                   case TILEID_FC_B64:
 
                            exportQuery = generateFilteredExportQuery(client, schema, job.getTargetSpaceId(), propertyFilter, spatialFilter,
                               job.getTargetVersion(), job.getParams(), job.getCsvFormat(), null,
-                              compositeCalculation , job.getPartitionKey(), job.getOmitOnNull());
+                              compositeCalculation , job.getPartitionKey(), job.getOmitOnNull(), job.getFromVersion());
+                      if (useCopyExportEngine() && job.getCsvFormat() == TILEID_FC_B64 && !compositeCalculation) {
+                          SQLQuery tiledExportQuery = exportQuery;
+                          return executeTiledExport(client, job, exportQuery, s3Path)
+                              .recover(e -> {
+                                  if (!(e instanceof TooManyPendingFeaturesException))
+                                      return Future.failedFuture(e);
+                                  //Too many features are spanning tiles, so the tiles are better exported one group after another
+                                  logger.info("job[{}] Falling back to the SQL based Tiled-Export: {}", job.getId(), e.getMessage());
+                                  return executeInhabitedTilesExport(client, job, schema, tiledExportQuery, null, s3Bucket, s3Path, s3Region);
+                              });
+                      }
+
                       /*
                       Is used for incremental exports (tiles) - here we have to export modified tiles.
                       Those tiles we need to calculate separately
@@ -323,42 +364,30 @@ public class JDBCExporter extends JdbcBasedHandler {
                               propertyFilter, spatialFilter, job.getTargetVersion(), job.getParams(), job.getCsvFormat())
                               : null;
 
-                      return calculateTileListForVMLExport(job, schema, exportQuery, qkQuery)
-                              .compose(tileList -> {
-                                  try {
-                                       Promise<Export.ExportStatistic> promise = Promise.promise();
-                                       List<Future> exportFutures = new ArrayList<>();
-                                       job.setProcessingList(tileList);
-
-                                       for (int i = 0; i < tileList.size(); i++) {
-                                          /** Build export for each tile of the weighted tile list */
-                                          SQLQuery q2 = buildVMLExportQuery(client, job, schema, s3Bucket, s3Path, s3Region, tileList.get(i), qkQuery);
-
-                                          exportFutures.add(executeExportQuery(job.getTargetConnector(), q2, job, s3Path));
-
-                                       }
-
-                                       return executeParallelExportAndCollectStatistics(job, promise, exportFutures);
-                                      }
-                                      catch (SQLException e) {
-                                        logger.warn("job[{}] ", job.getId(), e);
-                                        return Future.failedFuture(e);
-                                      }
-                             });
+                      return executeInhabitedTilesExport(client, job, schema, exportQuery, qkQuery, s3Bucket, s3Path, s3Region);
 
                             default:
                                 exportQuery = generateFilteredExportQuery(client, schema, job.getTargetSpaceId(), propertyFilter, spatialFilter,
                                         job.getTargetVersion(), job.getParams(), job.getCsvFormat(), compositeCalculation);
                                 return calculateThreadCountForDownload(job, schema, exportQuery)
-                                        .compose(threads -> {
+                                        .compose(threads -> loadSerialRange(job, schema).compose(serialRange -> {
                                             try {
                                                 Promise<Export.ExportStatistic> promise = Promise.promise();
                                                 List<Future> exportFutures = new ArrayList<>();
 
                                                 for (int i = 0; i < threads; i++) {
                                                     String s3Prefix = i + "_";
+                                                    SQLQuery customWhereCondition = threads > 1 ? buildSerialRangeCondition(serialRange, threads, i) : null;
+                                                    if (useCopyExportEngine()) {
+                                                        SQLQuery exportSelectString = buildExportSelectString(client, job, schema, compositeCalculation,
+                                                            customWhereCondition);
+                                                        exportFutures.add(getGeoParquetFormat(job) != null
+                                                            ? executeGeoParquetExport(client, job, exportSelectString, s3Path + "/" + s3Prefix + "export")
+                                                            : executeCopyExport(client, job, exportSelectString, buildExportFilePath(s3Path, s3Prefix)));
+                                                        continue;
+                                                    }
                                                     SQLQuery q2 = buildS3ExportQuery(client, job, schema, s3Bucket, s3Path, s3Prefix, s3Region, compositeCalculation,
-                                                            (threads > 1 ? new SQLQuery("AND i%% " + threads + " = " + i) : null));
+                                                            customWhereCondition);
                                                   String clientId = job.getTargetConnector();
                                                   exportFutures.add(executeExportQuery(clientId, q2, job, s3Path));
                                                 }
@@ -369,7 +398,7 @@ public class JDBCExporter extends JdbcBasedHandler {
                                       logger.warn("job[{}] ", job.getId(), e);
                                       return Future.failedFuture(e);
                                   }
-                              });
+                              }));
               }
             }
             catch (Exception e) {
@@ -426,6 +455,36 @@ public class JDBCExporter extends JdbcBasedHandler {
               : Future.succeededFuture(threadCount));
     }
 
+    /**
+     * Loads the range of the serial column "i" of the space table. Reading min() / max() is served by the serial index.
+     * @return The lowest and the highest serial of the table, [0, 0] if the table is empty
+     */
+    private Future<long[]> loadSerialRange(Export j, String schema) {
+      SQLQuery q = new SQLQuery("SELECT /* s3_export_hint m499#jobId(" + j.getId() + ") */ "
+          + "coalesce(min(i), 0) AS min_i, coalesce(max(i), 0) AS max_i FROM ${schema}.${table}")
+          .withVariable("schema", schema)
+          .withVariable("table", j.getTargetTable());
+
+      return getClient(j.getTargetConnector())
+          .compose(client -> client.run(q, rs -> rs.next() ? new long[]{rs.getLong("min_i"), rs.getLong("max_i")} : null, true))
+          .compose(serialRange -> serialRange == null
+              ? Future.failedFuture("Error loading the serial range for export for " + j.getId())
+              : Future.succeededFuture(serialRange));
+    }
+
+    /**
+     * Builds the condition which restricts an export thread to its own slice of the serial column "i", so that each thread only
+     * reads its own rows (using the serial index) rather than scanning the whole table and filtering by a modulo.
+     * The first and the last slice are open-ended, so also rows of other tables (e.g., of the base space of a composite space)
+     * with serials outside the range of the space table are exported exactly once.
+     */
+    static SQLQuery buildSerialRangeCondition(long[] serialRange, int partCount, int part) {
+      long sliceSize = Math.max(1, (serialRange[1] - serialRange[0]) / partCount + 1);
+      long lowerBound = serialRange[0] + part * sliceSize;
+      return new SQLQuery((part > 0 ? "AND i >= " + lowerBound + " " : "")
+          + (part < partCount - 1 ? "AND i < " + (lowerBound + sliceSize) : ""));
+    }
+
     private Future<List<String>> calculateTileListForVMLExport(Export j, String schema, SQLQuery exportQuery, SQLQuery qkQuery) {
       if (j.getProcessingList() != null)
         return Future.succeededFuture(j.getProcessingList());
@@ -470,17 +529,173 @@ public class JDBCExporter extends JdbcBasedHandler {
         }, true));
     }
 
-  public SQLQuery buildS3ExportQuery(JdbcClient client, Export j, String schema,
-                                              String s3Bucket, String s3Path, String s3FilePrefix, String s3Region,
-                                              boolean isForCompositeContentDetection, SQLQuery customWhereCondition) throws SQLException {
+    public static boolean useCopyExportEngine() {
+        return CService.configuration != null && COPY_EXPORT_ENGINE.equalsIgnoreCase(CService.configuration.JOB_EXPORT_ENGINE);
+    }
+
+    private synchronized ExportSink getExportSink() {
+        if (exportSink == null)
+            exportSink = CService.configuration.JOB_EXPORT_LOCAL_DIRECTORY != null
+                ? new LocalDirectorySink(Paths.get(CService.configuration.JOB_EXPORT_LOCAL_DIRECTORY))
+                : new S3MultipartSink(CService.jobS3Client.client, CService.configuration.JOBS_S3_BUCKET);
+        return exportSink;
+    }
 
+    /**
+     * The exports which are written by the service are blocking for their whole duration,
+     * so they get their own bounded pool rather than occupying the shared worker pool of Vert.x.
+     * Further exports are queued until a worker is available.
+     */
+    private synchronized WorkerExecutor getExportWorkers() {
+        if (exportWorkers == null)
+            exportWorkers = Core.vertx.createSharedWorkerExecutor(JDBCExporter.class.getName(), CService.configuration.JOB_EXPORT_MAX_WORKERS,
+                MAX_EXPORT_WORKER_EXECUTE_TIME_HOURS, TimeUnit.HOURS);
+        return exportWorkers;
+    }
+
+    /**
+     * Exports the results of the export query by streaming them out of the reader of the space's database.
+     * The files are written by the service into the configured export sink rather than by the database itself.
+     * @see CopyExportEngine
+     */
+    private Future<ExportStatistic> executeCopyExport(JdbcClient client, Export j, SQLQuery exportSelectString, String filePath) {
+        logger.info("job[{}] Execute COPY-Export {}->{}", j.getId(), j.getTargetSpaceId(), filePath);
+        //The export query is a format() expression, so first resolve the actual query text
+        SQLQuery resolveQuery = new SQLQuery("SELECT /* copy_export_hint m499#jobId(" + j.getId() + ") */ ${{exportSelectString}}")
+            .withQueryFragment("exportSelectString", exportSelectString);
+
+        return client.run(resolveQuery, rs -> rs.next() ? rs.getString(1) : null, true)
+            .compose(queryText -> getExportWorkers().executeBlocking(promise -> {
+                try {
+                    promise.complete(new CopyExportEngine(client.getDataSourceProvider(), getExportSink())
+                        .withMaxChunkSize(CService.configuration.JOB_EXPORT_MAX_CHUNK_SIZE_MB * 1024L * 1024L)
+                        .withCompressed(CService.configuration.JOB_EXPORT_COMPRESSION)
+                        .withQueryHint(copyExportHint(j))
+                        .export(queryText, filePath));
+                }
+                catch (Exception e) {
+                    logger.warn("job[{}] COPY-Export {}->{} failed", j.getId(), j.getTargetSpaceId(), filePath, e);
+                    promise.fail(e);
+                }
+            }, false));
+    }
+
+    /**
+     * Exports the results of the export query into GeoParquet files which are written by the service.
+     * @see GeoParquetExporter
+     */
+    private Future<ExportStatistic> executeGeoParquetExport(JdbcClient client, Export j, SQLQuery exportSelectString, String filePath) {
+        logger.info("job[{}] Execute GeoParquet-Export {}->{}", j.getId(), j.getTargetSpaceId(), filePath);
+        FileOutputSettings outputSettings = ((FileBasedTarget) j.getTarget()).getOutputSettings();
+        SQLQuery resolveQuery = new SQLQuery("SELECT /* copy_export_hint m499#jobId(" + j.getId() + ") */ ${{exportSelectString}}")
+            .withQueryFragment("exportSelectString", exportSelectString);
+
+        return client.run(resolveQuery, rs -> rs.next() ? rs.getString(1) : null, true)
+            .compose(queryText -> getExportWorkers().executeBlocking(promise -> {
+                try {
+                    promise.complete(new GeoParquetExporter(client.getDataSourceProvider(), getExportSink(), getGeoParquetFormat(j))
+                        .withMaxFileSize(outputSettings.getChunking().getMaxSizeMB() * 1024L * 1024L)
+                        .withTileLevel(outputSettings.getPartitioning() instanceof Tiles tiles ? tiles.getLevel() : null)
+                        .withQueryHint(copyExportHint(j))
+                        .export(queryText, filePath));
+                }
+                catch (Exception e) {
+                    logger.warn("job[{}] GeoParquet-Export {}->{} failed", j.getId(), j.getTargetSpaceId(), filePath, e);
+                    promise.fail(e);
+                }
+            }, false));
+    }
+
+    /**
+     * Exports the inhabited tiles of the target level with one export query per group of tiles (see exp_build_sql_inhabited_txt()).
+     */
+    private Future<ExportStatistic> executeInhabitedTilesExport(JdbcClient client, Export job, String schema, SQLQuery exportQuery,
+        SQLQuery qkQuery, String s3Bucket, String s3Path, String s3Region) {
+        return calculateTileListForVMLExport(job, schema, exportQuery, qkQuery)
+            .compose(tileList -> {
+                try {
+                    Promise<Export.ExportStatistic> promise = Promise.promise();
+                    List<Future> exportFutures = new ArrayList<>();
+                    job.setProcessingList(tileList);
+
+                    for (int i = 0; i < tileList.size(); i++) {
+                        /** Build export for each tile of the weighted tile list */
+                        SQLQuery q2 = buildVMLExportQuery(client, job, schema, s3Bucket, s3Path, s3Region, tileList.get(i), qkQuery);
+
+                        exportFutures.add(executeExportQuery(job.getTargetConnector(), q2, job, s3Path));
+                    }
+
+                    return executeParallelExportAndCollectStatistics(job, promise, exportFutures);
+                }
+                catch (SQLException e) {
+                    logger.warn("job[{}] ", job.getId(), e);
+                    return Future.failedFuture(e);
+                }
+            });
+    }
+
+    /**
+     * Exports the results of the export query partitioned into the tiles of the target level in one pass over the features.
+     * The tile files are written by the service, the same way as they would have been written by exp_build_sql_inhabited_txt().
+     * @see TiledExportEngine
+     */
+    private Future<ExportStatistic> executeTiledExport(JdbcClient client, Export j, SQLQuery exportSelectString, String s3Path) {
+        logger.info("job[{}] Execute Tiled-Export {}->{}", j.getId(), j.getTargetSpaceId(), s3Path);
+        SQLQuery resolveQuery = new SQLQuery("SELECT /* copy_export_hint m499#jobId(" + j.getId() + ") */ ${{exportSelectString}}")
+            .withQueryFragment("exportSelectString", exportSelectString);
+
+        return client.run(resolveQuery, rs -> rs.next() ? rs.getString(1) : null, true)
+            .compose(queryText -> getExportWorkers().executeBlocking(promise -> {
+                try {
+                    promise.complete(new TiledExportEngine(client.getDataSourceProvider(), getExportSink(), j.getTargetLevel())
+                        .withClipped(j.getClipped() != null && j.getClipped())
+                        .withMaxTilesPerFile(j.getMaxTilesPerFile())
+                        .withMaxPendingFeatures(CService.configuration.JOB_EXPORT_MAX_PENDING_TILE_FEATURES)
+                        .withCompressed(CService.configuration.JOB_EXPORT_COMPRESSION)
+                        .withQueryHint(copyExportHint(j))
+                        .export(queryText, s3Path));
+                }
+                catch (Exception e) {
+                    logger.warn("job[{}] Tiled-Export {}->{} failed", j.getId(), j.getTargetSpaceId(), s3Path, e);
+                    promise.fail(e);
+                }
+            }, false));
+    }
+
+    /**
+     * The statements of the service-side exports carry the same hint as the export queries of the database,
+     * so that they can be aborted and their progress can be reported by the StatusHandler.
+     */
+    private static String copyExportHint(Export j) {
+        return "copy_export_hint m499#jobId(" + j.getId() + ")";
+    }
+
+    private static GeoParquet getGeoParquetFormat(Export j) {
+        return j.getTarget() instanceof FileBasedTarget fbt && fbt.getOutputSettings().getFormat() instanceof GeoParquet geoParquet
+            ? geoParquet
+            : null;
+    }
+
+    private static String buildExportFilePath(String s3Path, String s3FilePrefix) {
+        return s3Path + "/" + (s3FilePrefix == null ? "" : s3FilePrefix) + "export.csv";
+    }
+
+    private SQLQuery buildExportSelectString(JdbcClient client, Export j, String schema, boolean isForCompositeContentDetection,
+        SQLQuery customWhereCondition) throws SQLException {
         String propertyFilter = (j.getFilters() == null ? null : j.getFilters().getPropertyFilter());
         SpatialFilter spatialFilter= (j.getFilters() == null ? null : j.getFilters().getSpatialFilter());
 
-        s3Path = s3Path+ "/" +(s3FilePrefix == null ? "" : s3FilePrefix)+"export.csv";
-        SQLQuery exportSelectString = generateFilteredExportQuery(client, schema, j.getTargetSpaceId(), propertyFilter, spatialFilter,
+        return generateFilteredExportQuery(client, schema, j.getTargetSpaceId(), propertyFilter, spatialFilter,
                 j.getTargetVersion(), j.getParams(), j.getCsvFormat(), customWhereCondition, isForCompositeContentDetection,
-                j.getPartitionKey(), j.getOmitOnNull());
+                j.getPartitionKey(), j.getOmitOnNull(), j.getFromVersion());
+    }
+
+  public SQLQuery buildS3ExportQuery(JdbcClient client, Export j, String schema,
+                                              String s3Bucket, String s3Path, String s3FilePrefix, String s3Region,
+                                              boolean isForCompositeContentDetection, SQLQuery customWhereCondition) throws SQLException {
+
+        s3Path = buildExportFilePath(s3Path, s3FilePrefix);
+        SQLQuery exportSelectString = buildExportSelectString(client, j, schema, isForCompositeContentDetection, customWhereCondition);
 
         SQLQuery q = new SQLQuery("SELECT * /* s3_export_hint m499#jobId(" + j.getId() + ") */ from aws_s3.query_export_to_s3( "+
                 " ${{exportSelectString}},"+
@@ -499,14 +714,8 @@ public class JDBCExporter extends JdbcBasedHandler {
     private SQLQuery buildPartIdVMLExportQuery(JdbcClient client, Export j, String schema, String s3Bucket, String s3Path, String s3FilePrefix,
         String s3Region, boolean isForCompositeContentDetection, SQLQuery customWhereCondition) throws SQLException {
         //Generic partition
-        String propertyFilter = (j.getFilters() == null ? null : j.getFilters().getPropertyFilter());
-        SpatialFilter spatialFilter= (j.getFilters() == null ? null : j.getFilters().getSpatialFilter());
-
-        s3Path = s3Path+ "/" +(s3FilePrefix == null ? "" : s3FilePrefix)+"export.csv";
-
-        SQLQuery exportSelectString = generateFilteredExportQuery(client, schema, j.getTargetSpaceId(), propertyFilter, spatialFilter,
-                j.getTargetVersion(), j.getParams(), j.getCsvFormat(), customWhereCondition, isForCompositeContentDetection,
-                j.getPartitionKey(), j.getOmitOnNull());
+        s3Path = buildExportFilePath(s3Path, s3FilePrefix);
+        SQLQuery exportSelectString = buildExportSelectString(client, j, schema, isForCompositeContentDetection, customWhereCondition);
 
         SQLQuery q = new SQLQuery("SELECT * /* vml_export_hint m499#jobId(" + j.getId() + ") */ from aws_s3.query_export_to_s3( "+
                 " ${{exportSelectString}},"+
@@ -569,23 +778,23 @@ public class JDBCExporter extends JdbcBasedHandler {
 
     private SQLQuery generateFilteredExportQuery(JdbcClient client, String schema, String spaceId, String propertyFilter,
         SpatialFilter spatialFilter, String targetVersion, Map params, CSVFormat csvFormat) throws SQLException {
-        return generateFilteredExportQuery(client, schema, spaceId, propertyFilter, spatialFilter, targetVersion, params, csvFormat, null, false, null, false);
+        return generateFilteredExportQuery(client, schema, spaceId, propertyFilter, spatialFilter, targetVersion, params, csvFormat, null, false, null, false, null);
     }
 
     private SQLQuery generateFilteredExportQuery(JdbcClient client, String schema, String spaceId, String propertyFilter,
                                                         SpatialFilter spatialFilter, String targetVersion, Map params, CSVFormat csvFormat, boolean isForCompositeContentDetection) throws SQLException {
-        return generateFilteredExportQuery(client, schema, spaceId, propertyFilter, spatialFilter, targetVersion, params, csvFormat, null, isForCompositeContentDetection, null, false);
+        return generateFilteredExportQuery(client, schema, spaceId, propertyFilter, spatialFilter, targetVersion, params, csvFormat, null, isForCompositeContentDetection, null, false, null);
     }
 
 
     private SQLQuery generateFilteredExportQueryForCompositeTileCalculation(JdbcClient client, String schema, String spaceId, String propertyFilter,
                                                         SpatialFilter spatialFilter, String targetVersion, Map params, CSVFormat csvFormat) throws SQLException {
-        return generateFilteredExportQuery(client, schema, spaceId, propertyFilter, spatialFilter, targetVersion, params, csvFormat, null, true, null, false);
+        return generateFilteredExportQuery(client, schema, spaceId, propertyFilter, spatialFilter, targetVersion, params, csvFormat, null, true, null, false, null);
     }
 
     private SQLQuery generateFilteredExportQuery(JdbcClient client, String schema, String spaceId, String propertyFilter,
-        SpatialFilter spatialFilter, String targetVersion, Map params, CSVFormat csvFormat, SQLQuery customWhereCondition, boolean isForCompositeContentDetection, String partitionKey, Boolean omitOnNull )
-        throws SQLException {
+        SpatialFilter spatialFilter, String targetVersion, Map params, CSVFormat csvFormat, SQLQuery customWhereCondition, boolean isForCompositeContentDetection, String partitionKey, Boolean omitOnNull,
+        Long fromVersion) throws SQLException {
 
         csvFormat = (( csvFormat == PARTITIONED_JSON_WKB && ( partitionKey == null || "tileid".equalsIgnoreCase(partitionKey)) ) ? TILEID_FC_B64 : csvFormat );
 
@@ -651,8 +860,12 @@ public class JDBCExporter extends JdbcBasedHandler {
 
         contentQuery = queryRunner
               .withGeoOverride(buildGeoFragment(spatialFilter))
+              .withFromVersion(fromVersion)
               .buildQuery(event);
 
+          if (fromVersion != null)
+            contentQuery = buildChangesQuery(contentQuery);
+
           if (partitionByPropertyValue && isForCompositeContentDetection) {
             event.setContext(ctxStashed);
             contentQueryByPropertyValue = ((ExportSpace) getQueryRunner(client, spatialFilter, event))
@@ -751,6 +964,17 @@ public class JDBCExporter extends JdbcBasedHandler {
 
     }
 
+  /**
+   * Wraps the content query of an incremental export, so that deleted features are exported flagged as deleted in their XYZ namespace.
+   * A deletion is exported with the state of the feature at the time it was deleted.
+   */
+  private static SQLQuery buildChangesQuery(SQLQuery contentQuery) {
+    return new SQLQuery("SELECT id, CASE WHEN operation = 'D' "
+        + "THEN jsonb_set(jsondata, '{properties,@ns:com:here:xyz,deleted}', 'true'::jsonb) ELSE jsondata END AS jsondata, geo "
+        + "FROM (${{changesQuery}}) changes")
+        .withQueryFragment("changesQuery", contentQuery);
+  }
+
   private static SQLQuery buildGeoFragment(SpatialFilter spatialFilter) {
     if (spatialFilter != null && spatialFilter.isClipped()) {
       return new SQLQuery("ST_Intersection(ST_MakeValid(geo), ST_Buffer(ST_GeomFromText(#{wktGeometry})::geography, #{radius})::geometry) as geo")
@@ -30,6 +30,7 @@ import com.here.xyz.httpconnector.util.web.LegacyHubWebClient;
 import com.here.xyz.models.hub.Space;
 import com.here.xyz.psql.DatabaseMaintainer;
 import com.here.xyz.psql.factory.MaintenanceSQL;
+import com.here.xyz.psql.query.bbox.QuadbinPyramid;
 import com.here.xyz.responses.maintenance.ConnectorStatus;
 import com.here.xyz.responses.maintenance.SpaceStatus;
 import com.here.xyz.util.Hasher;
@@ -286,15 +287,24 @@ public class JDBCMaintainer extends JdbcBasedHandler {
                     String maintenanceJobId = "" + Core.currentTimeMillis();
                     int mode = autoIndexing == true ? 2 : 0;
 
+                    //Apply the queued changes of the quadbin pyramids, that's independent of the indexing
+                    SQLQuery applyPyramids = new SQLQuery("SELECT /*maintenance_hint m499#connectorId("+connectorId+")*/ xyz_qk_pyramid_apply_all(#{schema})")
+                        .withNamedParameter("schema", dbSettings.getSchema());
+
                     //Check Status of idx_
                     SQLQuery q = new SQLQuery(MaintenanceSQL.checkIDXStatus);
 
-                    return client.run(q,
+                    return client.run(applyPyramids)
+                        .recover(t -> {
+                          logger.warn("{}: Could not apply the quadbin pyramids", connectorId, t);
+                          return Future.succeededFuture();
+                        })
+                        .compose(v -> client.run(q,
                             rs -> {
                               if (rs.next())
                                 return rs.getInt(1);
                               return -1;
-                            })
+                            }))
                         .<Future<Void>>compose(status -> {
                           if (status == 16) {
                             logger.info("{}: Indexing is disabled database wide! ", connectorId);
@@ -376,6 +386,12 @@ public class JDBCMaintainer extends JdbcBasedHandler {
 
                                 return client.write(updateIDXEntry).mapEmpty();
                               })
+                              .compose(v -> {
+                                logger.info("[{}]: Apply quadbin pyramid {}@{}", spaceId, table, space.getStorage().getId());
+                                SQLQuery applyPyramid = QuadbinPyramid.buildApplyQuery(dbSettings.getSchema(), table);
+
+                                return client.run(applyPyramid);
+                              })
                               .compose(v -> {
                                 logger.info("[{}]: Maintain Space {}@{}", spaceId, table, space.getStorage().getId());
                                 SQLQuery maintainSpace = new SQLQuery("select /*maintenance_hint m499#spaceId("+spaceId+")*/ xyz_maintain_idxs_for_space(#{schema}, #{spaceId})")
@@ -34,12 +34,33 @@ public interface ExportSpace<E extends SearchForFeaturesEvent> {
 
   ExportSpace<E> withCustomWhereClause(SQLQuery whereClauseOverride);
 
+  /**
+   * Restricts the query to the changes which happened after the specified version (up to the version of the event's ref).
+   * The deleted features are part of the result in that case, the column "operation" is selected additionally to identify them.
+   */
+  ExportSpace<E> withFromVersion(Long fromVersion);
+
   default SQLQuery patchSelectClause(SQLQuery selectClause, SQLQuery selectionOverride) {
     if (selectionOverride != null)
       return selectClause.withQueryFragment("selection", selectionOverride);
     return selectClause;
   }
 
+  default SQLQuery patchSelectClauseForChanges(SQLQuery selectClause, Long fromVersion) {
+    if (fromVersion == null)
+      return selectClause;
+    return new SQLQuery("${{selectClause}}, operation")
+        .withQueryFragment("selectClause", selectClause);
+  }
+
+  default SQLQuery patchFiltersFragmentForChanges(SQLQuery filtersFragment, Long fromVersion) {
+    if (fromVersion == null)
+      return filtersFragment;
+    //Replaces the check which filters out deleted features, as deletions are part of the changes
+    return filtersFragment.withQueryFragment("deletedCheck", new SQLQuery("AND version > #{changesFromVersion}")
+        .withNamedParameter("changesFromVersion", fromVersion));
+  }
+
   default SQLQuery patchWhereClause(SQLQuery filterWhereClause, SQLQuery customWhereClause) {
     if (customWhereClause == null)
       return filterWhereClause;
@@ -29,6 +29,7 @@ public class ExportSpaceByGeometry extends GetFeaturesByGeometry implements Expo
   SQLQuery selectionOverride;
   SQLQuery geoOverride;
   SQLQuery customWhereClause;
+  Long fromVersion;
 
   public ExportSpaceByGeometry(GetFeaturesByGeometryEvent event) throws SQLException, ErrorResponseException {
     super(event);
@@ -41,7 +42,12 @@ public class ExportSpaceByGeometry extends GetFeaturesByGeometry implements Expo
 
   @Override
   protected SQLQuery buildSelectClause(GetFeaturesByGeometryEvent event, int dataset) {
-    return patchSelectClause(super.buildSelectClause(event, dataset), selectionOverride);
+    return patchSelectClauseForChanges(patchSelectClause(super.buildSelectClause(event, dataset), selectionOverride), fromVersion);
+  }
+
+  @Override
+  protected SQLQuery buildFiltersFragment(GetFeaturesByGeometryEvent event, boolean isExtension, SQLQuery filterWhereClause, int dataset) {
+    return patchFiltersFragmentForChanges(super.buildFiltersFragment(event, isExtension, filterWhereClause, dataset), fromVersion);
   }
 
   @Override
@@ -78,4 +84,10 @@ public class ExportSpaceByGeometry extends GetFeaturesByGeometry implements Expo
     this.customWhereClause = customWhereClause;
     return this;
   }
+
+  @Override
+  public ExportSpace<GetFeaturesByGeometryEvent> withFromVersion(Long fromVersion) {
+    this.fromVersion = fromVersion;
+    return this;
+  }
 }
@@ -32,6 +32,7 @@ public class ExportSpaceByProperties extends SearchForFeatures<SearchForFeatures
   SQLQuery selectionOverride;
   SQLQuery geoOverride;
   SQLQuery customWhereClause;
+  Long fromVersion;
 
   public ExportSpaceByProperties(GetFeaturesByGeometryEvent event) throws SQLException, ErrorResponseException {
     super(event);
@@ -44,7 +45,12 @@ public class ExportSpaceByProperties extends SearchForFeatures<SearchForFeatures
 
   @Override
   protected SQLQuery buildSelectClause(SearchForFeaturesEvent event, int dataset) {
-    return patchSelectClause(super.buildSelectClause(event, dataset), selectionOverride);
+    return patchSelectClauseForChanges(patchSelectClause(super.buildSelectClause(event, dataset), selectionOverride), fromVersion);
+  }
+
+  @Override
+  protected SQLQuery buildFiltersFragment(SearchForFeaturesEvent event, boolean isExtension, SQLQuery filterWhereClause, int dataset) {
+    return patchFiltersFragmentForChanges(super.buildFiltersFragment(event, isExtension, filterWhereClause, dataset), fromVersion);
   }
 
   @Override
@@ -81,4 +87,10 @@ public class ExportSpaceByProperties extends SearchForFeatures<SearchForFeatures
     this.customWhereClause = customWhereClause;
     return this;
   }
+
+  @Override
+  public ExportSpace<SearchForFeaturesEvent> withFromVersion(Long fromVersion) {
+    this.fromVersion = fromVersion;
+    return this;
+  }
 }
@@ -36,6 +36,7 @@ import com.here.xyz.httpconnector.task.JobHandler;
 import com.here.xyz.httpconnector.util.jobs.Import;
 import com.here.xyz.httpconnector.util.jobs.Job;
 import com.here.xyz.httpconnector.util.jobs.RuntimeStatus;
+import com.here.xyz.httpconnector.util.scheduler.JobTelemetryCollector;
 import com.here.xyz.hub.rest.Api;
 import com.here.xyz.util.service.HttpException;
 import com.here.xyz.util.service.logging.LogUtil;
@@ -99,7 +100,7 @@ public class JobApi extends Api {
 
     JobHandler.loadJob(jobId, LogUtil.getMarker(context))
             .onFailure(e -> this.sendError(e, context))
-            .onSuccess(job -> this.sendResponse(context, OK, job));
+            .onSuccess(job -> this.sendResponse(context, OK, job.withTelemetry(JobTelemetryCollector.getTelemetry(jobId))));
   }
 
   private void getJobs(final RoutingContext context) {
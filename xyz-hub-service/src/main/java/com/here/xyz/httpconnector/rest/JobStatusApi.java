@@ -28,7 +28,9 @@ import com.here.xyz.httpconnector.task.JobHandler;
 import com.here.xyz.httpconnector.task.StatusHandler;
 import com.here.xyz.httpconnector.util.scheduler.ImportQueue;
 import com.here.xyz.httpconnector.util.scheduler.JobQueue;
+import com.here.xyz.httpconnector.util.scheduler.JobTelemetryCollector;
 import com.here.xyz.httpconnector.util.status.RDSStatus;
+import com.here.xyz.util.TransferTelemetry;
 import com.here.xyz.util.service.logging.LogUtil;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
@@ -149,6 +151,9 @@ public class JobStatusApi {
             info.put("type", j.getClass().getSimpleName());
             info.put("id", j.getId());
             info.put("status", j.getStatus());
+            TransferTelemetry telemetry = JobTelemetryCollector.getTelemetry(j.getId());
+            if (telemetry != null)
+                info.put("telemetry", new JSONObject(Json.encode(telemetry)));
             return info;
         }).toArray());
 
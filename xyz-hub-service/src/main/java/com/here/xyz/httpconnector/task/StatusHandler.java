@@ -27,12 +27,17 @@ import com.here.xyz.httpconnector.util.jobs.Job;
 import com.here.xyz.httpconnector.util.status.RDSStatus;
 import com.here.xyz.httpconnector.util.status.RunningQueryStatistic;
 import com.here.xyz.httpconnector.util.status.RunningQueryStatistics;
+import com.here.xyz.util.TransferTelemetry;
 import com.here.xyz.util.db.DatabaseSettings;
 import com.here.xyz.util.db.JdbcClient;
 import com.here.xyz.util.db.SQLQuery;
 import io.vertx.core.Future;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -121,6 +126,55 @@ public class StatusHandler extends JdbcBasedHandler {
           .withNamedParameter("jobIdentifier", getJobIdentifier(job));
   }
 
+  /**
+   * Updates the telemetry of a job by the progress of its running COPY queries on writer & reader.
+   * Each running query is reported as one thread of the telemetry, queries which are not running anymore are marked as completed.
+   * NOTE: The progress of COPY queries is only available on databases with PostgreSQL 14 or later.
+   */
+  public Future<Void> updateTransferTelemetry(Job job, TransferTelemetry telemetry) {
+    return getClient(job.getTargetConnector())
+        .compose(client -> {
+          SQLQuery q = buildTransferProgressQuery(job);
+          return Future.all(
+              collectTransferProgress(client, q, telemetry, false),
+              collectTransferProgress(client, q, telemetry, true)
+          );
+        })
+        .map(cf -> {
+          Set<String> activeThreadIds = new HashSet<>();
+          cf.<List<String>>list().forEach(activeThreadIds::addAll);
+          telemetry.completeAllExcept(activeThreadIds);
+          return null;
+        });
+  }
+
+  private static Future<List<String>> collectTransferProgress(JdbcClient client, SQLQuery progressQuery,
+      TransferTelemetry telemetry, boolean useReader) {
+    if (useReader && !client.hasReader())
+      return Future.succeededFuture(List.of());
+    return client.run(progressQuery, rs -> {
+      List<String> threadIds = new ArrayList<>();
+      forEachResult(rs, () -> {
+        //A new query on the same backend is a new thread
+        String threadId = (useReader ? "reader:" : "writer:") + rs.getInt("pid") + "@" + rs.getTimestamp("query_start").getTime();
+        telemetry.update(threadId, rs.getLong("tuples_processed"), rs.getLong("bytes_processed"));
+        threadIds.add(threadId);
+      });
+      return threadIds;
+    }, useReader);
+  }
+
+  private static SQLQuery buildTransferProgressQuery(Job job) {
+    return new SQLQuery("SELECT a.pid, a.query_start, p.tuples_processed, p.bytes_processed "
+        + "FROM pg_stat_activity a JOIN pg_stat_progress_copy p ON p.pid = a.pid "
+        + "WHERE a.state = 'active' "
+        + "AND strpos(a.query, 'pg_stat_progress_copy') = 0 "
+        + "AND strpos(a.query, #{queryIdentifier}) > 0 "
+        + "AND strpos(a.query, #{jobIdentifier}) > 0")
+        .withNamedParameter("queryIdentifier", job.getQueryIdentifier())
+        .withNamedParameter("jobIdentifier", getJobIdentifier(job));
+  }
+
   private static String getJobIdentifier(Job job) {
       return "m499#jobId(" + job.getId() + ")";
   }
@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.httpconnector.util.export;
+
+import com.google.common.io.CountingOutputStream;
+import com.here.xyz.httpconnector.util.jobs.Export.ExportStatistic;
+import com.here.xyz.util.db.datasource.DataSourceProvider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyOut;
+
+/**
+ * Exports the result of a query by streaming it from the database using <code>COPY (query) TO STDOUT</code>.
+ *
+ * Other than aws_s3.query_export_to_s3(), the files are not written by the database itself, but by the service. So the export
+ * does not depend on any database extension, and the compression & upload does not consume any CPU of the database.
+ * The rows are written to chunk files of a limited size into an {@link ExportSink}.
+ * Each chunk only contains complete rows, as the database sends every row within its own copy message.
+ *
+ * The encoding of the rows (e.g. according to the CSVFormat of an export job) is done by the query itself, the engine writes
+ * its result as CSV with the same options which are used for the exports to S3 by the database.
+ *
+ * One instance can be used for multiple exports in parallel, each export uses its own connection of the reader.
+ */
+public class CopyExportEngine {
+  private static final Logger logger = LogManager.getLogger();
+  private static final long DEFAULT_MAX_CHUNK_SIZE = 1024L * 1024 * 1024;
+  private static final String CSV_OPTIONS = "FORMAT csv, DELIMITER ',', ENCODING 'UTF8', QUOTE '\"', ESCAPE ''''";
+  private static final String GZIP_SUFFIX = ".gz";
+  private final DataSourceProvider dataSourceProvider;
+  private final ExportSink sink;
+  private long maxChunkSize = DEFAULT_MAX_CHUNK_SIZE;
+  private boolean compressed = true;
+  private String queryHint;
+
+  public CopyExportEngine(DataSourceProvider dataSourceProvider, ExportSink sink) {
+    this.dataSourceProvider = dataSourceProvider;
+    this.sink = sink;
+  }
+
+  /**
+   * Streams the result of the query into one or more chunk files.
+   * The first chunk is written to the specified key, further chunks get the suffix "_part2", "_part3", ...
+   * (the same naming as it is used by aws_s3.query_export_to_s3()).
+   * If compression is active, the suffix ".gz" is appended to each key.
+   *
+   * This method blocks until the export is complete. In case of a failure, all chunks of the export are discarded.
+   *
+   * @param queryText The (fully substituted) query of which the results should be exported
+   * @param key The key of the first chunk file
+   * @return The statistics of the export
+   */
+  public ExportStatistic export(String queryText, String key) throws SQLException, IOException {
+    logger.info("Exporting query results to {} ...", key);
+    try (Connection connection = dataSourceProvider.getReader().getConnection()) {
+      return export(connection.unwrap(PGConnection.class).getCopyAPI().copyOut(buildCopyStatement(queryText, queryHint)), key);
+    }
+  }
+
+  /**
+   * Writes the rows of the running copy operation into the chunk files.
+   */
+  ExportStatistic export(CopyOut copyOut, String key) throws SQLException, IOException {
+    ChunkWriter writer = new ChunkWriter(key);
+    try {
+      byte[] row;
+      while ((row = copyOut.readFromCopy()) != null)
+        writer.writeRow(row);
+      writer.finish();
+    }
+    catch (SQLException | IOException | RuntimeException e) {
+      if (copyOut.isActive())
+        copyOut.cancelCopy();
+      writer.discard();
+      throw e;
+    }
+
+    logger.info("Exported {} rows into {} files ({} bytes) to {}", writer.rows, writer.chunks, writer.bytes, key);
+    return new ExportStatistic()
+        .withRowsUploaded(writer.rows)
+        .withFilesUploaded(writer.chunks)
+        .withBytesUploaded(writer.bytes);
+  }
+
+  static String buildCopyStatement(String queryText, String queryHint) {
+    queryText = queryText.trim();
+    if (queryText.endsWith(";"))
+      queryText = queryText.substring(0, queryText.length() - 1);
+    return "COPY " + hintComment(queryHint) + "(" + queryText + ") TO STDOUT WITH (" + CSV_OPTIONS + ")";
+  }
+
+  /**
+   * The comment which is placed right after the first keyword of the statements which are sent by the export engines.
+   */
+  static String hintComment(String queryHint) {
+    return queryHint == null ? "" : "/* " + queryHint + " */ ";
+  }
+
+  private String chunkKey(String key, int chunkNumber) {
+    return key + (chunkNumber == 1 ? "" : "_part" + chunkNumber) + (compressed ? GZIP_SUFFIX : "");
+  }
+
+  /**
+   * Writes the rows into the current chunk and starts a new chunk whenever the current one has reached the maximum size.
+   */
+  private class ChunkWriter {
+    private final String key;
+    private final List<String> chunkKeys = new ArrayList<>();
+    private CountingOutputStream chunkOut;
+    private OutputStream rowOut;
+    private String chunkKey;
+    private long rows;
+    private int chunks;
+    private long bytes;
+
+    private ChunkWriter(String key) {
+      this.key = key;
+    }
+
+    private void writeRow(byte[] row) throws IOException {
+      if (chunkOut != null && chunkOut.getCount() >= maxChunkSize)
+        closeChunk();
+      if (chunkOut == null)
+        openChunk();
+      rowOut.write(row);
+      rows++;
+    }
+
+    private void openChunk() throws IOException {
+      chunkKey = chunkKey(key, chunks + 1);
+      chunkKeys.add(chunkKey);
+      chunkOut = new CountingOutputStream(sink.createChunk(chunkKey));
+      rowOut = compressed ? new GZIPOutputStream(chunkOut, 64 * 1024) : chunkOut;
+      chunks++;
+    }
+
+    private void closeChunk() throws IOException {
+      rowOut.close();
+      bytes += chunkOut.getCount();
+      chunkOut = null;
+      rowOut = null;
+    }
+
+    private void finish() throws IOException {
+      if (chunkOut != null)
+        closeChunk();
+    }
+
+    /**
+     * Discards all chunks of the export, as an incomplete export must not be mistaken for a complete one.
+     */
+    private void discard() {
+      if (chunkOut != null) {
+        try {
+          rowOut.close();
+        }
+        catch (IOException e) {
+          logger.debug("Error closing incomplete chunk {}", chunkKey, e);
+        }
+        chunkOut = null;
+        rowOut = null;
+      }
+      for (String writtenChunkKey : chunkKeys)
+        sink.discardChunk(writtenChunkKey);
+    }
+  }
+
+  public long getMaxChunkSize() {
+    return maxChunkSize;
+  }
+
+  /**
+   * @param maxChunkSize The number of (compressed) bytes after which a new chunk file is started
+   */
+  public void setMaxChunkSize(long maxChunkSize) {
+    this.maxChunkSize = maxChunkSize;
+  }
+
+  public CopyExportEngine withMaxChunkSize(long maxChunkSize) {
+    setMaxChunkSize(maxChunkSize);
+    return this;
+  }
+
+  public boolean isCompressed() {
+    return compressed;
+  }
+
+  public void setCompressed(boolean compressed) {
+    this.compressed = compressed;
+  }
+
+  public CopyExportEngine withCompressed(boolean compressed) {
+    setCompressed(compressed);
+    return this;
+  }
+
+  public String getQueryHint() {
+    return queryHint;
+  }
+
+  /**
+   * @param queryHint A hint (e.g. "copy_export_hint m499#jobId(someJob)") which is added as comment to the statement,
+   *  so that the running statement can be identified (e.g. to abort it or to report its progress)
+   */
+  public void setQueryHint(String queryHint) {
+    if (queryHint != null && queryHint.contains("*/"))
+      throw new IllegalArgumentException("Invalid query hint: " + queryHint);
+    this.queryHint = queryHint;
+  }
+
+  public CopyExportEngine withQueryHint(String queryHint) {
+    setQueryHint(queryHint);
+    return this;
+  }
+}
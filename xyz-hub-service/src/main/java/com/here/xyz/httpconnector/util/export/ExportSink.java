@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.httpconnector.util.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The target to which the {@link CopyExportEngine} writes the chunk files of an export.
+ */
+public interface ExportSink {
+
+  /**
+   * Creates a new chunk file with the specified key.
+   * The chunk is only complete after the returned stream has been closed successfully.
+   *
+   * @param key The relative path of the chunk file (e.g. "exports/jobId/0_export_0.csv.gz")
+   * @return The stream to write the content of the chunk to
+   */
+  OutputStream createChunk(String key) throws IOException;
+
+  /**
+   * Discards a chunk which could not be written completely.
+   * The default implementation does nothing.
+   *
+   * @param key The key of the chunk as it was passed to {@link #createChunk(String)}
+   */
+  default void discardChunk(String key) {}
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.httpconnector.util.export;
+
+import static com.here.xyz.httpconnector.util.export.CopyExportEngine.hintComment;
+
+import com.here.xyz.XyzSerializable;
+import com.here.xyz.httpconnector.util.jobs.Export.ExportStatistic;
+import com.here.xyz.jobs.datasets.files.GeoParquet;
+import com.here.xyz.models.geojson.implementation.Geometry;
+import com.here.xyz.util.db.datasource.DataSourceProvider;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Exports the result of an export query (returning the columns "jsondata" and "geo") into GeoParquet files.
+ * The rows are streamed from the reader using a cursor and written by the {@link GeoParquetWriter} into files of a limited size
+ * into an {@link ExportSink}.
+ *
+ * If a tile level is set, the features are sorted by the tile of their centroid and the tile is written into an additional
+ * column. Each row group of the files will only contain the features of one tile then.
+ */
+public class GeoParquetExporter {
+  private static final Logger logger = LogManager.getLogger();
+  private static final String FILE_SUFFIX = ".parquet";
+  private static final String TILE_COLUMN = "tile";
+  private static final int FETCH_SIZE = 1_000;
+  private static final long MIN_ROW_GROUP_SIZE = 1024L * 1024;
+  private static final long MAX_ROW_GROUP_SIZE = 64L * 1024 * 1024;
+  private final DataSourceProvider dataSourceProvider;
+  private final ExportSink sink;
+  private final GeoParquet format;
+  private long maxFileSize = 512L * 1024 * 1024;
+  private Integer tileLevel;
+  private String queryHint;
+
+  public GeoParquetExporter(DataSourceProvider dataSourceProvider, ExportSink sink, GeoParquet format) {
+    this.dataSourceProvider = dataSourceProvider;
+    this.sink = sink;
+    this.format = format;
+  }
+
+  /**
+   * Streams the result of the query into one or more GeoParquet files.
+   * The first file is written to the specified key + ".parquet", further files get the suffix "_part2.parquet", ...
+   *
+   * This method blocks until the export is complete. All files of the export are discarded in case of a failure.
+   *
+   * @param queryText The (fully substituted) export query
+   * @param key The key of the first file without file extension
+   * @return The statistics of the export
+   */
+  public ExportStatistic export(String queryText, String key) throws SQLException, IOException {
+    logger.info("Exporting query results as GeoParquet to {} ...", key);
+    try (Connection connection = dataSourceProvider.getReader().getConnection()) {
+      //A cursor is only used by the driver within a transaction
+      connection.setAutoCommit(false);
+      try (Statement statement = connection.createStatement()) {
+        statement.setFetchSize(FETCH_SIZE);
+        return export(statement.executeQuery(buildQuery(queryText)), key);
+      }
+      finally {
+        connection.rollback();
+      }
+    }
+  }
+
+  /**
+   * Writes the rows of the result set into one or more GeoParquet files.
+   * All files of the export are discarded in case of a failure, so that no partial export remains.
+   */
+  ExportStatistic export(ResultSet rs, String key) throws SQLException, IOException {
+    long rows = 0, bytes = 0;
+    List<String> fileKeys = new ArrayList<>();
+    GeoParquetWriter writer = null;
+
+    try {
+      while (rs.next()) {
+        if (writer != null && writer.getBytesWritten() + writer.getBytesBuffered() >= maxFileSize) {
+          writer.close();
+          bytes += writer.getBytesWritten();
+          writer = null;
+        }
+        if (writer == null) {
+          String fileKey = key + (fileKeys.isEmpty() ? "" : "_part" + (fileKeys.size() + 1)) + FILE_SUFFIX;
+          fileKeys.add(fileKey);
+          writer = new GeoParquetWriter(sink.createChunk(fileKey), format, tileLevel != null ? TILE_COLUMN : null, rowGroupSize());
+        }
+
+        Map<String, Object> feature = XyzSerializable.deserialize(rs.getString(1), Map.class);
+        String geometry = rs.getString(2);
+        writer.write(feature, geometry == null ? null : XyzSerializable.deserialize(geometry, Geometry.class),
+            tileLevel != null ? rs.getString(3) : null);
+        rows++;
+      }
+      if (writer != null) {
+        writer.close();
+        bytes += writer.getBytesWritten();
+      }
+    }
+    catch (SQLException | IOException | RuntimeException e) {
+      if (writer != null) {
+        try {
+          writer.close();
+        }
+        catch (IOException closeException) {
+          logger.debug("Error closing incomplete file {}", fileKeys.get(fileKeys.size() - 1), closeException);
+        }
+      }
+      fileKeys.forEach(sink::discardChunk);
+      throw e;
+    }
+
+    logger.info("Exported {} rows into {} GeoParquet files ({} bytes) to {}", rows, fileKeys.size(), bytes, key);
+    return new ExportStatistic()
+        .withRowsUploaded(rows)
+        .withFilesUploaded(fileKeys.size())
+        .withBytesUploaded(bytes);
+  }
+
+  private String buildQuery(String queryText) {
+    queryText = queryText.trim();
+    if (queryText.endsWith(";"))
+      queryText = queryText.substring(0, queryText.length() - 1);
+
+    if (tileLevel == null)
+      return "SELECT " + hintComment(queryHint) + "jsondata::TEXT, ST_AsGeoJSON(geo, 8) FROM (" + queryText + ") export";
+    return "SELECT " + hintComment(queryHint) + "jsondata::TEXT, ST_AsGeoJSON(geo, 8), tile FROM (SELECT jsondata, geo, CASE WHEN geo IS NULL THEN NULL "
+        + "ELSE xyz_qk_point2qk(ST_Centroid(geo), " + tileLevel + ") END AS tile FROM (" + queryText + ") export) tiled "
+        + "ORDER BY tile";
+  }
+
+  /**
+   * The row groups are sized relative to the maximum file size, so that every file consists of multiple row groups.
+   */
+  private long rowGroupSize() {
+    return Math.max(MIN_ROW_GROUP_SIZE, Math.min(MAX_ROW_GROUP_SIZE, maxFileSize / 8));
+  }
+
+  public long getMaxFileSize() {
+    return maxFileSize;
+  }
+
+  public void setMaxFileSize(long maxFileSize) {
+    this.maxFileSize = maxFileSize;
+  }
+
+  public GeoParquetExporter withMaxFileSize(long maxFileSize) {
+    setMaxFileSize(maxFileSize);
+    return this;
+  }
+
+  public Integer getTileLevel() {
+    return tileLevel;
+  }
+
+  /**
+   * @param tileLevel The level of the tiles by which the features should be partitioned, or null for no partitioning
+   */
+  public void setTileLevel(Integer tileLevel) {
+    this.tileLevel = tileLevel;
+  }
+
+  public GeoParquetExporter withTileLevel(Integer tileLevel) {
+    setTileLevel(tileLevel);
+    return this;
+  }
+
+  public String getQueryHint() {
+    return queryHint;
+  }
+
+  /**
+   * @param queryHint A hint (e.g. "copy_export_hint m499#jobId(someJob)") which is added as comment to the statement,
+   *  so that the running statement can be identified (e.g. to abort it or to report its progress)
+   */
+  public void setQueryHint(String queryHint) {
+    if (queryHint != null && queryHint.contains("*/"))
+      throw new IllegalArgumentException("Invalid query hint: " + queryHint);
+    this.queryHint = queryHint;
+  }
+
+  public GeoParquetExporter withQueryHint(String queryHint) {
+    setQueryHint(queryHint);
+    return this;
+  }
+}
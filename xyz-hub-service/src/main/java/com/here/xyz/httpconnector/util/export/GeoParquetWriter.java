@@ -0,0 +1,608 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.httpconnector.util.export;
+
+import static com.here.xyz.httpconnector.util.export.ThriftCompactOutput.TYPE_BINARY;
+import static com.here.xyz.httpconnector.util.export.ThriftCompactOutput.TYPE_I32;
+import static com.here.xyz.httpconnector.util.export.ThriftCompactOutput.TYPE_STRUCT;
+import static com.here.xyz.jobs.datasets.files.GeoParquet.Compression.GZIP;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.io.CountingOutputStream;
+import com.here.xyz.XyzSerializable;
+import com.here.xyz.jobs.datasets.files.GeoParquet;
+import com.here.xyz.jobs.datasets.files.GeoParquet.ColumnType;
+import com.here.xyz.models.geojson.coordinates.BBox;
+import com.here.xyz.models.geojson.coordinates.WKBHelper;
+import com.here.xyz.models.geojson.implementation.Geometry;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes features into a GeoParquet (1.1) file.
+ *
+ * The file contains the following columns:
+ * <ul>
+ *   <li>id: The feature ID</li>
+ *   <li>[partition]: The partition key (e.g. the tile) of the feature, if a partition column is configured</li>
+ *   <li>One typed column per promoted property (see {@link GeoParquet#getPromotedProperties()})</li>
+ *   <li>properties: All other properties as JSON</li>
+ *   <li>geometry: The geometry as ISO WKB</li>
+ *   <li>bbox: The bounding box of the geometry as covering columns (xmin, ymin, xmax, ymax), if activated</li>
+ * </ul>
+ *
+ * The rows are buffered in memory column by column. Whenever the buffered data reaches the row group size, or the partition
+ * key changes, the row group is written to the output stream. That way each row group only contains features of one partition,
+ * and the statistics of the bbox columns allow readers to skip row groups spatially.
+ * Each column chunk is written as one PLAIN encoded data page which is optionally compressed using GZIP.
+ */
+public class GeoParquetWriter implements Closeable {
+  private static final byte[] MAGIC = "PAR1".getBytes(US_ASCII);
+  private static final String CREATED_BY = "xyz-hub GeoParquetWriter";
+  private static final String GEOMETRY_COLUMN = "geometry";
+  private static final String BBOX_COLUMN = "bbox";
+  private static final String[] BBOX_FIELDS = {"xmin", "ymin", "xmax", "ymax"};
+  //Parquet physical types
+  private static final int BOOLEAN = 0;
+  private static final int INT64 = 2;
+  private static final int DOUBLE = 5;
+  private static final int BYTE_ARRAY = 6;
+  //Parquet converted types
+  private static final int UTF8 = 0;
+  private static final int JSON = 19;
+  //Parquet field repetition types
+  private static final int OPTIONAL = 1;
+  //Parquet encodings
+  private static final int PLAIN = 0;
+  private static final int RLE = 3;
+  //Parquet compression codecs
+  private static final int CODEC_UNCOMPRESSED = 0;
+  private static final int CODEC_GZIP = 2;
+  private static final int DATA_PAGE = 0;
+
+  private final CountingOutputStream out;
+  private final GeoParquet format;
+  private final long rowGroupSize;
+  private final Column idColumn;
+  private final Column partitionColumn;
+  private final Map<String, Column> promotedColumns = new LinkedHashMap<>();
+  private final Column propertiesColumn;
+  private final Column geometryColumn;
+  private final Column[] bboxColumns;
+  private final List<Column> columns = new ArrayList<>();
+  private final List<RowGroup> rowGroups = new ArrayList<>();
+  private final Set<String> geometryTypes = new TreeSet<>();
+  private final double[] totalBBox = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+      Double.NEGATIVE_INFINITY};
+  private int rowsInGroup;
+  private long totalRows;
+  private String currentPartition;
+  private boolean closed;
+
+  /**
+   * @param out The stream to write the file to, it gets closed when this writer is closed
+   * @param format The format settings
+   * @param partitionColumnName The name of the column containing the partition keys or null, if the data is not partitioned
+   * @param rowGroupSize The (uncompressed) size of the row groups in bytes
+   */
+  public GeoParquetWriter(OutputStream out, GeoParquet format, String partitionColumnName, long rowGroupSize) throws IOException {
+    this.out = new CountingOutputStream(out);
+    this.format = format;
+    this.rowGroupSize = rowGroupSize;
+
+    idColumn = addColumn(new Column(BYTE_ARRAY, UTF8, "id"));
+    partitionColumn = partitionColumnName != null ? addColumn(new Column(BYTE_ARRAY, UTF8, partitionColumnName)) : null;
+    for (Entry<String, ColumnType> promotedProperty : format.getPromotedProperties().entrySet())
+      promotedColumns.put(promotedProperty.getKey(), addColumn(promotedColumn(promotedProperty.getKey(), promotedProperty.getValue())));
+    propertiesColumn = addColumn(new Column(BYTE_ARRAY, JSON, "properties"));
+    geometryColumn = addColumn(new Column(BYTE_ARRAY, null, GEOMETRY_COLUMN));
+    if (format.isBboxCovering()) {
+      bboxColumns = new Column[BBOX_FIELDS.length];
+      for (int i = 0; i < BBOX_FIELDS.length; i++)
+        bboxColumns[i] = addColumn(new Column(DOUBLE, null, BBOX_COLUMN, BBOX_FIELDS[i]));
+    }
+    else
+      bboxColumns = null;
+
+    this.out.write(MAGIC);
+  }
+
+  private Column addColumn(Column column) {
+    columns.add(column);
+    return column;
+  }
+
+  private static Column promotedColumn(String propertyPath, ColumnType type) {
+    String name = propertyPath.replace('.', '_');
+    return switch (type) {
+      case STRING -> new Column(BYTE_ARRAY, UTF8, name);
+      case LONG -> new Column(INT64, null, name);
+      case DOUBLE -> new Column(DOUBLE, null, name);
+      case BOOLEAN -> new Column(BOOLEAN, null, name);
+    };
+  }
+
+  /**
+   * Writes one feature.
+   * NOTE: The promoted properties are removed from the properties of the passed feature.
+   *
+   * @param feature The feature (without its geometry) as it has been deserialized from JSON
+   * @param geometry The geometry of the feature or null
+   * @param partition The partition key of the feature, only used if a partition column is configured
+   */
+  public void write(Map<String, Object> feature, Geometry geometry, String partition) throws IOException {
+    if (partitionColumn != null && rowsInGroup > 0 && !equal(partition, currentPartition))
+      flushRowGroup();
+    currentPartition = partition;
+
+    Object id = feature.get("id");
+    idColumn.writeString(id == null ? null : id.toString());
+    if (partitionColumn != null)
+      partitionColumn.writeString(partition);
+
+    Map<String, Object> properties = feature.get("properties") instanceof Map map ? map : null;
+    for (Entry<String, Column> promotedColumn : promotedColumns.entrySet())
+      promotedColumn.getValue().writeValue(removeProperty(properties, promotedColumn.getKey()));
+    propertiesColumn.writeString(properties == null || properties.isEmpty() ? null : XyzSerializable.serialize(properties));
+
+    writeGeometry(geometry);
+
+    rowsInGroup++;
+    totalRows++;
+    if (bufferedSize() >= rowGroupSize)
+      flushRowGroup();
+  }
+
+  private void writeGeometry(Geometry geometry) {
+    if (geometry == null) {
+      geometryColumn.writeBinary(null);
+      if (bboxColumns != null)
+        for (Column bboxColumn : bboxColumns)
+          bboxColumn.writeNull();
+      return;
+    }
+
+    geometryColumn.writeBinary(WKBHelper.geometryToISOWKB(geometry));
+    geometryTypes.add(geometry.getClass().getSimpleName() + " Z");
+
+    BBox bbox = geometry.calculateBBox();
+    double[] values = {bbox.minLon(), bbox.minLat(), bbox.maxLon(), bbox.maxLat()};
+    for (int i = 0; i < values.length; i++) {
+      totalBBox[i] = i < 2 ? Math.min(totalBBox[i], values[i]) : Math.max(totalBBox[i], values[i]);
+      if (bboxColumns != null)
+        bboxColumns[i].writeDouble(values[i]);
+    }
+  }
+
+  /**
+   * Removes the property with the specified path (dot-notation) from the properties.
+   * Properties of nested objects are removed from a copy of the nested object.
+   */
+  private static Object removeProperty(Map<String, Object> properties, String path) {
+    if (properties == null)
+      return null;
+
+    int dot = path.indexOf('.');
+    if (dot < 0)
+      return properties.remove(path);
+
+    String key = path.substring(0, dot);
+    if (!(properties.get(key) instanceof Map nested))
+      return null;
+    Map<String, Object> nestedCopy = new HashMap<>(nested);
+    Object value = removeProperty(nestedCopy, path.substring(dot + 1));
+    if (nestedCopy.isEmpty())
+      properties.remove(key);
+    else
+      properties.put(key, nestedCopy);
+    return value;
+  }
+
+  private static boolean equal(String a, String b) {
+    return a == null ? b == null : a.equals(b);
+  }
+
+  private long bufferedSize() {
+    long size = 0;
+    for (Column column : columns)
+      size += column.bufferedSize();
+    return size;
+  }
+
+  private void flushRowGroup() throws IOException {
+    if (rowsInGroup == 0)
+      return;
+
+    List<ColumnChunk> chunks = new ArrayList<>();
+    long totalByteSize = 0;
+    for (Column column : columns) {
+      byte[] page = column.buildPage();
+      byte[] compressedPage = format.getCompression() == GZIP ? gzip(page) : page;
+      byte[] header = new ThriftCompactOutput()
+          .structBegin()
+          .fieldI32(1, DATA_PAGE)
+          .fieldI32(2, page.length)
+          .fieldI32(3, compressedPage.length)
+          .fieldStructBegin(5)
+          .fieldI32(1, rowsInGroup)
+          .fieldI32(2, PLAIN)
+          .fieldI32(3, RLE)
+          .fieldI32(4, RLE)
+          .structEnd()
+          .structEnd()
+          .toByteArray();
+
+      long offset = out.getCount();
+      out.write(header);
+      out.write(compressedPage);
+
+      chunks.add(new ColumnChunk(column, offset, header.length + page.length, header.length + compressedPage.length, rowsInGroup,
+          column.statistics()));
+      totalByteSize += header.length + page.length;
+      column.reset();
+    }
+
+    rowGroups.add(new RowGroup(chunks, totalByteSize, rowsInGroup));
+    rowsInGroup = 0;
+  }
+
+  private static byte[] gzip(byte[] data) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length / 4 + 64);
+    try (GZIPOutputStream gzos = new GZIPOutputStream(bos)) {
+      gzos.write(data);
+    }
+    return bos.toByteArray();
+  }
+
+  /**
+   * @return The number of bytes which have been written to the output stream so far (not including the buffered row group)
+   */
+  public long getBytesWritten() {
+    return out.getCount();
+  }
+
+  /**
+   * @return The number of bytes which are currently buffered for the next row group
+   */
+  public long getBytesBuffered() {
+    return bufferedSize();
+  }
+
+  public long getRowsWritten() {
+    return totalRows;
+  }
+
+  /**
+   * Writes the last row group and the footer of the file and closes the underlying output stream.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed)
+      return;
+    closed = true;
+
+    flushRowGroup();
+    byte[] footer = buildFileMetaData();
+    out.write(footer);
+    out.write(new byte[] {(byte) footer.length, (byte) (footer.length >>> 8), (byte) (footer.length >>> 16),
+        (byte) (footer.length >>> 24)});
+    out.write(MAGIC);
+    out.close();
+  }
+
+  private byte[] buildFileMetaData() {
+    ThriftCompactOutput meta = new ThriftCompactOutput().structBegin().fieldI32(1, 1);
+
+    //Schema
+    int leafColumns = columns.size() - (bboxColumns != null ? bboxColumns.length : 0);
+    int schemaElements = 1 + columns.size() + (bboxColumns != null ? 1 : 0);
+    meta.fieldListBegin(2, TYPE_STRUCT, schemaElements);
+    meta.structBegin()
+        .fieldString(4, "schema")
+        .fieldI32(5, leafColumns + (bboxColumns != null ? 1 : 0))
+        .structEnd();
+    for (Column column : columns) {
+      if (bboxColumns != null && column == bboxColumns[0])
+        meta.structBegin()
+            .fieldI32(3, OPTIONAL)
+            .fieldString(4, BBOX_COLUMN)
+            .fieldI32(5, bboxColumns.length)
+            .structEnd();
+      boolean required = column.path.length > 1;
+      meta.structBegin()
+          .fieldI32(1, column.type)
+          //The fields of the bbox struct are required, only the struct itself is optional
+          .fieldI32(3, required ? 0 : OPTIONAL)
+          .fieldString(4, column.path[column.path.length - 1]);
+      if (column.convertedType != null)
+        meta.fieldI32(6, column.convertedType);
+      meta.structEnd();
+    }
+
+    meta.fieldI64(3, totalRows);
+
+    //Row groups
+    meta.fieldListBegin(4, TYPE_STRUCT, rowGroups.size());
+    for (RowGroup rowGroup : rowGroups) {
+      meta.structBegin().fieldListBegin(1, TYPE_STRUCT, rowGroup.chunks.size());
+      for (ColumnChunk chunk : rowGroup.chunks) {
+        meta.structBegin()
+            .fieldI64(2, chunk.offset)
+            .fieldStructBegin(3)
+            .fieldI32(1, chunk.column.type)
+            .fieldListBegin(2, TYPE_I32, 2).elementI32(PLAIN).elementI32(RLE)
+            .fieldListBegin(3, TYPE_BINARY, chunk.column.path.length);
+        for (String pathElement : chunk.column.path)
+          meta.elementString(pathElement);
+        meta.fieldI32(4, format.getCompression() == GZIP ? CODEC_GZIP : CODEC_UNCOMPRESSED)
+            .fieldI64(5, chunk.numValues)
+            .fieldI64(6, chunk.uncompressedSize)
+            .fieldI64(7, chunk.compressedSize)
+            .fieldI64(9, chunk.offset);
+        if (chunk.statistics != null) {
+          meta.fieldStructBegin(12).fieldI64(3, chunk.statistics.nullCount);
+          if (chunk.statistics.min != null)
+            meta.fieldBinary(5, chunk.statistics.max).fieldBinary(6, chunk.statistics.min);
+          meta.structEnd();
+        }
+        meta.structEnd() //ColumnMetaData
+            .structEnd(); //ColumnChunk
+      }
+      meta.fieldI64(2, rowGroup.totalByteSize)
+          .fieldI64(3, rowGroup.numRows)
+          .structEnd();
+    }
+
+    //Key-value metadata
+    meta.fieldListBegin(5, TYPE_STRUCT, 1)
+        .structBegin()
+        .fieldString(1, "geo")
+        .fieldString(2, buildGeoMetadata().encode())
+        .structEnd();
+
+    meta.fieldString(6, CREATED_BY);
+    return meta.structEnd().toByteArray();
+  }
+
+  private JsonObject buildGeoMetadata() {
+    JsonObject geometryColumnMetadata = new JsonObject()
+        .put("encoding", "WKB")
+        .put("geometry_types", new JsonArray(new ArrayList<>(geometryTypes)));
+    if (totalBBox[0] <= totalBBox[2])
+      geometryColumnMetadata.put("bbox", new JsonArray().add(totalBBox[0]).add(totalBBox[1]).add(totalBBox[2]).add(totalBBox[3]));
+    if (bboxColumns != null) {
+      JsonObject bboxCovering = new JsonObject();
+      for (String field : BBOX_FIELDS)
+        bboxCovering.put(field, new JsonArray().add(BBOX_COLUMN).add(field));
+      geometryColumnMetadata.put("covering", new JsonObject().put("bbox", bboxCovering));
+    }
+
+    return new JsonObject()
+        .put("version", "1.1.0")
+        .put("primary_column", GEOMETRY_COLUMN)
+        .put("columns", new JsonObject().put(GEOMETRY_COLUMN, geometryColumnMetadata));
+  }
+
+  /**
+   * The buffer for the values of one column of the current row group.
+   */
+  private static class Column {
+    private final int type;
+    private final Integer convertedType;
+    private final String[] path;
+    private final ByteArrayOutputStream values = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream definitionLevels = new ByteArrayOutputStream();
+    private int currentLevel = -1;
+    private int currentRunLength;
+    private int booleanBits;
+    private int booleanBitCount;
+    private long nullCount;
+    private Double minDouble, maxDouble;
+    private Long minLong, maxLong;
+
+    private Column(int type, Integer convertedType, String... path) {
+      this.type = type;
+      this.convertedType = convertedType;
+      this.path = path;
+    }
+
+    private void writeValue(Object value) {
+      if (value == null) {
+        writeNull();
+        return;
+      }
+      switch (type) {
+        case BYTE_ARRAY -> writeString(value instanceof String string ? string : XyzSerializable.serialize(value));
+        case INT64 -> {
+          if (value instanceof Number number)
+            writeLong(number.longValue());
+          else
+            writeNull();
+        }
+        case DOUBLE -> {
+          if (value instanceof Number number)
+            writeDouble(number.doubleValue());
+          else
+            writeNull();
+        }
+        case BOOLEAN -> {
+          if (value instanceof Boolean bool)
+            writeBoolean(bool);
+          else
+            writeNull();
+        }
+      }
+    }
+
+    private void writeNull() {
+      addDefinitionLevel(0);
+      nullCount++;
+    }
+
+    private void writeString(String value) {
+      writeBinary(value == null ? null : value.getBytes(UTF_8));
+    }
+
+    private void writeBinary(byte[] value) {
+      if (value == null) {
+        writeNull();
+        return;
+      }
+      addDefinitionLevel(1);
+      writeIntLE(value.length);
+      values.write(value, 0, value.length);
+    }
+
+    private void writeLong(long value) {
+      addDefinitionLevel(1);
+      writeLongLE(value);
+      minLong = minLong == null ? value : Math.min(minLong, value);
+      maxLong = maxLong == null ? value : Math.max(maxLong, value);
+    }
+
+    private void writeDouble(double value) {
+      addDefinitionLevel(1);
+      writeLongLE(Double.doubleToLongBits(value));
+      if (!Double.isNaN(value)) {
+        minDouble = minDouble == null ? value : Math.min(minDouble, value);
+        maxDouble = maxDouble == null ? value : Math.max(maxDouble, value);
+      }
+    }
+
+    private void writeBoolean(boolean value) {
+      addDefinitionLevel(1);
+      if (value)
+        booleanBits |= 1 << booleanBitCount;
+      if (++booleanBitCount == 8)
+        flushBooleanBits();
+    }
+
+    private void flushBooleanBits() {
+      if (booleanBitCount == 0)
+        return;
+      values.write(booleanBits);
+      booleanBits = 0;
+      booleanBitCount = 0;
+    }
+
+    /**
+     * Collects the definition levels as runs of the RLE / bit-packing hybrid encoding (with a bit width of 1).
+     */
+    private void addDefinitionLevel(int level) {
+      if (level != currentLevel) {
+        flushRun();
+        currentLevel = level;
+      }
+      currentRunLength++;
+    }
+
+    private void flushRun() {
+      if (currentRunLength == 0)
+        return;
+      writeUnsignedVarint(definitionLevels, currentRunLength << 1);
+      definitionLevels.write(currentLevel);
+      currentRunLength = 0;
+    }
+
+    private byte[] buildPage() {
+      flushRun();
+      flushBooleanBits();
+      ByteArrayOutputStream page = new ByteArrayOutputStream(4 + definitionLevels.size() + values.size());
+      int levelsLength = definitionLevels.size();
+      page.write(levelsLength);
+      page.write(levelsLength >>> 8);
+      page.write(levelsLength >>> 16);
+      page.write(levelsLength >>> 24);
+      page.writeBytes(definitionLevels.toByteArray());
+      page.writeBytes(values.toByteArray());
+      return page.toByteArray();
+    }
+
+    private Statistics statistics() {
+      if (type == DOUBLE)
+        return new Statistics(nullCount, minDouble == null ? null : longLE(Double.doubleToLongBits(minDouble)),
+            maxDouble == null ? null : longLE(Double.doubleToLongBits(maxDouble)));
+      if (type == INT64)
+        return new Statistics(nullCount, minLong == null ? null : longLE(minLong), maxLong == null ? null : longLE(maxLong));
+      return new Statistics(nullCount, null, null);
+    }
+
+    private long bufferedSize() {
+      return values.size() + definitionLevels.size();
+    }
+
+    private void reset() {
+      values.reset();
+      definitionLevels.reset();
+      currentLevel = -1;
+      currentRunLength = 0;
+      nullCount = 0;
+      minDouble = maxDouble = null;
+      minLong = maxLong = null;
+    }
+
+    private void writeIntLE(int value) {
+      values.write(value);
+      values.write(value >>> 8);
+      values.write(value >>> 16);
+      values.write(value >>> 24);
+    }
+
+    private void writeLongLE(long value) {
+      values.writeBytes(longLE(value));
+    }
+
+    private static byte[] longLE(long value) {
+      byte[] bytes = new byte[8];
+      for (int i = 0; i < 8; i++)
+        bytes[i] = (byte) (value >>> 8 * i);
+      return bytes;
+    }
+
+    private static void writeUnsignedVarint(ByteArrayOutputStream out, int value) {
+      while ((value & ~0x7F) != 0) {
+        out.write(value & 0x7F | 0x80);
+        value >>>= 7;
+      }
+      out.write(value);
+    }
+  }
+
+  private record Statistics(long nullCount, byte[] min, byte[] max) {}
+
+  private record ColumnChunk(Column column, long offset, long uncompressedSize, long compressedSize, long numValues,
+      Statistics statistics) {}
+
+  private record RowGroup(List<ColumnChunk> chunks, long totalByteSize, long numRows) {}
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.httpconnector.util.export;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Writes the chunk files into a directory of the local file system.
+ * Mainly useful for running exports locally and for testing.
+ */
+public class LocalDirectorySink implements ExportSink {
+  private static final Logger logger = LogManager.getLogger();
+  private final Path rootDirectory;
+
+  public LocalDirectorySink(Path rootDirectory) {
+    this.rootDirectory = rootDirectory;
+  }
+
+  @Override
+  public OutputStream createChunk(String key) throws IOException {
+    Path file = resolve(key);
+    Files.createDirectories(file.getParent());
+    return new BufferedOutputStream(Files.newOutputStream(file));
+  }
+
+  @Override
+  public void discardChunk(String key) {
+    try {
+      Files.deleteIfExists(resolve(key));
+    }
+    catch (IOException e) {
+      logger.warn("Unable to delete incomplete chunk {}", key, e);
+    }
+  }
+
+  private Path resolve(String key) throws IOException {
+    Path file = rootDirectory.resolve(key).normalize();
+    if (!file.startsWith(rootDirectory.normalize()))
+      throw new IOException("Chunk key " + key + " points outside of the target directory.");
+    return file;
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.httpconnector.util.export;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Writes the chunk files into an S3 compatible object store.
+ * The content is uploaded in parts while it is being written, so no chunk has to be held in memory or on disk completely.
+ * Chunks which are smaller than one part are uploaded with a single PUT request.
+ */
+public class S3MultipartSink implements ExportSink {
+  private static final Logger logger = LogManager.getLogger();
+  //S3 requires all parts but the last one to have a size of at least 5 MB
+  private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+  private static final int DEFAULT_PART_SIZE = 16 * 1024 * 1024;
+  private final AmazonS3 client;
+  private final String bucket;
+  private final int partSize;
+
+  public S3MultipartSink(AmazonS3 client, String bucket) {
+    this(client, bucket, DEFAULT_PART_SIZE);
+  }
+
+  public S3MultipartSink(AmazonS3 client, String bucket, int partSize) {
+    this.client = client;
+    this.bucket = bucket;
+    this.partSize = Math.max(partSize, MIN_PART_SIZE);
+  }
+
+  @Override
+  public OutputStream createChunk(String key) {
+    return new MultipartUploadStream(key);
+  }
+
+  @Override
+  public void discardChunk(String key) {
+    try {
+      client.deleteObject(bucket, key);
+    }
+    catch (SdkClientException e) {
+      logger.warn("Unable to delete incomplete chunk s3://{}/{}", bucket, key, e);
+    }
+  }
+
+  private class MultipartUploadStream extends OutputStream {
+    private final String key;
+    private final byte[] buffer = new byte[partSize];
+    private int position;
+    private String uploadId;
+    private final List<PartETag> partETags = new ArrayList<>();
+    private boolean closed;
+
+    private MultipartUploadStream(String key) {
+      this.key = key;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      if (position == buffer.length)
+        uploadPart();
+      buffer[position++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      while (len > 0) {
+        if (position == buffer.length)
+          uploadPart();
+        int bytesToCopy = Math.min(len, buffer.length - position);
+        System.arraycopy(b, off, buffer, position, bytesToCopy);
+        position += bytesToCopy;
+        off += bytesToCopy;
+        len -= bytesToCopy;
+      }
+    }
+
+    private void uploadPart() throws IOException {
+      try {
+        if (uploadId == null)
+          uploadId = client.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucket, key)).getUploadId();
+
+        partETags.add(client.uploadPart(new UploadPartRequest()
+            .withBucketName(bucket)
+            .withKey(key)
+            .withUploadId(uploadId)
+            .withPartNumber(partETags.size() + 1)
+            .withInputStream(new ByteArrayInputStream(buffer, 0, position))
+            .withPartSize(position)).getPartETag());
+        position = 0;
+      }
+      catch (SdkClientException e) {
+        abort();
+        throw new IOException("Error uploading part " + (partETags.size() + 1) + " of s3://" + bucket + "/" + key, e);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed)
+        return;
+      closed = true;
+
+      if (uploadId == null) {
+        //The whole chunk fits into one part
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(position);
+        try {
+          client.putObject(bucket, key, new ByteArrayInputStream(buffer, 0, position), metadata);
+        }
+        catch (SdkClientException e) {
+          throw new IOException("Error uploading s3://" + bucket + "/" + key, e);
+        }
+        return;
+      }
+
+      if (position > 0)
+        uploadPart();
+      try {
+        client.completeMultipartUpload(new CompleteMultipartUploadRequest(bucket, key, uploadId, partETags));
+      }
+      catch (SdkClientException e) {
+        abort();
+        throw new IOException("Error completing the multipart upload of s3://" + bucket + "/" + key, e);
+      }
+    }
+
+    private void abort() {
+      //Nothing must be uploaded anymore for this chunk
+      closed = true;
+      if (uploadId == null)
+        return;
+      try {
+        client.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, key, uploadId));
+      }
+      catch (SdkClientException e) {
+        logger.warn("Unable to abort the multipart upload of s3://{}/{}", bucket, key, e);
+      }
+      uploadId = null;
+    }
+  }
+}
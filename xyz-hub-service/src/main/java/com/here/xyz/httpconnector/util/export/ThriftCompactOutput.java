@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.httpconnector.util.export;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A minimal encoder for the Thrift compact protocol, as it's used for the page headers and the footer of Parquet files.
+ * Only the parts which are needed by the {@link GeoParquetWriter} are supported.
+ * Fields have to be written in ascending order of their IDs.
+ */
+class ThriftCompactOutput {
+  static final byte TYPE_I32 = 5;
+  static final byte TYPE_I64 = 6;
+  static final byte TYPE_BINARY = 8;
+  static final byte TYPE_LIST = 9;
+  static final byte TYPE_STRUCT = 12;
+  private static final byte STOP = 0;
+  private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+  private final Deque<Integer> parentFieldIds = new ArrayDeque<>();
+  private int lastFieldId;
+
+  ThriftCompactOutput fieldI32(int id, int value) {
+    fieldHeader(id, TYPE_I32);
+    writeVarint(zigzag(value));
+    return this;
+  }
+
+  ThriftCompactOutput fieldI64(int id, long value) {
+    fieldHeader(id, TYPE_I64);
+    writeVarint(zigzag(value));
+    return this;
+  }
+
+  ThriftCompactOutput fieldString(int id, String value) {
+    return fieldBinary(id, value.getBytes(UTF_8));
+  }
+
+  ThriftCompactOutput fieldBinary(int id, byte[] value) {
+    fieldHeader(id, TYPE_BINARY);
+    writeBinary(value);
+    return this;
+  }
+
+  /**
+   * Starts a field of type struct. The struct has to be ended by calling {@link #structEnd()}.
+   */
+  ThriftCompactOutput fieldStructBegin(int id) {
+    fieldHeader(id, TYPE_STRUCT);
+    return structBegin();
+  }
+
+  /**
+   * Starts a field of type list. The elements have to be written afterwards using the according element methods.
+   */
+  ThriftCompactOutput fieldListBegin(int id, byte elementType, int size) {
+    fieldHeader(id, TYPE_LIST);
+    if (size < 15)
+      out.write(size << 4 | elementType);
+    else {
+      out.write(0xF0 | elementType);
+      writeVarint(size);
+    }
+    return this;
+  }
+
+  /**
+   * Starts a struct, either as a list element or as the top-level struct.
+   */
+  ThriftCompactOutput structBegin() {
+    parentFieldIds.push(lastFieldId);
+    lastFieldId = 0;
+    return this;
+  }
+
+  ThriftCompactOutput structEnd() {
+    out.write(STOP);
+    lastFieldId = parentFieldIds.pop();
+    return this;
+  }
+
+  ThriftCompactOutput elementI32(int value) {
+    writeVarint(zigzag(value));
+    return this;
+  }
+
+  ThriftCompactOutput elementString(String value) {
+    writeBinary(value.getBytes(UTF_8));
+    return this;
+  }
+
+  byte[] toByteArray() {
+    return out.toByteArray();
+  }
+
+  private void fieldHeader(int id, byte type) {
+    int delta = id - lastFieldId;
+    if (delta > 0 && delta <= 15)
+      out.write(delta << 4 | type);
+    else {
+      out.write(type);
+      writeVarint(zigzag(id));
+    }
+    lastFieldId = id;
+  }
+
+  private void writeBinary(byte[] value) {
+    writeVarint(value.length);
+    out.write(value, 0, value.length);
+  }
+
+  private void writeVarint(long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) (value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  private static long zigzag(int value) {
+    return (value << 1 ^ value >> 31) & 0xFFFFFFFFL;
+  }
+
+  private static long zigzag(long value) {
+    return value << 1 ^ value >> 63;
+  }
+}
@@ -0,0 +1,526 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.httpconnector.util.export;
+
+import static com.here.xyz.httpconnector.util.export.CopyExportEngine.hintComment;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.io.CountingOutputStream;
+import com.here.xyz.XyzSerializable;
+import com.here.xyz.httpconnector.util.jobs.Export.ExportStatistic;
+import com.here.xyz.models.geojson.coordinates.JTSHelper;
+import com.here.xyz.util.db.datasource.DataSourceProvider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.geom.util.GeometryFixer;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+
+/**
+ * Exports the result of an export query (returning the columns "jsondata" and "geo") partitioned into HERE tiles of a target level.
+ * The output has the same format as the tiled exports of aws_s3 (CSV format TILEID_FC_B64): One row per inhabited tile,
+ * consisting of the tile ID and the base64 encoded FeatureCollection of all features intersecting the tile.
+ *
+ * Other than the per-tile queries of exp_build_sql_inhabited_txt(), the features are read in one streaming pass, ordered by the
+ * tile of the lower-left corner of their bounding box. As tile IDs are Morton codes, that tile has the lowest ID of all tiles
+ * intersected by a feature. So once the stream has passed a tile, that tile is complete and can be written. Features spanning
+ * multiple tiles are kept until the last of their tiles has been written.
+ * The inhabited tiles are a by-product of that pass, and clipping (if requested) is done by the service.
+ *
+ * The tiles are grouped into one file per parent tile, which is chosen so that a file contains at most the configured
+ * number of tiles. The files are written to "[path]/[parent quadkey]/0-1.csv", which is the same layout as the one used for tile
+ * groups by the SQL based export.
+ *
+ * The number of features which are kept for pending tiles is limited (see {@link #setMaxPendingFeatures(int)}), as e.g. many large
+ * features could keep a lot of tiles pending. If the limit is exceeded, the export fails with a
+ * {@link TooManyPendingFeaturesException}, so that the caller can fall back to the SQL based export.
+ */
+public class TiledExportEngine {
+  private static final Logger logger = LogManager.getLogger();
+  private static final int FETCH_SIZE = 1_000;
+  private static final int DEFAULT_MAX_TILES_PER_FILE = 4096;
+  private static final int DEFAULT_MAX_PENDING_FEATURES = 250_000;
+  private static final String GZIP_SUFFIX = ".gz";
+  private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory(new PrecisionModel(), 4326);
+  private final DataSourceProvider dataSourceProvider;
+  private final ExportSink sink;
+  private final int level;
+  private boolean clipped;
+  private int maxTilesPerFile = DEFAULT_MAX_TILES_PER_FILE;
+  private int maxPendingFeatures = DEFAULT_MAX_PENDING_FEATURES;
+  private boolean compressed = true;
+  private String queryHint;
+
+  /**
+   * @param level The level of the HERE tiles into which the features should be partitioned
+   */
+  public TiledExportEngine(DataSourceProvider dataSourceProvider, ExportSink sink, int level) {
+    this.dataSourceProvider = dataSourceProvider;
+    this.sink = sink;
+    this.level = level;
+  }
+
+  /**
+   * Streams the result of the query into the tile files below the specified path.
+   * This method blocks until the export is complete. All files of the export are discarded in case of a failure.
+   *
+   * @param queryText The (fully substituted) export query
+   * @param path The path below which the tile files should be written
+   * @return The statistics of the export, the number of rows is the number of exported tiles
+   */
+  public ExportStatistic export(String queryText, String path) throws SQLException, IOException {
+    logger.info("Exporting query results partitioned into tiles of level {} to {} ...", level, path);
+    TilePartitioner partitioner = new TilePartitioner(path);
+    WKBReader wkbReader = new WKBReader(GEOMETRY_FACTORY);
+
+    try (Connection connection = dataSourceProvider.getReader().getConnection()) {
+      //A cursor is only used by the driver within a transaction
+      connection.setAutoCommit(false);
+      try (Statement statement = connection.createStatement()) {
+        statement.setFetchSize(FETCH_SIZE);
+        ResultSet rs = statement.executeQuery(buildQuery(queryText));
+        while (rs.next())
+          partitioner.add(rs.getLong(4), rs.getString(1), wkbReader.read(rs.getBytes(2)), rs.getString(3));
+        partitioner.finish();
+      }
+      finally {
+        connection.rollback();
+      }
+    }
+    catch (SQLException | IOException | RuntimeException e) {
+      partitioner.discard();
+      throw e;
+    }
+    catch (ParseException e) {
+      partitioner.discard();
+      throw new SQLException("Invalid geometry in export of " + path, e);
+    }
+
+    TileFileWriter writer = partitioner.writer;
+    logger.info("Exported {} features into {} tiles in {} files ({} bytes) to {}", partitioner.features, writer.tiles, writer.files,
+        writer.bytes, path);
+    return new ExportStatistic()
+        .withRowsUploaded(writer.tiles)
+        .withFilesUploaded(writer.files)
+        .withBytesUploaded(writer.bytes);
+  }
+
+  private String buildQuery(String queryText) {
+    queryText = queryText.trim();
+    if (queryText.endsWith(";"))
+      queryText = queryText.substring(0, queryText.length() - 1);
+
+    //The tile of the lower-left corner of the bounding box
+    double tileSize = tileWidth(level);
+    String column = "LEAST(GREATEST(FLOOR((ST_XMin(geo) + 180) / " + tileSize + ")::INT, 0), " + (columns(level) - 1) + ")";
+    String row = "LEAST(GREATEST(FLOOR((ST_YMin(geo) + 90) / " + tileHeight(level) + ")::INT, 0), " + (rows(level) - 1) + ")";
+    return "SELECT " + hintComment(queryHint) + "jsondata::TEXT, ST_AsBinary(geo), " + (clipped ? "NULL" : "ST_AsGeoJSON(geo, 8)") + ", tile "
+        + "FROM (SELECT jsondata, geo, htile(" + column + ", " + row + ", " + level + ") AS tile FROM (" + queryText + ") export "
+        + "WHERE geo IS NOT NULL AND NOT ST_IsEmpty(geo)) tiled ORDER BY tile";
+  }
+
+  /**
+   * Adds the feature to all pending tiles it intersects.
+   *
+   * @return The number of tiles to which the feature was added
+   */
+  private int assignToTiles(TileFeature feature, TreeMap<Long, List<TileFeature>> pendingTiles) {
+    Envelope bbox = feature.geometry.getEnvelopeInternal();
+    int minColumn = column(bbox.getMinX()), maxColumn = column(bbox.getMaxX()),
+        minRow = row(bbox.getMinY()), maxRow = row(bbox.getMaxY());
+
+    if (minColumn == maxColumn && minRow == maxRow) {
+      pendingTiles.computeIfAbsent(interleave(minColumn, minRow), k -> new ArrayList<>()).add(feature);
+      return 1;
+    }
+
+    int assignedTiles = 0;
+    PreparedGeometry preparedGeometry = PreparedGeometryFactory.prepare(feature.geometry);
+    for (int column = minColumn; column <= maxColumn; column++)
+      for (int row = minRow; row <= maxRow; row++)
+        if (preparedGeometry.intersects(tileBounds(column, row))) {
+          pendingTiles.computeIfAbsent(interleave(column, row), k -> new ArrayList<>()).add(feature);
+          assignedTiles++;
+        }
+    return assignedTiles;
+  }
+
+  /**
+   * Writes the specified tiles in the order of their keys and removes them from the pending tiles.
+   *
+   * @return The number of features which have been written into the tiles
+   */
+  private int writeTiles(SortedMap<Long, List<TileFeature>> tiles, TileFileWriter writer) throws IOException {
+    int writtenFeatures = 0;
+    for (Entry<Long, List<TileFeature>> tile : tiles.entrySet()) {
+      writer.writeTile(tile.getKey(), buildTileContent(tile.getKey(), tile.getValue()));
+      writtenFeatures += tile.getValue().size();
+    }
+    tiles.clear();
+    return writtenFeatures;
+  }
+
+  private String buildTileContent(long tileKey, List<TileFeature> features) {
+    StringBuilder featureCollection = new StringBuilder("{\"type\": \"FeatureCollection\", \"features\":[");
+    Geometry tileBounds = clipped ? tileBounds((int) deinterleave(tileKey), (int) deinterleave(tileKey >>> 1)) : null;
+
+    for (int i = 0; i < features.size(); i++) {
+      TileFeature feature = features.get(i);
+      String geometry = clipped ? clip(feature, tileBounds) : feature.geoJson;
+      if (i > 0)
+        featureCollection.append(',');
+      appendFeature(featureCollection, feature.jsondata, geometry);
+    }
+    featureCollection.append("]}");
+    return Base64.getEncoder().encodeToString(featureCollection.toString().getBytes(UTF_8));
+  }
+
+  /**
+   * Clips the geometry of the feature to the bounds of the tile, like ST_Intersection(ST_MakeValid(geo), tile) does for the SQL
+   * based export.
+   */
+  private static String clip(TileFeature feature, Geometry tileBounds) {
+    Geometry clippedGeometry = feature.validGeometry().intersection(tileBounds);
+    //Features which are only touching the tile might get lost by the clipping due to the limited precision
+    return clippedGeometry.isEmpty() ? "null" : XyzSerializable.serialize(JTSHelper.fromGeometry(clippedGeometry));
+  }
+
+  private static void appendFeature(StringBuilder out, String jsondata, String geometry) {
+    //The geometry is not part of the stored jsondata, so it gets appended as last property
+    int end = jsondata.lastIndexOf('}');
+    boolean isEmpty = jsondata.substring(jsondata.indexOf('{') + 1, end).isBlank();
+    out.append(jsondata, 0, end)
+        .append(isEmpty ? "" : ", ")
+        .append("\"geometry\": ")
+        .append(geometry)
+        .append('}');
+  }
+
+  private int column(double x) {
+    return Math.max(0, Math.min(columns(level) - 1, (int) Math.floor((x + 180) / tileWidth(level))));
+  }
+
+  private int row(double y) {
+    return Math.max(0, Math.min(rows(level) - 1, (int) Math.floor((y + 90) / tileHeight(level))));
+  }
+
+  private Geometry tileBounds(int column, int row) {
+    double width = tileWidth(level), height = tileHeight(level);
+    return GEOMETRY_FACTORY.toGeometry(new Envelope(column * width - 180, (column + 1) * width - 180,
+        row * height - 90, (row + 1) * height - 90));
+  }
+
+  //The HERE tiling scheme uses square tiles, except for level 0 which consists of one tile covering the whole world
+  private static double tileWidth(int level) {
+    return 360.0 / (1L << level);
+  }
+
+  private static double tileHeight(int level) {
+    return level == 0 ? 180 : tileWidth(level);
+  }
+
+  private static int columns(int level) {
+    return 1 << level;
+  }
+
+  private static int rows(int level) {
+    return level == 0 ? 1 : 1 << level - 1;
+  }
+
+  /**
+   * @return The Morton code of the tile (the HERE tile ID without the level bit)
+   */
+  static long interleave(int column, int row) {
+    long key = 0;
+    for (int bit = 0; bit < 31; bit++)
+      key |= ((long) column >> bit & 1) << 2 * bit | ((long) row >> bit & 1) << 2 * bit + 1;
+    return key;
+  }
+
+  static long deinterleave(long key) {
+    long value = 0;
+    for (int bit = 0; bit < 31; bit++)
+      value |= (key >> 2 * bit & 1) << bit;
+    return value;
+  }
+
+  private long tileKey(long tileId) {
+    return tileId & ~(1L << 2 * level);
+  }
+
+  /**
+   * @return The quadkey of the tile with the specified Morton code on the specified level
+   */
+  static String quadkey(long key, int level) {
+    StringBuilder quadkey = new StringBuilder(level);
+    for (int i = level - 1; i >= 0; i--)
+      quadkey.append(key >> 2 * i & 3);
+    return quadkey.toString();
+  }
+
+  /**
+   * The number of levels between the tiles and the parent tiles by which they're grouped into files (at least level 1)
+   */
+  int groupLevels() {
+    int levels = 0;
+    while (levels < level - 1 && 1L << 2 * (levels + 1) <= maxTilesPerFile)
+      levels++;
+    return levels;
+  }
+
+  private static class TileFeature {
+    private final String jsondata;
+    private final Geometry geometry;
+    private final String geoJson;
+    private Geometry validGeometry;
+
+    private TileFeature(String jsondata, Geometry geometry, String geoJson) {
+      this.jsondata = jsondata;
+      this.geometry = geometry;
+      this.geoJson = geoJson;
+    }
+
+    /**
+     * The geometry made valid once for the clipping (like ST_MakeValid() for the clipping done by the database)
+     */
+    private Geometry validGeometry() {
+      if (validGeometry == null)
+        validGeometry = geometry.isValid() ? geometry : GeometryFixer.fix(geometry);
+      return validGeometry;
+    }
+  }
+
+  /**
+   * Partitions the features into the tiles and writes each tile as soon as it is complete.
+   * The features have to be added in the order of the tile of the lower-left corner of their bounding box.
+   */
+  class TilePartitioner {
+    private final TreeMap<Long, List<TileFeature>> pendingTiles = new TreeMap<>();
+    private final TileFileWriter writer;
+    private long features;
+    //The features of all pending tiles, a feature intersecting multiple tiles is counted once per tile
+    private int pendingFeatures;
+
+    TilePartitioner(String path) {
+      writer = new TileFileWriter(path);
+    }
+
+    /**
+     * @param firstTileId The HERE tile ID of the tile of the lower-left corner of the feature's bounding box
+     */
+    void add(long firstTileId, String jsondata, Geometry geometry, String geoJson) throws IOException {
+      //All tiles before the first tile of this feature are complete
+      pendingFeatures -= writeTiles(pendingTiles.headMap(tileKey(firstTileId), false), writer);
+      pendingFeatures += assignToTiles(new TileFeature(jsondata, geometry, geoJson), pendingTiles);
+      features++;
+      if (pendingFeatures > maxPendingFeatures)
+        throw new TooManyPendingFeaturesException("More than " + maxPendingFeatures + " features are pending for "
+            + pendingTiles.size() + " tiles.");
+    }
+
+    void finish() throws IOException {
+      pendingFeatures -= writeTiles(pendingTiles, writer);
+      writer.finish();
+    }
+
+    void discard() {
+      writer.discard();
+    }
+  }
+
+  /**
+   * Writes the tiles into one file per parent tile. The tiles have to be written in the order of their keys.
+   */
+  private class TileFileWriter {
+    private final String path;
+    private final int groupLevels = groupLevels();
+    private long currentGroup = -1;
+    private CountingOutputStream fileOut;
+    private OutputStream rowOut;
+    private final List<String> fileKeys = new ArrayList<>();
+    private long tiles;
+    private int files;
+    private long bytes;
+
+    private TileFileWriter(String path) {
+      this.path = path;
+    }
+
+    private void writeTile(long tileKey, String content) throws IOException {
+      long group = tileKey >>> 2 * groupLevels;
+      if (group != currentGroup) {
+        closeFile();
+        openFile(group);
+      }
+      rowOut.write(((1L << 2 * level | tileKey) + "," + content + "\n").getBytes(UTF_8));
+      tiles++;
+    }
+
+    private void openFile(long group) throws IOException {
+      String parentQuadkey = quadkey(group, level - groupLevels);
+      String fileKey = path + "/" + parentQuadkey + "/0-1.csv" + (compressed ? GZIP_SUFFIX : "");
+      fileKeys.add(fileKey);
+      fileOut = new CountingOutputStream(sink.createChunk(fileKey));
+      rowOut = compressed ? new GZIPOutputStream(fileOut, 64 * 1024) : fileOut;
+      currentGroup = group;
+      files++;
+    }
+
+    private void closeFile() throws IOException {
+      if (fileOut == null)
+        return;
+      rowOut.close();
+      bytes += fileOut.getCount();
+      fileOut = null;
+      rowOut = null;
+    }
+
+    private void finish() throws IOException {
+      closeFile();
+    }
+
+    /**
+     * Discards all files of the export, so that no partial export remains.
+     */
+    private void discard() {
+      if (fileOut != null) {
+        try {
+          rowOut.close();
+        }
+        catch (IOException e) {
+          logger.debug("Error closing incomplete file {}", fileKeys.get(fileKeys.size() - 1), e);
+        }
+        fileOut = null;
+        rowOut = null;
+      }
+      fileKeys.forEach(sink::discardChunk);
+    }
+  }
+
+  /**
+   * Thrown if the features of the pending tiles exceed the configured maximum.
+   */
+  public static class TooManyPendingFeaturesException extends IOException {
+    public TooManyPendingFeaturesException(String message) {
+      super(message);
+    }
+  }
+
+  public int getLevel() {
+    return level;
+  }
+
+  public boolean isClipped() {
+    return clipped;
+  }
+
+  /**
+   * @param clipped Whether the geometries should be clipped to the bounds of each tile
+   */
+  public void setClipped(boolean clipped) {
+    this.clipped = clipped;
+  }
+
+  public TiledExportEngine withClipped(boolean clipped) {
+    setClipped(clipped);
+    return this;
+  }
+
+  public int getMaxTilesPerFile() {
+    return maxTilesPerFile;
+  }
+
+  public void setMaxTilesPerFile(int maxTilesPerFile) {
+    this.maxTilesPerFile = maxTilesPerFile > 0 ? maxTilesPerFile : DEFAULT_MAX_TILES_PER_FILE;
+  }
+
+  public TiledExportEngine withMaxTilesPerFile(int maxTilesPerFile) {
+    setMaxTilesPerFile(maxTilesPerFile);
+    return this;
+  }
+
+  public int getMaxPendingFeatures() {
+    return maxPendingFeatures;
+  }
+
+  /**
+   * @param maxPendingFeatures The maximum number of features which are kept in memory for the tiles which are not complete yet.
+   *  A feature intersecting multiple pending tiles is counted once per tile.
+   */
+  public void setMaxPendingFeatures(int maxPendingFeatures) {
+    this.maxPendingFeatures = maxPendingFeatures > 0 ? maxPendingFeatures : DEFAULT_MAX_PENDING_FEATURES;
+  }
+
+  public TiledExportEngine withMaxPendingFeatures(int maxPendingFeatures) {
+    setMaxPendingFeatures(maxPendingFeatures);
+    return this;
+  }
+
+  public boolean isCompressed() {
+    return compressed;
+  }
+
+  public void setCompressed(boolean compressed) {
+    this.compressed = compressed;
+  }
+
+  public TiledExportEngine withCompressed(boolean compressed) {
+    setCompressed(compressed);
+    return this;
+  }
+
+  public String getQueryHint() {
+    return queryHint;
+  }
+
+  /**
+   * @param queryHint A hint (e.g. "copy_export_hint m499#jobId(someJob)") which is added as comment to the statement,
+   *  so that the running statement can be identified (e.g. to abort it or to report its progress)
+   */
+  public void setQueryHint(String queryHint) {
+    if (queryHint != null && queryHint.contains("*/"))
+      throw new IllegalArgumentException("Invalid query hint: " + queryHint);
+    this.queryHint = queryHint;
+  }
+
+  public TiledExportEngine withQueryHint(String queryHint) {
+    setQueryHint(queryHint);
+    return this;
+  }
+}
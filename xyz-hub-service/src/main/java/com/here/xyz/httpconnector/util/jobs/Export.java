@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2017-2023 HERE Europe B.V.
+ * Copyright (C) 2017-2024 HERE Europe B.V.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -69,6 +69,7 @@ import com.here.xyz.jobs.datasets.DatasetDescription;
 import com.here.xyz.jobs.datasets.FileBasedTarget;
 import com.here.xyz.jobs.datasets.FileOutputSettings;
 import com.here.xyz.jobs.datasets.Identifiable;
+import com.here.xyz.jobs.datasets.IncrementalSource;
 import com.here.xyz.jobs.datasets.VersionRefSource;
 import com.here.xyz.jobs.datasets.files.Csv;
 import com.here.xyz.jobs.datasets.files.FileFormat;
@@ -162,6 +163,10 @@ public class Export extends JDBCBasedJob<Export> {
     @JsonView({Public.class})
     private String targetVersion;
 
+    /** If set, only the changes after this version (up to the targetVersion) are exported */
+    @JsonView({Public.class})
+    private Long fromVersion;
+
     @JsonView({Public.class})
     private Filters filters;
 
@@ -185,6 +190,10 @@ public class Export extends JDBCBasedJob<Export> {
     @JsonView(Public.class)
     private long maxSuperSpaceVersion = UNKNOWN_MAX_SPACE_VERSION;
 
+    //The oldest version of the target space which is still available in its history (only used for the validation)
+    @JsonIgnore
+    private long minAvailableSpaceVersion;
+
     private static String PARAM_COMPOSITE_MODE = "compositeMode";
     private static String PARAM_PERSIST_EXPORT = "persistExport";
     private static String PARAM_VERSIONS_TO_KEEP = "versionsToKeep";
@@ -282,6 +291,9 @@ public class Export extends JDBCBasedJob<Export> {
                   }
                 }
 
+                if (getSource() instanceof IncrementalSource<?> incrementalSource && incrementalSource.getFromVersion() != null)
+                    setFromVersion(incrementalSource.getFromVersion());
+
                 return Future.succeededFuture();
             }).compose(f -> {
                 String superSpaceId = extractSuperSpaceId();
@@ -305,6 +317,11 @@ public class Export extends JDBCBasedJob<Export> {
                         .compose(statistics ->{
                             //Set version of target space
                             setMaxSpaceVersion(statistics.getMaxVersion().getValue());
+                            if (statistics.getMinVersion() != null && statistics.getMinVersion().getValue() != null)
+                                minAvailableSpaceVersion = statistics.getMinVersion().getValue();
+                            //Pin the end of the range of an incremental export, so changes during the export are not included
+                            if (getFromVersion() != null && getTargetVersion() == null)
+                                setTargetVersion(String.valueOf(getMaxSpaceVersion()));
                             return Future.succeededFuture(statistics);
                         });
             })
@@ -379,6 +396,9 @@ public class Export extends JDBCBasedJob<Export> {
             }
         }
 
+        if (getFromVersion() != null)
+            validateIncrementalExport();
+
         if (getEstimatedFeatureCount() > 1000000 //searchable limit without index
             && getPartitionKey() != null && !"id".equals(getPartitionKey()) && !"tileid".equals(getPartitionKey())
             && (searchableProperties == null || !searchableProperties.containsKey(getPartitionKey().replaceFirst("^(p|properties)\\." ,""))))
@@ -387,6 +407,38 @@ public class Export extends JDBCBasedJob<Export> {
         return this;
     }
 
+    private void validateIncrementalExport() throws HttpException {
+        int versionsToKeep = params != null && params.get(PARAM_VERSIONS_TO_KEEP) instanceof Number n ? n.intValue() : 1;
+        if (versionsToKeep <= 1)
+            throw new HttpException(BAD_REQUEST, "Incremental exports are only supported for spaces with versionsToKeep > 1!");
+
+        if (getExportTarget().getType() == VML)
+            throw new HttpException(BAD_REQUEST, "Incremental exports are not supported for VML targets!");
+
+        if (readParamExtends() != null && readParamContext() != EXTENSION)
+            throw new HttpException(BAD_REQUEST, "Incremental exports of composite spaces are only supported in context EXTENSION!");
+
+        long toVersion;
+        try {
+            toVersion = Long.parseLong(getTargetVersion());
+        }
+        catch (NumberFormatException e) {
+            throw new HttpException(BAD_REQUEST, "Incremental exports require a numeric targetVersion!");
+        }
+
+        if (getFromVersion() < 0 || getFromVersion() >= toVersion)
+            throw new HttpException(BAD_REQUEST, "Invalid fromVersion! It has to be lower than the targetVersion " + toVersion + ".");
+
+        /*
+        Older changes are not available anymore, if the history was pruned already.
+        NOTE: The history is only pruned by the maintenance (and never beyond tagged versions), so the number of versionsToKeep
+        does not tell which versions are still available.
+         */
+        if (getFromVersion() < minAvailableSpaceVersion)
+            throw new HttpException(BAD_REQUEST, "Invalid fromVersion! The changes are only available for versions >= "
+                + minAvailableSpaceVersion + ".");
+    }
+
     public List<String> getProcessingList() {
         return processingList;
     }
@@ -593,8 +645,11 @@ public class Export extends JDBCBasedJob<Export> {
                     setCsvFormat(GEOJSON);
                 else if (os.getFormat() instanceof GeoParquet) {
                     setCsvFormat(JSON_WKB);
-                    setEmrTransformation(true);
-                    setEmrType("geoparquet");
+                    //The COPY export engine writes the GeoParquet files directly, otherwise they're converted by EMR
+                    if (!JDBCExporter.useCopyExportEngine()) {
+                        setEmrTransformation(true);
+                        setEmrType("geoparquet");
+                    }
                     setPartitionKey("id");
                     os.setPartitionKey("id");
                 }
@@ -643,6 +698,19 @@ public class Export extends JDBCBasedJob<Export> {
         return this;
     }
 
+    public Long getFromVersion() {
+        return fromVersion;
+    }
+
+    public void setFromVersion(Long fromVersion) {
+        this.fromVersion = fromVersion;
+    }
+
+    public Export withFromVersion(final Long fromVersion) {
+        setFromVersion(fromVersion);
+        return this;
+    }
+
     public int getMaxTilesPerFile() {
         return maxTilesPerFile;
     }
@@ -1327,7 +1395,8 @@ public class Export extends JDBCBasedJob<Export> {
                 + (filters != null && filters.getSpatialFilter() != null ? filters.getSpatialFilter().getGeometry().getJTSGeometry().hashCode() : "")
                 + (filters != null && filters.getPropertyFilter() != null ? filters.getPropertyFilter().hashCode() : "")
                 + (filters != null && filters.getSpatialFilter() != null ? filters.getSpatialFilter().getRadius() : "")
-                + (filters != null && filters.getSpatialFilter() != null && filters.getSpatialFilter().isClipped()));
+                + (filters != null && filters.getSpatialFilter() != null && filters.getSpatialFilter().isClipped())
+                + (fromVersion != null ? "from" + fromVersion : ""));
     }
 
     public enum CompositeMode {
@@ -51,6 +51,7 @@ import static io.netty.handler.codec.http.HttpResponseStatus.PRECONDITION_FAILED
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonProperty.Access;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonView;
 import com.here.xyz.Payload;
@@ -63,6 +64,7 @@ import com.here.xyz.jobs.datasets.DatasetDescription;
 import com.here.xyz.models.hub.Ref;
 import com.here.xyz.models.hub.Space;
 import com.here.xyz.util.Hasher;
+import com.here.xyz.util.TransferTelemetry;
 import com.here.xyz.util.service.Core;
 import com.here.xyz.util.service.HttpException;
 import io.vertx.core.Future;
@@ -177,6 +179,13 @@ public abstract class Job<T extends Job> extends Payload {
     @JsonView({Public.class})
     protected Boolean omitOnNull;
 
+    /**
+     * The live telemetry of the job while it's executing. It's only attached to responses and never persisted.
+     */
+    @JsonView({Public.class})
+    @JsonProperty(access = Access.READ_ONLY)
+    private TransferTelemetry telemetry;
+
     /**
      * Arbitrary parameters to be provided from hub
      */
@@ -715,6 +724,19 @@ public abstract class Job<T extends Job> extends Payload {
         return (T) this;
     }
 
+    public TransferTelemetry getTelemetry() {
+        return telemetry;
+    }
+
+    public void setTelemetry(TransferTelemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    public T withTelemetry(TransferTelemetry telemetry) {
+        setTelemetry(telemetry);
+        return (T) this;
+    }
+
     /**
      * @deprecated Please use actual fields instead of params.
      *  Utilization of fields is easier to track than loosely coupled / untyped params in a map.
@@ -72,6 +72,10 @@ public class ExportQueue extends JobQueue {
                             updateJobStatus(currentJob, Job.Status.queued);
                             break;
                         case queued:
+                            if (!admitToDatabase(currentJob)) {
+                                logger.info("job[{}] is waiting for a free slot on database {}", job.getId(), job.getTargetConnector());
+                                break;
+                            }
                             updateJobStatus(currentJob, Job.Status.preparing)
                                 .onSuccess(f -> prepareJob(currentJob));
                             break;
@@ -71,6 +71,10 @@ public class ImportQueue extends JobQueue {
                                 updateJobStatus(currentJob,Job.Status.queued);
                                 break;
                             case queued:
+                                if (!admitToDatabase(currentJob)) {
+                                    logger.info("job[{}] is waiting for a free slot on database {}", job.getId(), job.getTargetConnector());
+                                    break;
+                                }
                                 updateJobStatus(currentJob, Job.Status.preparing)
                                         .onSuccess(j ->
                                                  addReadOnlyLockToSpace(j)
@@ -19,26 +19,65 @@
 package com.here.xyz.httpconnector.util.scheduler;
 
 import static com.here.xyz.httpconnector.util.jobs.Job.Status.aborted;
+import static com.here.xyz.httpconnector.util.jobs.Job.Status.executed;
+import static com.here.xyz.httpconnector.util.jobs.Job.Status.executing;
 import static com.here.xyz.httpconnector.util.jobs.Job.Status.failed;
+import static com.here.xyz.httpconnector.util.jobs.Job.Status.finalizing;
+import static com.here.xyz.httpconnector.util.jobs.Job.Status.prepared;
+import static com.here.xyz.httpconnector.util.jobs.Job.Status.preparing;
+import static com.here.xyz.httpconnector.util.jobs.Job.Status.queued;
 
 import com.here.xyz.httpconnector.CService;
+import com.here.xyz.httpconnector.util.jobs.Export;
 import com.here.xyz.httpconnector.util.jobs.Import;
 import com.here.xyz.httpconnector.util.jobs.Job;
 import com.here.xyz.httpconnector.util.web.LegacyHubWebClient;
 import com.mchange.v3.decode.CannotDecodeException;
 import io.vertx.core.Future;
 import io.vertx.core.json.JsonObject;
-import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
+import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+/**
+ * The queue of all import and export jobs which are processed by this node.
+ *
+ * The jobs are indexed by their ID and by their target space, so lookups don't depend on the number of queued jobs.
+ * The jobs are processed in the order of the priority of their type (see {@link com.here.xyz.httpconnector.Config#JOB_TYPE_PRIORITIES})
+ * and their creation time.
+ * Only a limited number of jobs is admitted to run its database intensive stages on the same target database at a time
+ * (see {@link com.here.xyz.httpconnector.Config#JOB_MAX_RUNNING_JOBS_PER_DB}), further jobs stay queued until a slot gets free.
+ * The jobs which are waiting for a slot are kept in their processing order per database, so the admission of a job only has to
+ * look at the first waiting jobs of its database.
+ */
 public abstract class JobQueue implements Runnable {
     protected static final Logger logger = LogManager.getLogger();
 
-    //Queue for import and export Jobs
-    private volatile static List<Job> JOB_QUEUE = new ArrayList<>();
+    //Queue for import and export Jobs, indexed by the (lower-case) job ID
+    private static final Map<String, Job> JOB_QUEUE = new ConcurrentHashMap<>();
+    //The (lower-case) IDs of the queued jobs per (lower-case) target space ID
+    private static final Map<String, Set<String>> JOBS_BY_TARGET_SPACE = new ConcurrentHashMap<>();
+    //The admitted and the waiting jobs per target connector, each entry is only accessed within ConcurrentHashMap#compute()
+    private static final Map<String, DatabaseSlots> SLOTS_BY_DB = new ConcurrentHashMap<>();
+    private static final Set<Job.Status> DB_INTENSIVE_STATES = EnumSet.of(preparing, prepared, executing, executed, finalizing);
+    private static final Comparator<Job> PROCESSING_ORDER = Comparator.<Job>comparingInt(JobQueue::priority).reversed()
+        .thenComparingLong(Job::getCreatedAt);
+    private static final Comparator<WaitingJob> WAITING_ORDER = Comparator.comparingInt(WaitingJob::priority).reversed()
+        .thenComparingLong(WaitingJob::createdAt)
+        .thenComparing(WaitingJob::jobKey);
+    private static final Set<String> JOB_TYPES = Set.of(Import.class.getSimpleName(), Export.class.getSimpleName());
+    private static volatile Map<String, Integer> typePriorities = Map.of();
 
     protected boolean commenced = false;
 
@@ -75,58 +114,154 @@ public abstract class JobQueue implements Runnable {
             logger.warn("job[{}] ", jobId, e);
     }
 
-    public synchronized static Job hasJob(Job job) {
-        return JOB_QUEUE.stream()
-                .filter(j -> j.getId().equalsIgnoreCase(job.getId()))
-                .findAny()
-                .orElse(null);
+    private static String key(String id) {
+        return id.toLowerCase();
     }
 
-    public synchronized static void addJob(Job job) {
-        if (hasJob(job) == null) {
+    public static Job hasJob(Job job) {
+        return JOB_QUEUE.get(key(job.getId()));
+    }
+
+    public static void addJob(Job job) {
+        if (JOB_QUEUE.putIfAbsent(key(job.getId()), job) == null) {
             logger.info("job[{}] added to JobQueue! {}", job.getId(), job);
-            JOB_QUEUE.add(job);
+            if (job.getTargetSpaceId() != null)
+                JOBS_BY_TARGET_SPACE.computeIfAbsent(key(job.getTargetSpaceId()), spaceId -> ConcurrentHashMap.newKeySet())
+                    .add(key(job.getId()));
+            if (job.getTargetConnector() != null)
+                SLOTS_BY_DB.compute(job.getTargetConnector(), (db, slots) -> {
+                    slots = slots == null ? new DatabaseSlots() : slots;
+                    if (DB_INTENSIVE_STATES.contains(job.getStatus()))
+                        //The job is running already (e.g. it was taken over from another node), so it occupies a slot in any case
+                        slots.admit(key(job.getId()));
+                    else
+                        slots.addWaiting(job);
+                    return slots;
+                });
         }
         else
             logger.info("job[{}] is already present in queue! {}", job.getId(), job);
     }
 
-    private synchronized static void refreshJob(Job job) {
-        if (hasJob(job) != null) {
-            JOB_QUEUE.remove(hasJob(job));
-            JOB_QUEUE.add(job);
-        }
+    private static void refreshJob(Job job) {
+        JOB_QUEUE.computeIfPresent(key(job.getId()), (id, formerJob) -> job);
     }
 
-    public synchronized static void removeJob(Job job) {
+    public static void removeJob(Job job) {
         logger.info("job[{}] removed from JobQueue! {}", job.getId(), job);
-        if (hasJob(job) != null)
-            JOB_QUEUE.remove(hasJob(job));
+        String jobKey = key(job.getId());
+        Job removedJob = JOB_QUEUE.remove(jobKey);
+        if (removedJob == null)
+            return;
+
+        if (removedJob.getTargetSpaceId() != null)
+            JOBS_BY_TARGET_SPACE.computeIfPresent(key(removedJob.getTargetSpaceId()), (spaceId, jobIds) -> {
+                jobIds.remove(jobKey);
+                return jobIds.isEmpty() ? null : jobIds;
+            });
+        if (removedJob.getTargetConnector() != null)
+            SLOTS_BY_DB.computeIfPresent(removedJob.getTargetConnector(), (db, slots) -> {
+                slots.remove(jobKey);
+                return slots.isEmpty() ? null : slots;
+            });
     }
 
-    public synchronized static void abortAllJobs() {
+    public static void abortAllJobs() {
         for (Job job : getQueue())
             setJobFailed(job, null, Job.ERROR_TYPE_FAILED_DUE_RESTART);
     }
 
     public static String checkRunningJobsOnSpace(String targetSpaceId) {
+        if (targetSpaceId == null)
+            return null;
+        Set<String> jobIds = JOBS_BY_TARGET_SPACE.get(key(targetSpaceId));
+        if (jobIds == null)
+            return null;
         //Check only for imports
-        for (Job j : JOB_QUEUE ) {
-            if(targetSpaceId != null  && j.getTargetSpaceId() != null
-                && targetSpaceId.equalsIgnoreCase(j.getTargetSpaceId())
-                && j instanceof Import){
+        for (String jobId : jobIds) {
+            Job j = JOB_QUEUE.get(jobId);
+            if (j instanceof Import)
                 return j.getId();
-            }
         }
         return null;
     }
 
-    public synchronized static List<Job> getQueue() {
-        return JOB_QUEUE;
+    /**
+     * Admits the job to run its database intensive stages on its target database.
+     * A job stays admitted until it gets removed from the queue.
+     * Import and export jobs compete for the same slots. So the free slots of a database are assigned in one pass over all
+     * queued jobs of both types in their processing order, which lets jobs of a type with a higher priority go first.
+     *
+     * @param job The job to be admitted
+     * @return true, if the job was admitted now or before, false if the maximum number of running jobs on the database is reached
+     *  or if queued jobs which are to be processed earlier are still waiting for a free slot
+     */
+    protected static boolean admitToDatabase(Job job) {
+        return admitToDatabase(job, false);
+    }
+
+    private static boolean admitToDatabase(Job job, boolean force) {
+        if (job.getTargetConnector() == null)
+            return true;
+
+        String jobKey = key(job.getId());
+        boolean[] admitted = {false};
+        SLOTS_BY_DB.compute(job.getTargetConnector(), (db, slots) -> {
+            slots = slots == null ? new DatabaseSlots() : slots;
+            if (!force && !slots.admitted.contains(jobKey) && JOB_QUEUE.containsKey(jobKey))
+                //The target connector of the job might not have been known when it was added to the queue
+                slots.addWaiting(job);
+            if (force || slots.admitted.contains(jobKey) || JOB_QUEUE.containsKey(jobKey) && slots.isNextInLine(jobKey)) {
+                slots.admit(jobKey);
+                admitted[0] = true;
+            }
+            return slots.isEmpty() ? null : slots;
+        });
+        return admitted[0];
+    }
+
+    /**
+     * Sets the priorities of the job types (see {@link com.here.xyz.httpconnector.Config#JOB_TYPE_PRIORITIES}).
+     *
+     * @param jobTypePriorities A list of "jobType:priority" entries or null to process all job types with the same priority
+     * @throws IllegalArgumentException If one of the entries is not valid
+     */
+    public static void setTypePriorities(List<String> jobTypePriorities) {
+        Map<String, Integer> priorities = new HashMap<>();
+        if (jobTypePriorities != null)
+            for (String typePriority : jobTypePriorities) {
+                String[] parts = typePriority.split(":");
+                if (parts.length != 2 || !JOB_TYPES.contains(parts[0].trim()))
+                    throw new IllegalArgumentException("Invalid job type priority \"" + typePriority + "\", expected one of "
+                        + JOB_TYPES + " followed by \":<priority>\"");
+                try {
+                    priorities.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+                }
+                catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid priority in job type priority \"" + typePriority + "\"", e);
+                }
+            }
+        typePriorities = Map.copyOf(priorities);
+        //The waiting jobs have been ordered by their former priorities
+        SLOTS_BY_DB.keySet().forEach(db -> SLOTS_BY_DB.computeIfPresent(db, (dbName, slots) -> {
+            slots.reorderWaiting();
+            return slots;
+        }));
+    }
+
+    private static int priority(Job job) {
+        return typePriorities.getOrDefault(job.getClass().getSimpleName(), 0);
+    }
+
+    /**
+     * @return A snapshot of all queued jobs in the order in which they should be processed
+     */
+    public static List<Job> getQueue() {
+        return JOB_QUEUE.values().stream().sorted(PROCESSING_ORDER).collect(Collectors.toList());
     }
 
     public static void printQueue() {
-        JOB_QUEUE.forEach(job -> logger.info(job.getId()));
+        JOB_QUEUE.values().forEach(job -> logger.info(job.getId()));
     }
 
     protected static int queueSize() {
@@ -186,6 +321,76 @@ public abstract class JobQueue implements Runnable {
         return CService.jobConfigClient.update(null, job);
     }
 
+    /**
+     * The slots of one database: The (lower-case) IDs of the jobs which have been admitted to run their database intensive stages,
+     * and the jobs which are waiting for a slot in their processing order.
+     * Instances are not thread-safe, they are only accessed within the compute methods of {@link #SLOTS_BY_DB}.
+     */
+    private static class DatabaseSlots {
+        private final Set<String> admitted = new HashSet<>();
+        private final Map<String, WaitingJob> waitingByKey = new HashMap<>();
+        private NavigableSet<WaitingJob> waiting = new TreeSet<>(WAITING_ORDER);
+
+        private void addWaiting(Job job) {
+            String jobKey = key(job.getId());
+            if (!admitted.contains(jobKey) && !waitingByKey.containsKey(jobKey)) {
+                WaitingJob waitingJob = new WaitingJob(jobKey, priority(job), job.getCreatedAt());
+                waitingByKey.put(jobKey, waitingJob);
+                waiting.add(waitingJob);
+            }
+        }
+
+        private void admit(String jobKey) {
+            WaitingJob waitingJob = waitingByKey.remove(jobKey);
+            if (waitingJob != null)
+                waiting.remove(waitingJob);
+            admitted.add(jobKey);
+        }
+
+        private void remove(String jobKey) {
+            WaitingJob waitingJob = waitingByKey.remove(jobKey);
+            if (waitingJob != null)
+                waiting.remove(waitingJob);
+            admitted.remove(jobKey);
+        }
+
+        private boolean isEmpty() {
+            return admitted.isEmpty() && waitingByKey.isEmpty();
+        }
+
+        /**
+         * Checks whether the job is one of the queued jobs which get the free slots of the database.
+         * Waiting jobs which are not queued (anymore) don't take a slot, except the job itself, as its status might not be
+         * reflected in the queue yet.
+         */
+        private boolean isNextInLine(String jobKey) {
+            int freeSlots = CService.configuration.JOB_MAX_RUNNING_JOBS_PER_DB - admitted.size();
+            for (WaitingJob waitingJob : waiting) {
+                if (freeSlots <= 0)
+                    return false;
+                if (waitingJob.jobKey().equals(jobKey))
+                    return true;
+                Job queuedJob = JOB_QUEUE.get(waitingJob.jobKey());
+                if (queuedJob != null && queuedJob.getStatus() == queued)
+                    freeSlots--;
+            }
+            return false;
+        }
+
+        private void reorderWaiting() {
+            NavigableSet<WaitingJob> reordered = new TreeSet<>(WAITING_ORDER);
+            for (WaitingJob waitingJob : waiting) {
+                Job job = JOB_QUEUE.get(waitingJob.jobKey());
+                WaitingJob reorderedJob = job == null ? waitingJob : new WaitingJob(waitingJob.jobKey(), priority(job), waitingJob.createdAt());
+                waitingByKey.put(reorderedJob.jobKey(), reorderedJob);
+                reordered.add(reorderedJob);
+            }
+            waiting = reordered;
+        }
+    }
+
+    private record WaitingJob(String jobKey, int priority, long createdAt) {}
+
     protected static Future<Void> releaseReadOnlyLockFromSpace(Job job){
         return LegacyHubWebClient.updateSpaceConfig(new JsonObject().put("readOnly", false), job.getTargetSpaceId());
     }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.httpconnector.util.scheduler;
+
+import static com.here.xyz.httpconnector.util.jobs.Job.Status.executing;
+
+import com.here.xyz.httpconnector.task.StatusHandler;
+import com.here.xyz.httpconnector.util.jobs.Export;
+import com.here.xyz.httpconnector.util.jobs.Import;
+import com.here.xyz.httpconnector.util.jobs.ImportObject;
+import com.here.xyz.httpconnector.util.jobs.Job;
+import com.here.xyz.util.TransferTelemetry;
+import com.here.xyz.util.service.Core;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Periodically collects the live telemetry (rows/s, bytes/s, lag per query & estimated end time) of the executing jobs of the
+ * {@link JobQueue} from the progress of their running COPY queries.
+ * The telemetry of a job is only available on the node which is processing it and only while it is executing.
+ */
+public class JobTelemetryCollector implements Runnable {
+    private static final Logger logger = LogManager.getLogger();
+    private static final Map<String, TransferTelemetry> TELEMETRIES = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor executorService = new ScheduledThreadPoolExecutor(1, Core.newThreadFactory("job-telemetry"));
+    private boolean commenced = false;
+
+    public JobTelemetryCollector commence() {
+        if (!commenced) {
+            logger.info("Start!");
+            commenced = true;
+            executorService.scheduleWithFixedDelay(this, 0, TransferTelemetry.RATE_WINDOW_MS, TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    @Override
+    public void run() {
+        try {
+            Set<String> executingJobIds = new HashSet<>();
+            for (Job job : JobQueue.getQueue())
+                if (job.getStatus() == executing) {
+                    collect(job);
+                    executingJobIds.add(key(job.getId()));
+                }
+            //Forget the telemetry of jobs which are not executing anymore
+            TELEMETRIES.keySet().retainAll(executingJobIds);
+        }
+        catch (Exception e) {
+            logger.error("Error collecting job telemetry! ", e);
+        }
+    }
+
+    private void collect(Job job) {
+        TransferTelemetry telemetry = TELEMETRIES.computeIfAbsent(key(job.getId()), id -> createTelemetry(job));
+        StatusHandler.getInstance().updateTransferTelemetry(job, telemetry)
+            .onFailure(e -> logger.warn("job[{}] Unable to collect telemetry: {}", job.getId(), e.getMessage()));
+    }
+
+    private static TransferTelemetry createTelemetry(Job job) {
+        TransferTelemetry telemetry = new TransferTelemetry();
+        if (job instanceof Import importJob && importJob.getImportObjects() != null) {
+            Map<String, ImportObject> importObjects = importJob.getImportObjects();
+            /*
+            The COPY progress counts the uncompressed bytes, while the file sizes are the sizes in S3.
+            The uncompressed size of compressed files is not known, so no end time is estimated for them.
+             */
+            if (importObjects.values().stream().noneMatch(ImportObject::isCompressed)) {
+                telemetry.setTotalBytes(importObjects.values().stream().mapToLong(o -> Math.max(o.getFilesize(), 0)).sum());
+                telemetry.addCompleted(0, importObjects.values().stream()
+                    .filter(o -> o.getStatus() == ImportObject.Status.imported)
+                    .mapToLong(o -> Math.max(o.getFilesize(), 0))
+                    .sum());
+            }
+        }
+        else if (job instanceof Export exportJob)
+            telemetry.setTotalRows(exportJob.getEstimatedFeatureCount());
+        return telemetry;
+    }
+
+    /**
+     * @return The live telemetry of the specified job, or null if the job is not executing on this node
+     */
+    public static TransferTelemetry getTelemetry(String jobId) {
+        return jobId == null ? null : TELEMETRIES.get(key(jobId));
+    }
+
+    private static String key(String id) {
+        return id.toLowerCase();
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.httpconnector.util.scheduler;
+
+import com.here.xyz.httpconnector.util.jobs.Job;
+import com.here.xyz.hub.util.metrics.base.AttributedMetricCollection.Attribute;
+import com.here.xyz.hub.util.metrics.base.AttributedMetricCollector;
+import com.here.xyz.util.TransferTelemetry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes one value of the live telemetry of each executing job, attributed by the type of the job.
+ */
+public class JobTelemetryMetric extends AttributedMetricCollector<Collection<Double>> {
+    private static final String JOB_TYPE_ATTRIBUTE = "JobType";
+    private final ToDoubleFunction<TransferTelemetry> valueExtractor;
+
+    public JobTelemetryMetric(String metricName, MetricUnit unit, ToDoubleFunction<TransferTelemetry> valueExtractor) {
+        super(metricName, unit);
+        this.valueExtractor = valueExtractor;
+    }
+
+    @Override
+    protected Map<Collection<Attribute>, Collection<Double>> gatherValues() {
+        Map<String, List<Double>> valuesByJobType = new HashMap<>();
+        for (Job job : JobQueue.getQueue()) {
+            TransferTelemetry telemetry = JobTelemetryCollector.getTelemetry(job.getId());
+            if (telemetry != null)
+                valuesByJobType.computeIfAbsent(job.getClass().getSimpleName(), type -> new ArrayList<>())
+                    .add(valueExtractor.applyAsDouble(telemetry));
+        }
+
+        Map<Collection<Attribute>, Collection<Double>> values = new HashMap<>();
+        valuesByJobType.forEach((jobType, jobValues) ->
+            values.put(Collections.singletonList(new Attribute<>(JOB_TYPE_ATTRIBUTE, jobType)), jobValues));
+        return values;
+    }
+}
@@ -69,6 +69,12 @@ public class Config extends BaseConfig {
    */
   public String XYZ_HUB_S3_BUCKET;
 
+  /**
+   * The location of the store for pre-rendered tiles, e.g. s3://some-bucket/tiles or file:///var/xyz/tiles
+   * If set, MVT tile requests are served from the pre-rendered tiles, as long as the space content did not change since the rendering.
+   */
+  public String TILE_STORE_LOCATION;
+
   /**
    * The public endpoint.
    */
@@ -33,11 +33,13 @@ import com.here.xyz.hub.connectors.ConfigUpdateThread;
 import com.here.xyz.hub.connectors.WarmupRemoteFunctionThread;
 import com.here.xyz.hub.rest.admin.MessageBroker;
 import com.here.xyz.hub.rest.admin.Node;
+import com.here.xyz.hub.util.metrics.CancelledStorageQueryRuntime;
 import com.here.xyz.hub.util.metrics.GcDurationMetric;
 import com.here.xyz.hub.util.metrics.GlobalInflightRequestMemory;
 import com.here.xyz.hub.util.metrics.GlobalUsedRfcConnections;
 import com.here.xyz.hub.util.metrics.MajorGcCountMetric;
 import com.here.xyz.hub.util.metrics.MemoryMetric;
+import com.here.xyz.hub.util.metrics.StorageQueryCancellations;
 import com.here.xyz.hub.util.metrics.base.CWBareValueMetricPublisher;
 import com.here.xyz.hub.util.metrics.base.MetricPublisher;
 import com.here.xyz.hub.util.metrics.net.ConnectionMetrics;
@@ -324,6 +326,8 @@ public class Service extends Core {
       metricPublishers.add(new CWBareValueMetricPublisher(new GcDurationMetric("GcDuration")));
       metricPublishers.add(new CWBareValueMetricPublisher(new GlobalUsedRfcConnections("GlobalUsedRfcConnections")));
       metricPublishers.add(new CWBareValueMetricPublisher(new GlobalInflightRequestMemory("GlobalInflightRequestMemory")));
+      metricPublishers.add(new CWBareValueMetricPublisher(new StorageQueryCancellations("StorageQueryCancellations")));
+      metricPublishers.add(new CWBareValueMetricPublisher(new CancelledStorageQueryRuntime("CancelledStorageQueryRuntime")));
       metricPublishers.addAll(ConnectionMetrics.startConnectionMetricPublishers());
     }
   }
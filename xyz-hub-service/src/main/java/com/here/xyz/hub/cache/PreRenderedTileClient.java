@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.hub.cache;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.here.xyz.hub.Service;
+import com.here.xyz.jobs.steps.impl.tiles.TileSetMetadata;
+import com.here.xyz.jobs.steps.impl.tiles.TileStore;
+import com.here.xyz.models.geojson.WebMercatorTile;
+import com.here.xyz.util.service.Core;
+import io.vertx.core.Future;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import net.jodah.expiringmap.ExpirationPolicy;
+import net.jodah.expiringmap.ExpiringMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Provides read access to the tiles which have been pre-rendered into the tile store by the tile pre-rendering job.
+ * The metadata of the tile sets is kept in memory for a short time, so not every tile request needs to load it.
+ * The same applies to the content versions of the spaces, which are shared by all concurrent tile requests for the same space.
+ * That means a change of the space content may take up to {@link #CONTENT_VERSION_TTL_MILLIS} until the pre-rendered tiles are no
+ * longer served.
+ */
+public class PreRenderedTileClient {
+  private static final Logger logger = LogManager.getLogger();
+  private static final long METADATA_TTL_SECONDS = 30;
+  private static final long CONTENT_VERSION_TTL_MILLIS = 1000;
+  private static PreRenderedTileClient instance;
+  private static boolean initialized;
+  private final TileStore tileStore;
+  private final ExpiringMap<String, Optional<TileSetMetadata>> metadataCache = ExpiringMap.builder()
+      .expirationPolicy(ExpirationPolicy.CREATED)
+      .expiration(METADATA_TTL_SECONDS, TimeUnit.SECONDS)
+      .build();
+  private final ExpiringMap<String, Future<Long>> contentVersionCache = ExpiringMap.builder()
+      .expirationPolicy(ExpirationPolicy.CREATED)
+      .expiration(CONTENT_VERSION_TTL_MILLIS, TimeUnit.MILLISECONDS)
+      .build();
+
+  private PreRenderedTileClient(URI location) {
+    AmazonS3ClientBuilder builder = AmazonS3ClientBuilder
+        .standard()
+        .withCredentials(new DefaultAWSCredentialsProviderChain());
+
+    if (Service.configuration.LOCALSTACK_ENDPOINT != null) {
+      builder.withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(
+          Service.configuration.LOCALSTACK_ENDPOINT, Service.configuration.AWS_REGION))
+          .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("localstack", "localstack")))
+          .withPathStyleAccessEnabled(true);
+    }
+
+    tileStore = TileStore.forLocation(location, "s3".equals(location.getScheme()) ? builder.build() : null);
+  }
+
+  /**
+   * @return The client or <code>null</code> if no tile store is configured
+   */
+  public static synchronized PreRenderedTileClient getInstance() {
+    if (!initialized) {
+      initialized = true;
+      try {
+        if (Service.configuration.TILE_STORE_LOCATION != null)
+          instance = new PreRenderedTileClient(URI.create(Service.configuration.TILE_STORE_LOCATION));
+      }
+      catch (Exception e) {
+        logger.error("Error when trying to create the tile store client.", e);
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Loads the metadata of the complete tile set of a space.
+   *
+   * @return The metadata or <code>null</code> if the space has no (complete) tile set
+   */
+  public Future<TileSetMetadata> loadMetadata(String spaceId) {
+    Optional<TileSetMetadata> cachedMetadata = metadataCache.get(spaceId);
+    if (cachedMetadata != null)
+      return Future.succeededFuture(cachedMetadata.orElse(null));
+
+    return Core.vertx.executeBlocking(promise -> {
+      try {
+        TileSetMetadata metadata = tileStore.readMetadata(spaceId);
+        metadataCache.put(spaceId, Optional.ofNullable(metadata));
+        promise.complete(metadata);
+      }
+      catch (IOException e) {
+        promise.fail(e);
+      }
+    }, false);
+  }
+
+  /**
+   * Provides the current content version of a space. Concurrent requests for the same space share one load of the version.
+   *
+   * @param spaceId The space
+   * @param versionLoader Loads the content version of the space, if it is not cached
+   * @return The content version of the space
+   */
+  public Future<Long> loadContentVersion(String spaceId, Supplier<Future<Long>> versionLoader) {
+    Future<Long> cachedVersion = contentVersionCache.get(spaceId);
+    if (cachedVersion != null)
+      return cachedVersion;
+
+    Future<Long> version = versionLoader.get();
+    contentVersionCache.put(spaceId, version);
+    //Do not keep failures
+    version.onFailure(t -> contentVersionCache.remove(spaceId, version));
+    return version;
+  }
+
+  /**
+   * Loads a tile of the tile set of a space. Tiles which are covered by the tile set but have no content are returned as empty array.
+   */
+  public Future<byte[]> loadTile(String spaceId, String renderingId, WebMercatorTile tile) {
+    return Core.vertx.executeBlocking(promise -> {
+      try {
+        byte[] mvt = tileStore.readTile(spaceId, renderingId, tile);
+        promise.complete(mvt == null ? new byte[0] : mvt);
+      }
+      catch (IOException e) {
+        promise.fail(e);
+      }
+    }, false);
+  }
+}
@@ -427,6 +427,7 @@ public abstract class FeatureTask<T extends Event<?>, X extends FeatureTask<T, ?
           .then(FeatureTaskHandler::checkImmutability)
           .then(FeatureTaskHandler::validate)
           .then(FeatureTaskHandler::readCache)
+          .then(FeatureTaskHandler::readPreRenderedTile)
           .then(FeatureTaskHandler::invoke)
           .then(FeatureTaskHandler::transformResponse)
           .then(FeatureTaskHandler::writeCache);
@@ -42,21 +42,25 @@ import static io.netty.handler.codec.http.HttpResponseStatus.TOO_MANY_REQUESTS;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.here.xyz.Payload;
 import com.here.xyz.XyzSerializable;
+import com.here.xyz.events.CancelQueryEvent;
 import com.here.xyz.events.ContentModifiedNotification;
 import com.here.xyz.events.ContextAwareEvent;
 import com.here.xyz.events.Event;
 import com.here.xyz.events.Event.TrustedParams;
 import com.here.xyz.events.EventNotification;
 import com.here.xyz.events.GetFeaturesByBBoxEvent;
+import com.here.xyz.events.GetChangesetStatisticsEvent;
 import com.here.xyz.events.GetFeaturesByTileEvent;
 import com.here.xyz.events.GetStatisticsEvent;
 import com.here.xyz.events.LoadFeaturesEvent;
 import com.here.xyz.events.ModifyFeaturesEvent;
 import com.here.xyz.events.ModifySpaceEvent;
+import com.here.xyz.events.SearchForFeaturesEvent;
 import com.here.xyz.events.SelectiveEvent;
 import com.here.xyz.hub.Service;
 import com.here.xyz.hub.XYZHubRESTVerticle;
 import com.here.xyz.hub.cache.CacheClient;
+import com.here.xyz.hub.cache.PreRenderedTileClient;
 import com.here.xyz.hub.config.TagConfigClient;
 import com.here.xyz.hub.connectors.RpcClient;
 import com.here.xyz.hub.connectors.RpcClient.RpcContext;
@@ -79,6 +83,8 @@ import com.here.xyz.hub.task.ModifyOp.ModifyOpError;
 import com.here.xyz.hub.task.TaskPipeline.Callback;
 import com.here.xyz.hub.util.geo.MapBoxVectorTileBuilder;
 import com.here.xyz.hub.util.geo.MapBoxVectorTileFlattenedBuilder;
+import com.here.xyz.hub.util.metrics.CancelledStorageQueryRuntime;
+import com.here.xyz.hub.util.metrics.StorageQueryCancellations;
 import com.here.xyz.models.geojson.WebMercatorTile;
 import com.here.xyz.models.geojson.exceptions.InvalidGeometryException;
 import com.here.xyz.models.geojson.implementation.Feature;
@@ -89,6 +95,8 @@ import com.here.xyz.models.hub.Ref;
 import com.here.xyz.models.hub.Space.Extension;
 import com.here.xyz.models.hub.jwt.JWTPayload;
 import com.here.xyz.responses.BinaryResponse;
+import com.here.xyz.responses.CancelQueryResponse;
+import com.here.xyz.responses.ChangesetsStatisticsResponse;
 import com.here.xyz.responses.ErrorResponse;
 import com.here.xyz.responses.ModifiedEventResponse;
 import com.here.xyz.responses.ModifiedPayloadResponse;
@@ -276,7 +284,10 @@ public class FeatureTaskHandler {
           });
         }, task.space);
         XYZHubRESTVerticle.addStreamInfo(task.context, "SReqSize", responseContext.rpcContext.getRequestSize());
-        task.addCancellingHandler(unused -> responseContext.rpcContext.cancelRequest());
+        task.addCancellingHandler(unused -> {
+          responseContext.rpcContext.cancelRequest();
+          cancelStorageQueries(task, eventToExecute);
+        });
       }
       catch (IllegalStateException e) {
         cancelRPC(responseContext.rpcContext);
@@ -324,6 +335,31 @@ public class FeatureTaskHandler {
     }
   }
 
+  /**
+   * Cancels the queries which are still running in the storage for a read event, which was cancelled on the hub already.
+   * Cancelling the RPC only stops waiting for the response, while the storage would keep executing the queries otherwise.
+   */
+  private static <T extends FeatureTask> void cancelStorageQueries(T task, Event event) {
+    if (!(event instanceof SearchForFeaturesEvent) || !task.storage.capabilities.queryCancellation)
+      return;
+
+    try {
+      CancelQueryEvent cancelEvent = new CancelQueryEvent()
+          .withQueryId(event.getStreamId())
+          .withStreamId(task.getMarker().getName());
+      StorageQueryCancellations.increment();
+      getRpcClient(task.storage).execute(task.getMarker(), cancelEvent, true, ar -> {
+        if (ar.failed())
+          logger.warn(task.getMarker(), "Error cancelling the storage queries.", ar.cause());
+        else if (ar.result() instanceof CancelQueryResponse response && response.getCancelledQueries() > 0)
+          CancelledStorageQueryRuntime.addRuntime(response.getCancelledQueriesRuntime());
+      });
+    }
+    catch (Exception e) {
+      logger.warn(task.getMarker(), "Error cancelling the storage queries.", e);
+    }
+  }
+
   private static void cancelRPC(RpcContext rpcContext) {
     if (rpcContext != null) {
       rpcContext.cancelRequest();
@@ -372,8 +408,11 @@ public class FeatureTaskHandler {
       }
     }
     else {
-      //If the request should is not cacheable, it should always use the primary data source of the connector.
-      task.getEvent().setPreferPrimaryDataSource(true);
+      //If the request is not cacheable, it has to see all changes which have been done before it was received.
+      //Connectors which are tracking their replication lag may still use a replica if it has caught up until they received the event.
+      task.getEvent()
+          .withPreferPrimaryDataSource(true)
+          .withAllowCaughtUpReplica(true);
       callback.call(task);
       return;
     }
@@ -1463,6 +1502,82 @@ public class FeatureTaskHandler {
     }
   }
 
+  /**
+   * Serves MVT tiles from the pre-rendered tiles of the space if they are available and the content of the space has not changed
+   * since the tiles have been rendered. Only plain MVT requests (without any filters, clustering, tweaks, etc.) are eligible.
+   */
+  static void readPreRenderedTile(TileQuery task, Callback<TileQuery> callback) {
+    PreRenderedTileClient tileClient = PreRenderedTileClient.getInstance();
+    if (tileClient == null || task.getResponse() != null || !isPreRenderable(task)) {
+      callback.call(task);
+      return;
+    }
+
+    final GetFeaturesByTileEvent event = task.getEvent();
+    final WebMercatorTile tile = WebMercatorTile.forWeb(event.getLevel(), event.getX(), event.getY());
+    tileClient.loadMetadata(task.space.getId())
+        .compose(tileSet -> tileSet == null || !tileSet.covers(tile)
+            ? Future.succeededFuture(false)
+            : isContentVersion(task, tileSet.getVersion())
+                .compose(upToDate -> upToDate ? tileClient.loadTile(task.space.getId(), tileSet.getRenderingId(), tile)
+                    .map(mvt -> {
+                      task.setResponse(new BinaryResponse()
+                          .withMimeType(APPLICATION_VND_MAPBOX_VECTOR_TILE)
+                          .withBytes(mvt));
+                      return true;
+                    }) : Future.succeededFuture(false)))
+        .onSuccess(served -> {
+          XYZHubRESTVerticle.addStreamInfo(task.context, "PRT", served ? 1 : 0);
+          callback.call(task);
+        })
+        .onFailure(t -> {
+          //Treating an error as if no pre-rendered tile was available
+          logger.warn(task.getMarker(), "Error reading the pre-rendered tile, falling back to the storage connector.", t);
+          callback.call(task);
+        });
+  }
+
+  private static boolean isPreRenderable(TileQuery task) {
+    final GetFeaturesByTileEvent event = task.getEvent();
+    return task.responseType == MVT
+        && task.space.getExtension() == null
+        && !event.getHereTileFlag()
+        && event.getMargin() == 0
+        && !Boolean.FALSE.equals(event.getClip())
+        && event.getClusteringType() == null
+        && event.getTweakType() == null
+        && event.getPropertiesQuery() == null
+        && event.getTags() == null
+        && event.getSelection() == null
+        && (event.getOptimizationMode() == null || "raw".equals(event.getOptimizationMode()))
+        && (event.getRef() == null || event.getRef().isHead())
+        && (event.getContext() == null || event.getContext() == DEFAULT);
+  }
+
+  /**
+   * Checks whether the current content version of the space equals the specified version.
+   * For spaces which only keep one version, deletions are not reflected by the versions, so they are only checked if they are read-only.
+   */
+  private static Future<Boolean> isContentVersion(TileQuery task, long version) {
+    if (task.space.isReadOnly() && task.space.getReadOnlyHeadVersion() >= 0)
+      return Future.succeededFuture(task.space.getReadOnlyHeadVersion() == version);
+    if (task.space.getVersionsToKeep() <= 1)
+      return Future.succeededFuture(false);
+
+    return PreRenderedTileClient.getInstance().loadContentVersion(task.space.getId(), () -> {
+      Promise<Long> promise = Promise.promise();
+      RpcClient.getInstanceFor(task.storage).execute(task.getMarker(), new GetChangesetStatisticsEvent().withSpace(task.space.getId()), ar -> {
+        if (ar.failed())
+          promise.fail(ar.cause());
+        else if (ar.result() instanceof ChangesetsStatisticsResponse statistics)
+          promise.complete(statistics.getMaxVersion());
+        else
+          promise.fail(Api.responseToHttpException(ar.result()));
+      });
+      return promise.future();
+    }).map(contentVersion -> contentVersion == version);
+  }
+
   static void transformResponse(TileQuery task, Callback<TileQuery> callback) {
     if (task.responseType != MVT
         && task.responseType != MVT_FLATTENED
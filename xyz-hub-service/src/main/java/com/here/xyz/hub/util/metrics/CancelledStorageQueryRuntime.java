@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.hub.util.metrics;
+
+import static com.here.xyz.hub.util.metrics.base.Metric.MetricUnit.MILLISECONDS;
+
+import com.here.xyz.hub.util.metrics.base.BareValuesMetric;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Gathers the time the storage queries had been running already when they got cancelled.
+ * That is the database time which was spent for responses which have not been sent to any client.
+ */
+public class CancelledStorageQueryRuntime extends BareValuesMetric {
+
+  private static final AtomicReference<Collection<Double>> runtimes = new AtomicReference<>(newValues());
+
+  public CancelledStorageQueryRuntime(String metricName) {
+    super(metricName, MILLISECONDS);
+  }
+
+  public static void addRuntime(long runtime) {
+    runtimes.get().add((double) runtime);
+  }
+
+  @Override
+  protected Collection<Double> gatherValues() {
+    return runtimes.getAndSet(newValues());
+  }
+
+  private static Collection<Double> newValues() {
+    return Collections.synchronizedList(new ArrayList<>());
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.hub.util.metrics;
+
+import static com.here.xyz.hub.util.metrics.base.Metric.MetricUnit.COUNT;
+
+import com.here.xyz.hub.util.metrics.base.BareValuesMetric;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the storage requests of which the queries have been cancelled, because the client was not waiting for the response anymore.
+ */
+public class StorageQueryCancellations extends BareValuesMetric {
+
+  private static final AtomicLong cancellations = new AtomicLong();
+
+  public StorageQueryCancellations(String metricName) {
+    super(metricName, COUNT);
+  }
+
+  public static void increment() {
+    cancellations.incrementAndGet();
+  }
+
+  @Override
+  protected Collection<Double> gatherValues() {
+    return Collections.singleton((double) cancellations.getAndSet(0));
+  }
+}
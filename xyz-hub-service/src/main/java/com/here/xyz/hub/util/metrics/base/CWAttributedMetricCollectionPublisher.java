@@ -38,6 +38,10 @@ public class CWAttributedMetricCollectionPublisher<V> extends CloudWatchMetricPu
     super(metric);
   }
 
+  public CWAttributedMetricCollectionPublisher(Metric metric, String serviceName) {
+    super(metric, serviceName);
+  }
+
   @Override
   protected void publishValues(Map<Collection<Attribute>, V> values) {
     List<MetricDatum> metricData = values
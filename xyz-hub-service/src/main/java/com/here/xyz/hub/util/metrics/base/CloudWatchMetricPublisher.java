@@ -46,10 +46,17 @@ public abstract class CloudWatchMetricPublisher<V> extends MetricPublisher<V> {
   private volatile StandardUnit unit;
 
   public CloudWatchMetricPublisher(Metric metric) {
+    this(metric, "XYZ-Hub-" + Service.configuration.ENVIRONMENT_NAME);
+  }
+
+  /**
+   * @param serviceName The value of the main dimension, for services other than the XYZ Hub
+   */
+  public CloudWatchMetricPublisher(Metric metric, String serviceName) {
     super(metric, 30);
     mainDimension = new Dimension()
         .withName(mainDimensionName)
-        .withValue("XYZ-Hub-" + Service.configuration.ENVIRONMENT_NAME);
+        .withValue(serviceName);
     this.unit = mapUnit(metric.getUnit());
   }
 
@@ -88,6 +95,8 @@ public abstract class CloudWatchMetricPublisher<V> extends MetricPublisher<V> {
       case PERCENT: return StandardUnit.Percent;
       case BYTES: return StandardUnit.Bytes;
       case MILLISECONDS: return StandardUnit.Milliseconds;
+      case COUNT_PER_SECOND: return StandardUnit.CountSecond;
+      case BYTES_PER_SECOND: return StandardUnit.BytesSecond;
       default: return StandardUnit.None;
     }
   }
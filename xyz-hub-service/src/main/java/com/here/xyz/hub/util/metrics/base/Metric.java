@@ -43,6 +43,8 @@ public abstract class Metric<V> {
     COUNT,
     PERCENT,
     BYTES,
-    MILLISECONDS
+    MILLISECONDS,
+    COUNT_PER_SECOND,
+    BYTES_PER_SECOND
   }
 }
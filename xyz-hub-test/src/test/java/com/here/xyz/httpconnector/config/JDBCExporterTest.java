@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+
+package com.here.xyz.httpconnector.config;
+
+import static org.junit.Assert.assertEquals;
+
+import com.here.xyz.httpconnector.CService;
+import com.here.xyz.httpconnector.Config;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class JDBCExporterTest {
+  private static final Pattern LOWER_BOUND = Pattern.compile("i >= (-?\\d+)");
+  private static final Pattern UPPER_BOUND = Pattern.compile("i < (-?\\d+)");
+
+  @BeforeClass
+  public static void init() {
+    //The exporter reads its pool size from the configuration when it gets loaded
+    if (CService.configuration == null)
+      CService.configuration = new Config();
+  }
+
+  @Test
+  public void slicesHaveEqualBounds() {
+    long[] serialRange = {1, 100};
+    assertEquals("AND i < 26", condition(serialRange, 4, 0));
+    assertEquals("AND i >= 26 AND i < 51", condition(serialRange, 4, 1));
+    assertEquals("AND i >= 51 AND i < 76", condition(serialRange, 4, 2));
+    assertEquals("AND i >= 76", condition(serialRange, 4, 3));
+  }
+
+  @Test
+  public void firstAndLastSlicesAreOpenEnded() {
+    long[] serialRange = {1000, 2000};
+    //Rows of other tables (e.g. the base space of a composite space) might have serials outside the range of the space table
+    assertEquals(List.of(0), matchingSlices(serialRange, 3, Long.MIN_VALUE));
+    assertEquals(List.of(0), matchingSlices(serialRange, 3, 0));
+    assertEquals(List.of(2), matchingSlices(serialRange, 3, 5000));
+    assertEquals(List.of(2), matchingSlices(serialRange, 3, Long.MAX_VALUE));
+    //A single slice has no bounds at all
+    assertEquals("", condition(serialRange, 1, 0));
+  }
+
+  @Test
+  public void eachSerialIsInExactlyOneSlice() {
+    long[] serialRange = {17, 1234};
+    for (int partCount : new int[] {2, 3, 7, 16})
+      for (long i = serialRange[0] - 10; i <= serialRange[1] + 10; i++)
+        assertEquals("Serial " + i + " with " + partCount + " slices", 1, matchingSlices(serialRange, partCount, i).size());
+  }
+
+  @Test
+  public void moreThreadsThanRows() {
+    long[] serialRange = {5, 6};
+    int partCount = 8;
+    assertEquals(List.of(0), matchingSlices(serialRange, partCount, 5));
+    assertEquals(List.of(1), matchingSlices(serialRange, partCount, 6));
+    for (long i = 0; i <= 20; i++)
+      assertEquals(1, matchingSlices(serialRange, partCount, i).size());
+
+    //An empty table
+    assertEquals(List.of(0), matchingSlices(new long[] {0, 0}, partCount, 0));
+  }
+
+  private static String condition(long[] serialRange, int partCount, int part) {
+    return JDBCExporter.buildSerialRangeCondition(serialRange, partCount, part).text().trim();
+  }
+
+  /**
+   * @return The slices whose condition matches the specified serial
+   */
+  private static List<Integer> matchingSlices(long[] serialRange, int partCount, long serial) {
+    List<Integer> slices = new ArrayList<>();
+    for (int part = 0; part < partCount; part++) {
+      String condition = condition(serialRange, partCount, part);
+      Matcher lowerBound = LOWER_BOUND.matcher(condition), upperBound = UPPER_BOUND.matcher(condition);
+      if ((!lowerBound.find() || serial >= Long.parseLong(lowerBound.group(1)))
+          && (!upperBound.find() || serial < Long.parseLong(upperBound.group(1))))
+        slices.add(part);
+    }
+    return slices;
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.httpconnector.util.export;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.here.xyz.httpconnector.util.jobs.Export.ExportStatistic;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.postgresql.copy.CopyOut;
+
+public class CopyExportEngineTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void rowsAreSplitIntoChunks() throws Exception {
+    List<String> rows = rows(10);
+    ExportStatistic statistic = new CopyExportEngine(null, new LocalDirectorySink(folder.getRoot().toPath()))
+        .withCompressed(false)
+        .withMaxChunkSize(30)
+        .export(new TestCopyOut(rows, -1), "export/0_export.csv");
+
+    assertEquals(10, statistic.getRowsUploaded());
+    assertEquals(List.of("0_export.csv", "0_export.csv_part2", "0_export.csv_part3", "0_export.csv_part4"), files());
+    assertEquals(4, statistic.getFilesUploaded());
+    //A new chunk is only started after a complete row
+    assertEquals(rows.subList(0, 3), lines("0_export.csv"));
+    assertEquals(String.join("", rows), files().stream().map(this::content).collect(Collectors.joining()));
+    assertEquals(files().stream().mapToLong(this::size).sum(), statistic.getBytesUploaded());
+  }
+
+  @Test
+  public void compressedChunks() throws Exception {
+    List<String> rows = rows(5);
+    ExportStatistic statistic = new CopyExportEngine(null, new LocalDirectorySink(folder.getRoot().toPath()))
+        .export(new TestCopyOut(rows, -1), "export/0_export.csv");
+
+    assertEquals(List.of("0_export.csv.gz"), files());
+    assertEquals(1, statistic.getFilesUploaded());
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(file("0_export.csv.gz")))) {
+      assertEquals(String.join("", rows), new String(in.readAllBytes(), UTF_8));
+    }
+  }
+
+  @Test
+  public void copyStatementCarriesQueryHint() {
+    assertEquals("COPY /* copy_export_hint m499#jobId(someJob) */ (SELECT 1) TO STDOUT WITH ("
+            + "FORMAT csv, DELIMITER ',', ENCODING 'UTF8', QUOTE '\"', ESCAPE '''')",
+        CopyExportEngine.buildCopyStatement(" SELECT 1; ", "copy_export_hint m499#jobId(someJob)"));
+    assertTrue(CopyExportEngine.buildCopyStatement("SELECT 1", null).startsWith("COPY (SELECT 1)"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void queryHintMustNotEndTheComment() {
+    new CopyExportEngine(null, null).withQueryHint("m499#jobId(*/ SELECT 1)");
+  }
+
+  @Test
+  public void allChunksAreDiscardedOnFailure() throws Exception {
+    TestCopyOut copyOut = new TestCopyOut(rows(10), 7);
+    try {
+      new CopyExportEngine(null, new LocalDirectorySink(folder.getRoot().toPath()))
+          .withCompressed(false)
+          .withMaxChunkSize(30)
+          .export(copyOut, "export/0_export.csv");
+      fail("The export should have failed");
+    }
+    catch (SQLException e) {
+      assertEquals("Connection lost", e.getMessage());
+    }
+
+    assertTrue(copyOut.cancelled);
+    //The chunks which have been completed before the failure must be removed as well
+    assertEquals(List.of(), files());
+  }
+
+  private static List<String> rows(int count) {
+    List<String> rows = new ArrayList<>();
+    for (int i = 0; i < count; i++)
+      rows.add("row" + i + ",\"data\"\n");
+    return rows;
+  }
+
+  private Path file(String name) {
+    return folder.getRoot().toPath().resolve("export").resolve(name);
+  }
+
+  private List<String> files() {
+    Path directory = folder.getRoot().toPath().resolve("export");
+    if (!Files.exists(directory))
+      return List.of();
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+    }
+    catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private String content(String name) {
+    try {
+      return Files.readString(file(name));
+    }
+    catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private List<String> lines(String name) {
+    return content(name).lines().map(line -> line + "\n").collect(Collectors.toList());
+  }
+
+  private long size(String name) {
+    try {
+      return Files.size(file(name));
+    }
+    catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Returns one row per copy message, like the database does, and optionally fails after a number of rows.
+   */
+  private static class TestCopyOut implements CopyOut {
+    private final Iterator<String> rows;
+    private final int failAfter;
+    private int handledRows;
+    private boolean cancelled;
+
+    private TestCopyOut(List<String> rows, int failAfter) {
+      this.rows = rows.iterator();
+      this.failAfter = failAfter;
+    }
+
+    @Override
+    public byte[] readFromCopy() throws SQLException {
+      if (handledRows == failAfter)
+        throw new SQLException("Connection lost");
+      if (!rows.hasNext())
+        return null;
+      handledRows++;
+      return rows.next().getBytes(UTF_8);
+    }
+
+    @Override
+    public byte[] readFromCopy(boolean block) throws SQLException {
+      return readFromCopy();
+    }
+
+    @Override
+    public int getFieldCount() {
+      return 2;
+    }
+
+    @Override
+    public int getFormat() {
+      return 0;
+    }
+
+    @Override
+    public int getFieldFormat(int field) {
+      return 0;
+    }
+
+    @Override
+    public boolean isActive() {
+      return !cancelled && rows.hasNext();
+    }
+
+    @Override
+    public void cancelCopy() {
+      cancelled = true;
+    }
+
+    @Override
+    public long getHandledRowCount() {
+      return handledRows;
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+
+package com.here.xyz.httpconnector.util.export;
+
+import static com.here.xyz.jobs.datasets.files.GeoParquet.ColumnType.LONG;
+import static com.here.xyz.jobs.datasets.files.GeoParquet.ColumnType.STRING;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.here.xyz.httpconnector.util.jobs.Export.ExportStatistic;
+import com.here.xyz.jobs.datasets.files.GeoParquet;
+import io.vertx.core.json.JsonObject;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKTWriter;
+
+public class GeoParquetExporterTest {
+  private static final GeoParquet FORMAT = new GeoParquet()
+      .withPromotedProperty("name", STRING)
+      .withPromotedProperty("population", LONG);
+  private static final List<String[]> ROWS = List.of(
+      new String[] {"{\"id\": \"f1\", \"type\": \"Feature\", \"properties\": {\"name\": \"Berlin\", \"population\": 3800000, "
+          + "\"other\": \"x\"}}", "{\"type\": \"Point\", \"coordinates\": [13.4, 52.5]}"},
+      new String[] {"{\"id\": \"f2\", \"type\": \"Feature\", \"properties\": {}}", null},
+      new String[] {"{\"id\": \"f3\", \"type\": \"Feature\", \"properties\": {\"name\": \"Hamburg\"}}",
+          "{\"type\": \"LineString\", \"coordinates\": [[9.9, 53.5], [10.1, 53.6]]}"});
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void filesCanBeReadByAnIndependentReader() throws Exception {
+    //A maximum file size of 1 byte leads to one file per feature
+    ExportStatistic statistic = new GeoParquetExporter(null, new LocalDirectorySink(folder.getRoot().toPath()), FORMAT)
+        .withMaxFileSize(1)
+        .export(resultSet(ROWS, -1), "export/0_export");
+
+    assertEquals(3, statistic.getRowsUploaded());
+    assertEquals(3, statistic.getFilesUploaded());
+    assertEquals(List.of("0_export.parquet", "0_export_part2.parquet", "0_export_part3.parquet"), files());
+
+    //DuckDB implements the Parquet format independently of the GeoParquetWriter
+    try (Connection connection = DriverManager.getConnection("jdbc:duckdb:");
+        Statement statement = connection.createStatement()) {
+      //Read the geometry as WKB, independent of any installed spatial extension
+      statement.execute("SET enable_geoparquet_conversion = false");
+      String files = "'" + folder.getRoot().toPath().resolve("export").resolve("*.parquet") + "'";
+
+      List<String> rows = new ArrayList<>();
+      WKBReader wkbReader = new WKBReader();
+      WKTWriter wktWriter = new WKTWriter(3);
+      try (ResultSet rs = statement.executeQuery("SELECT id, name, population, properties, hex(geometry), bbox.xmin, bbox.ymax "
+          + "FROM read_parquet(" + files + ") ORDER BY id")) {
+        while (rs.next())
+          rows.add(String.join("|", rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4),
+              rs.getString(5) == null ? null : wktWriter.write(wkbReader.read(WKBReader.hexToBytes(rs.getString(5)))),
+              rs.getString(6), rs.getString(7)));
+      }
+      assertEquals(List.of(
+          "f1|Berlin|3800000|{\"other\":\"x\"}|POINT Z(13.4 52.5 0)|13.4|52.5",
+          "f2|null|null|null|null|null|null",
+          "f3|Hamburg|null|null|LINESTRING Z(9.9 53.5 0, 10.1 53.6 0)|9.9|53.6"), rows);
+
+      try (ResultSet rs = statement.executeQuery("SELECT decode(value) FROM parquet_kv_metadata(" + files + ") "
+          + "WHERE decode(key) = 'geo' ORDER BY file_name LIMIT 1")) {
+        rs.next();
+        JsonObject geo = new JsonObject(rs.getString(1));
+        assertEquals("geometry", geo.getString("primary_column"));
+        assertEquals("WKB", geo.getJsonObject("columns").getJsonObject("geometry").getString("encoding"));
+      }
+    }
+  }
+
+  @Test
+  public void allFilesAreDiscardedOnFailure() throws Exception {
+    try {
+      new GeoParquetExporter(null, new LocalDirectorySink(folder.getRoot().toPath()), FORMAT)
+          .withMaxFileSize(1)
+          .export(resultSet(ROWS, 2), "export/0_export");
+      fail("The export should have failed");
+    }
+    catch (SQLException e) {
+      assertEquals("Connection lost", e.getMessage());
+    }
+
+    //The files which have been completed before the failure must be removed as well
+    assertEquals(List.of(), files());
+  }
+
+  private List<String> files() throws IOException {
+    Path directory = folder.getRoot().toPath().resolve("export");
+    if (!Files.exists(directory))
+      return List.of();
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * Returns a result set with the columns "jsondata" and "geo" (as GeoJSON) which optionally fails after a number of rows.
+   */
+  private static ResultSet resultSet(List<String[]> rows, int failAfter) {
+    Iterator<String[]> iterator = rows.iterator();
+    String[][] current = {null};
+    int[] handledRows = {0};
+    return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class[] {ResultSet.class},
+        (proxy, method, args) -> switch (method.getName()) {
+          case "next" -> {
+            if (handledRows[0] == failAfter)
+              throw new SQLException("Connection lost");
+            current[0] = iterator.hasNext() ? iterator.next() : null;
+            if (current[0] != null)
+              handledRows[0]++;
+            yield current[0] != null;
+          }
+          case "getString" -> current[0][(int) args[0] - 1];
+          default -> throw new UnsupportedOperationException(method.getName());
+        });
+  }
+}
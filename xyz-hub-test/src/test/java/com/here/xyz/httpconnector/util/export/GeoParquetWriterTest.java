@@ -0,0 +1,393 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.httpconnector.util.export;
+
+import static com.here.xyz.jobs.datasets.files.GeoParquet.ColumnType.BOOLEAN;
+import static com.here.xyz.jobs.datasets.files.GeoParquet.ColumnType.DOUBLE;
+import static com.here.xyz.jobs.datasets.files.GeoParquet.ColumnType.LONG;
+import static com.here.xyz.jobs.datasets.files.GeoParquet.ColumnType.STRING;
+import static com.here.xyz.jobs.datasets.files.GeoParquet.Compression.UNCOMPRESSED;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import com.here.xyz.XyzSerializable;
+import com.here.xyz.jobs.datasets.files.GeoParquet;
+import com.here.xyz.models.geojson.coordinates.LineStringCoordinates;
+import com.here.xyz.models.geojson.coordinates.PointCoordinates;
+import com.here.xyz.models.geojson.coordinates.Position;
+import com.here.xyz.models.geojson.implementation.Geometry;
+import com.here.xyz.models.geojson.implementation.LineString;
+import com.here.xyz.models.geojson.implementation.Point;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import org.junit.Test;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKTWriter;
+
+public class GeoParquetWriterTest {
+  private static final GeoParquet FORMAT = new GeoParquet()
+      .withPromotedProperty("name", STRING)
+      .withPromotedProperty("population", LONG)
+      .withPromotedProperty("address.zip", STRING)
+      .withPromotedProperty("area", DOUBLE)
+      .withPromotedProperty("capital", BOOLEAN);
+
+  @Test
+  public void roundTripWithMultipleRowGroups() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    //A row group size of 1 byte leads to one row group per feature
+    try (GeoParquetWriter writer = new GeoParquetWriter(out, FORMAT, null, 1)) {
+      writer.write(feature("{\"id\": \"f1\", \"type\": \"Feature\", \"properties\": {\"name\": \"Berlin\", \"population\": 3800000, "
+          + "\"area\": 891.8, \"capital\": true, \"address\": {\"zip\": \"10115\", \"street\": \"A\"}, \"other\": \"x\"}}"),
+          point(13.4, 52.5), null);
+      writer.write(feature("{\"id\": \"f2\", \"type\": \"Feature\", \"properties\": {}}"), null, null);
+      writer.write(feature("{\"id\": \"f3\", \"type\": \"Feature\", \"properties\": {\"name\": \"Hamburg\", \"capital\": false, "
+          + "\"population\": \"many\"}}"), lineString(9.9, 53.5, 10.1, 53.6), null);
+    }
+
+    ParquetFile file = new ParquetFile(out.toByteArray());
+    assertEquals(3L, file.metadata.get(3));
+    assertEquals(3, file.rowGroups.size());
+    assertEquals(List.of("schema", "id", "name", "population", "address_zip", "area", "capital", "properties", "geometry", "bbox",
+        "xmin", "ymin", "xmax", "ymax"), file.schemaNames());
+
+    assertEquals(Arrays.asList("f1", "f2", "f3"), file.values("id"));
+    assertEquals(Arrays.asList("Berlin", null, "Hamburg"), file.values("name"));
+    assertEquals(Arrays.asList(3800000L, null, null), file.values("population"));
+    assertEquals(Arrays.asList("10115", null, null), file.values("address_zip"));
+    assertEquals(Arrays.asList(891.8, null, null), file.values("area"));
+    assertEquals(Arrays.asList(true, null, false), file.values("capital"));
+
+    List<Object> properties = file.values("properties");
+    assertEquals(new JsonObject("{\"address\": {\"street\": \"A\"}, \"other\": \"x\"}"), new JsonObject((String) properties.get(0)));
+    assertNull(properties.get(1));
+    assertNull(properties.get(2));
+
+    List<Object> geometries = file.values("geometry");
+    WKBReader wkbReader = new WKBReader();
+    WKTWriter wktWriter = new WKTWriter(3);
+    assertEquals("POINT Z(13.4 52.5 0)", wktWriter.write(wkbReader.read((byte[]) geometries.get(0))));
+    assertNull(geometries.get(1));
+    assertEquals("LINESTRING Z(9.9 53.5 0, 10.1 53.6 0)", wktWriter.write(wkbReader.read((byte[]) geometries.get(2))));
+
+    assertEquals(Arrays.asList(13.4, null, 9.9), file.values("bbox.xmin"));
+    assertEquals(Arrays.asList(52.5, null, 53.6), file.values("bbox.ymax"));
+
+    //The statistics of the bbox columns allow readers to skip row groups spatially
+    Map<Integer, Object> xminStatistics = file.statistics(2, "bbox.xmin");
+    assertEquals(0L, xminStatistics.get(3));
+    assertArrayEquals(doubleLE(9.9), (byte[]) xminStatistics.get(5));
+    assertArrayEquals(doubleLE(9.9), (byte[]) xminStatistics.get(6));
+    assertEquals(1L, file.statistics(1, "bbox.xmin").get(3));
+
+    JsonObject geo = file.geoMetadata();
+    assertEquals("1.1.0", geo.getString("version"));
+    assertEquals("geometry", geo.getString("primary_column"));
+    JsonObject geometryColumn = geo.getJsonObject("columns").getJsonObject("geometry");
+    assertEquals("WKB", geometryColumn.getString("encoding"));
+    assertEquals(new JsonArray().add("LineString Z").add("Point Z"), geometryColumn.getJsonArray("geometry_types"));
+    assertEquals(new JsonArray().add(9.9).add(52.5).add(13.4).add(53.6), geometryColumn.getJsonArray("bbox"));
+    assertEquals(new JsonArray().add("bbox").add("xmin"),
+        geometryColumn.getJsonObject("covering").getJsonObject("bbox").getJsonArray("xmin"));
+  }
+
+  @Test
+  public void rowGroupPerPartition() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    GeoParquet format = new GeoParquet().withCompression(UNCOMPRESSED).withBboxCovering(false);
+    try (GeoParquetWriter writer = new GeoParquetWriter(out, format, "tile", 64 * 1024 * 1024)) {
+      writer.write(feature("{\"id\": \"f1\", \"properties\": {\"a\": 1}}"), point(1, 1), "120");
+      writer.write(feature("{\"id\": \"f2\", \"properties\": {\"a\": 2}}"), point(2, 2), "120");
+      writer.write(feature("{\"id\": \"f3\", \"properties\": {\"a\": 3}}"), point(3, 3), "121");
+    }
+
+    ParquetFile file = new ParquetFile(out.toByteArray());
+    assertEquals(List.of("schema", "id", "tile", "properties", "geometry"), file.schemaNames());
+    assertEquals(2, file.rowGroups.size());
+    assertEquals(Arrays.asList("120", "120"), file.rowGroups.get(0).get("tile"));
+    assertEquals(Arrays.asList("121"), file.rowGroups.get(1).get("tile"));
+    assertEquals(Arrays.asList("f1", "f2", "f3"), file.values("id"));
+    assertEquals(Arrays.asList("{\"a\":1}", "{\"a\":2}", "{\"a\":3}"), file.values("properties"));
+    assertFalse(file.geoMetadata().getJsonObject("columns").getJsonObject("geometry").containsKey("covering"));
+  }
+
+  @Test
+  public void emptyFile() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new GeoParquetWriter(out, FORMAT, null, 1024).close();
+
+    ParquetFile file = new ParquetFile(out.toByteArray());
+    assertEquals(0L, file.metadata.get(3));
+    assertEquals(0, file.rowGroups.size());
+    assertFalse(file.geoMetadata().getJsonObject("columns").getJsonObject("geometry").containsKey("bbox"));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> feature(String json) throws Exception {
+    return XyzSerializable.deserialize(json, Map.class);
+  }
+
+  private static Geometry point(double longitude, double latitude) {
+    return new Point().withCoordinates(new PointCoordinates(longitude, latitude));
+  }
+
+  private static Geometry lineString(double... coordinates) {
+    LineStringCoordinates positions = new LineStringCoordinates();
+    for (int i = 0; i < coordinates.length; i += 2)
+      positions.add(new Position(coordinates[i], coordinates[i + 1]));
+    return new LineString().withCoordinates(positions);
+  }
+
+  private static byte[] doubleLE(double value) {
+    return ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putDouble(value).array();
+  }
+
+  /**
+   * Reads a Parquet file as written by the {@link GeoParquetWriter} following the Parquet format specification,
+   * independent of the encoder used by the writer.
+   */
+  private static class ParquetFile {
+    private static final byte[] MAGIC = "PAR1".getBytes(UTF_8);
+    private final byte[] data;
+    private final Map<Integer, Object> metadata;
+    private final List<Map<String, List<Object>>> rowGroups = new ArrayList<>();
+
+    private ParquetFile(byte[] data) throws IOException {
+      this.data = data;
+      assertArrayEquals(MAGIC, Arrays.copyOfRange(data, 0, 4));
+      assertArrayEquals(MAGIC, Arrays.copyOfRange(data, data.length - 4, data.length));
+      int footerLength = ByteBuffer.wrap(data, data.length - 8, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+      metadata = new ThriftCompactInput(data, data.length - 8 - footerLength).readStruct();
+
+      for (Map<Integer, Object> rowGroup : structs(metadata.get(4))) {
+        Map<String, List<Object>> columns = new LinkedHashMap<>();
+        for (Map<Integer, Object> chunk : structs(rowGroup.get(1))) {
+          Map<Integer, Object> chunkMetadata = struct(chunk.get(3));
+          List<Object> values = readColumnChunk(chunkMetadata);
+          assertEquals(rowGroup.get(3), (long) values.size());
+          columns.put(path(chunkMetadata), values);
+        }
+        rowGroups.add(columns);
+      }
+    }
+
+    private List<Object> readColumnChunk(Map<Integer, Object> chunkMetadata) throws IOException {
+      ThriftCompactInput in = new ThriftCompactInput(data, (int) (long) chunkMetadata.get(9));
+      Map<Integer, Object> pageHeader = in.readStruct();
+      int numValues = (int) (long) struct(pageHeader.get(5)).get(1);
+      byte[] page = Arrays.copyOfRange(data, in.pos, in.pos + (int) (long) pageHeader.get(3));
+      assertEquals(chunkMetadata.get(7), (long) (in.pos - (long) chunkMetadata.get(9) + page.length));
+      if ((long) chunkMetadata.get(4) == 2)
+        try (GZIPInputStream gzis = new GZIPInputStream(new ByteArrayInputStream(page))) {
+          page = gzis.readAllBytes();
+        }
+      assertEquals(pageHeader.get(2), (long) page.length);
+
+      ByteBuffer buffer = ByteBuffer.wrap(page).order(ByteOrder.LITTLE_ENDIAN);
+      int levelsEnd = buffer.getInt() + 4;
+      List<Integer> definitionLevels = new ArrayList<>();
+      //RLE / bit-packing hybrid with a bit width of 1
+      while (buffer.position() < levelsEnd) {
+        int header = (int) readVarint(buffer);
+        if ((header & 1) == 0) {
+          int level = buffer.get();
+          for (int i = 0; i < header >>> 1; i++)
+            definitionLevels.add(level);
+        }
+        else
+          for (int group = 0; group < header >>> 1; group++) {
+            int bits = buffer.get();
+            for (int bit = 0; bit < 8; bit++)
+              definitionLevels.add(bits >> bit & 1);
+          }
+      }
+
+      List<Object> values = new ArrayList<>();
+      int type = (int) (long) chunkMetadata.get(1), booleanIndex = 0;
+      for (int level : definitionLevels.subList(0, numValues)) {
+        if (level == 0) {
+          values.add(null);
+          continue;
+        }
+        switch (type) {
+          case 0 -> values.add((page[levelsEnd + booleanIndex / 8] >> booleanIndex++ % 8 & 1) == 1);
+          case 2 -> values.add(buffer.getLong());
+          case 5 -> values.add(buffer.getDouble());
+          case 6 -> {
+            byte[] value = new byte[buffer.getInt()];
+            buffer.get(value);
+            values.add(isBinaryColumn(chunkMetadata) ? value : new String(value, UTF_8));
+          }
+          default -> throw new AssertionError("Unexpected type " + type);
+        }
+      }
+      return values;
+    }
+
+    private boolean isBinaryColumn(Map<Integer, Object> chunkMetadata) {
+      return "geometry".equals(path(chunkMetadata));
+    }
+
+    private List<String> schemaNames() {
+      List<String> names = new ArrayList<>();
+      for (Map<Integer, Object> element : structs(metadata.get(2)))
+        names.add(new String((byte[]) element.get(4), UTF_8));
+      return names;
+    }
+
+    private List<Object> values(String column) {
+      List<Object> values = new ArrayList<>();
+      for (Map<String, List<Object>> rowGroup : rowGroups)
+        values.addAll(rowGroup.get(column));
+      return values;
+    }
+
+    private Map<Integer, Object> statistics(int rowGroup, String column) {
+      for (Map<Integer, Object> chunk : structs(structs(metadata.get(4)).get(rowGroup).get(1)))
+        if (column.equals(path(struct(chunk.get(3)))))
+          return struct(struct(chunk.get(3)).get(12));
+      throw new AssertionError("Column " + column + " not found");
+    }
+
+    private JsonObject geoMetadata() {
+      for (Map<Integer, Object> keyValue : structs(metadata.get(5)))
+        if ("geo".equals(new String((byte[]) keyValue.get(1), UTF_8)))
+          return new JsonObject(new String((byte[]) keyValue.get(2), UTF_8));
+      throw new AssertionError("No geo metadata found");
+    }
+
+    private static String path(Map<Integer, Object> chunkMetadata) {
+      List<String> path = new ArrayList<>();
+      for (Object element : (List<?>) chunkMetadata.get(3))
+        path.add(new String((byte[]) element, UTF_8));
+      return String.join(".", path);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Integer, Object> struct(Object value) {
+      return (Map<Integer, Object>) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<Integer, Object>> structs(Object value) {
+      return (List<Map<Integer, Object>>) value;
+    }
+  }
+
+  /**
+   * A decoder for the Thrift compact protocol, all integers are returned as long values.
+   */
+  private static class ThriftCompactInput {
+    private final byte[] data;
+    private int pos;
+
+    private ThriftCompactInput(byte[] data, int pos) {
+      this.data = data;
+      this.pos = pos;
+    }
+
+    private Map<Integer, Object> readStruct() {
+      Map<Integer, Object> struct = new HashMap<>();
+      int lastFieldId = 0;
+      while (true) {
+        int header = data[pos++] & 0xFF;
+        if (header == 0)
+          return struct;
+        int delta = header >>> 4;
+        int fieldId = delta == 0 ? (int) unzigzag(readVarint()) : lastFieldId + delta;
+        lastFieldId = fieldId;
+        struct.put(fieldId, readValue(header & 0x0F));
+      }
+    }
+
+    private Object readValue(int type) {
+      return switch (type) {
+        case 1 -> true;
+        case 2 -> false;
+        case 3 -> (long) data[pos++];
+        case 4, 5, 6 -> unzigzag(readVarint());
+        case 7 -> {
+          double value = ByteBuffer.wrap(data, pos, 8).order(ByteOrder.LITTLE_ENDIAN).getDouble();
+          pos += 8;
+          yield value;
+        }
+        case 8 -> {
+          int length = (int) readVarint();
+          byte[] value = Arrays.copyOfRange(data, pos, pos + length);
+          pos += length;
+          yield value;
+        }
+        case 9 -> readList();
+        case 12 -> readStruct();
+        default -> throw new AssertionError("Unsupported thrift type " + type);
+      };
+    }
+
+    private List<Object> readList() {
+      int header = data[pos++] & 0xFF;
+      int size = header >>> 4, elementType = header & 0x0F;
+      if (size == 15)
+        size = (int) readVarint();
+      List<Object> list = new ArrayList<>();
+      for (int i = 0; i < size; i++)
+        list.add(elementType == 1 || elementType == 2 ? data[pos++] == 1 : readValue(elementType));
+      return list;
+    }
+
+    private long readVarint() {
+      long value = 0;
+      for (int shift = 0; ; shift += 7) {
+        int b = data[pos++] & 0xFF;
+        value |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0)
+          return value;
+      }
+    }
+
+    private static long unzigzag(long value) {
+      return value >>> 1 ^ -(value & 1);
+    }
+  }
+
+  private static long readVarint(ByteBuffer buffer) {
+    long value = 0;
+    for (int shift = 0; ; shift += 7) {
+      int b = buffer.get() & 0xFF;
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0)
+        return value;
+    }
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.httpconnector.util.export;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.here.xyz.httpconnector.util.export.TiledExportEngine.TilePartitioner;
+import com.here.xyz.httpconnector.util.export.TiledExportEngine.TooManyPendingFeaturesException;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.locationtech.jts.io.WKTReader;
+
+public class TiledExportEngineTest {
+
+  @Test
+  public void interleaveAndDeinterleave() {
+    assertEquals(0, TiledExportEngine.interleave(0, 0));
+    assertEquals(1, TiledExportEngine.interleave(1, 0));
+    assertEquals(2, TiledExportEngine.interleave(0, 1));
+    assertEquals(7, TiledExportEngine.interleave(3, 1));
+
+    int[][] tiles = {{0, 0}, {5, 3}, {1 << 20, 1 << 19}, {(1 << 30) - 1, (1 << 29) - 1}};
+    for (int[] tile : tiles) {
+      long key = TiledExportEngine.interleave(tile[0], tile[1]);
+      assertEquals(tile[0], TiledExportEngine.deinterleave(key));
+      assertEquals(tile[1], TiledExportEngine.deinterleave(key >>> 1));
+    }
+  }
+
+  @Test
+  public void quadkey() {
+    assertEquals("", TiledExportEngine.quadkey(0, 0));
+    assertEquals("1", TiledExportEngine.quadkey(TiledExportEngine.interleave(1, 0), 1));
+    assertEquals("13", TiledExportEngine.quadkey(TiledExportEngine.interleave(3, 1), 2));
+    assertEquals("0013", TiledExportEngine.quadkey(TiledExportEngine.interleave(3, 1), 4));
+  }
+
+  @Test
+  public void groupLevels() {
+    assertEquals(6, new TiledExportEngine(null, null, 12).groupLevels());
+    assertEquals(2, new TiledExportEngine(null, null, 12).withMaxTilesPerFile(16).groupLevels());
+    assertEquals(1, new TiledExportEngine(null, null, 12).withMaxTilesPerFile(15).groupLevels());
+    assertEquals(0, new TiledExportEngine(null, null, 12).withMaxTilesPerFile(1).groupLevels());
+    //At least level 1 is used for the file groups
+    assertEquals(1, new TiledExportEngine(null, null, 2).groupLevels());
+    assertEquals(0, new TiledExportEngine(null, null, 1).groupLevels());
+  }
+
+  @Test
+  public void tilesAreWrittenOnceComplete() throws Exception {
+    InMemorySink sink = new InMemorySink();
+    TilePartitioner partitioner = new TiledExportEngine(null, sink, 2).withCompressed(false).new TilePartitioner("export");
+    WKTReader wktReader = new WKTReader();
+
+    //Level 2 consists of 4 x 2 tiles of 90 degrees, the tile ID is the Morton code of the tile with the level bit set
+    partitioner.add(16, feature("f1"), wktReader.read("POINT(-170 -80)"), "{}");
+    //Spanning the tiles 16 and 17
+    partitioner.add(16, feature("f2"), wktReader.read("LINESTRING(-170 -80, -10 -80)"), "{}");
+    assertTrue(sink.chunks.isEmpty());
+
+    partitioner.add(20, feature("f3"), wktReader.read("POINT(10 -80)"), "{}");
+    //The tiles 16 and 17 are complete, as all following features start at tile 20 or later
+    assertEquals(List.of("export/0/0-1.csv"), List.copyOf(sink.chunks.keySet()));
+    assertEquals(List.of("16:f1,f2", "17:f2"), sink.rows("export/0/0-1.csv"));
+
+    partitioner.finish();
+    assertEquals(List.of("export/0/0-1.csv", "export/1/0-1.csv"), List.copyOf(sink.chunks.keySet()));
+    assertEquals(List.of("20:f3"), sink.rows("export/1/0-1.csv"));
+  }
+
+  @Test
+  public void incompleteFileIsDiscarded() throws Exception {
+    InMemorySink sink = new InMemorySink();
+    TilePartitioner partitioner = new TiledExportEngine(null, sink, 2).withCompressed(false).new TilePartitioner("export");
+    WKTReader wktReader = new WKTReader();
+
+    partitioner.add(16, feature("f1"), wktReader.read("POINT(-170 -80)"), "{}");
+    partitioner.add(17, feature("f2"), wktReader.read("POINT(-80 -80)"), "{}");
+    partitioner.discard();
+
+    assertFalse(sink.chunks.containsKey("export/0/0-1.csv"));
+  }
+
+  @Test
+  public void completedFilesAreDiscardedAsWell() throws Exception {
+    InMemorySink sink = new InMemorySink();
+    TilePartitioner partitioner = new TiledExportEngine(null, sink, 2).withCompressed(false).new TilePartitioner("export");
+    WKTReader wktReader = new WKTReader();
+
+    partitioner.add(16, feature("f1"), wktReader.read("POINT(-170 -80)"), "{}");
+    partitioner.add(20, feature("f2"), wktReader.read("POINT(10 -80)"), "{}");
+    assertTrue(sink.chunks.containsKey("export/0/0-1.csv"));
+    partitioner.discard();
+
+    assertTrue(sink.chunks.isEmpty());
+  }
+
+  @Test
+  public void pendingFeaturesAreLimited() throws Exception {
+    InMemorySink sink = new InMemorySink();
+    TilePartitioner partitioner = new TiledExportEngine(null, sink, 2).withCompressed(false).withMaxPendingFeatures(2)
+        .new TilePartitioner("export");
+    WKTReader wktReader = new WKTReader();
+
+    //Spanning the tiles 16 and 17
+    partitioner.add(16, feature("f1"), wktReader.read("LINESTRING(-170 -80, -10 -80)"), "{}");
+    assertThrows(TooManyPendingFeaturesException.class,
+        () -> partitioner.add(16, feature("f2"), wktReader.read("POINT(-170 -80)"), "{}"));
+  }
+
+  @Test
+  public void writtenTilesAreNotPending() throws Exception {
+    InMemorySink sink = new InMemorySink();
+    TilePartitioner partitioner = new TiledExportEngine(null, sink, 2).withCompressed(false).withMaxPendingFeatures(2)
+        .new TilePartitioner("export");
+    WKTReader wktReader = new WKTReader();
+
+    partitioner.add(16, feature("f1"), wktReader.read("LINESTRING(-170 -80, -10 -80)"), "{}");
+    //The tiles 16 and 17 are written before f2 is added
+    partitioner.add(20, feature("f2"), wktReader.read("POINT(10 -80)"), "{}");
+    partitioner.add(20, feature("f3"), wktReader.read("POINT(10 -80)"), "{}");
+    partitioner.finish();
+
+    assertEquals(List.of("20:f2,f3"), sink.rows("export/1/0-1.csv"));
+  }
+
+  private static String feature(String id) {
+    return "{\"id\": \"" + id + "\", \"type\": \"Feature\"}";
+  }
+
+  private static class InMemorySink implements ExportSink {
+    private final Map<String, ByteArrayOutputStream> chunks = new LinkedHashMap<>();
+
+    @Override
+    public OutputStream createChunk(String key) {
+      ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+      chunks.put(key, chunk);
+      return chunk;
+    }
+
+    @Override
+    public void discardChunk(String key) {
+      chunks.remove(key);
+    }
+
+    /**
+     * @return The rows of the chunk as "[tile ID]:[comma separated feature IDs]"
+     */
+    private List<String> rows(String key) {
+      return new String(chunks.get(key).toByteArray(), UTF_8).lines()
+          .map(row -> {
+            String[] columns = row.split(",", 2);
+            String featureCollection = new String(Base64.getDecoder().decode(columns[1]), UTF_8);
+            return columns[0] + ":" + featureCollection.lines().flatMap(line -> List.of(line.split("\"id\": \"")).stream().skip(1))
+                .map(part -> part.substring(0, part.indexOf('"')))
+                .collect(Collectors.joining(","));
+          })
+          .collect(Collectors.toList());
+    }
+  }
+}
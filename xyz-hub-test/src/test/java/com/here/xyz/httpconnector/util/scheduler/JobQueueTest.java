@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.httpconnector.util.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.here.xyz.httpconnector.CService;
+import com.here.xyz.httpconnector.Config;
+import com.here.xyz.httpconnector.util.jobs.Export;
+import com.here.xyz.httpconnector.util.jobs.Import;
+import com.here.xyz.httpconnector.util.jobs.Job;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JobQueueTest {
+  private static final String DB = "test-db";
+  private final List<Job> jobs = new ArrayList<>();
+
+  @Before
+  public void setUp() {
+    CService.configuration = new Config();
+    CService.configuration.JOB_MAX_RUNNING_JOBS_PER_DB = 1;
+  }
+
+  @After
+  public void tearDown() {
+    jobs.forEach(JobQueue::removeJob);
+    JobQueue.setTypePriorities(null);
+  }
+
+  private <T extends Job> T queue(T job, String id, long createdAt) {
+    job.setId(id);
+    job.setCreatedAt(createdAt);
+    job.setTargetConnector(DB);
+    job.setStatus(Job.Status.queued);
+    jobs.add(job);
+    JobQueue.addJob(job);
+    return job;
+  }
+
+  @Test
+  public void testOlderJobsGoFirst() {
+    Import olderImport = queue(new Import(), "import1", 1);
+    Export newerExport = queue(new Export(), "export1", 2);
+
+    assertFalse(JobQueue.admitToDatabase(newerExport));
+    assertTrue(JobQueue.admitToDatabase(olderImport));
+    //The slot is taken now
+    assertFalse(JobQueue.admitToDatabase(newerExport));
+
+    JobQueue.removeJob(olderImport);
+    assertTrue(JobQueue.admitToDatabase(newerExport));
+  }
+
+  @Test
+  public void testPrioritiesApplyAcrossJobTypes() {
+    JobQueue.setTypePriorities(List.of("Export:1"));
+    Import olderImport = queue(new Import(), "import1", 1);
+    Export newerExport = queue(new Export(), "export1", 2);
+
+    assertEquals(List.of(newerExport, olderImport), JobQueue.getQueue());
+    //The import queue must not take the slot, while a prioritized export is waiting
+    assertFalse(JobQueue.admitToDatabase(olderImport));
+    assertTrue(JobQueue.admitToDatabase(newerExport));
+  }
+
+  @Test
+  public void testChangedPrioritiesReorderWaitingJobs() {
+    Import olderImport = queue(new Import(), "import1", 1);
+    Export newerExport = queue(new Export(), "export1", 2);
+
+    JobQueue.setTypePriorities(List.of("Export:1"));
+    assertFalse(JobQueue.admitToDatabase(olderImport));
+    assertTrue(JobQueue.admitToDatabase(newerExport));
+  }
+
+  @Test
+  public void testWaitingJobsWhichAreNotQueuedDoNotTakeASlot() {
+    Import olderImport = queue(new Import(), "import1", 1);
+    Export newerExport = queue(new Export(), "export1", 2);
+
+    olderImport.setStatus(Job.Status.waiting);
+    assertTrue(JobQueue.admitToDatabase(newerExport));
+  }
+
+  @Test
+  public void testFreeSlotsAreAssignedInProcessingOrder() {
+    CService.configuration.JOB_MAX_RUNNING_JOBS_PER_DB = 2;
+    Import import1 = queue(new Import(), "import1", 1);
+    Import import2 = queue(new Import(), "import2", 2);
+    Export export1 = queue(new Export(), "export1", 3);
+
+    assertTrue(JobQueue.admitToDatabase(import2));
+    assertFalse(JobQueue.admitToDatabase(export1));
+    assertTrue(JobQueue.admitToDatabase(import1));
+  }
+
+  @Test
+  public void testRunningJobsAlwaysOccupyASlot() {
+    Import runningImport = new Import();
+    runningImport.setId("import1");
+    runningImport.setCreatedAt(2);
+    runningImport.setTargetConnector(DB);
+    runningImport.setStatus(Job.Status.executing);
+    jobs.add(runningImport);
+    JobQueue.addJob(runningImport);
+
+    assertFalse(JobQueue.admitToDatabase(queue(new Export(), "export1", 1)));
+  }
+
+  @Test
+  public void testInvalidTypePriorities() {
+    assertThrows(IllegalArgumentException.class, () -> JobQueue.setTypePriorities(List.of("Import")));
+    assertThrows(IllegalArgumentException.class, () -> JobQueue.setTypePriorities(List.of("Import:high")));
+    assertThrows(IllegalArgumentException.class, () -> JobQueue.setTypePriorities(List.of("Unknown:1")));
+    JobQueue.setTypePriorities(List.of("Import:1", " Export : 2 "));
+  }
+}
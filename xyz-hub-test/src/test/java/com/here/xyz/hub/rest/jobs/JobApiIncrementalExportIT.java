@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.hub.rest.jobs;
+
+import static com.here.xyz.httpconnector.util.jobs.Export.ExportTarget.Type.DOWNLOAD;
+import static com.here.xyz.httpconnector.util.jobs.Job.Status.failed;
+import static com.here.xyz.httpconnector.util.jobs.Job.Status.finalized;
+import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
+import static io.restassured.RestAssured.given;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+
+import com.here.xyz.httpconnector.util.jobs.Export;
+import com.here.xyz.httpconnector.util.jobs.Job;
+import com.here.xyz.models.geojson.coordinates.PointCoordinates;
+import com.here.xyz.models.geojson.implementation.Feature;
+import com.here.xyz.models.geojson.implementation.Point;
+import com.here.xyz.models.geojson.implementation.Properties;
+import com.here.xyz.util.service.HttpException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class JobApiIncrementalExportIT extends JobApiIT {
+
+    protected String testExportJobId = "export-incremental-job";
+    protected static String scope = "export";
+    protected static String testVersionedSpaceId = "incremental-space";
+    private static int versionsToKeep = 10;
+    private static long fromVersion;
+    private static long toVersion;
+
+    @BeforeClass
+    public static void init(){
+        String spaceId = getScopedSpaceId(testVersionedSpaceId, scope);
+        createSpaceWithCustomStorage(spaceId, "psql", null, versionsToKeep);
+
+        //The state at fromVersion
+        for (String id : Arrays.asList("unchanged", "updated", "deleted"))
+            postFeature(spaceId, feature(id, "initial"), AuthProfile.ACCESS_OWNER_1_ADMIN);
+        fromVersion = loadVersion(spaceId, "deleted");
+
+        //The changes between fromVersion and toVersion
+        postFeature(spaceId, feature("inserted", "initial"), AuthProfile.ACCESS_OWNER_1_ADMIN);
+        postFeature(spaceId, feature("updated", "changed"), AuthProfile.ACCESS_OWNER_1_ADMIN);
+        deleteFeature(spaceId, "deleted");
+        toVersion = loadVersion(spaceId, "updated") + 1;
+
+        //A change after toVersion, which must not be exported
+        postFeature(spaceId, feature("unchanged", "tooLate"), AuthProfile.ACCESS_OWNER_1_ADMIN);
+
+        deleteAllJobsOnSpace(spaceId);
+    }
+
+    @AfterClass
+    public static void clean(){
+        deleteAllJobsOnSpace(getScopedSpaceId(testVersionedSpaceId, scope));
+        removeSpace(getScopedSpaceId(testVersionedSpaceId, scope));
+    }
+
+    private static Feature feature(String id, String state) {
+        return newFeature().withId(id)
+            .withGeometry(new Point().withCoordinates(new PointCoordinates(8.61, 50.02)))
+            .withProperties(new Properties().with("state", state));
+    }
+
+    private static long loadVersion(String spaceId, String featureId) {
+        Number version = given()
+            .headers(getAuthHeaders(AuthProfile.ACCESS_OWNER_1_ADMIN))
+            .get("/spaces/" + spaceId + "/features/" + featureId)
+            .then()
+            .extract()
+            .path("properties.'@ns:com:here:xyz'.version");
+        return version.longValue();
+    }
+
+    private Export buildIncrementalJob(long fromVersion, long toVersion) {
+        Export job = buildTestJob(testExportJobId, null, new Export.ExportTarget().withType(DOWNLOAD), Job.CSVFormat.JSON_WKB)
+            .withFromVersion(fromVersion);
+        job.setTargetVersion(String.valueOf(toVersion));
+        return job;
+    }
+
+    @Test
+    public void exportChangesBetweenTwoVersions() throws Exception {
+        Export job = buildIncrementalJob(fromVersion, toVersion);
+        List<URL> urls = performExport(job, getScopedSpaceId(testVersionedSpaceId, scope), finalized, failed);
+
+        //Inserted, updated and deleted features are part of the changes
+        List<String> mustContain = Arrays.asList("inserted", "updated", "changed", "deleted");
+        String result = downloadAndCheck(urls, null, 3, mustContain);
+
+        //Unchanged features and changes after the targetVersion are not part of the export
+        assertFalse(result.contains("unchanged"));
+        assertFalse(result.contains("tooLate"));
+    }
+
+    @Test
+    public void rejectInvalidRange() {
+        Export job = buildIncrementalJob(toVersion, fromVersion);
+        HttpException e = assertThrows(HttpException.class,
+            () -> performExport(job, getScopedSpaceId(testVersionedSpaceId, scope), finalized, failed));
+        assertEquals(BAD_REQUEST, e.status);
+    }
+}
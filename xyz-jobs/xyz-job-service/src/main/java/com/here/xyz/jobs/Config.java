@@ -26,4 +26,18 @@ public class Config extends com.here.xyz.jobs.steps.Config {
     instance = this;
   }
 
+  /**
+   * The executor for the step graphs of the jobs. Either "sfn" (default) to execute the jobs using AWS Step Functions or
+   * "local" to execute them within the JVM of the job service.
+   */
+  public String JOB_EXECUTOR = "sfn";
+  /**
+   * The maximum number of steps which are executed in parallel by the local job executor
+   */
+  public int LOCAL_JOB_EXECUTOR_THREADS = 8;
+  /**
+   * The maximum number of index builds which are running in parallel for one space.
+   * The actual number is further limited by the capacity of the space's database.
+   */
+  public int MAX_PARALLEL_INDEX_BUILDS = 4;
 }
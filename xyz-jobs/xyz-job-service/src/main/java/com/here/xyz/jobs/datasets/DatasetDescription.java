@@ -37,7 +37,8 @@ import com.here.xyz.models.hub.Ref;
     @JsonSubTypes.Type(value = Map.class, name = "Map"),
     @JsonSubTypes.Type(value = Space.class, name = "Space"),
     @JsonSubTypes.Type(value = Spaces.class, name = "Spaces"),
-    @JsonSubTypes.Type(value = Files.class, name = "Files")
+    @JsonSubTypes.Type(value = Files.class, name = "Files"),
+    @JsonSubTypes.Type(value = Tiles.class, name = "Tiles")
 })
 public abstract class DatasetDescription implements Typed {
 
@@ -69,12 +70,15 @@ public abstract class DatasetDescription implements Typed {
     }
   }
 
-  public static class Space<T extends Space> extends Identifiable<T> implements FilteringSource<T>, VersionRefSource<T> {
+  public static class Space<T extends Space> extends Identifiable<T> implements FilteringSource<T>, VersionRefSource<T>,
+      IncrementalSource<T> {
 
     private Filters filters;
 
     private Ref versionRef;
 
+    private Long fromVersion;
+
     @Override
     public Filters getFilters() {
       return filters;
@@ -106,5 +110,21 @@ public abstract class DatasetDescription implements Typed {
       setVersionRef(versionRef);
       return (T) this;
     }
+
+    @Override
+    public Long getFromVersion() {
+      return fromVersion;
+    }
+
+    @Override
+    public void setFromVersion(Long fromVersion) {
+      this.fromVersion = fromVersion;
+    }
+
+    @Override
+    public T withFromVersion(Long fromVersion) {
+      setFromVersion(fromVersion);
+      return (T) this;
+    }
   }
 }
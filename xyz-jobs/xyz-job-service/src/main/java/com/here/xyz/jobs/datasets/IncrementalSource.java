@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.datasets;
+
+/**
+ * A source which can be read incrementally.
+ * If a "fromVersion" is set, only the changes which happened after that version (up to the version of the source's
+ * version ref or HEAD) are read. Deleted features are part of the changes and are flagged as deleted in their XYZ namespace.
+ * NOTE: Jobs with an incremental source are rejected by the {@link com.here.xyz.jobs.steps.JobCompiler} until a step supports it.
+ */
+public interface IncrementalSource<T extends IncrementalSource> {
+
+  Long getFromVersion();
+
+  void setFromVersion(Long fromVersion);
+
+  T withFromVersion(Long fromVersion);
+}
@@ -25,10 +25,12 @@ import com.here.xyz.jobs.datasets.filters.Filters;
 import java.util.List;
 import java.util.stream.Collectors;
 
-public class Spaces<T extends Spaces> extends DatasetDescription implements FilteringSource<T>, CombinedDatasetDescription<Space> {
+public class Spaces<T extends Spaces> extends DatasetDescription implements FilteringSource<T>, IncrementalSource<T>,
+    CombinedDatasetDescription<Space> {
 
   private List<String> spaceIds;
   private Filters filters;
+  private Long fromVersion;
 
   public List<String> getSpaceIds() {
     return spaceIds;
@@ -59,6 +61,22 @@ public class Spaces<T extends Spaces> extends DatasetDescription implements Filt
     return (T) this;
   }
 
+  @Override
+  public Long getFromVersion() {
+    return fromVersion;
+  }
+
+  @Override
+  public void setFromVersion(Long fromVersion) {
+    this.fromVersion = fromVersion;
+  }
+
+  @Override
+  public T withFromVersion(Long fromVersion) {
+    setFromVersion(fromVersion);
+    return (T) this;
+  }
+
   public String getKey() {
     return String.join(",", spaceIds);
   }
@@ -67,7 +85,7 @@ public class Spaces<T extends Spaces> extends DatasetDescription implements Filt
   public List<Space> createChildEntities() {
     return getSpaceIds()
         .stream()
-        .map(spaceId -> (Space) new Space().withFilters(getFilters()).withId(spaceId))
+        .map(spaceId -> (Space) new Space().withFilters(getFilters()).withFromVersion(getFromVersion()).withId(spaceId))
         .collect(Collectors.toList());
   }
 }
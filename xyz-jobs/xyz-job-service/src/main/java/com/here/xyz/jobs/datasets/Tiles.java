@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.datasets;
+
+import com.here.xyz.models.geojson.coordinates.BBox;
+
+/**
+ * A set of pre-rendered MVT tiles of a space, written into the configured tile store.
+ */
+public class Tiles extends DatasetDescription {
+  private int minLevel;
+  private int maxLevel;
+  private BBox bbox;
+
+  public int getMinLevel() {
+    return minLevel;
+  }
+
+  public void setMinLevel(int minLevel) {
+    this.minLevel = minLevel;
+  }
+
+  public Tiles withMinLevel(int minLevel) {
+    setMinLevel(minLevel);
+    return this;
+  }
+
+  public int getMaxLevel() {
+    return maxLevel;
+  }
+
+  public void setMaxLevel(int maxLevel) {
+    this.maxLevel = maxLevel;
+  }
+
+  public Tiles withMaxLevel(int maxLevel) {
+    setMaxLevel(maxLevel);
+    return this;
+  }
+
+  /**
+   * @return The area to be rendered or <code>null</code> if the tiles of the whole world should be rendered
+   */
+  public BBox getBbox() {
+    return bbox;
+  }
+
+  public void setBbox(BBox bbox) {
+    this.bbox = bbox;
+  }
+
+  public Tiles withBbox(BBox bbox) {
+    setBbox(bbox);
+    return this;
+  }
+
+  @Override
+  public String getKey() {
+    //No specific key to search for.
+    return null;
+  }
+}
@@ -19,6 +19,73 @@
 
 package com.here.xyz.jobs.datasets.files;
 
+import static com.here.xyz.jobs.datasets.files.GeoParquet.Compression.GZIP;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public class GeoParquet extends FileFormat {
-  //TODO: Implement
+  /*
+  Properties which are written into own typed columns rather than into the JSON column of all other properties.
+  The keys are the property paths in dot-notation relative to the feature's properties.
+   */
+  private Map<String, ColumnType> promotedProperties = new LinkedHashMap<>();
+  private boolean bboxCovering = true;
+  private Compression compression = GZIP;
+
+  public Map<String, ColumnType> getPromotedProperties() {
+    return promotedProperties;
+  }
+
+  public void setPromotedProperties(Map<String, ColumnType> promotedProperties) {
+    this.promotedProperties = promotedProperties;
+  }
+
+  public GeoParquet withPromotedProperties(Map<String, ColumnType> promotedProperties) {
+    setPromotedProperties(promotedProperties);
+    return this;
+  }
+
+  public GeoParquet withPromotedProperty(String propertyPath, ColumnType type) {
+    promotedProperties.put(propertyPath, type);
+    return this;
+  }
+
+  public boolean isBboxCovering() {
+    return bboxCovering;
+  }
+
+  public void setBboxCovering(boolean bboxCovering) {
+    this.bboxCovering = bboxCovering;
+  }
+
+  public GeoParquet withBboxCovering(boolean bboxCovering) {
+    setBboxCovering(bboxCovering);
+    return this;
+  }
+
+  public Compression getCompression() {
+    return compression;
+  }
+
+  public void setCompression(Compression compression) {
+    this.compression = compression;
+  }
+
+  public GeoParquet withCompression(Compression compression) {
+    setCompression(compression);
+    return this;
+  }
+
+  public enum ColumnType {
+    STRING,
+    LONG,
+    DOUBLE,
+    BOOLEAN
+  }
+
+  public enum Compression {
+    UNCOMPRESSED,
+    GZIP
+  }
 }
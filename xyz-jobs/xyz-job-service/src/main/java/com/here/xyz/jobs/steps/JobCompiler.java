@@ -19,39 +19,183 @@
 
 package com.here.xyz.jobs.steps;
 
+import static com.here.xyz.jobs.steps.execution.db.Database.DatabaseRole.WRITER;
+
+import com.here.xyz.jobs.Config;
 import com.here.xyz.jobs.Job;
 import com.here.xyz.jobs.datasets.DatasetDescription;
 import com.here.xyz.jobs.datasets.Files;
+import com.here.xyz.jobs.datasets.IncrementalSource;
+import com.here.xyz.jobs.datasets.Tiles;
+import com.here.xyz.jobs.steps.execution.db.Database;
 import com.here.xyz.jobs.steps.impl.CreateIndex;
 import com.here.xyz.jobs.steps.impl.DropIndexes;
 import com.here.xyz.jobs.steps.impl.ImportFilesToSpace;
-import com.here.xyz.util.db.pg.XyzSpaceTableHelper;
+import com.here.xyz.jobs.steps.impl.PreRenderTiles;
+import com.here.xyz.jobs.steps.impl.PublishPreRenderedTiles;
+import com.here.xyz.util.db.pg.XyzSpaceTableHelper.Index;
+import com.here.xyz.util.service.BaseHttpServerVerticle.ValidationException;
+import com.here.xyz.util.web.HubWebClientAsync;
 import io.vertx.core.Future;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.commons.lang3.NotImplementedException;
 
 public class JobCompiler {
+  //The maximum number of index builds which are running in parallel for one space, if not configured otherwise
+  static final int DEFAULT_MAX_PARALLEL_INDEX_BUILDS = 4;
+  //The maximum number of tile batches which are rendered in parallel for one space
+  static final int MAX_PARALLEL_RENDER_BATCHES = 4;
 
   public Future<StepGraph> compile(Job job) {
+    try {
+      validateSource(job.getSource());
+    }
+    catch (ValidationException e) {
+      return Future.failedFuture(e);
+    }
 
     if (job.getSource() instanceof Files && job.getTarget() instanceof DatasetDescription.Space) {
 
       String spaceId = job.getTarget().getKey();
-      StepGraph graph = new StepGraph()
+      return loadWriter(spaceId)
+          .map(db -> new StepGraph()
               .addExecution(new DropIndexes().withSpaceId(spaceId))         // Drop all existing indices
               .addExecution(new ImportFilesToSpace().withSpaceId(spaceId))  // Perform import
-              .addExecution(new StepGraph()                                 // Create all the base indices in parallel
-                      .withExecutions(Stream.of(XyzSpaceTableHelper.Index.values())
-                              .map(index -> new CreateIndex().withIndex(index).withSpaceId(spaceId))
-                              .collect(Collectors.toList()))
-                      .withParallel(true)); //TODO: Do not create *all* indices in parallel, make sure to (at least) keep the viz-index sequential #postgres-issue-with-partitions
-
-      return Future.succeededFuture(graph);
+              .addExecution(compileIndexCreation(spaceId, db.getMaxVirtualUnits()))); // Create all the base indices
 
     }
+    else if (job.getSource() instanceof DatasetDescription.Space && job.getTarget() instanceof Tiles tiles) {
+      return compileTileRendering(job.getSource().getKey(), tiles);
+    }
     else
-      return Future.failedFuture(new NotImplementedException("Only Space Import job is currently supported"));
+      return Future.failedFuture(new NotImplementedException("Only Space Import and Tile Pre-Rendering jobs are currently supported"));
+  }
+
+  /**
+   * Checks whether the source of a job can be read by the compiled steps.
+   * An incremental source is rejected, as none of the steps reads the changes since a version yet. Without that check, the job
+   * would silently read the full dataset instead.
+   */
+  static void validateSource(DatasetDescription source) throws ValidationException {
+    if (source instanceof IncrementalSource<?> incrementalSource && incrementalSource.getFromVersion() != null)
+      throw new ValidationException("Reading a source incrementally (fromVersion) is not supported yet.");
+  }
+
+  /**
+   * Plans the pre-rendering of the tiles of a space.
+   * The tiles are rendered in batches of a bounded size, which are distributed over a limited number of sequential lanes.
+   * Once all batches are complete, the rendering gets published.
+   *
+   * @param spaceId The space of which to render the tiles
+   * @param tiles The description of the tiles to be rendered
+   * @return The step graph rendering & publishing the tiles
+   */
+  static Future<StepGraph> compileTileRendering(String spaceId, Tiles tiles) {
+    PreRenderTiles tileSet = new PreRenderTiles()
+        .withSpaceId(spaceId)
+        .withMinLevel(tiles.getMinLevel())
+        .withMaxLevel(tiles.getMaxLevel());
+    if (tiles.getBbox() != null)
+      tileSet.setBbox(tiles.getBbox());
+
+    long tileCount = tileSet.countTiles();
+    if (tileCount > PreRenderTiles.MAX_TILE_COUNT)
+      //Fail before compiling the batches, the count might be huge
+      return Future.failedFuture(new ValidationException("Too many tiles to be rendered. The maximum is "
+          + PreRenderTiles.MAX_TILE_COUNT + " tiles."));
+
+    List<List<StepExecution>> lanes = new ArrayList<>();
+    for (int i = 0; i < MAX_PARALLEL_RENDER_BATCHES; i++)
+      lanes.add(new ArrayList<>());
+
+    int batchCount = 0;
+    for (long firstTile = 0; firstTile < tileCount; firstTile += PreRenderTiles.MAX_BATCH_TILE_COUNT)
+      lanes.get(batchCount++ % MAX_PARALLEL_RENDER_BATCHES).add(new PreRenderTiles()
+          .withSpaceId(spaceId)
+          .withMinLevel(tileSet.getMinLevel())
+          .withMaxLevel(tileSet.getMaxLevel())
+          .withBbox(tileSet.getBbox())
+          .withFirstTile(firstTile)
+          .withTileCount((int) Math.min(PreRenderTiles.MAX_BATCH_TILE_COUNT, tileCount - firstTile)));
+
+    return Future.succeededFuture(new StepGraph()
+        .addExecution(new StepGraph()
+            .withExecutions(lanes.stream()
+                .filter(lane -> !lane.isEmpty())
+                .map(lane -> new StepGraph().withExecutions(lane))
+                .collect(Collectors.toList()))
+            .withParallel(true))
+        .addExecution(new PublishPreRenderedTiles()
+            .withSpaceId(spaceId)
+            .withMinLevel(tileSet.getMinLevel())
+            .withMaxLevel(tileSet.getMaxLevel())
+            .withBbox(tileSet.getBbox())
+            .withBatchCount(batchCount)));
+  }
+
+  private static Future<Database> loadWriter(String spaceId) {
+    return HubWebClientAsync.getInstance(Config.instance.HUB_ENDPOINT).loadSpaceAsync(spaceId)
+        //Loading the database might be blocking
+        .compose(space -> Future.fromCompletionStage(CompletableFuture.supplyAsync(() ->
+            Database.loadDatabase(space.getStorage().getId(), WRITER))));
+  }
+
+  /**
+   * Plans the creation of all base indices of a space.
+   * The most expensive index builds are started first and are distributed over a limited number of sequential lanes
+   * (longest-processing-time-first), so that not more than {@link #indexBuildLanes(double)} builds are running at the same time.
+   * The available ACUs of the database are shared by the lanes, so the memory of each build depends on the number of lanes.
+   * The VIZ index is built after all other indices, as it must not be created in parallel with other indices #postgres-issue-with-partitions
+   *
+   * @param spaceId The space for which to create the indices
+   * @param availableAcus The ACUs of the space's database which are available for jobs
+   * @return The step graph creating all indices
+   */
+  static StepGraph compileIndexCreation(String spaceId, double availableAcus) {
+    int laneCount = indexBuildLanes(availableAcus);
+    int acusPerBuild = CreateIndex.acusPerBuild(availableAcus / laneCount);
+    List<List<StepExecution>> lanes = new ArrayList<>();
+    double[] laneCosts = new double[laneCount];
+    for (int i = 0; i < laneCount; i++)
+      lanes.add(new ArrayList<>());
+
+    Stream.of(Index.values())
+        .filter(index -> index != Index.VIZ)
+        .sorted(Comparator.comparingDouble(CreateIndex::estimatedRelativeCost).reversed())
+        .forEach(index -> {
+          int lane = 0;
+          for (int i = 1; i < laneCosts.length; i++)
+            if (laneCosts[i] < laneCosts[lane])
+              lane = i;
+          laneCosts[lane] += CreateIndex.estimatedRelativeCost(index);
+          lanes.get(lane).add(new CreateIndex().withIndex(index).withAcus(acusPerBuild).withSpaceId(spaceId));
+        });
+
+    return new StepGraph()
+        .addExecution(new StepGraph()
+            .withExecutions(lanes.stream()
+                .filter(lane -> !lane.isEmpty())
+                .map(lane -> new StepGraph().withExecutions(lane))
+                .collect(Collectors.toList()))
+            .withParallel(true))
+        .addExecution(new CreateIndex()
+            .withIndex(Index.VIZ)
+            .withAcus(CreateIndex.acusPerBuild(availableAcus))
+            .withSpaceId(spaceId));
+  }
+
+  /**
+   * The number of index builds which may run in parallel on a database with the specified ACUs.
+   * Each build gets at least {@link CreateIndex#MIN_ACUS_PER_BUILD} ACUs.
+   */
+  static int indexBuildLanes(double availableAcus) {
+    int maxLanes = Config.instance != null ? Config.instance.MAX_PARALLEL_INDEX_BUILDS : DEFAULT_MAX_PARALLEL_INDEX_BUILDS;
+    return (int) Math.max(1, Math.min(maxLanes, Math.floor(availableAcus / CreateIndex.MIN_ACUS_PER_BUILD)));
   }
 
   public static JobCompiler getInstance() {
@@ -22,6 +22,7 @@ package com.here.xyz.jobs.steps.execution;
 import static com.here.xyz.jobs.RuntimeInfo.State.PENDING;
 import static com.here.xyz.jobs.RuntimeInfo.State.RUNNING;
 
+import com.here.xyz.jobs.Config;
 import com.here.xyz.jobs.Job;
 import com.here.xyz.jobs.config.JobConfigClient;
 import com.here.xyz.jobs.steps.StepGraph;
@@ -34,8 +35,12 @@ import org.apache.logging.log4j.Logger;
 
 public abstract class JobExecutor {
   private static final Logger logger = LogManager.getLogger();
-  private static final JobExecutor instance = new StateMachineExecutor(); //TODO: Use a different impl locally
+  public static final String LOCAL_EXECUTOR = "local";
+  //NOTE: Must be initialized before the instance, as the instance initializer schedules the pending job checks on it
   private static final ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor();
+  private static final JobExecutor instance = Config.instance != null && LOCAL_EXECUTOR.equals(Config.instance.JOB_EXECUTOR)
+      ? new LocalJobExecutor(Config.instance.LOCAL_JOB_EXECUTOR_THREADS)
+      : new StateMachineExecutor();
   private static volatile boolean running;
   private static volatile boolean stopRequested;
 
@@ -102,7 +107,7 @@ public abstract class JobExecutor {
    * @param job The job to be checked
    * @return true, if the job may be executed / enough resources are free
    */
-  private boolean mayExecute(Job job) {
+  protected boolean mayExecute(Job job) {
     //Check for all needed resource-loads whether they can be fulfilled
     return job.calculateResourceLoads().stream().allMatch(load -> load.getEstimatedVirtualUnits() < load.getResource().getFreeVirtualUnits());
   }
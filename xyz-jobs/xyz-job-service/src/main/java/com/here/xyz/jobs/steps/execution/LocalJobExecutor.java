@@ -0,0 +1,478 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.execution;
+
+import static com.here.xyz.jobs.RuntimeInfo.State.CANCELLED;
+import static com.here.xyz.jobs.RuntimeInfo.State.FAILED;
+import static com.here.xyz.jobs.RuntimeInfo.State.RUNNING;
+import static com.here.xyz.jobs.RuntimeInfo.State.SUCCEEDED;
+import static com.here.xyz.jobs.steps.execution.LambdaBasedStep.ExecutionMode.SYNC;
+import static com.here.xyz.util.Random.randomAlpha;
+
+import com.here.xyz.jobs.Job;
+import com.here.xyz.jobs.RuntimeInfo;
+import com.here.xyz.jobs.RuntimeInfo.State;
+import com.here.xyz.jobs.config.JobConfigClient;
+import com.here.xyz.jobs.steps.StepExecution;
+import com.here.xyz.jobs.steps.StepGraph;
+import com.here.xyz.jobs.steps.resources.ExecutionResource;
+import com.here.xyz.jobs.steps.execution.LambdaBasedStep.ExecutionListener;
+import com.here.xyz.jobs.steps.execution.ResourceAdmissionQueue.Admission;
+import com.here.xyz.util.service.Core;
+import io.vertx.core.Future;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import org.apache.commons.lang3.NotImplementedException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Executes the step graphs of jobs within the JVM of the job service instead of compiling them into a Step Function.
+ * Sequential graphs are executed one step after the other, the branches of parallel graphs are executed concurrently.
+ * All steps are running on a bounded thread pool, so the number of steps being executed at the same time is limited.
+ *
+ * Before a step is started, its needed resource loads are admitted by the {@link ResourceAdmissionQueue}, so steps are queued
+ * rather than overloading a resource (e.g., a database). The admission only takes the steps into account which are executed by
+ * this executor.
+ *
+ * The steps report their state to this executor instead of reporting it to a Step Function. ASYNC steps get checked periodically
+ * and fail if they miss their heartbeats or exceed their timeout. Failed steps which are marked as retryable get resumed after a delay.
+ * The states of the job and its steps are persisted through the {@link JobConfigClient} on each change.
+ *
+ * The executions are only known to the node which has started them. After a restart of the node, all persisted jobs which are still
+ * RUNNING with a local execution are resumed. As another node could not tell whether such a job is still executed, the local
+ * executor must only be used for deployments with a single job service node.
+ */
+public class LocalJobExecutor extends JobExecutor {
+  private static final Logger logger = LogManager.getLogger();
+  private static final String EXECUTION_ID_PREFIX = "local:";
+  private static final int STATE_CHECK_INTERVAL_SECONDS = 10;
+  private static final int MIN_STEP_TIMEOUT_SECONDS = 60;
+  private static final int STEP_EXECUTION_HEARTBEAT_TIMEOUT_SECONDS = 3 * 60; //3min
+  private static final int MAX_STEP_RETRIES = 2;
+  private static final int STEP_RETRY_DELAY_SECONDS = 30;
+  private static final int RECOVERY_DELAY_SECONDS = 10;
+  private final Supplier<JobConfigClient> configClient;
+  private final long stateCheckIntervalMs;
+  private final long heartbeatTimeoutMs;
+  private final long minStepTimeoutMs;
+  private final long retryDelayMs;
+  private final ExecutorService stepExecutor;
+  private final ScheduledExecutorService stateCheckExecutor = Executors.newSingleThreadScheduledExecutor(daemonThreads("step-state-check"));
+  //Runs the state checks and cancellations of steps separately from the (possibly blocking) step executions
+  private final ExecutorService stepControlExecutor = Executors.newCachedThreadPool(daemonThreads("local-step-control"));
+  private final Map<String, LocalExecution> executions = new ConcurrentHashMap<>();
+  private final ResourceAdmissionQueue admissionQueue = new ResourceAdmissionQueue();
+
+  LocalJobExecutor(int threadCount) {
+    this(threadCount, JobConfigClient::getInstance, STATE_CHECK_INTERVAL_SECONDS * 1000L, STEP_EXECUTION_HEARTBEAT_TIMEOUT_SECONDS * 1000L,
+        MIN_STEP_TIMEOUT_SECONDS * 1000L, STEP_RETRY_DELAY_SECONDS * 1000L);
+    stateCheckExecutor.schedule(this::recoverExecutions, RECOVERY_DELAY_SECONDS, TimeUnit.SECONDS);
+  }
+
+  LocalJobExecutor(int threadCount, Supplier<JobConfigClient> configClient, long stateCheckIntervalMs, long heartbeatTimeoutMs,
+      long minStepTimeoutMs, long retryDelayMs) {
+    this.configClient = configClient;
+    this.stateCheckIntervalMs = stateCheckIntervalMs;
+    this.heartbeatTimeoutMs = heartbeatTimeoutMs;
+    this.minStepTimeoutMs = minStepTimeoutMs;
+    this.retryDelayMs = retryDelayMs;
+    stepExecutor = Executors.newFixedThreadPool(Math.max(threadCount, 1), daemonThreads("local-step-executor"));
+  }
+
+  @Override
+  protected Future<String> execute(Job job) {
+    return Future.succeededFuture(startExecution(job, false));
+  }
+
+  @Override
+  protected Future<String> execute(StepGraph formerGraph, Job job) {
+    //TODO: Implement graph diff logic here for partially re-usable jobs (see StateMachineExecutor)
+    return execute(job);
+  }
+
+  @Override
+  protected Future<String> resume(Job job, String executionId) {
+    //Steps which have succeeded already are skipped, all other steps which have been started before get resumed
+    return Future.succeededFuture(startExecution(job, true));
+  }
+
+  @Override
+  protected boolean mayExecute(Job job) {
+    //The steps are admitted one by one according to their resource loads by the admission queue
+    return true;
+  }
+
+  @Override
+  public Future<Boolean> cancel(String executionId) {
+    LocalExecution execution = executionId == null ? null : executions.get(executionId);
+    if (execution == null)
+      //The execution is not running (anymore) on this node
+      return Future.succeededFuture(false);
+
+    execution.cancel();
+    return Future.succeededFuture(true);
+  }
+
+  /**
+   * Resumes the jobs which have been RUNNING within a local execution before this node was (re-)started.
+   */
+  Future<Void> recoverExecutions() {
+    return configClient.get().loadJobs(RUNNING)
+        .compose(runningJobs -> {
+          List<Future<Void>> resumedJobs = new ArrayList<>();
+          for (Job job : runningJobs) {
+            if (job.getExecutionId() == null || !job.getExecutionId().startsWith(EXECUTION_ID_PREFIX)
+                || executions.containsKey(job.getExecutionId()))
+              continue;
+            logger.info("[{}] Recovering the local execution {} which was interrupted ...", job.getId(), job.getExecutionId());
+            resumedJobs.add(resume(job, job.getExecutionId())
+                .compose(executionId -> configClient.get().storeJob("", job.withExecutionId(executionId))));
+          }
+          return Future.all(resumedJobs).<Void>mapEmpty();
+        })
+        .onFailure(t -> logger.error("Error recovering the interrupted local executions", t));
+  }
+
+  private String startExecution(Job job, boolean resume) {
+    LocalExecution execution = new LocalExecution(job, EXECUTION_ID_PREFIX + job.getId() + ":" + randomAlpha(6), resume);
+    executions.put(execution.id, execution);
+    logger.info("[{}] Starting local execution {} ...", job.getId(), execution.id);
+    execution.run(job.getSteps()).whenComplete((v, t) -> execution.complete(t));
+    return execution.id;
+  }
+
+  /**
+   * Moves the status to the target state along the shortest path of valid state transitions.
+   * E.g., a failed step which gets resumed is moving through the states RESUMING and PENDING before it is RUNNING again.
+   */
+  private static void transition(RuntimeInfo<?> status, State targetState) {
+    State sourceState = status.getState();
+    Map<State, State> predecessors = new EnumMap<>(State.class);
+    Deque<State> queue = new ArrayDeque<>(List.of(sourceState));
+    while (!queue.isEmpty() && !predecessors.containsKey(targetState)) {
+      State state = queue.poll();
+      for (State successor : State.values())
+        if (successor != sourceState && !predecessors.containsKey(successor) && state.isValidSuccessor(successor)) {
+          predecessors.put(successor, state);
+          queue.add(successor);
+        }
+    }
+
+    if (sourceState == targetState || !predecessors.containsKey(targetState)) {
+      //Nothing to do or not reachable, in the latter case the according IllegalStateTransition is thrown
+      status.setState(targetState);
+      return;
+    }
+
+    Deque<State> path = new ArrayDeque<>();
+    for (State state = targetState; state != sourceState; state = predecessors.get(state))
+      path.push(state);
+    path.forEach(status::setState);
+  }
+
+  private static ThreadFactory daemonThreads(String name) {
+    return runnable -> {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  private static Throwable unwrap(Throwable t) {
+    return t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+  }
+
+  /**
+   * The execution of the step graph of one job.
+   */
+  private class LocalExecution {
+    private final Job job;
+    private final String id;
+    private final boolean resume;
+    private final Set<StepRun> runningSteps = ConcurrentHashMap.newKeySet();
+    private final Set<CompletableFuture<Admission>> waitingAdmissions = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+    private volatile Throwable failure;
+    private Future<Void> lastStore = Future.succeededFuture();
+
+    private LocalExecution(Job job, String id, boolean resume) {
+      this.job = job;
+      this.id = id;
+      this.resume = resume;
+    }
+
+    private CompletableFuture<Void> run(StepExecution execution) {
+      if (execution instanceof StepGraph graph) {
+        if (graph.isParallel())
+          return CompletableFuture.allOf(graph.getExecutions().stream().map(this::run).toArray(CompletableFuture[]::new));
+
+        CompletableFuture<Void> sequence = CompletableFuture.completedFuture(null);
+        for (StepExecution next : graph.getExecutions())
+          sequence = sequence.thenCompose(v -> run(next));
+        return sequence;
+      }
+
+      if (execution instanceof LambdaBasedStep<?> step)
+        return runStep(step, 0);
+      //TODO: Add other implementations here (e.g. EmrStep)
+      return CompletableFuture.failedFuture(new NotImplementedException("The provided step implementation ("
+          + execution.getClass().getSimpleName() + ") is not supported."));
+    }
+
+    private CompletableFuture<Void> runStep(LambdaBasedStep<?> step, int attempt) {
+      if (step.getStatus().getState() == SUCCEEDED)
+        //The step was completed by a former execution
+        return CompletableFuture.completedFuture(null);
+      if (isAborted())
+        return CompletableFuture.failedFuture(new CancellationException("Execution " + id + " was aborted."));
+
+      //A step which was started before (e.g., by a former execution) has to be resumed
+      boolean resumeStep = attempt > 0 || resume && step.getStatus().getStartedAt() > 0;
+
+      return CompletableFuture.supplyAsync(step::getAggregatedNeededResources, stepExecutor)
+          .thenCompose(this::admit)
+          .thenCompose(admission -> startStep(step, resumeStep).whenComplete((v, t) -> admission.release()))
+          .handle((v, t) -> {
+            if (t == null) {
+              updateState(step, SUCCEEDED);
+              return CompletableFuture.<Void>completedFuture(null);
+            }
+
+            Throwable cause = unwrap(t);
+            if (!isAborted() && step.isFailedRetryable() && attempt < MAX_STEP_RETRIES) {
+              logger.warn("[{}] Step {} failed, resuming it (attempt {} of {}) ...", job.getId(), step.getId(), attempt + 1,
+                  MAX_STEP_RETRIES, cause);
+              updateState(step, FAILED);
+              return CompletableFuture.runAsync(() -> {},
+                      CompletableFuture.delayedExecutor(retryDelayMs * (attempt + 1), TimeUnit.MILLISECONDS, stepExecutor))
+                  .thenCompose(x -> runStep(step, attempt + 1));
+            }
+
+            logger.error("[{}] Step {} failed", job.getId(), step.getId(), cause);
+            updateState(step, isAborted() && cause instanceof CancellationException ? CANCELLED : FAILED);
+            abort(cause);
+            return CompletableFuture.<Void>failedFuture(cause);
+          }).thenCompose(result -> result);
+    }
+
+    private CompletableFuture<Admission> admit(Map<ExecutionResource, Double> loads) {
+      if (isAborted())
+        return CompletableFuture.failedFuture(new CancellationException("Execution " + id + " was aborted."));
+
+      CompletableFuture<Admission> admission = admissionQueue.enqueue(job.getId(), loads);
+      waitingAdmissions.add(admission);
+      admission.whenComplete((a, t) -> waitingAdmissions.remove(admission));
+      if (isAborted())
+        //The execution was aborted concurrently
+        admission.cancel(false);
+      return admission;
+    }
+
+    private CompletableFuture<Void> startStep(LambdaBasedStep<?> step, boolean resumeStep) {
+      StepRun run = new StepRun(step, this::persist);
+      runningSteps.add(run);
+      step.getStatus().setStartedAt(Core.currentTimeMillis());
+      updateState(step, RUNNING);
+      stepExecutor.execute(() -> run.start(resumeStep));
+
+      return run.completion.whenComplete((v, t) -> {
+        runningSteps.remove(run);
+        run.stopStateChecks();
+        //Release the resources (e.g., connection pools) the step has acquired during its execution
+        stepExecutor.execute(step::onRuntimeShutdown);
+      });
+    }
+
+    private boolean isAborted() {
+      return cancelled || failure != null;
+    }
+
+    /**
+     * Cancels all other running steps after one step has failed.
+     */
+    private void abort(Throwable cause) {
+      if (failure != null)
+        return;
+      failure = cause;
+      waitingAdmissions.forEach(admission -> admission.cancel(false));
+      runningSteps.forEach(StepRun::cancel);
+    }
+
+    private void cancel() {
+      cancelled = true;
+      waitingAdmissions.forEach(admission -> admission.cancel(false));
+      runningSteps.forEach(StepRun::cancel);
+    }
+
+    private void complete(Throwable t) {
+      executions.remove(id);
+      State finalState = cancelled ? CANCELLED : t == null ? SUCCEEDED : FAILED;
+      transition(job.getStatus(), finalState);
+      persist();
+      logger.info("[{}] Local execution {} completed with state {}", job.getId(), id, finalState);
+    }
+
+    private void updateState(LambdaBasedStep<?> step, State state) {
+      transition(step.getStatus(), state);
+      step.getStatus().setUpdatedAt(Core.currentTimeMillis());
+      persist();
+    }
+
+    /**
+     * Stores the job including the states of its steps. The store operations are chained to keep them in order.
+     */
+    private synchronized void persist() {
+      job.getStatus().setUpdatedAt(Core.currentTimeMillis());
+      lastStore = lastStore.transform(ar -> configClient.get().storeJob("", job))
+          .onFailure(t -> logger.error("[{}] Error storing the state of execution {}", job.getId(), id, t));
+    }
+  }
+
+  /**
+   * One (attempt of an) execution of a step. Receives the state reports of the step.
+   */
+  private class StepRun implements ExecutionListener {
+    private final LambdaBasedStep<?> step;
+    private final Runnable progressListener;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private volatile long startedAt;
+    private volatile long lastHeartbeat;
+    private volatile float reportedProgress;
+    private ScheduledFuture<?> stateCheck;
+    private final AtomicBoolean stateCheckRunning = new AtomicBoolean();
+
+    private StepRun(LambdaBasedStep<?> step, Runnable progressListener) {
+      this.step = step;
+      this.progressListener = progressListener;
+      reportedProgress = step.getStatus().getEstimatedProgress();
+    }
+
+    private void start(boolean resume) {
+      startedAt = lastHeartbeat = Core.currentTimeMillis();
+      step.setExecutionListener(this);
+      try {
+        if (resume)
+          step.resumeExecution();
+        else
+          step.startExecution();
+
+        if (step.getExecutionMode() == SYNC)
+          //The step is complete once the execution returns
+          completion.complete(null);
+        else
+          scheduleStateChecks();
+      }
+      catch (Exception e) {
+        step.reportAsyncFailure(e, true);
+      }
+    }
+
+    private synchronized void scheduleStateChecks() {
+      if (!completion.isDone())
+        stateCheck = stateCheckExecutor.scheduleWithFixedDelay(this::checkState, stateCheckIntervalMs, stateCheckIntervalMs,
+            TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void stopStateChecks() {
+      if (stateCheck != null)
+        stateCheck.cancel(false);
+    }
+
+    private void checkState() {
+      long now = Core.currentTimeMillis();
+      if (now - lastHeartbeat > heartbeatTimeoutMs)
+        timeout("The step " + step.getId() + " did not report a heartbeat for " + heartbeatTimeoutMs + "ms.");
+      else if (now - startedAt > Math.max(step.getTimeoutSeconds() * 1000L, minStepTimeoutMs))
+        timeout("The step " + step.getId() + " exceeded its timeout of " + step.getTimeoutSeconds() + "s.");
+      else if (stateCheckRunning.compareAndSet(false, true))
+        //Reports a heartbeat, the success or the failure of the step to this listener
+        stepControlExecutor.execute(() -> {
+          try {
+            step.checkAsyncExecutionState();
+          }
+          finally {
+            stateCheckRunning.set(false);
+          }
+        });
+    }
+
+    private void timeout(String message) {
+      cancelStep();
+      completion.completeExceptionally(new TimeoutException(message));
+    }
+
+    private void cancel() {
+      cancelStep();
+      completion.completeExceptionally(new CancellationException("The step " + step.getId() + " was cancelled."));
+    }
+
+    private void cancelStep() {
+      stepControlExecutor.execute(() -> {
+        try {
+          step.cancel();
+        }
+        catch (Exception e) {
+          logger.error("Error cancelling step {}", step.getId(), e);
+        }
+      });
+    }
+
+    @Override
+    public void onHeartbeat(LambdaBasedStep<?> step) {
+      lastHeartbeat = Core.currentTimeMillis();
+      step.getStatus().setUpdatedAt(lastHeartbeat);
+      float progress = step.getStatus().getEstimatedProgress();
+      if (progress != reportedProgress) {
+        //The step has updated its progress during the state check, make it visible to the job's status
+        reportedProgress = progress;
+        progressListener.run();
+      }
+    }
+
+    @Override
+    public void onSuccess(LambdaBasedStep<?> step) {
+      completion.complete(null);
+    }
+
+    @Override
+    public void onFailure(LambdaBasedStep<?> step, Exception e) {
+      completion.completeExceptionally(e != null ? e : new RuntimeException("The step " + step.getId() + " failed."));
+    }
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.execution;
+
+import com.here.xyz.jobs.steps.resources.ExecutionResource;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Admits the execution of steps by their needed resource loads against the virtual capacity of each {@link ExecutionResource}.
+ * Steps which cannot be admitted are queued and get admitted as soon as enough capacity was released by other steps.
+ *
+ * The queued steps of different jobs are admitted in a round-robin fashion, the steps of one job in the order of their arrival.
+ * To keep the utilization high, smaller steps may be admitted before larger steps which are waiting for capacity. If a step
+ * is waiting for longer than {@link #MAX_BACKFILL_WAIT_MS}, no other steps are admitted on its resources until it was admitted.
+ * A step that needs more than the whole capacity of a resource is admitted once nothing else is running on that resource.
+ *
+ * NOTE: The reservations are only known to the {@link LocalJobExecutor} of this node and are kept in memory.
+ * Steps which are executed by other nodes or by Step Functions and the actual utilization of the resources
+ * (see {@link ExecutionResource#getUtilizedUnits()}) are not taken into account. Such steps are still checking their resources
+ * on their own when being executed (see {@link com.here.xyz.jobs.steps.resources.TooManyResourcesClaimed}).
+ */
+class ResourceAdmissionQueue {
+  private static final Logger logger = LogManager.getLogger();
+  private static final long MAX_BACKFILL_WAIT_MS = TimeUnit.MINUTES.toMillis(10);
+  private final LongSupplier clock;
+  private final long maxBackfillWaitMs;
+  private final Map<ExecutionResource, Double> reservedUnits = new HashMap<>();
+  //The queued requests per job, the order of the jobs is the round-robin order
+  private final LinkedHashMap<String, Deque<Request>> queuedRequests = new LinkedHashMap<>();
+
+  ResourceAdmissionQueue() {
+    this(System::currentTimeMillis, MAX_BACKFILL_WAIT_MS);
+  }
+
+  /**
+   * @param clock The source of the current time in milliseconds
+   * @param maxBackfillWaitMs The time after which a waiting step stops other steps from being admitted on its resources
+   */
+  ResourceAdmissionQueue(LongSupplier clock, long maxBackfillWaitMs) {
+    this.clock = clock;
+    this.maxBackfillWaitMs = maxBackfillWaitMs;
+  }
+
+  /**
+   * Enqueues a step for admission.
+   * The returned future is completed once the loads have been reserved. It may be cancelled to withdraw the request.
+   *
+   * @param jobId The ID of the job of the step
+   * @param loads The needed resource loads of the step
+   * @return A future which is completed with the admission, which has to be released after the step has completed
+   */
+  CompletableFuture<Admission> enqueue(String jobId, Map<ExecutionResource, Double> loads) {
+    Request request = new Request(jobId, loads, clock.getAsLong());
+    synchronized (this) {
+      queuedRequests.computeIfAbsent(jobId, id -> new ArrayDeque<>()).add(request);
+    }
+    request.future.whenComplete((admission, t) -> {
+      if (request.future.isCancelled())
+        //Cancelled requests are purged by the next dispatch, maybe the following requests fit now
+        dispatch();
+    });
+    dispatch();
+    return request.future;
+  }
+
+  private synchronized void unreserve(Map<ExecutionResource, Double> loads) {
+    loads.forEach((resource, units) -> reservedUnits.computeIfPresent(resource, (r, reserved) -> reserved - units > 0
+        ? reserved - units : null));
+  }
+
+  /**
+   * Admits all queued requests which fit into the free capacities.
+   * The futures of the admitted requests are completed outside the lock, as they are continued synchronously.
+   */
+  private void dispatch() {
+    for (Entry<Request, Admission> admission : admitRequests().entrySet())
+      if (!admission.getKey().future.complete(admission.getValue()))
+        //The request was cancelled concurrently
+        admission.getValue().release();
+  }
+
+  private synchronized Map<Request, Admission> admitRequests() {
+    Map<Request, Admission> admissions = new LinkedHashMap<>();
+    Set<ExecutionResource> blockedResources = new HashSet<>();
+    boolean admitted;
+    do {
+      admitted = false;
+      Iterator<Entry<String, Deque<Request>>> jobs = queuedRequests.entrySet().iterator();
+      while (jobs.hasNext()) {
+        Entry<String, Deque<Request>> job = jobs.next();
+        Deque<Request> requests = job.getValue();
+        requests.removeIf(request -> request.future.isDone());
+        Request request = requests.peek();
+        if (request == null) {
+          jobs.remove();
+          continue;
+        }
+
+        if (request.loads.keySet().stream().anyMatch(blockedResources::contains))
+          continue;
+
+        if (!fits(request.loads)) {
+          if (clock.getAsLong() - request.enqueuedAt > maxBackfillWaitMs)
+            //Stop backfilling on the resources of the starving request
+            blockedResources.addAll(request.loads.keySet());
+          continue;
+        }
+
+        requests.poll();
+        admissions.put(request, reserve(request));
+        //Move the job to the end of the round-robin order
+        jobs.remove();
+        if (!requests.isEmpty())
+          queuedRequests.put(job.getKey(), requests);
+        admitted = true;
+        break;
+      }
+    }
+    while (admitted);
+    return admissions;
+  }
+
+  private boolean fits(Map<ExecutionResource, Double> loads) {
+    return loads.entrySet().stream().allMatch(load -> {
+      double reserved = reservedUnits.getOrDefault(load.getKey(), 0d);
+      return reserved == 0 || reserved + load.getValue() <= load.getKey().getMaxVirtualUnits();
+    });
+  }
+
+  private Admission reserve(Request request) {
+    request.loads.forEach((resource, units) -> reservedUnits.merge(resource, units, Double::sum));
+    logger.debug("Admitted step of job {} with loads {}", request.jobId, request.loads);
+    return new Admission(request.loads);
+  }
+
+  private record Request(String jobId, Map<ExecutionResource, Double> loads, long enqueuedAt, CompletableFuture<Admission> future) {
+    private Request(String jobId, Map<ExecutionResource, Double> loads, long enqueuedAt) {
+      this(jobId, loads, enqueuedAt, new CompletableFuture<>());
+    }
+  }
+
+  /**
+   * The reservation of the loads of one admitted step.
+   */
+  class Admission {
+    private final Map<ExecutionResource, Double> loads;
+    private boolean released;
+
+    private Admission(Map<ExecutionResource, Double> loads) {
+      this.loads = loads;
+    }
+
+    /**
+     * Releases the reserved loads, so that queued steps may be admitted. Calling this method multiple times has no effect.
+     */
+    void release() {
+      synchronized (this) {
+        if (released)
+          return;
+        released = true;
+      }
+      unreserve(loads);
+      dispatch();
+    }
+  }
+}
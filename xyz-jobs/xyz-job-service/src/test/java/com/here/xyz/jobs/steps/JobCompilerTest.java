@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps;
+
+import static com.here.xyz.jobs.steps.JobCompiler.DEFAULT_MAX_PARALLEL_INDEX_BUILDS;
+import static com.here.xyz.jobs.steps.JobCompiler.MAX_PARALLEL_RENDER_BATCHES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.here.xyz.jobs.datasets.DatasetDescription;
+import com.here.xyz.jobs.datasets.Files;
+import com.here.xyz.jobs.datasets.Tiles;
+import com.here.xyz.jobs.steps.impl.CreateIndex;
+import com.here.xyz.jobs.steps.impl.PreRenderTiles;
+import com.here.xyz.jobs.steps.impl.PublishPreRenderedTiles;
+import com.here.xyz.jobs.steps.impl.tiles.TileSetMetadata;
+import com.here.xyz.models.geojson.WebMercatorTile;
+import com.here.xyz.models.geojson.coordinates.BBox;
+import com.here.xyz.util.db.pg.XyzSpaceTableHelper.Index;
+import com.here.xyz.util.service.BaseHttpServerVerticle.ValidationException;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class JobCompilerTest {
+
+  @Test
+  public void indexCreationCoversAllIndices() {
+    StepGraph graph = JobCompiler.compileIndexCreation("testSpace", 16);
+
+    Set<Index> indices = graph.stepStream().map(step -> ((CreateIndex) step).getIndex()).collect(Collectors.toSet());
+    assertEquals(Set.of(Index.values()), indices);
+    assertEquals(Index.values().length, graph.stepStream().count());
+  }
+
+  @Test
+  public void indexCreationIsLimitedInParallelism() {
+    StepGraph graph = JobCompiler.compileIndexCreation("testSpace", 16);
+    assertFalse(graph.isParallel());
+
+    StepGraph lanes = (StepGraph) graph.getExecutions().get(0);
+    assertTrue(lanes.isParallel());
+    assertTrue(lanes.getExecutions().size() <= DEFAULT_MAX_PARALLEL_INDEX_BUILDS);
+    for (StepExecution lane : lanes.getExecutions())
+      assertFalse(((StepGraph) lane).isParallel());
+  }
+
+  @Test
+  public void expensiveIndicesAreStartedFirst() {
+    StepGraph lanes = (StepGraph) JobCompiler.compileIndexCreation("testSpace", 16).getExecutions().get(0);
+
+    List<Index> firstIndices = lanes.getExecutions().stream()
+        .map(lane -> ((CreateIndex) ((StepGraph) lane).getExecutions().get(0)).getIndex())
+        .collect(Collectors.toList());
+    assertTrue(firstIndices.contains(Index.GEO));
+    for (StepExecution lane : lanes.getExecutions()) {
+      List<StepExecution> steps = ((StepGraph) lane).getExecutions();
+      for (int i = 1; i < steps.size(); i++)
+        assertTrue(CreateIndex.estimatedRelativeCost(((CreateIndex) steps.get(i - 1)).getIndex())
+            >= CreateIndex.estimatedRelativeCost(((CreateIndex) steps.get(i)).getIndex()));
+    }
+  }
+
+  @Test
+  public void vizIndexIsCreatedLast() {
+    StepGraph graph = JobCompiler.compileIndexCreation("testSpace", 16);
+
+    assertEquals(2, graph.getExecutions().size());
+    assertEquals(Index.VIZ, ((CreateIndex) graph.getExecutions().get(1)).getIndex());
+    assertTrue(((StepGraph) graph.getExecutions().get(0)).stepStream()
+        .noneMatch(step -> ((CreateIndex) step).getIndex() == Index.VIZ));
+  }
+
+  @Test
+  public void indexBuildLanesDependOnTheDatabaseCapacity() {
+    assertEquals(1, JobCompiler.indexBuildLanes(1));
+    assertEquals(2, JobCompiler.indexBuildLanes(5));
+    assertEquals(DEFAULT_MAX_PARALLEL_INDEX_BUILDS, JobCompiler.indexBuildLanes(256));
+
+    //A small database runs fewer builds in parallel, each with the minimum of ACUs
+    StepGraph graph = JobCompiler.compileIndexCreation("testSpace", 4);
+    assertEquals(2, ((StepGraph) graph.getExecutions().get(0)).getExecutions().size());
+    assertTrue(((StepGraph) graph.getExecutions().get(0)).stepStream().allMatch(step -> ((CreateIndex) step).getAcus() == 2));
+
+    //A large database gets the maximum number of builds in parallel and each of them gets its share of the ACUs
+    graph = JobCompiler.compileIndexCreation("testSpace", 48);
+    assertEquals(DEFAULT_MAX_PARALLEL_INDEX_BUILDS, ((StepGraph) graph.getExecutions().get(0)).getExecutions().size());
+    assertTrue(((StepGraph) graph.getExecutions().get(0)).stepStream().allMatch(step -> ((CreateIndex) step).getAcus() == 12));
+    //The VIZ index is built alone
+    assertEquals(CreateIndex.MAX_ACUS_PER_BUILD, ((CreateIndex) graph.getExecutions().get(1)).getAcus());
+  }
+
+  @Test
+  public void tileRenderingIsBatched() {
+    Tiles tiles = new Tiles().withMinLevel(0).withMaxLevel(7);
+    long tileCount = TileSetMetadata.countTiles(new BBox(-180, WebMercatorTile.MinLatitude, 180, WebMercatorTile.MaxLatitude), 0, 7);
+    StepGraph graph = JobCompiler.compileTileRendering("testSpace", tiles).result();
+
+    List<PreRenderTiles> batches = graph.stepStream()
+        .filter(step -> step instanceof PreRenderTiles)
+        .map(step -> (PreRenderTiles) step)
+        .collect(Collectors.toList());
+    assertEquals(tileCount, batches.stream().mapToLong(PreRenderTiles::getTileCount).sum());
+    assertTrue(batches.stream().allMatch(batch -> batch.getTileCount() <= PreRenderTiles.MAX_BATCH_TILE_COUNT));
+    assertEquals(batches.size(), batches.stream().map(PreRenderTiles::getFirstTile).distinct().count());
+
+    StepGraph lanes = (StepGraph) graph.getExecutions().get(0);
+    assertTrue(lanes.isParallel());
+    assertTrue(lanes.getExecutions().size() <= MAX_PARALLEL_RENDER_BATCHES);
+
+    PublishPreRenderedTiles publish = (PublishPreRenderedTiles) graph.getExecutions().get(1);
+    assertEquals(batches.size(), publish.getBatchCount());
+    assertEquals(7, publish.getMaxLevel());
+  }
+
+  @Test
+  public void tooManyTilesAreRejected() {
+    assertTrue(JobCompiler.compileTileRendering("testSpace", new Tiles().withMinLevel(0).withMaxLevel(20)).failed());
+  }
+
+  @Test(expected = ValidationException.class)
+  public void incrementalSourcesAreRejected() throws ValidationException {
+    JobCompiler.validateSource(new DatasetDescription.Space().withFromVersion(5L).withId("testSpace"));
+  }
+
+  @Test
+  public void fullSourcesAreAccepted() throws ValidationException {
+    JobCompiler.validateSource(new DatasetDescription.Space().withId("testSpace"));
+    JobCompiler.validateSource(new Files());
+  }
+}
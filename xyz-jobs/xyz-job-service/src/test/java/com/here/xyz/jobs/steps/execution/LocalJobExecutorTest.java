@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.execution;
+
+import static com.here.xyz.jobs.RuntimeInfo.State.CANCELLED;
+import static com.here.xyz.jobs.RuntimeInfo.State.FAILED;
+import static com.here.xyz.jobs.RuntimeInfo.State.PENDING;
+import static com.here.xyz.jobs.RuntimeInfo.State.RUNNING;
+import static com.here.xyz.jobs.RuntimeInfo.State.SUBMITTED;
+import static com.here.xyz.jobs.RuntimeInfo.State.SUCCEEDED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.here.xyz.jobs.Job;
+import com.here.xyz.jobs.RuntimeInfo;
+import com.here.xyz.jobs.RuntimeInfo.State;
+import com.here.xyz.jobs.config.InMemJobConfigClient;
+import com.here.xyz.jobs.steps.StepGraph;
+import com.here.xyz.jobs.steps.resources.Load;
+import com.here.xyz.util.service.Core;
+import io.vertx.core.Vertx;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class LocalJobExecutorTest {
+  private static final long AWAIT_TIMEOUT_MS = 10_000;
+  private InMemJobConfigClient configClient;
+  private LocalJobExecutor executor;
+  private List<String> executionOrder;
+
+  @BeforeClass
+  public static void setUpClass() {
+    if (Core.vertx == null)
+      Core.vertx = Vertx.vertx();
+  }
+
+  @Before
+  public void setUp() {
+    configClient = new InMemJobConfigClient();
+    //State checks every 20ms, heartbeat timeout of 300ms, retries after 10ms
+    executor = new LocalJobExecutor(4, () -> configClient, 20, 300, 60_000, 10);
+    executionOrder = new CopyOnWriteArrayList<>();
+  }
+
+  @Test
+  public void sequentialGraph() throws Exception {
+    TestStep step1 = new TestStep("step1", false), step2 = new TestStep("step2", true), step3 = new TestStep("step3", false);
+    step2.asyncState = LambdaBasedStep.AsyncExecutionState.SUCCEEDED;
+    Job job = execute(new StepGraph().withExecutions(List.of(step1, step2, step3)));
+
+    awaitState(job, SUCCEEDED);
+    assertEquals(List.of("step1", "step2", "step3"), executionOrder);
+    for (TestStep step : List.of(step1, step2, step3))
+      assertEquals(SUCCEEDED, step.getStatus().getState());
+  }
+
+  @Test
+  public void parallelGraph() throws Exception {
+    //Both steps only complete if they are running at the same time
+    CyclicBarrier barrier = new CyclicBarrier(2);
+    TestStep step1 = new TestStep("step1", false).withBarrier(barrier), step2 = new TestStep("step2", false).withBarrier(barrier);
+    TestStep step3 = new TestStep("step3", false);
+    Job job = execute(new StepGraph().withExecutions(List.of(
+        new StepGraph().withExecutions(List.of(step1, step2)).withParallel(true),
+        step3)));
+
+    awaitState(job, SUCCEEDED);
+    assertEquals("step3", executionOrder.get(2));
+  }
+
+  @Test
+  public void retryableFailure() throws Exception {
+    TestStep step = new TestStep("step1", false);
+    step.failingAttempts = 1;
+    Job job = execute(new StepGraph().addExecution(step));
+
+    awaitState(job, SUCCEEDED);
+    assertEquals(1, step.executions.get());
+    assertEquals(1, step.resumes.get());
+  }
+
+  @Test
+  public void exceededRetries() throws Exception {
+    TestStep step1 = new TestStep("step1", false), step2 = new TestStep("step2", false);
+    step1.failingAttempts = Integer.MAX_VALUE;
+    Job job = execute(new StepGraph().withExecutions(List.of(step1, step2)));
+
+    awaitState(job, FAILED);
+    assertEquals(FAILED, step1.getStatus().getState());
+    //The first execution and two retries
+    assertEquals(3, step1.executions.get() + step1.resumes.get());
+    assertEquals(0, step2.executions.get());
+  }
+
+  @Test
+  public void cancel() throws Exception {
+    TestStep step1 = new TestStep("step1", true), step2 = new TestStep("step2", false);
+    Job job = execute(new StepGraph().withExecutions(List.of(step1, step2)));
+    awaitStepState(step1, RUNNING);
+
+    assertTrue(executor.cancel(job.getExecutionId()).result());
+    awaitState(job, CANCELLED);
+    awaitCount(step1.cancellations, 1);
+    assertEquals(CANCELLED, step1.getStatus().getState());
+    assertEquals(0, step2.executions.get());
+  }
+
+  @Test
+  public void missingHeartbeat() throws Exception {
+    TestStep step = new TestStep("step1", true);
+    //The state of the step can not be determined, so it does not report any heartbeats
+    step.asyncState = null;
+    Job job = execute(new StepGraph().addExecution(step));
+
+    awaitState(job, FAILED);
+    awaitCount(step.cancellations, 1);
+    assertEquals(FAILED, step.getStatus().getState());
+  }
+
+  @Test
+  public void stateChecksAreNotBlockedByRunningSteps() throws Exception {
+    //The only step thread is occupied by step2 until step1 succeeded, which is only detected by the state checks of step1
+    executor = new LocalJobExecutor(1, () -> configClient, 20, 300, 60_000, 10);
+    TestStep step1 = new TestStep("step1", true);
+    step1.asyncState = LambdaBasedStep.AsyncExecutionState.SUCCEEDED;
+    TestStep step2 = new TestStep("step2", false).withBlocker(() -> step1.getStatus().getState() == SUCCEEDED);
+    Job job = execute(new StepGraph().withExecutions(List.of(step1, step2)).withParallel(true));
+
+    awaitState(job, SUCCEEDED);
+    assertEquals(0, step1.cancellations.get());
+  }
+
+  @Test
+  public void recoverInterruptedExecution() throws Exception {
+    TestStep step1 = new TestStep("step1", false), step2 = new TestStep("step2", false);
+    moveTo(step1.getStatus(), SUBMITTED, PENDING, RUNNING, SUCCEEDED);
+    step2.getStatus().setStartedAt(Core.currentTimeMillis());
+    moveTo(step2.getStatus(), SUBMITTED, PENDING, RUNNING);
+    String formerExecutionId = "local:someJob:abcdef";
+    Job job = new Job().withSteps(new StepGraph().withExecutions(List.of(step1, step2))).withExecutionId(formerExecutionId);
+    moveTo(job.getStatus(), SUBMITTED, PENDING, RUNNING);
+    configClient.storeJob("", job);
+
+    executor.recoverExecutions().toCompletionStage().toCompletableFuture().get(AWAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+    awaitState(job, SUCCEEDED);
+    assertEquals(0, step1.executions.get() + step1.resumes.get());
+    assertEquals(0, step2.executions.get());
+    assertEquals(1, step2.resumes.get());
+    assertNotEquals(formerExecutionId, job.getExecutionId());
+  }
+
+  private Job execute(StepGraph graph) {
+    Job job = new Job().withSteps(graph);
+    return job.withExecutionId(executor.execute(job).result());
+  }
+
+  private static void moveTo(RuntimeInfo<?> status, State... states) {
+    for (State state : states)
+      status.setState(state);
+  }
+
+  private static void awaitState(Job job, State state) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + AWAIT_TIMEOUT_MS;
+    while (job.getStatus().getState() != state && System.currentTimeMillis() < deadline)
+      Thread.sleep(10);
+    assertEquals(state, job.getStatus().getState());
+  }
+
+  private static void awaitStepState(TestStep step, State state) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + AWAIT_TIMEOUT_MS;
+    while (step.getStatus().getState() != state && System.currentTimeMillis() < deadline)
+      Thread.sleep(10);
+    assertEquals(state, step.getStatus().getState());
+  }
+
+  private static void awaitCount(AtomicInteger counter, int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + AWAIT_TIMEOUT_MS;
+    while (counter.get() < count && System.currentTimeMillis() < deadline)
+      Thread.sleep(10);
+    assertEquals(count, counter.get());
+  }
+
+  private class TestStep extends LambdaBasedStep<TestStep> {
+    private final String name;
+    private final boolean async;
+    private CyclicBarrier barrier;
+    private BooleanSupplier blocker;
+    private volatile int failingAttempts;
+    private volatile AsyncExecutionState asyncState = AsyncExecutionState.RUNNING;
+    private final AtomicInteger executions = new AtomicInteger();
+    private final AtomicInteger resumes = new AtomicInteger();
+    private final AtomicInteger cancellations = new AtomicInteger();
+
+    private TestStep(String name, boolean async) {
+      this.name = name;
+      this.async = async;
+    }
+
+    private TestStep withBarrier(CyclicBarrier barrier) {
+      this.barrier = barrier;
+      return this;
+    }
+
+    private TestStep withBlocker(BooleanSupplier blocker) {
+      this.blocker = blocker;
+      return this;
+    }
+
+    @Override
+    public List<Load> getNeededResources() {
+      return List.of();
+    }
+
+    @Override
+    public int getTimeoutSeconds() {
+      return 3600;
+    }
+
+    @Override
+    public String getDescription() {
+      return "Test step " + name;
+    }
+
+    @Override
+    public void execute() throws Exception {
+      executions.incrementAndGet();
+      run();
+    }
+
+    @Override
+    public void resume() throws Exception {
+      resumes.incrementAndGet();
+      run();
+    }
+
+    private void run() throws Exception {
+      executionOrder.add(name);
+      if (barrier != null)
+        barrier.await(AWAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+      if (blocker != null) {
+        long deadline = System.currentTimeMillis() + AWAIT_TIMEOUT_MS;
+        while (!blocker.getAsBoolean())
+          if (System.currentTimeMillis() > deadline)
+            throw new TimeoutException("Step " + name + " was blocked too long.");
+          else
+            Thread.sleep(10);
+      }
+      if (executions.get() + resumes.get() <= failingAttempts)
+        throw new IllegalStateException("Failing attempt of step " + name);
+    }
+
+    @Override
+    public void cancel() {
+      cancellations.incrementAndGet();
+    }
+
+    @Override
+    public void deleteOutputs() {}
+
+    @Override
+    public boolean validate() {
+      return true;
+    }
+
+    @Override
+    public AsyncExecutionState getExecutionState() throws UnknownStateException {
+      if (asyncState == null)
+        throw new UnknownStateException("The state of step " + name + " is unknown.");
+      return asyncState;
+    }
+
+    @Override
+    public ExecutionMode getExecutionMode() {
+      return async ? ExecutionMode.ASYNC : ExecutionMode.SYNC;
+    }
+
+    @Override
+    protected boolean onAsyncFailure(Exception e) {
+      //All failures of this step are retryable
+      return true;
+    }
+  }
+}
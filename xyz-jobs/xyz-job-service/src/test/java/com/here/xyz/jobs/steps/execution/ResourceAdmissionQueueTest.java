@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.execution;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.here.xyz.jobs.steps.execution.ResourceAdmissionQueue.Admission;
+import com.here.xyz.jobs.steps.resources.ExecutionResource;
+import io.vertx.core.Future;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class ResourceAdmissionQueueTest {
+  private static final long MAX_BACKFILL_WAIT_MS = 1_000;
+  private final AtomicLong now = new AtomicLong();
+  private final ResourceAdmissionQueue queue = new ResourceAdmissionQueue(now::get, MAX_BACKFILL_WAIT_MS);
+  private final TestResource db = new TestResource(10);
+
+  private CompletableFuture<Admission> enqueue(String jobId, double units) {
+    return queue.enqueue(jobId, Map.of(db, units));
+  }
+
+  private static void release(CompletableFuture<Admission> admission) {
+    admission.join().release();
+  }
+
+  @Test
+  public void admitWhileCapacityIsFree() {
+    CompletableFuture<Admission> step1 = enqueue("job1", 4), step2 = enqueue("job2", 6), step3 = enqueue("job3", 1);
+    assertTrue(step1.isDone());
+    assertTrue(step2.isDone());
+    assertFalse(step3.isDone());
+
+    release(step1);
+    assertTrue(step3.isDone());
+  }
+
+  @Test
+  public void smallerStepsAreBackfilled() {
+    CompletableFuture<Admission> running = enqueue("job1", 6);
+    CompletableFuture<Admission> large = enqueue("job2", 8);
+    CompletableFuture<Admission> small = enqueue("job3", 3);
+
+    assertFalse(large.isDone());
+    //The small step fits into the free capacity, so it does not wait for the large one
+    assertTrue(small.isDone());
+
+    release(running);
+    assertFalse(large.isDone());
+    release(small);
+    assertTrue(large.isDone());
+  }
+
+  @Test
+  public void noBackfillingOnResourcesOfStarvingSteps() {
+    CompletableFuture<Admission> running = enqueue("job1", 6);
+    CompletableFuture<Admission> large = enqueue("job2", 8);
+    now.addAndGet(MAX_BACKFILL_WAIT_MS + 1);
+
+    //The large step is waiting for too long, so the small step has to wait as well, although it would fit
+    CompletableFuture<Admission> small = enqueue("job3", 3);
+    assertFalse(small.isDone());
+
+    release(running);
+    assertTrue(large.isDone());
+    assertFalse(small.isDone());
+
+    release(large);
+    assertTrue(small.isDone());
+  }
+
+  @Test
+  public void starvingStepsOnlyBlockTheirResources() {
+    TestResource otherDb = new TestResource(10);
+    CompletableFuture<Admission> running = enqueue("job1", 6);
+    CompletableFuture<Admission> large = enqueue("job2", 8);
+    now.addAndGet(MAX_BACKFILL_WAIT_MS + 1);
+
+    assertTrue(queue.enqueue("job3", Map.of(otherDb, 3d)).isDone());
+    release(running);
+    assertTrue(large.isDone());
+  }
+
+  @Test
+  public void oversizedStepIsAdmittedOnAnIdleResource() {
+    CompletableFuture<Admission> running = enqueue("job1", 2);
+    CompletableFuture<Admission> oversized = enqueue("job2", 15);
+    assertFalse(oversized.isDone());
+
+    release(running);
+    assertTrue(oversized.isDone());
+    //Nothing else is admitted while the oversized step is running
+    CompletableFuture<Admission> next = enqueue("job3", 1);
+    assertFalse(next.isDone());
+    release(oversized);
+    assertTrue(next.isDone());
+  }
+
+  @Test
+  public void jobsAreAdmittedRoundRobin() {
+    CompletableFuture<Admission> running = enqueue("job0", 10);
+    CompletableFuture<Admission> job1Step1 = enqueue("job1", 10), job1Step2 = enqueue("job1", 10), job1Step3 = enqueue("job1", 10);
+    CompletableFuture<Admission> job2Step1 = enqueue("job2", 10), job2Step2 = enqueue("job2", 10);
+
+    release(running);
+    assertTrue(job1Step1.isDone());
+    release(job1Step1);
+    assertTrue(job2Step1.isDone());
+    assertFalse(job1Step2.isDone());
+    release(job2Step1);
+    assertTrue(job1Step2.isDone());
+    assertFalse(job2Step2.isDone());
+    release(job1Step2);
+    assertTrue(job2Step2.isDone());
+    assertFalse(job1Step3.isDone());
+  }
+
+  @Test
+  public void cancelledRequestsAreWithdrawn() {
+    CompletableFuture<Admission> running = enqueue("job1", 6);
+    CompletableFuture<Admission> cancelled = enqueue("job2", 8);
+    now.addAndGet(MAX_BACKFILL_WAIT_MS + 1);
+    CompletableFuture<Admission> small = enqueue("job3", 3);
+    assertFalse(small.isDone());
+
+    //The starving request is gone, so the small step may be admitted now
+    cancelled.cancel(false);
+    assertTrue(small.isDone());
+    release(running);
+  }
+
+  @Test
+  public void releasingTwiceHasNoEffect() {
+    CompletableFuture<Admission> step1 = enqueue("job1", 6), step2 = enqueue("job2", 6);
+    release(step1);
+    release(step1);
+    assertTrue(step2.isDone());
+    assertFalse(enqueue("job3", 6).isDone());
+  }
+
+  private static class TestResource extends ExecutionResource {
+    private final double maxUnits;
+
+    private TestResource(double maxUnits) {
+      this.maxUnits = maxUnits;
+    }
+
+    @Override
+    public Future<Double> getUtilizedUnits() {
+      return Future.succeededFuture(0d);
+    }
+
+    @Override
+    protected double getMaxUnits() {
+      return maxUnits;
+    }
+
+    @Override
+    public double getMaxVirtualUnits() {
+      return maxUnits;
+    }
+  }
+}
@@ -19,10 +19,12 @@
 
 package com.here.xyz.jobs;
 
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_DEFAULT;
 import static com.here.xyz.jobs.RuntimeInfo.State.NOT_READY;
-import static com.here.xyz.jobs.RuntimeInfo.State.SUBMITTED;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableMap;
 import com.here.xyz.util.service.Core;
 import java.util.Arrays;
@@ -33,10 +35,23 @@ public class RuntimeInfo<T extends RuntimeInfo> {
   private long updatedAt;
   private long startedAt;
   private State state = NOT_READY;
+  private float estimatedProgress;
 
-  @JsonIgnore //TODO: Re-activate once implemented
+  /**
+   * Returns the estimated progress (between 0 and 1) as it was reported by the task itself, or 0 if it does not report any progress.
+   */
+  @JsonInclude(NON_DEFAULT)
   public float getEstimatedProgress() {
-    return 0.5f; //TODO: Deduct from statistics, start time & e.g. estimated row count
+    return estimatedProgress;
+  }
+
+  public void setEstimatedProgress(float estimatedProgress) {
+    this.estimatedProgress = estimatedProgress;
+  }
+
+  public T withEstimatedProgress(float estimatedProgress) {
+    setEstimatedProgress(estimatedProgress);
+    return (T) this;
   }
 
   @JsonIgnore //TODO: Re-activate once implemented
@@ -82,8 +97,16 @@ public class RuntimeInfo<T extends RuntimeInfo> {
     return state;
   }
 
+  @JsonIgnore
   public void setState(State state) {
-    State.checkTransition(getState(), SUBMITTED);
+    if (state != getState())
+      State.checkTransition(getState(), state);
+    this.state = state;
+  }
+
+  @JsonProperty("state")
+  private void restoreState(State state) {
+    //A deserialized state is taken over without checking the transition
     this.state = state;
   }
 
@@ -53,5 +53,20 @@ public class Config extends BaseConfig {
    * S3/CW/Dynamodb localstack endpoints
    */
   public URI LOCALSTACK_ENDPOINT;
+  /**
+   * The location of the store for pre-rendered tiles, e.g. s3://some-bucket/tiles or file:///var/xyz/tiles
+   */
+  public URI TILE_STORE_LOCATION;
+  /**
+   * The location from which the input files of import jobs are read, e.g. file:///var/xyz/jobs
+   * If not set, the inputs are read from the JOBS_S3_BUCKET.
+   */
+  public URI JOB_INPUT_LOCATION;
+  /**
+   * Whether the steps are executed within a container runtime (e.g. an ECS task) rather than a Lambda function.
+   * Long-running work which is done within the step itself (e.g. the COPY based import) is only done within a container runtime
+   * or by the local job executor, otherwise it is delegated to the database.
+   */
+  public boolean STEPS_IN_CONTAINER_RUNTIME;
 
 }
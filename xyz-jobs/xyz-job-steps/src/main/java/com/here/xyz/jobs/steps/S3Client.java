@@ -83,6 +83,13 @@ public class S3Client {
     return instance;
   }
 
+  /**
+   * @return The underlying S3 client, e.g. to access other buckets than the jobs bucket
+   */
+  public AmazonS3 getClient() {
+    return client;
+  }
+
   private URL generatePresignedUrl(String key, HttpMethod method) {
     GeneratePresignedUrlRequest generatePresignedUrlRequest =
         new GeneratePresignedUrlRequest(bucketName, key)
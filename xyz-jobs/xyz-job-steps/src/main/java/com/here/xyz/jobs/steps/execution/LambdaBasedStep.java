@@ -81,11 +81,14 @@ public abstract class LambdaBasedStep<T extends LambdaBasedStep> extends Step<T>
 
   private SfnClient sfnClient;
   private CloudWatchEventsClient cwEventsClient;
+  private RuntimeInfo status = new RuntimeInfo();
+  @JsonIgnore
+  private ExecutionListener executionListener; //Will be defined by an in-process executor, if the step is not executed by a Step Function
 
   @Override
   public RuntimeInfo getStatus() {
-    //TODO: Called by the framework node to get the (previously updated & cached) step state .. Status updates come through CW event bridge
-    return null;
+    //NOTE: The state is updated & cached by the framework, status updates come through CW event bridge or the in-process executor
+    return status;
   }
 
   /**
@@ -99,16 +102,41 @@ public abstract class LambdaBasedStep<T extends LambdaBasedStep> extends Step<T>
   @JsonIgnore
   public abstract AsyncExecutionState getExecutionState() throws UnknownStateException;
 
-  private void startExecution() throws Exception {
+  void startExecution() throws Exception {
+    onExecutionStart();
     switch (getExecutionMode()) {
       case SYNC -> execute();
       case ASYNC -> {
         execute(); //TODO: Catch exceptions
+        onExecutionSubmitted();
         registerStateCheckTrigger();
       }
     }
   }
 
+  void resumeExecution() throws Exception {
+    onExecutionStart();
+    resume();
+    if (getExecutionMode() == ExecutionMode.ASYNC)
+      onExecutionSubmitted();
+  }
+
+  /**
+   * Is called each time before this step gets started or resumed.
+   * Subclasses may override this method to reset the transient state of a former execution attempt.
+   */
+  protected void onExecutionStart() {
+    //Nothing to do by default (may be overridden in subclasses)
+  }
+
+  /**
+   * Is called each time after the execution of an ASYNC step has returned from {@link #execute()} or {@link #resume()}.
+   * Subclasses may override this method to report the completion of work that finished while the execution was still submitting it.
+   */
+  protected void onExecutionSubmitted() {
+    //Nothing to do by default (may be overridden in subclasses)
+  }
+
   private CloudWatchEventsClient cwEventsClient() {
     if (cwEventsClient == null) {
       CloudWatchEventsClientBuilder builder = CloudWatchEventsClient.builder();
@@ -155,9 +183,12 @@ public abstract class LambdaBasedStep<T extends LambdaBasedStep> extends Step<T>
     //cwEventsClient().deleteRule(DeleteRuleRequest.builder().name(stateCheckTriggerArn).build());
   }
 
-  private void checkAsyncExecutionState() {
+  void checkAsyncExecutionState() {
     try {
-      switch (getExecutionState()) {
+      AsyncExecutionState executionState = getExecutionState();
+      if (executionState == null)
+        throw new UnknownStateException("The execution state of step " + getId() + " is not known.");
+      switch (executionState) {
         case RUNNING -> reportAsyncHeartbeat();
         case SUCCEEDED -> reportAsyncSuccess();
         case FAILED -> reportAsyncFailure(null);
@@ -187,8 +218,10 @@ public abstract class LambdaBasedStep<T extends LambdaBasedStep> extends Step<T>
     //TODO: synchronize the step state before?
     onAsyncSuccess();
     unregisterStateCheckTrigger();
+    if (executionListener != null)
+      executionListener.onSuccess(this);
     //Report success to SFN
-    if (sfnClient != null)
+    else if (sfnClient != null)
       sfnClient.sendTaskSuccess(SendTaskSuccessRequest.builder().taskToken(taskToken).build());
     else
       //TODO: Remove testing code
@@ -196,22 +229,40 @@ public abstract class LambdaBasedStep<T extends LambdaBasedStep> extends Step<T>
   }
 
   private void reportAsyncHeartbeat() {
+    if (executionListener != null) {
+      executionListener.onHeartbeat(this);
+      return;
+    }
     //Report heartbeat to SFN
     sfnClient.sendTaskHeartbeat(SendTaskHeartbeatRequest.builder().taskToken(taskToken).build());
   }
 
+  /**
+   * Reports a heartbeat while the step is still busy within {@link #execute()} or {@link #resume()}.
+   * Long-running executions have to call this method periodically, as the state checks only start once the execution returned.
+   */
+  protected final void reportExecutionHeartbeat() {
+    if (executionListener != null || sfnClient != null)
+      reportAsyncHeartbeat();
+  }
+
   protected boolean onAsyncFailure(Exception e) {
     //Nothing to do by default (may be overridden in subclasses)
     return false;
   }
 
-  private void reportAsyncFailure(Exception e, boolean retryable) {
+  protected final void reportAsyncFailure(Exception e, boolean retryable) {
     retryable = retryable && onAsyncFailure(e);
     setFailedRetryable(retryable);
     reportAsyncFailure(e);
   }
 
   private void reportAsyncFailure(Exception e) {
+    if (executionListener != null) {
+      unregisterStateCheckTrigger();
+      executionListener.onFailure(this, e);
+      return;
+    }
     if (sfnClient == null)
       throw new RuntimeException(e);
 
@@ -236,10 +287,33 @@ public abstract class LambdaBasedStep<T extends LambdaBasedStep> extends Step<T>
     return ownLambdaArn;
   }
 
+  /**
+   * @return Whether this step is executed by an in-process executor, so callbacks can be received by this instance directly
+   */
+  @JsonIgnore
+  protected final boolean isExecutedInProcess() {
+    return executionListener != null;
+  }
+
+  void setExecutionListener(ExecutionListener executionListener) {
+    this.executionListener = executionListener;
+  }
+
   protected void onRuntimeShutdown() {
     //Nothing to do here. Subclasses may override this method to implement some steps to be executed as a "shutdown-hook".
   }
 
+  /**
+   * Receives the state reports of a step which is executed in-process instead of being executed by a Step Function.
+   */
+  interface ExecutionListener {
+    void onHeartbeat(LambdaBasedStep<?> step);
+
+    void onSuccess(LambdaBasedStep<?> step);
+
+    void onFailure(LambdaBasedStep<?> step, Exception e);
+  }
+
   protected enum ExecutionMode {
     SYNC,
     ASYNC
@@ -291,7 +365,7 @@ public abstract class LambdaBasedStep<T extends LambdaBasedStep> extends Step<T>
         }
         case STATE_CHECK -> request.getStep().checkAsyncExecutionState();
         case SUCCESS_CALLBACK -> request.getStep().reportAsyncSuccess();
-        //TODO: FAILURE_CALLBACK
+        case FAILURE_CALLBACK -> request.getStep().reportAsyncFailure(null, false);
       }
 
       //The lambda call is complete, call the shutdown hook
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.execution.db;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks the async queries of one execution attempt of a {@link DatabaseBasedStep} and decides when the attempt is complete.
+ *
+ * An attempt is complete once the step has finished submitting its queries and the callbacks of all of them have arrived.
+ * Queries for which no callback can be received are "unchecked", their completion can only be detected by the state checks.
+ * The methods which are returning a boolean return true, if the caller is the one who has to report the completion.
+ * The completion of an attempt is reported only once.
+ */
+class AsyncQueryTracker {
+  private final Map<String, String> pendingCallbacks = new ConcurrentHashMap<>();
+  private final AtomicInteger uncheckedQueries = new AtomicInteger();
+  private final AtomicBoolean completionReported = new AtomicBoolean();
+  private volatile boolean submitted;
+
+  /**
+   * Starts a new execution attempt. Callbacks of a former attempt are not of interest anymore.
+   */
+  void reset() {
+    submitted = false;
+    unsubscribeAll();
+    uncheckedQueries.set(0);
+    completionReported.set(false);
+  }
+
+  void expectCallback(String queryId, String dbName) {
+    pendingCallbacks.put(queryId, dbName);
+  }
+
+  /**
+   * Is called if the callback of a query can not be received (anymore), e.g., if the subscription failed.
+   */
+  void dropCallback(String queryId) {
+    if (pendingCallbacks.remove(queryId) != null)
+      uncheckedQueries.incrementAndGet();
+  }
+
+  void addUncheckedQuery() {
+    uncheckedQueries.incrementAndGet();
+  }
+
+  /**
+   * Is called once the step has returned from submitting its queries.
+   * @return true, if the success has to be reported, because all queries have completed already
+   */
+  boolean submissionDone() {
+    submitted = true;
+    return completeIfDone();
+  }
+
+  /**
+   * @return true, if the success has to be reported, because this was the last pending callback
+   */
+  boolean succeeded(String queryId) {
+    return pendingCallbacks.remove(queryId) != null && completeIfDone();
+  }
+
+  /**
+   * @return true, if the failure has to be reported
+   */
+  boolean failed(String queryId) {
+    if (pendingCallbacks.remove(queryId) == null)
+      return false;
+    //No further callbacks are expected, as the attempt is failed
+    unsubscribeAll();
+    return completionReported.compareAndSet(false, true);
+  }
+
+  /**
+   * Is called if the state checks have detected that none of the queries is active anymore.
+   * @return true, if the completion has to be reported
+   */
+  boolean completeUnchecked() {
+    unsubscribeAll();
+    return completionReported.compareAndSet(false, true);
+  }
+
+  boolean isSubmitted() {
+    return submitted;
+  }
+
+  boolean isCompletionReported() {
+    return completionReported.get();
+  }
+
+  boolean hasPendingCallbacks() {
+    return !pendingCallbacks.isEmpty();
+  }
+
+  Set<String> pendingQueryIds() {
+    return Set.copyOf(pendingCallbacks.keySet());
+  }
+
+  private boolean completeIfDone() {
+    return submitted && pendingCallbacks.isEmpty() && uncheckedQueries.get() == 0 && completionReported.compareAndSet(false, true);
+  }
+
+  private void unsubscribeAll() {
+    pendingCallbacks.forEach((queryId, dbName) -> StepCallbackListener.unsubscribe(dbName, queryId));
+    pendingCallbacks.clear();
+  }
+}
@@ -43,6 +43,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
@@ -219,10 +220,27 @@ public class Database extends ExecutionResource {
   }
 
   @Override
-  protected double getMaxVirtualUnits() {
+  public double getMaxVirtualUnits() {
     return getMaxUnits() * DB_MAX_JOB_UTILIZATION_PERCENTAGE;
   }
 
+  /**
+   * The instances are re-created whenever the cache expires, so databases are identified by their name & role.
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (this == o)
+      return true;
+    if (!(o instanceof Database database))
+      return false;
+    return Objects.equals(name, database.name) && role == database.role;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(name, role);
+  }
+
   public enum DatabaseRole {
     READER,
     WRITER
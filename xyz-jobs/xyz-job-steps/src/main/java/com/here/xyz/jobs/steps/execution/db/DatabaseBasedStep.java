@@ -22,23 +22,34 @@ package com.here.xyz.jobs.steps.execution.db;
 import static com.here.xyz.jobs.steps.execution.LambdaBasedStep.LambdaStepRequest.RequestType.FAILURE_CALLBACK;
 import static com.here.xyz.jobs.steps.execution.LambdaBasedStep.LambdaStepRequest.RequestType.SUCCESS_CALLBACK;
 import static com.here.xyz.jobs.steps.execution.db.Database.DatabaseRole.READER;
+import static com.here.xyz.util.db.SQLQuery.QUERY_ID;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonView;
 import com.here.xyz.XyzSerializable;
 import com.here.xyz.jobs.steps.execution.LambdaBasedStep;
 import com.here.xyz.jobs.steps.execution.db.Database.DatabaseRole;
+import com.here.xyz.jobs.steps.execution.db.StepCallbackListener.StepCallback;
 import com.here.xyz.jobs.steps.impl.SpaceBasedStep;
 import com.here.xyz.jobs.steps.resources.ExecutionResource;
 import com.here.xyz.jobs.steps.resources.TooManyResourcesClaimed;
 import com.here.xyz.models.hub.Space.Internal;
 import com.here.xyz.util.db.SQLQuery;
 import com.here.xyz.util.db.datasource.DataSourceProvider;
+import com.here.xyz.util.service.Core;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.dbutils.ResultSetHandler;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -48,10 +59,25 @@ import org.apache.logging.log4j.Logger;
 })
 public abstract class DatabaseBasedStep<T extends DatabaseBasedStep> extends LambdaBasedStep<T> {
   private static final Logger logger = LogManager.getLogger();
+  private static final long CALLBACK_GRACE_PERIOD_MS = 60_000;
+  private static final int LOCAL_QUERY_THREADS = 16;
+  //Runs the async queries of in-process steps on readers, which can not send a callback by themselves
+  private static final ExecutorService localQueryExecutor = new ThreadPoolExecutor(LOCAL_QUERY_THREADS, LOCAL_QUERY_THREADS, 60,
+      TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+        Thread thread = new Thread(runnable, "local-step-query");
+        thread.setDaemon(true);
+        return thread;
+      });
   private double claimedAcuLoad;
   @JsonView(Internal.class)
   private List<RunningQuery> runningQueries = new ArrayList<>();
   private Map<Database, DataSourceProvider> usedDataSourceProviders;
+  @JsonIgnore
+  private Map<ExecutionResource, Double> neededResources;
+  @JsonIgnore
+  private final AsyncQueryTracker asyncQueries = new AsyncQueryTracker();
+  @JsonIgnore
+  private volatile long lastActiveQueryTime;
 
   @Override
   public abstract void execute() throws Exception;
@@ -68,6 +94,22 @@ public abstract class DatabaseBasedStep<T extends DatabaseBasedStep> extends Lam
           logger.error("Error closing connections for database " + db.getName(), e);
         }
       });
+    usedDataSourceProviders = null;
+  }
+
+  @Override
+  protected void onExecutionStart() {
+    super.onExecutionStart();
+    asyncQueries.reset();
+    claimedAcuLoad = 0;
+  }
+
+  @Override
+  protected void onExecutionSubmitted() {
+    super.onExecutionSubmitted();
+    //All queries might have completed already while the step was still submitting further ones
+    if (asyncQueries.submissionDone())
+      reportAsyncSuccess();
   }
 
   protected final void runReadQuery(SQLQuery query, Database db, double estimatedMaxAcuLoad) throws TooManyResourcesClaimed, SQLException {
@@ -100,9 +142,15 @@ public abstract class DatabaseBasedStep<T extends DatabaseBasedStep> extends Lam
 
   private Object executeQuery(SQLQuery query, Database db, double estimatedMaxAcuLoad, ResultSetHandler<?> resultSetHandler,
       boolean isWriteQuery, boolean async) throws TooManyResourcesClaimed, SQLException {
-    if (async)
+    if (async && isExecutedInProcess() && db.getRole() == READER)
+      return runLocally(query, db, estimatedMaxAcuLoad, resultSetHandler);
+
+    if (async) {
       query = wrapQuery(query).withAsync(true);
-    runningQueries.add(new RunningQuery(query.getQueryId(), db.getName(), db.getRole()));
+      subscribeCallback(query.getQueryId(), db);
+      lastActiveQueryTime = Core.currentTimeMillis();
+    }
+    runningQueries.add(new RunningQuery(query.getQueryId(), db.getName(), db.getRole(), async));
 
     if (query.isBatch() && isWriteQuery)
       return query.writeBatch(requestResource(db, estimatedMaxAcuLoad));
@@ -112,6 +160,88 @@ public abstract class DatabaseBasedStep<T extends DatabaseBasedStep> extends Lam
             : query.run(requestResource(db, estimatedMaxAcuLoad), resultSetHandler);
   }
 
+  /**
+   * Runs an async query on a reader within a local thread, if this step is executed in-process.
+   * NOTIFY is not possible on readers, so the local thread reports the callback instead.
+   */
+  private Object runLocally(SQLQuery query, Database db, double estimatedMaxAcuLoad, ResultSetHandler<?> resultSetHandler)
+      throws TooManyResourcesClaimed {
+    DataSourceProvider dataSourceProvider = requestResource(db, estimatedMaxAcuLoad);
+    if (query.getQueryId() == null)
+      query.setQueryId(UUID.randomUUID().toString());
+    String queryId = query.getQueryId();
+    runningQueries.add(new RunningQuery(queryId, db.getName(), db.getRole(), true));
+    asyncQueries.expectCallback(queryId, db.getName());
+    lastActiveQueryTime = Core.currentTimeMillis();
+
+    localQueryExecutor.execute(() -> {
+      StepCallback callback;
+      try {
+        query.run(dataSourceProvider, resultSetHandler);
+        callback = new StepCallback(getJobId(), getId(), queryId, true, null, null);
+      }
+      catch (SQLException e) {
+        callback = new StepCallback(getJobId(), getId(), queryId, false, e.getSQLState(), e.getMessage());
+      }
+      catch (Exception e) {
+        callback = new StepCallback(getJobId(), getId(), queryId, false, null, e.getMessage());
+      }
+      onCallback(callback);
+    });
+    return null;
+  }
+
+  /**
+   * Subscribes for the NOTIFY callback of an async query if this step is executed in-process.
+   * If this step is not executed in-process, the queries report their completion by invoking the step's Lambda Function instead.
+   */
+  private void subscribeCallback(String queryId, Database db) {
+    if (!isExecutedInProcess()) {
+      asyncQueries.addUncheckedQuery();
+      return;
+    }
+    try {
+      asyncQueries.expectCallback(queryId, db.getName());
+      StepCallbackListener.subscribe(db, queryId, this::onCallback);
+    }
+    catch (SQLException e) {
+      asyncQueries.dropCallback(queryId);
+      logger.warn("[{}] Unable to subscribe for the callback of query {} of step {}, falling back to state checks", getJobId(),
+          queryId, getId(), e);
+    }
+  }
+
+  void onCallback(StepCallback callback) {
+    if (callback.success()) {
+      //The step is complete once it has submitted all of its async queries and all of them have completed
+      if (asyncQueries.succeeded(callback.queryId()))
+        reportAsyncSuccess();
+    }
+    else if (asyncQueries.failed(callback.queryId()))
+      reportAsyncFailure(new SQLException(callback.message(), callback.sqlState()), isRetryable(callback.sqlState()));
+  }
+
+  /**
+   * Decides by the SQL state of a failed query, whether a retry of the step may succeed.
+   * That is the case for connection issues, serialization failures, deadlocks, lock timeouts, insufficient resources and
+   * administrative shutdowns. Statement timeouts / cancellations and all errors which are caused by the query itself
+   * (e.g., syntax errors, constraint violations or missing privileges) are not retryable.
+   *
+   * @param sqlState The SQL state of the error
+   * @return Whether the failure is retryable
+   */
+  static boolean isRetryable(String sqlState) {
+    if (sqlState == null || sqlState.length() != 5)
+      return false;
+    return switch (sqlState.substring(0, 2)) {
+      case "08", "53", "58" -> true; //Connection exception, insufficient resources, system error
+      case "40" -> "40001".equals(sqlState) || "40P01".equals(sqlState); //Serialization failure, deadlock detected
+      case "55" -> "55P03".equals(sqlState); //Lock not available
+      case "57" -> sqlState.startsWith("57P"); //Admin / crash shutdown, cannot connect now (but not 57014 query_canceled)
+      default -> false;
+    };
+  }
+
   /**
    * Wraps the provided SQL query provided by the step implementation into an outer query which takes care about
    * success- / error-handling.
@@ -121,23 +251,49 @@ public abstract class DatabaseBasedStep<T extends DatabaseBasedStep> extends Lam
    * Invoking the Lambda Function from within the database is done using the <i>aws_lambda</i> plugin.
    * See: https://docs.aws.amazon.com/AmazonRDS/latest/UserGuide/PostgreSQL-Lambda.html
    *
+   * Additionally, the result is sent as a notification on the channel {@value StepCallbackListener#CHANNEL}, which is received
+   * by the {@link StepCallbackListener} if the step is executed in-process.
+   *
    * @see LambdaBasedStep
    * @param stepQuery The query that was provided by the step implementation of the subclass
    * @return The wrapped query. A query that takes care of reporting the state back to this implementation asynchronously.
    */
   private SQLQuery wrapQuery(SQLQuery stepQuery) {
+    String queryId = UUID.randomUUID().toString();
     return new SQLQuery("""
         DO $$
         BEGIN
           ${{stepQuery}};
           ${{successCallback}}
+          ${{successNotification}}
           EXCEPTION WHEN OTHERS THEN
                 ${{failureCallback}}
+                ${{failureNotification}}
         END$$;
         """)
+        .withQueryId(queryId)
         .withQueryFragment("stepQuery", stepQuery)
         .withQueryFragment("successCallback", buildSuccessCallbackQuery())
-        .withQueryFragment("failureCallback", buildFailureCallbackQuery());
+        .withQueryFragment("successNotification", buildCallbackNotification(queryId, true))
+        .withQueryFragment("failureCallback", buildFailureCallbackQuery())
+        .withQueryFragment("failureNotification", buildCallbackNotification(queryId, false));
+  }
+
+  private SQLQuery buildCallbackNotification(String queryId, boolean success) {
+    //NOTIFY is not possible on readers, in-process steps run their reader queries locally instead (see #runLocally())
+    return new SQLQuery("""
+        IF NOT pg_is_in_recovery() THEN
+          PERFORM pg_notify('${{channel}}', json_build_object('jobId', '${{jobId}}', 'stepId', '${{stepId}}', 'queryId', '${{queryId}}',
+              'success', ${{success}}, 'sqlState', ${{sqlState}}, 'message', ${{message}})::TEXT);
+        END IF;
+        """)
+        .withQueryFragment("channel", StepCallbackListener.CHANNEL)
+        .withQueryFragment("jobId", getJobId())
+        .withQueryFragment("stepId", getId())
+        .withQueryFragment("queryId", queryId)
+        .withQueryFragment("success", String.valueOf(success))
+        .withQueryFragment("sqlState", success ? "NULL" : "SQLSTATE")
+        .withQueryFragment("message", success ? "NULL" : "SQLERRM");
   }
 
   protected SQLQuery buildSuccessCallbackQuery() {
@@ -181,11 +337,67 @@ public abstract class DatabaseBasedStep<T extends DatabaseBasedStep> extends Lam
     });
   }
 
+  /**
+   * Checks whether the async queries of this step are still active on their databases.
+   * As long as at least one of them is active, the step is RUNNING.
+   * Once none of them is active anymore, the completion is reported by the callbacks of the queries.
+   * If this step is executed in-process, queries without a callback are seen as succeeded as soon as they are not
+   * active anymore. If expected callbacks did not arrive within a grace period after the queries have completed, the step is seen
+   * as failed (retryable).
+   */
   @Override
   public AsyncExecutionState getExecutionState() throws UnknownStateException {
-    //TODO: Check running state of all queries
-    //TODO: If the hearbeat is called, but the query is not running anymore, it might be a failure => throw UnknownStateException
-    return null;
+    if (isExecutedInProcess() && (!asyncQueries.isSubmitted() || asyncQueries.isCompletionReported()))
+      //The step is still submitting its queries or the completion was reported already
+      return AsyncExecutionState.RUNNING;
+
+    List<RunningQuery> startedQueries = runningQueries.stream().filter(RunningQuery::async).toList();
+    if (startedQueries.isEmpty())
+      throw new UnknownStateException("Step " + getId() + " did not start any async queries yet.");
+
+    if (isAnyQueryActive(startedQueries)) {
+      lastActiveQueryTime = Core.currentTimeMillis();
+      return AsyncExecutionState.RUNNING;
+    }
+
+    if (!isExecutedInProcess())
+      //The completion will be reported by the callbacks of the queries
+      throw new UnknownStateException("None of the queries of step " + getId() + " is active anymore, awaiting its callbacks.");
+
+    if (!asyncQueries.hasPendingCallbacks())
+      //All remaining queries did not have a callback
+      return asyncQueries.completeUnchecked() ? AsyncExecutionState.SUCCEEDED : AsyncExecutionState.RUNNING;
+
+    if (Core.currentTimeMillis() - lastActiveQueryTime < CALLBACK_GRACE_PERIOD_MS)
+      //The callbacks might still be on their way
+      return AsyncExecutionState.RUNNING;
+
+    Set<String> missingCallbacks = asyncQueries.pendingQueryIds();
+    if (!asyncQueries.completeUnchecked())
+      return AsyncExecutionState.RUNNING;
+    logger.warn("[{}] The callbacks for queries {} of step {} did not arrive.", getJobId(), missingCallbacks, getId());
+    setFailedRetryable(true);
+    return AsyncExecutionState.FAILED;
+  }
+
+  private boolean isAnyQueryActive(List<RunningQuery> queries) throws UnknownStateException {
+    try {
+      Map<Database, List<String>> queryIdsPerDb = new HashMap<>();
+      for (RunningQuery query : queries)
+        queryIdsPerDb.computeIfAbsent(Database.loadDatabase(query.dbName, query.dbRole), db -> new ArrayList<>()).add(query.queryId);
+
+      for (Entry<Database, List<String>> dbQueryIds : queryIdsPerDb.entrySet()) {
+        Database db = dbQueryIds.getKey();
+        boolean active = SQLQuery.buildActiveLabelValuesQuery(QUERY_ID, dbQueryIds.getValue())
+            .run(requestResource(db, 0), rs -> rs.next(), db.getRole() == READER);
+        if (active)
+          return true;
+      }
+      return false;
+    }
+    catch (SQLException | TooManyResourcesClaimed | RuntimeException e) {
+      throw new UnknownStateException("Unable to check the state of the queries of step " + getId(), e);
+    }
   }
 
   @Override
@@ -194,7 +406,9 @@ public abstract class DatabaseBasedStep<T extends DatabaseBasedStep> extends Lam
   }
 
   protected final DataSourceProvider requestResource(Database db, double estimatedMaxAcuLoad) throws TooManyResourcesClaimed {
-    Map<ExecutionResource, Double> neededResources = getAggregatedNeededResources();
+    if (neededResources == null)
+      //The needed resources are not changing during the execution, so they are not re-calculated for each state check
+      neededResources = getAggregatedNeededResources();
     if (!neededResources.containsKey(db) || claimedAcuLoad + estimatedMaxAcuLoad > neededResources.get(db))
       throw new TooManyResourcesClaimed("Step " + getId() + " tried to claim further " + estimatedMaxAcuLoad + " ACUs, "
           + claimedAcuLoad + "/" + neededResources.get(db) + " have been claimed before.");
@@ -209,5 +423,5 @@ public abstract class DatabaseBasedStep<T extends DatabaseBasedStep> extends Lam
     return dsp;
   }
 
-  private record RunningQuery(String queryId, String dbName, DatabaseRole dbRole) implements XyzSerializable {}
+  private record RunningQuery(String queryId, String dbName, DatabaseRole dbRole, boolean async) implements XyzSerializable {}
 }
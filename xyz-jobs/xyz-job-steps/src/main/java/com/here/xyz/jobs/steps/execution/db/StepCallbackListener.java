@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.execution.db;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.here.xyz.XyzSerializable;
+import com.here.xyz.util.db.DatabaseSettings;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+/**
+ * Receives the callbacks of asynchronous step queries, which are sent by the database using <code>NOTIFY</code>.
+ * That way the completion of a query is reported immediately to the step, instead of being detected by the next state check.
+ *
+ * One dedicated connection is held per (writer) database for which callbacks have been subscribed.
+ * Notifications which are sent while the connection is being re-established are lost. In that case, the state checks of the
+ * executor (see {@link DatabaseBasedStep#getExecutionState()}) detect that the according queries are not active anymore, and fail
+ * the step as retryable once the callbacks did not arrive within a grace period.
+ */
+class StepCallbackListener {
+  static final String CHANNEL = "xyz_step_callbacks";
+  private static final Logger logger = LogManager.getLogger();
+  private static final int POLL_TIMEOUT_MS = 1_000;
+  private static final int RECONNECT_DELAY_MS = 5_000;
+  private static final Map<String, DatabaseListener> listeners = new ConcurrentHashMap<>();
+
+  /**
+   * Subscribes for the callback of one query. This method returns once the listener is listening on the database,
+   * so the query may be started afterwards without missing its callback.
+   *
+   * @param db The (writer) database on which the query is running
+   * @param queryId The ID of the query
+   * @param callbackHandler The handler which will be called (once) with the callback of the query
+   */
+  static void subscribe(Database db, String queryId, Consumer<StepCallback> callbackHandler) throws SQLException {
+    listeners.computeIfAbsent(db.getName(), name -> new DatabaseListener(name, db.getDatabaseSettings()))
+        .subscribe(queryId, callbackHandler);
+  }
+
+  static void unsubscribe(String dbName, String queryId) {
+    DatabaseListener listener = listeners.get(dbName);
+    if (listener != null)
+      listener.subscriptions.remove(queryId);
+  }
+
+  /**
+   * The payload of the notification which is sent by the wrapped step query.
+   */
+  record StepCallback(String jobId, String stepId, String queryId, boolean success, String sqlState, String message)
+      implements XyzSerializable {}
+
+  private static class DatabaseListener implements Runnable {
+    private final String dbName;
+    private final DatabaseSettings dbSettings;
+    private final Map<String, Consumer<StepCallback>> subscriptions = new ConcurrentHashMap<>();
+    private Connection connection;
+    private Thread thread;
+
+    private DatabaseListener(String dbName, DatabaseSettings dbSettings) {
+      this.dbName = dbName;
+      this.dbSettings = dbSettings;
+    }
+
+    private void subscribe(String queryId, Consumer<StepCallback> callbackHandler) throws SQLException {
+      subscriptions.put(queryId, callbackHandler);
+      try {
+        connect();
+      }
+      catch (SQLException e) {
+        subscriptions.remove(queryId);
+        throw e;
+      }
+      startThread();
+    }
+
+    private synchronized void startThread() {
+      if (thread != null)
+        return;
+      thread = new Thread(this, "step-callbacks-" + dbName);
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    private synchronized PGConnection connect() throws SQLException {
+      if (connection == null || connection.isClosed()) {
+        connection = DriverManager.getConnection(dbSettings.getJdbcUrl(false), dbSettings.getUser(), dbSettings.getPassword());
+        try (Statement statement = connection.createStatement()) {
+          statement.execute("LISTEN " + CHANNEL);
+        }
+        logger.info("Listening for step callbacks on database {}", dbName);
+      }
+      return connection.unwrap(PGConnection.class);
+    }
+
+    private synchronized void disconnect() {
+      try {
+        if (connection != null)
+          connection.close();
+      }
+      catch (SQLException e) {
+        logger.debug("Error closing the step callback connection of database {}", dbName, e);
+      }
+      connection = null;
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        try {
+          PGNotification[] notifications = connect().getNotifications(POLL_TIMEOUT_MS);
+          if (notifications != null)
+            for (PGNotification notification : notifications)
+              dispatch(notification.getParameter());
+        }
+        catch (SQLException e) {
+          logger.warn("Lost the step callback connection of database {}, reconnecting ...", dbName, e);
+          disconnect();
+          try {
+            Thread.sleep(RECONNECT_DELAY_MS);
+          }
+          catch (InterruptedException ie) {
+            return;
+          }
+        }
+      }
+    }
+
+    private void dispatch(String payload) {
+      try {
+        StepCallback callback = XyzSerializable.deserialize(payload, StepCallback.class);
+        //Callbacks of queries which have been started by other nodes are ignored
+        Consumer<StepCallback> callbackHandler = subscriptions.remove(callback.queryId());
+        if (callbackHandler != null)
+          callbackHandler.accept(callback);
+      }
+      catch (JsonProcessingException e) {
+        logger.error("Received invalid step callback on database {}: {}", dbName, payload, e);
+      }
+      catch (RuntimeException e) {
+        logger.error("Error handling step callback on database {}: {}", dbName, payload, e);
+      }
+    }
+  }
+}
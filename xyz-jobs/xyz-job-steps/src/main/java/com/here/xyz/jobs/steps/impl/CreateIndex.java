@@ -22,6 +22,12 @@ package com.here.xyz.jobs.steps.impl;
 import static com.here.xyz.events.ContextAwareEvent.SpaceContext.EXTENSION;
 import static com.here.xyz.jobs.steps.execution.db.Database.DatabaseRole.WRITER;
 import static com.here.xyz.jobs.steps.execution.db.Database.loadDatabase;
+import static com.here.xyz.util.db.pg.XyzSpaceTableHelper.Index.CREATED_AT;
+import static com.here.xyz.util.db.pg.XyzSpaceTableHelper.Index.GEO;
+import static com.here.xyz.util.db.pg.XyzSpaceTableHelper.Index.ID;
+import static com.here.xyz.util.db.pg.XyzSpaceTableHelper.Index.ID_VERSION;
+import static com.here.xyz.util.db.pg.XyzSpaceTableHelper.Index.UPDATED_AT;
+import static com.here.xyz.util.db.pg.XyzSpaceTableHelper.Index.VIZ;
 import static com.here.xyz.util.db.pg.XyzSpaceTableHelper.buildSpaceTableIndexQuery;
 
 import com.here.xyz.jobs.steps.execution.db.Database;
@@ -29,6 +35,7 @@ import com.here.xyz.jobs.steps.resources.Load;
 import com.here.xyz.jobs.steps.resources.TooManyResourcesClaimed;
 import com.here.xyz.models.hub.Space;
 import com.here.xyz.responses.StatisticsResponse;
+import com.here.xyz.util.db.SQLQuery;
 import com.here.xyz.util.db.pg.XyzSpaceTableHelper.Index;
 import com.here.xyz.util.web.HubWebClient.HubWebClientException;
 import java.sql.SQLException;
@@ -37,10 +44,28 @@ import java.util.List;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+/**
+ * Creates one index of a space, e.g. after an import.
+ * The index build gets its own share of <code>maintenance_work_mem</code> and parallel maintenance workers according to the
+ * virtual units it claims on the database. The order and parallelism of multiple index builds is planned by the JobCompiler
+ * using {@link #estimatedRelativeCost(Index)}, which also decides about the ACUs of each build depending on the capacity of the
+ * database and the number of builds running in parallel.
+ *
+ * While the index is being built, its progress is taken from <code>pg_stat_progress_create_index</code> on each state check
+ * and is reported as the estimated progress of the step's status.
+ */
 public class CreateIndex extends SpaceBasedStep<CreateIndex> {
   private static final Logger logger = LogManager.getLogger();
+  public static final int DEFAULT_ACUS_PER_BUILD = 4;
+  //The bounds of the ACUs which are claimed by one index build
+  public static final int MIN_ACUS_PER_BUILD = 2;
+  public static final int MAX_ACUS_PER_BUILD = 16;
+  //Aurora provides ~2 GiB of memory per ACU, a quarter of it is used for the index build
+  private static final int MAINTENANCE_WORK_MEM_MB_PER_ACU = 512;
+  private static final int MAX_PARALLEL_MAINTENANCE_WORKERS = 2;
   private Index index;
-  private Space space;
+  private int acus = DEFAULT_ACUS_PER_BUILD;
+  private Database db;
 
   @Override
   public List<Load> getNeededResources() {
@@ -74,8 +99,38 @@ public class CreateIndex extends SpaceBasedStep<CreateIndex> {
   }
 
   private int calculateNeededAcus(long featureCount, long byteSize) {
-    //TODO: Also take into account the index type
-    return 20;
+    //The memory settings of the build are derived from the claimed ACUs, so the claim does not depend on the data size
+    return acus;
+  }
+
+  /**
+   * The ACUs one index build may claim, if the specified number of ACUs is available for it.
+   *
+   * @param availableAcus The ACUs of the database which are available for the build
+   * @return The ACUs to be claimed by the build
+   */
+  public static int acusPerBuild(double availableAcus) {
+    return (int) Math.max(MIN_ACUS_PER_BUILD, Math.min(MAX_ACUS_PER_BUILD, Math.floor(availableAcus)));
+  }
+
+  /**
+   * The cost of building the specified index relative to a simple BTREE index on a scalar column.
+   * Can be used to plan the order of multiple index builds, so that the most expensive builds are started first.
+   *
+   * @param index The index
+   * @return The relative cost of the index build
+   */
+  public static double estimatedRelativeCost(Index index) {
+    if (index == GEO)
+      return 4;
+    if (index == UPDATED_AT || index == CREATED_AT)
+      //Expression on the JSONB document
+      return 3;
+    if (index == VIZ)
+      return 2;
+    if (index == ID_VERSION || index == ID)
+      return 1.5;
+    return 1;
   }
 
   @Override
@@ -86,9 +141,75 @@ public class CreateIndex extends SpaceBasedStep<CreateIndex> {
     long featureCount = spaceStatistics.getCount().getValue();
     long byteSize = spaceStatistics.getDataSize().getValue();
     logger.info("Getting storage database for space " + getSpaceId());
-    Database db = loadDatabase(space.getStorage().getId(), WRITER);
-    logger.info("Creating the index " + index + " for space " + getSpaceId() + " ...");
-    runWriteQuery(buildSpaceTableIndexQuery(getSchema(db), getRootTableName(space), index), db, calculateNeededAcus(featureCount, byteSize));
+    db = loadDatabase(space.getStorage().getId(), WRITER);
+    logger.info("Creating the index " + index + " for space " + getSpaceId() + " (" + featureCount + " features) ...");
+    runWriteQuery(buildIndexBuildQuery(getSchema(db), getRootTableName(space)), db, calculateNeededAcus(featureCount, byteSize));
+  }
+
+  /**
+   * Builds the index creation query including the settings for the build.
+   * The settings are only valid for the transaction of the async query, so they don't leak into other usages of the connection.
+   */
+  private SQLQuery buildIndexBuildQuery(String schema, String table) {
+    boolean parallel = index != GEO; //GIST indices can't be built in parallel
+    return SQLQuery.join(List.of(
+        new SQLQuery("SET LOCAL application_name = '${{applicationName}}'")
+            .withQueryFragment("applicationName", getApplicationName()),
+        new SQLQuery("SET LOCAL maintenance_work_mem = '${{maintenanceWorkMem}}MB'")
+            .withQueryFragment("maintenanceWorkMem", String.valueOf(acus * MAINTENANCE_WORK_MEM_MB_PER_ACU)),
+        new SQLQuery("SET LOCAL max_parallel_maintenance_workers = ${{maxParallelWorkers}}")
+            .withQueryFragment("maxParallelWorkers", String.valueOf(parallel ? MAX_PARALLEL_MAINTENANCE_WORKERS : 0)),
+        buildSpaceTableIndexQuery(schema, table, index)), ";");
+  }
+
+  /**
+   * The application name identifies the database session of the index build, so its progress can be found.
+   */
+  private String getApplicationName() {
+    return "xyz_create_index_" + getJobId() + "_" + getId();
+  }
+
+  @Override
+  public AsyncExecutionState getExecutionState() throws UnknownStateException {
+    AsyncExecutionState state = super.getExecutionState();
+    if (state == AsyncExecutionState.RUNNING)
+      updateProgress();
+    return state;
+  }
+
+  /**
+   * Updates the estimated progress of the step. The progress of the build is the average of the progress of its table scan
+   * and the progress of loading the tuples into the index.
+   */
+  private void updateProgress() {
+    if (db == null)
+      //The step was not started by this instance
+      return;
+
+    try {
+      Float progress = new SQLQuery("SELECT p.blocks_done, p.blocks_total, p.tuples_done, p.tuples_total "
+          + "FROM pg_stat_progress_create_index p JOIN pg_stat_activity a USING (pid) WHERE a.application_name = #{applicationName}")
+          .withNamedParameter("applicationName", getApplicationName())
+          .run(requestResource(db, 0), rs -> rs.next()
+              ? (fraction(rs.getLong("blocks_done"), rs.getLong("blocks_total"))
+                  + fraction(rs.getLong("tuples_done"), rs.getLong("tuples_total"))) / 2
+              : null);
+      if (progress != null)
+        getStatus().setEstimatedProgress(progress);
+    }
+    catch (SQLException | TooManyResourcesClaimed e) {
+      logger.warn("[{}] Unable to check the progress of the creation of index {}", getJobId(), index, e);
+    }
+  }
+
+  private static float fraction(long done, long total) {
+    return total > 0 ? Math.min(1f, (float) done / total) : 0f;
+  }
+
+  @Override
+  protected void onAsyncSuccess() {
+    getStatus().setEstimatedProgress(1f);
+    super.onAsyncSuccess();
   }
 
   @Override
@@ -112,4 +233,20 @@ public class CreateIndex extends SpaceBasedStep<CreateIndex> {
     setIndex(index);
     return this;
   }
+
+  /**
+   * @return The ACUs which are claimed by the index build, its maintenance_work_mem is sized accordingly
+   */
+  public int getAcus() {
+    return acus;
+  }
+
+  public void setAcus(int acus) {
+    this.acus = Math.max(MIN_ACUS_PER_BUILD, Math.min(MAX_ACUS_PER_BUILD, acus));
+  }
+
+  public CreateIndex withAcus(int acus) {
+    setAcus(acus);
+    return this;
+  }
 }
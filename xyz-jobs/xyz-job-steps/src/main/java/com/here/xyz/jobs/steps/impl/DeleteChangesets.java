@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.impl;
+
+import static com.here.xyz.jobs.steps.execution.db.Database.DatabaseRole.WRITER;
+import static com.here.xyz.jobs.steps.execution.db.Database.loadDatabase;
+import static com.here.xyz.util.db.pg.XyzSpaceTableHelper.PARTITION_SIZE;
+
+import com.here.xyz.jobs.steps.execution.db.Database;
+import com.here.xyz.jobs.steps.resources.Load;
+import com.here.xyz.jobs.steps.resources.TooManyResourcesClaimed;
+import com.here.xyz.models.hub.Space;
+import com.here.xyz.responses.StatisticsResponse;
+import com.here.xyz.util.db.SQLQuery;
+import com.here.xyz.util.db.datasource.PooledDataSources;
+import com.here.xyz.util.service.BaseHttpServerVerticle.ValidationException;
+import com.here.xyz.util.web.HubWebClient.HubWebClientException;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * This step deletes all changesets of a space which are older than the specified minimum version.
+ * Other than the purging during the maintenance, the rows are deleted incrementally in small batches (see xyz_purge_changesets())
+ * and the deletion is throttled whenever the replication lag of the space's database grows too large.
+ * That way the write latency of other clients of the same database is not degraded.
+ * The number of rows deleted so far is tracked in a progress table, which gets updated along with each batch.
+ *
+ * Same as for the deletion of changesets through the connector, the minimum version must neither be greater than the version of
+ * the oldest tag nor than the HEAD version of the space.
+ */
+public class DeleteChangesets extends SpaceBasedStep<DeleteChangesets> {
+  private static final Logger logger = LogManager.getLogger();
+  private static final String SPACE_META_TABLE_FQN = "xyz_config.space_meta";
+  private static final String PURGE_PROGRESS_SUFFIX = "_purge_progress";
+  private static final long MAX_LAG_BYTES = 64 * 1024 * 1024;
+  private static final long PURGED_BYTES_PER_SECOND = 4 * 1024 * 1024;
+  private static final int MIN_TIMEOUT_SECONDS = 3600;
+  private static final int MAX_TIMEOUT_SECONDS = 12 * 3600;
+  private long minVersion;
+  private int batchSize = 10_000;
+  private long deletedRows;
+  private Database db;
+
+  @Override
+  public List<Load> getNeededResources() {
+    try {
+      Database db = loadDatabase(loadSpace(getSpaceId()).getStorage().getId(), WRITER);
+      return Collections.singletonList(new Load().withResource(db).withEstimatedVirtualUnits(calculateNeededAcus()));
+    }
+    catch (HubWebClientException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public int getTimeoutSeconds() {
+    try {
+      //The whole table is the upper bound of what could be purged, the throttling might slow down the deletion on top
+      Long dataSize = loadSpaceStatistics(getSpaceId(), null).getDataSize().getValue();
+      long estimatedSeconds = 2 * (dataSize == null ? 0 : dataSize) / PURGED_BYTES_PER_SECOND;
+      return (int) Math.min(MAX_TIMEOUT_SECONDS, Math.max(MIN_TIMEOUT_SECONDS, estimatedSeconds));
+    }
+    catch (HubWebClientException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public String getDescription() {
+    return "Deletes the changesets of space " + getSpaceId() + " which are older than version " + minVersion;
+  }
+
+  @Override
+  public void deleteOutputs() {
+    //Nothing to do here as no outputs are produced by this step
+  }
+
+  @Override
+  public boolean validate() throws ValidationException {
+    super.validate();
+    if (minVersion <= 0)
+      throw new ValidationException("The minimum version must be greater than 0.");
+    if (batchSize <= 0)
+      throw new ValidationException("The batch size must be greater than 0.");
+    validateMinVersion();
+    //Return true as no user inputs are needed
+    return true;
+  }
+
+  private void validateMinVersion() throws ValidationException {
+    try {
+      StatisticsResponse statistics = loadSpaceStatistics(getSpaceId(), null);
+      validateMinVersion(minVersion, statistics.getMinTagVersion() == null ? null : statistics.getMinTagVersion().getValue(),
+          statistics.getMaxVersion().getValue());
+    }
+    catch (HubWebClientException e) {
+      throw new ValidationException("Error loading the statistics of space " + getSpaceId(), e);
+    }
+  }
+
+  /**
+   * Checks whether the changesets older than the specified minimum version may be deleted.
+   *
+   * @param minVersion The new minimum version of the space
+   * @param minTagVersion The version of the oldest tag of the space or <code>null</code> if the space has no tags
+   * @param headVersion The HEAD version of the space
+   * @throws ValidationException If the deletion would delete a tagged version or the HEAD version
+   */
+  static void validateMinVersion(long minVersion, Long minTagVersion, long headVersion) throws ValidationException {
+    if (minTagVersion != null && minTagVersion < minVersion)
+      throw new ValidationException("Tag for version " + minTagVersion + " exists!");
+    if (minVersion > headVersion)
+      throw new ValidationException("Can not delete all changesets older than version " + minVersion
+          + " as it would also delete the HEAD (" + headVersion + ") version. Minimum version which may specified as new minimum "
+          + "version is HEAD.");
+  }
+
+  private int calculateNeededAcus() {
+    //Only one batch is deleted at a time
+    return 1;
+  }
+
+  @Override
+  public void execute() throws Exception {
+    //A tag could have been created since the validation
+    validateMinVersion();
+
+    logger.info("Deleting changesets of space {} older than version {} ...", getSpaceId(), minVersion);
+    Space space = loadSpace(getSpaceId());
+    db = loadDatabase(space.getStorage().getId(), WRITER);
+    String schema = getSchema(db), table = getRootTableName(space);
+
+    //The progress table has to exist before the purge starts, as the batches are committed through another connection
+    runWriteQuerySync(buildCreateProgressTableQuery(schema, table), db, 0);
+    runWriteQuery(SQLQuery.join(List.of(buildPurgeChangesetsQuery(schema, table, loadPassword(db)),
+        buildUpdateMinAvailableVersionQuery(schema, table)), ";"), db, calculateNeededAcus());
+  }
+
+  @Override
+  public AsyncExecutionState getExecutionState() throws UnknownStateException {
+    AsyncExecutionState state = super.getExecutionState();
+    if (state == AsyncExecutionState.RUNNING && db != null)
+      //Only check the progress if the step was started by this instance
+      updateDeletedRows();
+    return state;
+  }
+
+  private void updateDeletedRows() {
+    try {
+      Space space = loadSpace(getSpaceId());
+      Long deletedRows = buildReadProgressQuery(getSchema(db), getRootTableName(space))
+          .run(requestResource(db, 0), rs -> rs.next() ? rs.getLong("deleted_rows") : null);
+      if (deletedRows != null)
+        this.deletedRows = deletedRows;
+    }
+    catch (SQLException | TooManyResourcesClaimed | HubWebClientException e) {
+      logger.warn("[{}] Unable to check the progress of the deletion of changesets of space {}", getJobId(), getSpaceId(), e);
+    }
+  }
+
+  @Override
+  protected void onAsyncSuccess() {
+    try {
+      Space space = loadSpace(getSpaceId());
+      if (db == null)
+        db = loadDatabase(space.getStorage().getId(), WRITER);
+      String schema = getSchema(db), table = getRootTableName(space);
+      updateDeletedRows();
+      runWriteQuerySync(buildDropProgressTableQuery(schema, table), db, 0);
+      logger.info("[{}] Deleted {} rows of space {} older than version {}", getJobId(), deletedRows, getSpaceId(), minVersion);
+    }
+    catch (SQLException | TooManyResourcesClaimed | HubWebClientException e) {
+      //The changesets have been deleted already, a remaining progress table does not harm
+      logger.warn("[{}] Unable to clean up the progress of the deletion of changesets of space {}", getJobId(), getSpaceId(), e);
+    }
+    super.onAsyncSuccess();
+  }
+
+  private String loadPassword(Database db) throws TooManyResourcesClaimed {
+    //The batches are committed through a loopback connection, which authenticates the same way as the async query itself
+    if (requestResource(db, 0) instanceof PooledDataSources pooledDataSources)
+      return pooledDataSources.getDatabaseSettings().getPassword();
+    throw new IllegalStateException("Changesets can only be purged using an instance of PooledDataSources as DataSourceProvider");
+  }
+
+  private SQLQuery buildCreateProgressTableQuery(String schema, String table) {
+    //A resumed purge keeps on counting
+    return new SQLQuery("CREATE TABLE IF NOT EXISTS ${schema}.${table} (deleted_rows BIGINT NOT NULL); "
+        + "INSERT INTO ${schema}.${table} (deleted_rows) SELECT 0 WHERE NOT EXISTS (SELECT 1 FROM ${schema}.${table})")
+        .withVariable("schema", schema)
+        .withVariable("table", table + PURGE_PROGRESS_SUFFIX);
+  }
+
+  private SQLQuery buildReadProgressQuery(String schema, String table) {
+    return new SQLQuery("SELECT deleted_rows FROM ${schema}.${table}")
+        .withVariable("schema", schema)
+        .withVariable("table", table + PURGE_PROGRESS_SUFFIX);
+  }
+
+  private SQLQuery buildDropProgressTableQuery(String schema, String table) {
+    return new SQLQuery("DROP TABLE IF EXISTS ${schema}.${table}")
+        .withVariable("schema", schema)
+        .withVariable("table", table + PURGE_PROGRESS_SUFFIX);
+  }
+
+  private SQLQuery buildPurgeChangesetsQuery(String schema, String table, String password) {
+    return new SQLQuery("PERFORM xyz_purge_changesets(#{schema}, #{table}, #{partitionSize}, #{minVersion}, #{batchSize}, "
+        + "#{maxLagBytes}, #{password}, #{progressTable})")
+        .withNamedParameter("schema", schema)
+        .withNamedParameter("table", table)
+        .withNamedParameter("partitionSize", PARTITION_SIZE)
+        .withNamedParameter("minVersion", minVersion)
+        .withNamedParameter("batchSize", batchSize)
+        .withNamedParameter("maxLagBytes", MAX_LAG_BYTES)
+        .withNamedParameter("password", password)
+        .withNamedParameter("progressTable", table + PURGE_PROGRESS_SUFFIX);
+  }
+
+  private SQLQuery buildUpdateMinAvailableVersionQuery(String schema, String table) {
+    return new SQLQuery("UPDATE " + SPACE_META_TABLE_FQN + " SET meta = meta || jsonb_build_object('minAvailableVersion', "
+        + "greatest(COALESCE((meta->'minAvailableVersion')::BIGINT, 0), #{minVersion})) WHERE h_id = #{table} AND schem = #{schema}")
+        .withNamedParameter("minVersion", minVersion)
+        .withNamedParameter("schema", schema)
+        .withNamedParameter("table", table);
+  }
+
+  @Override
+  public void resume() throws Exception {
+    //Already deleted rows stay deleted, so simply continue with the remaining ones
+    execute();
+  }
+
+  /**
+   * @return The number of rows which have been deleted by this step so far
+   */
+  public long getDeletedRows() {
+    return deletedRows;
+  }
+
+  public long getMinVersion() {
+    return minVersion;
+  }
+
+  public void setMinVersion(long minVersion) {
+    this.minVersion = minVersion;
+  }
+
+  public DeleteChangesets withMinVersion(long minVersion) {
+    setMinVersion(minVersion);
+    return this;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  public DeleteChangesets withBatchSize(int batchSize) {
+    setBatchSize(batchSize);
+    return this;
+  }
+}
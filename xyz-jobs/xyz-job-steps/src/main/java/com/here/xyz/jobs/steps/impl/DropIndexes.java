@@ -90,10 +90,9 @@ public class DropIndexes extends SpaceBasedStep<DropIndexes> {
               return result;
             });
 
-    if (indexes.isEmpty()) {
-      reportAsyncSuccess();
+    if (indexes.isEmpty())
+      //No async query is started, so the step is complete once this method returns
       logger.info("No indices to found. None will be dropped for space " + getSpaceId());
-    }
     else {
       logger.info("Dropping the following indices for space " + getSpaceId() + ": " + indexes);
       List<SQLQuery> dropQueries = buildSpaceTableDropIndexQueries(getSchema(db), indexes);
@@ -23,24 +23,32 @@ import static com.here.xyz.events.ContextAwareEvent.SpaceContext.EXTENSION;
 import static com.here.xyz.jobs.steps.execution.db.Database.DatabaseRole.WRITER;
 import static com.here.xyz.jobs.steps.execution.db.Database.loadDatabase;
 import static com.here.xyz.util.web.HubWebClient.HubWebClientException;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import com.here.xyz.jobs.RuntimeInfo;
+import com.here.xyz.jobs.steps.Config;
+import com.here.xyz.jobs.steps.S3Client;
 import com.here.xyz.jobs.steps.execution.db.Database;
-import com.here.xyz.jobs.steps.inputs.Input;
-import com.here.xyz.jobs.steps.inputs.UploadUrl;
+import com.here.xyz.jobs.steps.impl.imports.CopyImporter;
+import com.here.xyz.jobs.steps.impl.imports.InputSource;
+import com.here.xyz.jobs.steps.impl.imports.InputSource.InputFile;
 import com.here.xyz.jobs.steps.outputs.FeatureStatistics;
 import com.here.xyz.jobs.steps.resources.Load;
 import com.here.xyz.jobs.steps.resources.TooManyResourcesClaimed;
 import com.here.xyz.models.hub.Space;
 import com.here.xyz.responses.StatisticsResponse;
+import com.here.xyz.util.TransferTelemetry;
 import com.here.xyz.util.db.SQLQuery;
 import com.here.xyz.util.service.BaseHttpServerVerticle.ValidationException;
-import io.vertx.core.json.JsonObject;
+import java.io.IOException;
+import java.net.URI;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -48,22 +56,37 @@ import org.apache.logging.log4j.Logger;
 /**
  * This step imports a set of user provided inputs and imports their data into a specified space.
  * This step produces exactly one output of type {@link FeatureStatistics}.
+ *
+ * The state of the import is kept in a job data table next to the space table. It contains the version which is written by the
+ * import and one row for each chunk of the inputs which has been imported completely. That way, a resumed import writes the same
+ * version and only imports the chunks which have not been finished before.
+ *
+ * The inputs are streamed into the space table by the step itself only if it is executed by the local job executor or within a
+ * container runtime, as the import may take much longer than the maximum execution time of a Lambda function.
+ * Otherwise, the import is delegated to the database, which reads the inputs from S3 using several async queries.
  */
 public class ImportFilesToSpace extends SpaceBasedStep<ImportFilesToSpace> {
   private static final Logger logger = LogManager.getLogger();
+  private static final long BYTES_PER_IMPORT_THREAD = 256L * 1024 * 1024;
+  private static final int MAX_IMPORT_THREADS = 16;
+  //A conservative estimation of the throughput of one import thread, used to derive the timeout
+  private static final long BYTES_PER_SECOND_PER_IMPORT_THREAD = 2L * 1024 * 1024;
+  private static final long HEARTBEAT_INTERVAL_MS = 60_000;
   private static final String JOB_DATA_SUFFIX = "_job_data";
-  private static int importThreadCnt = 2;
+  private static final String IMPORT_FILES_SUFFIX = "_import_files";
+  private static final String VERSION_KEY = "#version";
+  private Format format = Format.CSV_JSON_WKB;
+  private TransferTelemetry telemetry;
 
   @Override
   public List<Load> getNeededResources() {
     try {
-      StatisticsResponse statistics = loadSpaceStatistics(getSpaceId(), EXTENSION);
-      int acus = calculateNeededAcus(statistics.getCount().getValue(), statistics.getDataSize().getValue());
+      int acus = calculateNeededAcus(loadImportFiles().stream().mapToLong(InputFile::byteSize).sum());
       Database db = loadDatabase(loadSpace(getSpaceId()).getStorage().getId(), WRITER);
 
       return Collections.singletonList(new Load().withResource(db).withEstimatedVirtualUnits(acus));
     }
-    catch (HubWebClientException e) {
+    catch (HubWebClientException | IOException e) {
       //TODO: log error
       //TODO: is the step failed? Retry later? It could be a retryable error as the prior validation succeeded, depending on the type of HubWebClientException
       throw new RuntimeException(e);
@@ -72,8 +95,15 @@ public class ImportFilesToSpace extends SpaceBasedStep<ImportFilesToSpace> {
 
   @Override
   public int getTimeoutSeconds() {
-    //TODO: Return an estimation based on the input data size
-    return 24 * 3600;
+    try {
+      long inputByteSize = loadImportFiles().stream().mapToLong(InputFile::byteSize).sum();
+      long importSeconds = inputByteSize / (calculateNeededAcus(inputByteSize) * BYTES_PER_SECOND_PER_IMPORT_THREAD);
+      //Leave enough room for the preparation and for compressed inputs
+      return (int) Math.min(24 * 3600, Math.max(3600, 2 * importSeconds));
+    }
+    catch (IOException e) {
+      throw new RuntimeException(e);
+    }
   }
 
   @Override
@@ -105,88 +135,105 @@ public class ImportFilesToSpace extends SpaceBasedStep<ImportFilesToSpace> {
     return true;
   }
 
-  private int calculateNeededAcus(long featureCount, long byteSize) {
-    // TODO: Calculate based on file size
-    return 0;
+  /**
+   * Each import thread keeps one COPY running on the writer at a time, so the number of threads scales with the claimed ACUs.
+   */
+  private int calculateNeededAcus(long inputByteSize) {
+    return (int) Math.max(1, Math.min(MAX_IMPORT_THREADS, (inputByteSize + BYTES_PER_IMPORT_THREAD - 1) / BYTES_PER_IMPORT_THREAD));
   }
 
-  @Override
-  public void execute(){
-    logger.info("Importing input files from s3://" + bucketName() + "/" + inputS3Prefix() + " in region " + bucketRegion()
-        + " into space " + getSpaceId() + " ...");
-
-    try {
-
-      logger.info("Loading space config for space {}", getSpaceId());
-      Space space = loadSpace(getSpaceId());
-      logger.info("Getting storage database for space {}", getSpaceId());
-      Database db = loadDatabase(space.getStorage().getId(), WRITER);
-
-      //Prepare
-      logger.info("Set readOnly for space{}" + getSpaceId());
-      hubWebClient().patchSpace(getSpaceId(), new HashMap<>(){{ put("readOnly", true);}});
-
-      logger.info("Prepare - Retrieve new Version from {}" + getSpaceId());
-      long newVersion = runReadQuerySync(buildVersionSequenceIncrement(getSchema(db), getRootTableName(space)), db, calculateNeededAcus(0,0),
-              rs -> {
-                rs.next();
-                return rs.getLong(1);
-              });
+  private URI inputLocation() {
+    return Config.instance.JOB_INPUT_LOCATION != null ? Config.instance.JOB_INPUT_LOCATION : URI.create("s3://" + bucketName());
+  }
 
-      logger.info("Prepare - Create tmp import-trigger table for {}" + getSpaceId());
-      runWriteQuerySync(buildCreatImportTrigger(getSchema(db), getRootTableName(space), "ANONYMOUS",newVersion), db, calculateNeededAcus(0,0));
+  private InputSource inputSource() {
+    return InputSource.forLocation(inputLocation(), S3Client.getInstance().getClient());
+  }
 
-      logger.info("Prepare - Create tmp-import-table for {}" + getSpaceId());
-      runWriteQuerySync(buildTemporaryTableForImportQuery(getSchema(db), getRootTableName(space)), db, calculateNeededAcus(0,0));
+  private boolean isServiceSideImport() {
+    return isExecutedInProcess() || Config.instance.STEPS_IN_CONTAINER_RUNTIME;
+  }
 
-      logger.info("Prepare - Fill tmp import table {}" + getSpaceId());
-      fillTemporaryTableWithInputs(db, getRootTableName(space), loadInputs(), bucketName(), bucketRegion());
+  private List<InputFile> loadImportFiles() throws IOException {
+    return inputSource().listFiles(inputS3Prefix() + "/");
+  }
 
-      //Execute
-      for (int i = 0; i < importThreadCnt; i++) {
-        runReadQuery(buildImportQuery(getSchema(db), getRootTableName(space), "jsonwkb", i), db, calculateNeededAcus(0,0));
-      }
+  @Override
+  public void execute() throws Exception {
+    logger.info("Importing input files of job {} into space {} ...", getJobId(), getSpaceId());
+
+    logger.info("Loading space config for space {}", getSpaceId());
+    Space space = loadSpace(getSpaceId());
+    logger.info("Getting storage database for space {}", getSpaceId());
+    Database db = loadDatabase(space.getStorage().getId(), WRITER);
+    String schema = getSchema(db), table = getRootTableName(space);
+
+    //Prepare
+    logger.info("Set readOnly for space {}", getSpaceId());
+    hubWebClient().patchSpace(getSpaceId(), new HashMap<>(){{ put("readOnly", true);}});
+
+    logger.info("Prepare - Create job data table for {}", getSpaceId());
+    runWriteQuerySync(buildCreateJobDataTableQuery(schema, table), db, 0);
+
+    logger.info("Prepare - Retrieve new Version from {}", getSpaceId());
+    //A resumed import keeps the version which was retrieved by its first execution
+    long newVersion = runReadQuerySync(buildRetrieveImportVersionQuery(schema, table), db, 0,
+            rs -> {
+              rs.next();
+              return rs.getLong(1);
+            });
+
+    logger.info("Prepare - Create tmp import-trigger for {}", getSpaceId());
+    runWriteQuerySync(buildCreatImportTrigger(schema, table, "ANONYMOUS", newVersion), db, 0);
+
+    //Execute
+    List<InputFile> inputs = loadImportFiles();
+    int threadCount = calculateNeededAcus(inputs.stream().mapToLong(InputFile::byteSize).sum());
+    if (isServiceSideImport())
+      importFromService(db, schema, table, inputs, threadCount);
+    else
+      importInDatabase(db, schema, table, inputs, threadCount);
+  }
 
-      //TODO: remove - simulates async processing <-- maybe better move it into the JobPlayground between the steps
-      try {
-          Thread.sleep(2000l);
-      } catch (InterruptedException e) {
-          throw new RuntimeException(e);
-      }
-      //TODO: remove - used only for mocking
-      onAsyncSuccess();
+  private void importFromService(Database db, String schema, String table, List<InputFile> inputs, int threadCount) throws Exception {
+    logger.info("Execute - Stream {} input files into {}", inputs.size(), getSpaceId());
+    telemetry = new TransferTelemetry();
+    //The state checks only start once this method returned, so the heartbeats are reported from here in the meantime
+    ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor();
+    heartbeats.scheduleAtFixedRate(this::reportExecutionHeartbeat, HEARTBEAT_INTERVAL_MS, HEARTBEAT_INTERVAL_MS, MILLISECONDS);
+    try {
+      FeatureStatistics statistics = new CopyImporter(requestResource(db, threadCount), inputSource(), format)
+          .withThreadCount(threadCount)
+          .withTelemetry(telemetry)
+          .withJobDataTable(table + JOB_DATA_SUFFIX)
+          .importFiles(inputs, schema, table);
+      registerOutputs(List.of(statistics), true);
     }
-    catch (SQLException | TooManyResourcesClaimed | HubWebClientException e){
-      //@TODO: ErrorHandling! <- Is it necessary here? Anything that should be catched / transformed?
-      logger.warn("Error!",e); //TODO: Can be removed, no need to log here, as the framework will log all exceptions thrown by #execute()
-      throw new RuntimeException(e); //TODO: If nothing should be handled here, better rethrow the original exception
+    finally {
+      heartbeats.shutdownNow();
     }
+    //No async query was started, so the step completes as soon as this method returns
   }
 
-  private void fillTemporaryTableWithInputs(Database db, String table, List<Input> inputs, String bucketName, String bucketRegion) throws SQLException, TooManyResourcesClaimed {
-    List<SQLQuery> queryList = new ArrayList<>();
-    for (Input input : inputs){
-      if(input instanceof UploadUrl uploadUrl) {
-        JsonObject data = new JsonObject()
-                //.put("compressed", inputs.isCompressed())
-                .put("filesize", uploadUrl.getByteSize());
-
-        queryList.add(
-                new SQLQuery("""                
-                            INSERT INTO  ${schema}.${table} (s3_uri, state, data)
-                                VALUES (aws_commons.create_s3_uri(#{bucketName},#{s3Key},#{bucketRegion}), #{state}, #{data}::jsonb);
-                        """)
-                        .withVariable("schema", getSchema(db))
-                        .withVariable("table", table + JOB_DATA_SUFFIX)
-                        .withNamedParameter("s3Key", input.getS3Key())
-                        .withNamedParameter("bucketName", bucketName)
-                        .withNamedParameter("bucketRegion", bucketRegion)
-                        .withNamedParameter("state", "SUBMITTED")
-                        .withNamedParameter("data", data.toString())
-        );
-      }
-    }
-    runBatchWriteQuerySync(SQLQuery.batchOf(queryList), db, calculateNeededAcus(0, 0));
+  private void importInDatabase(Database db, String schema, String table, List<InputFile> inputs, int threadCount)
+      throws SQLException, TooManyResourcesClaimed {
+    URI location = inputLocation();
+    if (!"s3".equals(location.getScheme()))
+      throw new IllegalStateException("The database can only import input files from S3, but the inputs are located at " + location);
+    String keyPrefix = location.getPath() == null ? "" : location.getPath().replaceAll("^/+|/+$", "");
+    keyPrefix = keyPrefix.isEmpty() ? "" : keyPrefix + "/";
+
+    logger.info("Prepare - Register {} input files for {}", inputs.size(), getSpaceId());
+    runWriteQuerySync(buildCreateImportFilesTableQuery(schema, table), db, 0);
+    List<SQLQuery> registrations = new ArrayList<>();
+    for (InputFile input : inputs)
+      registrations.add(buildRegisterImportFileQuery(schema, table, location.getHost(), keyPrefix + input.key(), input.byteSize()));
+    if (!registrations.isEmpty())
+      runBatchWriteQuerySync(SQLQuery.batchOf(registrations), db, 0);
+
+    logger.info("Execute - Start {} import threads in the database for {}", threadCount, getSpaceId());
+    for (int i = 0; i < threadCount; i++)
+      runReadQuery(buildImportQuery(schema, table, i), db, 1);
   }
 
   @Override
@@ -200,8 +247,7 @@ public class ImportFilesToSpace extends SpaceBasedStep<ImportFilesToSpace> {
   @Override
   protected void onAsyncSuccess() {
     /** Finalize Import
-     * - cleanUp: remove trigger / delete temporary table
-     * - provide getStatistics
+     * - cleanUp: remove trigger / delete job data table
      * - release readOnly lock
      */
     try {
@@ -210,27 +256,28 @@ public class ImportFilesToSpace extends SpaceBasedStep<ImportFilesToSpace> {
       logger.info("Getting storage database for space {}", getSpaceId());
       Database db = loadDatabase(space.getStorage().getId(), WRITER);
 
-      /** Collecting statistics */
-      List<String> statistics = runReadQuerySync(buildStatisticDataOfTemporaryTableQuery(getSchema(db), getRootTableName(space)), db, calculateNeededAcus(0, 0),
-              rs -> {
-                List<String> result = new ArrayList<>();
-                while (rs.next())
-                  result.add(rs.getString(1));
-                return result;
-              });
-      logger.info("Statistics-size:{}", statistics.size());
+      if (!isServiceSideImport()) {
+        logger.info("Finalize - Collect the statistics of the imported files for {}", getSpaceId());
+        FeatureStatistics statistics = runReadQuerySync(buildImportFilesStatisticsQuery(getSchema(db), getRootTableName(space)), db, 0,
+            rs -> {
+              rs.next();
+              return new FeatureStatistics().withFeatureCount(rs.getLong(1)).withByteSize(rs.getLong(2));
+            });
+        registerOutputs(List.of(statistics), true);
+
+        logger.info("Finalize - Delete import files table for {}", getSpaceId());
+        runWriteQuerySync(buildDropImportFilesTableQuery(getSchema(db), getRootTableName(space)), db, 0);
+      }
 
       logger.info("Finalize - Delete tmp import-trigger table for {}" + getSpaceId());
-      runWriteQuerySync(buildDropImportTrigger(getSchema(db), getRootTableName(space)), db, calculateNeededAcus(0, 0));
+      runWriteQuerySync(buildDropImportTrigger(getSchema(db), getRootTableName(space)), db, 0);
+
+      logger.info("Finalize - Delete job data table for {}", getSpaceId());
+      runWriteQuerySync(buildDropJobDataTableQuery(getSchema(db), getRootTableName(space)), db, 0);
 
-      logger.info("Finalize - Delete tmp-import-table for {}" + getSpaceId());
-      runWriteQuerySync(buildDropTemporaryTableForImportQuery(getSchema(db), getRootTableName(space)), db, calculateNeededAcus(0, 0));
       hubWebClient().patchSpace(getSpaceId(), new HashMap<>() {{
         put("readOnly", false);
       }});
-
-      //TODO: Register one output of type {@link FeatureStatistics} as last step using registerOutputs()
-
     }
     catch (SQLException | TooManyResourcesClaimed | HubWebClientException e){
       //@TODO: ErrorHandling!
@@ -243,8 +290,11 @@ public class ImportFilesToSpace extends SpaceBasedStep<ImportFilesToSpace> {
   @Override
   public void resume() throws Exception {
     /*
-    No cleanup needed, in any case, sending the index creation query again will work
-    as it is using the "CREATE SEQUENCE IF NOT EXISTS" semantics
+    The preparation can be executed again, as the job data table & the trigger are created using "IF NOT EXISTS" / "OR REPLACE".
+    Chunks which have been imported completely before are recorded in the job data table and get skipped,
+    the rows of all other chunks have been rolled back.
+    When importing within the database, files which have been imported completely before are marked as FINISHED in the
+    import files table and get skipped by the import threads.
      */
     execute();
   }
@@ -256,7 +306,12 @@ public class ImportFilesToSpace extends SpaceBasedStep<ImportFilesToSpace> {
 
   @Override
   public RuntimeInfo getStatus() {
-    return super.getStatus();
+    RuntimeInfo status = super.getStatus();
+    //Report the progress of a running import as part of the status, so that it gets stored along with the step
+    float progress = telemetry != null ? telemetry.getProgress() : -1;
+    if (progress >= 0)
+      status.setEstimatedProgress(progress);
+    return status;
   }
 
   @Override
@@ -265,10 +320,45 @@ public class ImportFilesToSpace extends SpaceBasedStep<ImportFilesToSpace> {
     return super.buildFailureCallbackQuery();
   }
 
-  private SQLQuery buildTemporaryTableForImportQuery(String schema, String table){
+  private SQLQuery buildCreatImportTrigger(String schema, String table, String targetAuthor, long targetSpaceVersion){
+    return new SQLQuery("CREATE OR REPLACE TRIGGER insertTrigger BEFORE INSERT ON ${schema}.${table} "
+            + "FOR EACH ROW EXECUTE PROCEDURE ${schema}.xyz_import_trigger_v2('${{author}}', ${{spaceVersion}});")
+            .withQueryFragment("spaceVersion", "" + targetSpaceVersion)
+            .withQueryFragment("author", targetAuthor)
+            .withVariable("schema", schema)
+            .withVariable("table", table);
+  }
+  private SQLQuery buildDropImportTrigger(String schema, String table){
+    return new SQLQuery("DROP TRIGGER IF EXISTS insertTrigger ON ${schema}.${table};")
+            .withVariable("table", table)
+            .withVariable("schema", schema);
+  }
+
+  private SQLQuery buildCreateJobDataTableQuery(String schema, String table) {
     return new SQLQuery("""
                     CREATE TABLE IF NOT EXISTS ${schema}.${table}
-                           (                                                            
+                           (
+                                chunk_id text NOT NULL, --the file key & the start offset of the chunk
+                                state text NOT NULL,
+                                data jsonb, --statistic data
+                                CONSTRAINT ${primaryKey} PRIMARY KEY (chunk_id)
+                           );
+                    """)
+            .withVariable("table", table + JOB_DATA_SUFFIX)
+            .withVariable("schema", schema)
+            .withVariable("primaryKey", table + JOB_DATA_SUFFIX + "_primKey");
+  }
+
+  private SQLQuery buildDropJobDataTableQuery(String schema, String table) {
+    return new SQLQuery("DROP TABLE IF EXISTS ${schema}.${table};")
+            .withVariable("table", table + JOB_DATA_SUFFIX)
+            .withVariable("schema", schema);
+  }
+
+  private SQLQuery buildCreateImportFilesTableQuery(String schema, String table) {
+    return new SQLQuery("""
+                    CREATE TABLE IF NOT EXISTS ${schema}.${table}
+                           (
                                 s3_uri aws_commons._s3_uri_1 NOT NULL, --s3uri
                                 state text NOT NULL, --jobtype
                                 execution_count int DEFAULT 0, --amount of retries
@@ -277,49 +367,105 @@ public class ImportFilesToSpace extends SpaceBasedStep<ImportFilesToSpace> {
                                 CONSTRAINT ${primaryKey} PRIMARY KEY (s3_uri)
                            );
                     """)
-            .withVariable("table", table + JOB_DATA_SUFFIX)
+            .withVariable("table", table + IMPORT_FILES_SUFFIX)
             .withVariable("schema", schema)
-            .withVariable("primaryKey", table + JOB_DATA_SUFFIX + "_primKey");
+            .withVariable("primaryKey", table + IMPORT_FILES_SUFFIX + "_primKey");
   }
-  private SQLQuery buildDropTemporaryTableForImportQuery(String schema, String table){
+
+  private SQLQuery buildDropImportFilesTableQuery(String schema, String table) {
     return new SQLQuery("DROP TABLE IF EXISTS ${schema}.${table};")
-            .withVariable("table", table + JOB_DATA_SUFFIX)
+            .withVariable("table", table + IMPORT_FILES_SUFFIX)
             .withVariable("schema", schema);
   }
 
-  private SQLQuery buildCreatImportTrigger(String schema, String table, String targetAuthor, long targetSpaceVersion){
-    return new SQLQuery("CREATE OR REPLACE TRIGGER insertTrigger BEFORE INSERT ON ${schema}.${table} "
-            + "FOR EACH ROW EXECUTE PROCEDURE ${schema}.xyz_import_trigger_v2('${{author}}', ${{spaceVersion}});")
-            .withQueryFragment("spaceVersion", "" + targetSpaceVersion)
-            .withQueryFragment("author", targetAuthor)
+  /**
+   * Registers an input file to be imported by the database, unless it was registered by a former execution already.
+   */
+  private SQLQuery buildRegisterImportFileQuery(String schema, String table, String bucketName, String s3Key, long byteSize) {
+    return new SQLQuery("""
+                    INSERT INTO ${schema}.${table} (s3_uri, state, data)
+                        VALUES (aws_commons.create_s3_uri(#{bucketName}, #{s3Key}, #{bucketRegion}), 'SUBMITTED',
+                            jsonb_build_object('filesize', #{byteSize}::BIGINT))
+                        ON CONFLICT (s3_uri) DO NOTHING
+                    """)
             .withVariable("schema", schema)
-            .withVariable("table", table);
+            .withVariable("table", table + IMPORT_FILES_SUFFIX)
+            .withNamedParameter("bucketName", bucketName)
+            .withNamedParameter("s3Key", s3Key)
+            .withNamedParameter("bucketRegion", bucketRegion())
+            .withNamedParameter("byteSize", byteSize);
   }
-  private SQLQuery buildDropImportTrigger(String schema, String table){
-    return new SQLQuery("DROP TRIGGER IF EXISTS insertTrigger ON ${schema}.${table};")
-            .withVariable("table", table)
-            .withVariable("schema", schema);
+
+  private SQLQuery buildImportQuery(String schema, String table, int i) {
+    return new SQLQuery("SELECT import_into_space(#{schema}, #{importFilesTable}::regclass, #{targetTable}::regclass, #{format}, #{i})")
+            .withNamedParameter("schema", schema)
+            .withNamedParameter("targetTable", schema + ".\"" + table + "\"")
+            .withNamedParameter("importFilesTable", schema + ".\"" + table + IMPORT_FILES_SUFFIX + "\"")
+            .withNamedParameter("format", format == Format.GEOJSON ? "geojson" : "jsonwkb")
+            .withNamedParameter("i", i);
   }
 
-  //TODO: Move to XyzSpaceTableHelper or so (it's the nth time we have that implemented somewhere)
-  private SQLQuery buildVersionSequenceIncrement(String schema, String table) {
-    return new SQLQuery("SELECT nextval('${schema}.${sequence}')")
+  /**
+   * Sums up the rows which have been imported by aws_s3.table_import_from_s3, e.g. "1000 rows imported into relation ...",
+   * and the sizes of the imported files.
+   */
+  private SQLQuery buildImportFilesStatisticsQuery(String schema, String table) {
+    return new SQLQuery("""
+                    SELECT coalesce(sum(substring(data->>'import_statistics' FROM '^(\\d+) rows')::BIGINT), 0),
+                           coalesce(sum((data->>'filesize')::BIGINT), 0)
+                        FROM ${schema}.${table} WHERE state = 'FINISHED'
+                    """)
             .withVariable("schema", schema)
-            .withVariable("sequence", table + "_version_seq");
+            .withVariable("table", table + IMPORT_FILES_SUFFIX);
   }
 
-  private SQLQuery buildStatisticDataOfTemporaryTableQuery(String schema, String table) {
-    return new SQLQuery("SELECT data->'import_statistics' FROM ${schema}.${table};")
+  /**
+   * Retrieves a new version from the version sequence and stores it in the job data table,
+   * or returns the version which was stored by a former execution.
+   */
+  private SQLQuery buildRetrieveImportVersionQuery(String schema, String table) {
+    return new SQLQuery("""
+                    INSERT INTO ${schema}.${jobDataTable} (chunk_id, state, data)
+                        VALUES (#{versionKey}, 'PREPARED', jsonb_build_object('version', nextval('${schema}.${sequence}')))
+                        ON CONFLICT (chunk_id) DO UPDATE SET state = EXCLUDED.state
+                        RETURNING (data->>'version')::BIGINT
+                    """)
             .withVariable("schema", schema)
-            .withVariable("table", table + JOB_DATA_SUFFIX);
+            .withVariable("jobDataTable", table + JOB_DATA_SUFFIX)
+            .withVariable("sequence", table + "_version_seq")
+            .withNamedParameter("versionKey", VERSION_KEY);
   }
 
-  private SQLQuery buildImportQuery(String schema, String table, String format, int i) {
-    return new SQLQuery("SELECT import_into_space(#{schema},#{temporary_tbl}::regclass,#{target_tbl}::regclass,#{format},#{i})")
-            .withNamedParameter("schema", schema)
-            .withNamedParameter("target_tbl", schema+".\""+table+"\"")
-            .withNamedParameter("temporary_tbl",  schema+".\""+(table + JOB_DATA_SUFFIX)+"\"")
-            .withNamedParameter("format", format)
-            .withNamedParameter("i", i);
+  /**
+   * The live telemetry of the running import (throughput, lag of the import threads and the estimated end time),
+   * or null if the import was not started by this instance.
+   * The telemetry itself is only available within the process which is executing the import. Its progress gets reported as
+   * the estimated progress of the step's status, which is stored along with the step.
+   */
+  public TransferTelemetry getTelemetry() {
+    return telemetry;
+  }
+
+  public Format getFormat() {
+    return format;
+  }
+
+  public void setFormat(Format format) {
+    this.format = format;
+  }
+
+  public ImportFilesToSpace withFormat(Format format) {
+    setFormat(format);
+    return this;
+  }
+
+  /**
+   * The formats of the input files.
+   * GEOJSON: One GeoJSON feature per line
+   * CSV_JSON_WKB: One CSV row per line with the feature JSON (without geometry) and the hex encoded WKB of the geometry
+   */
+  public enum Format {
+    GEOJSON,
+    CSV_JSON_WKB
   }
 }
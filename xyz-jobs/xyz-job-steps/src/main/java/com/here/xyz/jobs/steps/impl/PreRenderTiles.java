@@ -0,0 +1,318 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.impl;
+
+import static com.here.xyz.jobs.steps.execution.db.Database.DatabaseRole.READER;
+import static com.here.xyz.jobs.steps.execution.db.Database.loadDatabase;
+import static com.here.xyz.util.db.pg.XyzSpaceTableHelper.HEAD_TABLE_SUFFIX;
+
+import com.here.xyz.jobs.steps.Config;
+import com.here.xyz.jobs.steps.S3Client;
+import com.here.xyz.jobs.steps.execution.db.Database;
+import com.here.xyz.jobs.steps.impl.tiles.TileSetMetadata;
+import com.here.xyz.jobs.steps.impl.tiles.TileStore;
+import com.here.xyz.jobs.steps.resources.Load;
+import com.here.xyz.models.geojson.WebMercatorTile;
+import com.here.xyz.models.geojson.coordinates.BBox;
+import com.here.xyz.models.hub.Space;
+import com.here.xyz.util.db.SQLQuery;
+import com.here.xyz.util.db.datasource.DataSourceProvider;
+import com.here.xyz.util.service.BaseHttpServerVerticle.ValidationException;
+import com.here.xyz.util.service.Core;
+import com.here.xyz.util.web.HubWebClient.HubWebClientException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * This step renders one batch of the MVT tiles of a space and writes them into a new rendering in the configured {@link TileStore}.
+ * The tiles of a range of levels within a bounding box are enumerated in a fixed order (see {@link TileSetMetadata#tiles}),
+ * each batch renders a contiguous part of them in parallel against the reader of the space's database.
+ * The number of tiles per batch is bounded, so that each batch completes within a short time and can simply be rendered again
+ * when it gets resumed.
+ *
+ * Each completed batch records the space version which was current before its rendering started.
+ * Once all batches are complete, {@link PublishPreRenderedTiles} publishes the rendering with the lowest of these versions,
+ * so the Hub will only serve the pre-rendered tiles as long as the space content has not changed since the first batch started.
+ */
+public class PreRenderTiles extends SpaceBasedStep<PreRenderTiles> {
+  private static final Logger logger = LogManager.getLogger();
+  public static final int MAX_LEVEL = 20;
+  public static final long MAX_TILE_COUNT = 1 << 20;
+  public static final int MAX_BATCH_TILE_COUNT = 4096;
+  private static final int MVT_EXTENT = 4096;
+  private static final int RENDER_THREAD_COUNT = 8;
+  private int minLevel;
+  private int maxLevel;
+  private BBox bbox = new BBox(-180, WebMercatorTile.MinLatitude, 180, WebMercatorTile.MaxLatitude);
+  private long firstTile;
+  private int tileCount;
+
+  @Override
+  public List<Load> getNeededResources() {
+    try {
+      Database db = loadDatabase(loadSpace(getSpaceId()).getStorage().getId(), READER);
+      return Collections.singletonList(new Load().withResource(db).withEstimatedVirtualUnits(calculateNeededAcus()));
+    }
+    catch (HubWebClientException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public int getTimeoutSeconds() {
+    //One batch must be complete within one Lambda invocation
+    return 15 * 60;
+  }
+
+  @Override
+  public String getDescription() {
+    return "Pre-renders the tiles " + firstTile + " to " + (firstTile + tileCount - 1) + " of space " + getSpaceId()
+        + " for the levels " + minLevel + " to " + maxLevel;
+  }
+
+  @Override
+  public void deleteOutputs() {
+    //Nothing to do here as no outputs are produced by this step, the tiles are written to the tile store
+  }
+
+  @Override
+  public boolean validate() throws ValidationException {
+    super.validate();
+    if (Config.instance.TILE_STORE_LOCATION == null)
+      throw new ValidationException("No tile store is configured.");
+    if (minLevel < 0 || maxLevel > MAX_LEVEL || minLevel > maxLevel)
+      throw new ValidationException("The levels must be in the range of 0 to " + MAX_LEVEL + " and minLevel must not exceed maxLevel.");
+    if (countTiles() > MAX_TILE_COUNT)
+      throw new ValidationException("Too many tiles to be rendered. The maximum is " + MAX_TILE_COUNT + " tiles.");
+    if (firstTile < 0 || tileCount <= 0 || tileCount > MAX_BATCH_TILE_COUNT || firstTile + tileCount > countTiles())
+      throw new ValidationException("Invalid batch of tiles to be rendered.");
+
+    try {
+      if (loadSpace(getSpaceId()).getExtension() != null)
+        throw new ValidationException("Pre-rendering the tiles of a composite space is not supported.");
+    }
+    catch (HubWebClientException e) {
+      throw new ValidationException("Error loading resource " + getSpaceId(), e);
+    }
+    //Return true as no user inputs are needed
+    return true;
+  }
+
+  /**
+   * @return The number of all tiles (of all batches) to be rendered
+   */
+  public long countTiles() {
+    return TileSetMetadata.countTiles(bbox, minLevel, maxLevel);
+  }
+
+  private int calculateNeededAcus() {
+    //Each render thread keeps one query running on the reader at a time
+    return RENDER_THREAD_COUNT;
+  }
+
+  @Override
+  public void execute() throws Exception {
+    render(false);
+  }
+
+  private void render(boolean resumed) throws Exception {
+    logger.info("[{}] Pre-rendering the tiles {} to {} of space {} for levels {} to {} ...", getJobId(), firstTile,
+        firstTile + tileCount - 1, getSpaceId(), minLevel, maxLevel);
+
+    Space space = loadSpace(getSpaceId());
+    Database db = loadDatabase(space.getStorage().getId(), READER);
+    String schema = getSchema(db), table = getRootTableName(space);
+    DataSourceProvider dataSources = requestResource(db, calculateNeededAcus());
+    TileStore tileStore = TileStore.forLocation(Config.instance.TILE_STORE_LOCATION, S3Client.getInstance().getClient());
+
+    //Read the version *before* rendering, so the tile set is considered outdated if any change happens during the rendering
+    long version = buildHeadVersionQuery(schema, table).run(dataSources, rs -> rs.next() ? rs.getLong(1) : -1L);
+    long writtenTiles = renderTiles(tileStore, getRenderingId(), dataSources, schema, table, resumed);
+
+    //Writing the batch metadata marks the batch as complete
+    tileStore.writeBatchMetadata(getSpaceId(), getRenderingId(), firstTile, new TileSetMetadata()
+        .withRenderingId(getRenderingId())
+        .withVersion(version)
+        .withMinLevel(minLevel)
+        .withMaxLevel(maxLevel)
+        .withBbox(bbox)
+        .withTileCount(writtenTiles)
+        .withCreatedAt(Core.currentTimeMillis()));
+
+    logger.info("[{}] Pre-rendered {} non-empty tiles of space {} at version {}", getJobId(), writtenTiles, getSpaceId(), version);
+  }
+
+  /**
+   * The tiles of all batches of this job are written to the same rendering.
+   * The currently served rendering is kept until the new one is published.
+   */
+  String getRenderingId() {
+    return getJobId();
+  }
+
+  private long renderTiles(TileStore tileStore, String renderingId, DataSourceProvider dataSources, String schema, String table,
+      boolean resumed) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(RENDER_THREAD_COUNT);
+    AtomicLong writtenTiles = new AtomicLong();
+    try {
+      List<Future<?>> renderings = new ArrayList<>();
+      for (WebMercatorTile tile : TileSetMetadata.tiles(bbox, minLevel, maxLevel, firstTile, tileCount))
+        renderings.add(executor.submit(() -> {
+          byte[] mvt = buildTileQuery(schema, table, tile).run(dataSources, rs -> rs.next() ? rs.getBytes("bin") : null);
+          //Empty tiles are not written, the store treats missing tiles of a complete tile set as empty
+          if (mvt != null && mvt.length > 0) {
+            tileStore.writeTile(getSpaceId(), renderingId, tile, mvt);
+            writtenTiles.incrementAndGet();
+          }
+          else if (resumed)
+            //The tile might have been written by a former attempt with a different content
+            tileStore.deleteTile(getSpaceId(), renderingId, tile);
+          return null;
+        }));
+
+      for (Future<?> rendering : renderings)
+        rendering.get();
+    }
+    catch (ExecutionException e) {
+      throw e.getCause() instanceof Exception cause ? cause : e;
+    }
+    finally {
+      executor.shutdownNow();
+    }
+    return writtenTiles.get();
+  }
+
+  private SQLQuery buildHeadVersionQuery(String schema, String table) {
+    return new SQLQuery("SELECT coalesce(max(version), -1) FROM ${schema}.${table}")
+        .withVariable("schema", schema)
+        .withVariable("table", table);
+  }
+
+  /**
+   * Builds the same MVT representation of a tile as the connector does for a non-flattened MVT tile request.
+   */
+  private SQLQuery buildTileQuery(String schema, String table, WebMercatorTile tile) {
+    BBox tileBbox = tile.getBBox(false);
+    return new SQLQuery("""
+        WITH tile AS (SELECT ST_MakeEnvelope(#{minLon}, #{minLat}, #{maxLon}, #{maxLat}, 4326) AS bbox),
+        mvtdata AS (
+          SELECT (SELECT jsonb_object_agg(key, CASE WHEN jsonb_typeof(value) IN ('object', 'array') THEN to_jsonb(value::text) ELSE value END)
+                  FROM jsonb_each(jsonb_set(jsondata->'properties', '{id}', to_jsonb(jsondata->>'id')))) AS mproperties,
+                 ST_AsMVTGeom(ST_Force2D(ST_Transform(geo, 3857)), ST_Transform(t.bbox, 3857), #{extent}, 0, true) AS mgeo
+          FROM ${schema}.${headTable}, tile t
+          WHERE ST_Intersects(geo, t.bbox) AND operation != 'D'
+        )
+        SELECT ST_AsMVT(mvtdata, #{layer}) AS bin FROM mvtdata WHERE mgeo IS NOT NULL
+        """)
+        .withVariable("schema", schema)
+        .withVariable("headTable", table + HEAD_TABLE_SUFFIX)
+        .withNamedParameter("minLon", tileBbox.minLon())
+        .withNamedParameter("minLat", tileBbox.minLat())
+        .withNamedParameter("maxLon", tileBbox.maxLon())
+        .withNamedParameter("maxLat", tileBbox.maxLat())
+        .withNamedParameter("extent", MVT_EXTENT)
+        .withNamedParameter("layer", getSpaceId());
+  }
+
+  @Override
+  public void resume() throws Exception {
+    //Rendering the batch again overwrites all of its tiles which were written by the former attempt
+    render(true);
+  }
+
+  public int getMinLevel() {
+    return minLevel;
+  }
+
+  public void setMinLevel(int minLevel) {
+    this.minLevel = minLevel;
+  }
+
+  public PreRenderTiles withMinLevel(int minLevel) {
+    setMinLevel(minLevel);
+    return this;
+  }
+
+  public int getMaxLevel() {
+    return maxLevel;
+  }
+
+  public void setMaxLevel(int maxLevel) {
+    this.maxLevel = maxLevel;
+  }
+
+  public PreRenderTiles withMaxLevel(int maxLevel) {
+    setMaxLevel(maxLevel);
+    return this;
+  }
+
+  public BBox getBbox() {
+    return bbox;
+  }
+
+  public void setBbox(BBox bbox) {
+    this.bbox = bbox;
+  }
+
+  public PreRenderTiles withBbox(BBox bbox) {
+    setBbox(bbox);
+    return this;
+  }
+
+  /**
+   * @return The index of the first tile of this batch
+   */
+  public long getFirstTile() {
+    return firstTile;
+  }
+
+  public void setFirstTile(long firstTile) {
+    this.firstTile = firstTile;
+  }
+
+  public PreRenderTiles withFirstTile(long firstTile) {
+    setFirstTile(firstTile);
+    return this;
+  }
+
+  /**
+   * @return The number of tiles of this batch
+   */
+  public int getTileCount() {
+    return tileCount;
+  }
+
+  public void setTileCount(int tileCount) {
+    this.tileCount = tileCount;
+  }
+
+  public PreRenderTiles withTileCount(int tileCount) {
+    setTileCount(tileCount);
+    return this;
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.impl;
+
+import com.here.xyz.jobs.steps.Config;
+import com.here.xyz.jobs.steps.S3Client;
+import com.here.xyz.jobs.steps.impl.tiles.TileSetMetadata;
+import com.here.xyz.jobs.steps.impl.tiles.TileStore;
+import com.here.xyz.jobs.steps.resources.Load;
+import com.here.xyz.models.geojson.WebMercatorTile;
+import com.here.xyz.models.geojson.coordinates.BBox;
+import com.here.xyz.util.service.BaseHttpServerVerticle.ValidationException;
+import com.here.xyz.util.service.Core;
+import java.util.Collections;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * This step publishes the rendering which was written by the {@link PreRenderTiles} batches of the same job, once all of them
+ * are complete. The published tile set is stamped with the lowest space version which was read by any of the batches.
+ * Publishing the metadata of the tile set replaces the formerly served rendering, which gets deleted afterwards.
+ */
+public class PublishPreRenderedTiles extends SpaceBasedStep<PublishPreRenderedTiles> {
+  private static final Logger logger = LogManager.getLogger();
+  private int minLevel;
+  private int maxLevel;
+  private BBox bbox = new BBox(-180, WebMercatorTile.MinLatitude, 180, WebMercatorTile.MaxLatitude);
+  private int batchCount;
+
+  @Override
+  public List<Load> getNeededResources() {
+    //Only the tile store is used
+    return Collections.emptyList();
+  }
+
+  @Override
+  public int getTimeoutSeconds() {
+    return 15 * 60;
+  }
+
+  @Override
+  public String getDescription() {
+    return "Publishes the pre-rendered tiles of space " + getSpaceId();
+  }
+
+  @Override
+  public void deleteOutputs() {
+    //Nothing to do here as no outputs are produced by this step, the tiles are written to the tile store
+  }
+
+  @Override
+  public boolean validate() throws ValidationException {
+    super.validate();
+    if (Config.instance.TILE_STORE_LOCATION == null)
+      throw new ValidationException("No tile store is configured.");
+    //Return true as no user inputs are needed
+    return true;
+  }
+
+  @Override
+  public void execute() throws Exception {
+    TileStore tileStore = TileStore.forLocation(Config.instance.TILE_STORE_LOCATION, S3Client.getInstance().getClient());
+    String renderingId = getJobId();
+
+    List<TileSetMetadata> batches = tileStore.readBatchMetadata(getSpaceId(), renderingId);
+    if (batches.size() != batchCount)
+      throw new IllegalStateException("Only " + batches.size() + " of " + batchCount + " batches of rendering " + renderingId
+          + " are complete.");
+
+    long version = batches.stream().mapToLong(TileSetMetadata::getVersion).min().orElse(-1);
+    long tileCount = batches.stream().mapToLong(TileSetMetadata::getTileCount).sum();
+
+    //Writing the metadata marks the new rendering as complete and replaces the formerly served one
+    tileStore.writeMetadata(getSpaceId(), new TileSetMetadata()
+        .withRenderingId(renderingId)
+        .withVersion(version)
+        .withMinLevel(minLevel)
+        .withMaxLevel(maxLevel)
+        .withBbox(bbox)
+        .withTileCount(tileCount)
+        .withCreatedAt(Core.currentTimeMillis()));
+    tileStore.deleteRenderings(getSpaceId(), renderingId);
+
+    logger.info("[{}] Published {} non-empty pre-rendered tiles of space {} at version {}", getJobId(), tileCount, getSpaceId(),
+        version);
+  }
+
+  @Override
+  public void resume() throws Exception {
+    //Publishing the same rendering again has no further effect
+    execute();
+  }
+
+  public int getMinLevel() {
+    return minLevel;
+  }
+
+  public void setMinLevel(int minLevel) {
+    this.minLevel = minLevel;
+  }
+
+  public PublishPreRenderedTiles withMinLevel(int minLevel) {
+    setMinLevel(minLevel);
+    return this;
+  }
+
+  public int getMaxLevel() {
+    return maxLevel;
+  }
+
+  public void setMaxLevel(int maxLevel) {
+    this.maxLevel = maxLevel;
+  }
+
+  public PublishPreRenderedTiles withMaxLevel(int maxLevel) {
+    setMaxLevel(maxLevel);
+    return this;
+  }
+
+  public BBox getBbox() {
+    return bbox;
+  }
+
+  public void setBbox(BBox bbox) {
+    this.bbox = bbox;
+  }
+
+  public PublishPreRenderedTiles withBbox(BBox bbox) {
+    setBbox(bbox);
+    return this;
+  }
+
+  /**
+   * @return The number of batches which have to be complete before the rendering can be published
+   */
+  public int getBatchCount() {
+    return batchCount;
+  }
+
+  public void setBatchCount(int batchCount) {
+    this.batchCount = batchCount;
+  }
+
+  public PublishPreRenderedTiles withBatchCount(int batchCount) {
+    setBatchCount(batchCount);
+    return this;
+  }
+}
@@ -37,7 +37,10 @@ import com.here.xyz.util.web.HubWebClient.HubWebClientException;
     @JsonSubTypes.Type(value = ImportFilesToSpace.class),
     @JsonSubTypes.Type(value = DropIndexes.class),
     @JsonSubTypes.Type(value = AnalyzeSpaceTable.class),
-    @JsonSubTypes.Type(value = MarkForMaintenance.class)
+    @JsonSubTypes.Type(value = MarkForMaintenance.class),
+    @JsonSubTypes.Type(value = PreRenderTiles.class),
+    @JsonSubTypes.Type(value = PublishPreRenderedTiles.class),
+    @JsonSubTypes.Type(value = DeleteChangesets.class)
 })
 public abstract class SpaceBasedStep<T extends SpaceBasedStep> extends DatabaseBasedStep<T> {
   private String spaceId;
@@ -0,0 +1,331 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.impl.imports;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.io.CountingInputStream;
+import com.here.xyz.jobs.steps.impl.ImportFilesToSpace.Format;
+import com.here.xyz.jobs.steps.impl.imports.InputSource.InputFile;
+import com.here.xyz.jobs.steps.outputs.FeatureStatistics;
+import com.here.xyz.util.TransferTelemetry;
+import com.here.xyz.util.db.SQLQuery;
+import com.here.xyz.util.db.datasource.DataSourceProvider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+/**
+ * Imports input files into a table by streaming them from the service into the database using <code>COPY FROM STDIN</code>.
+ *
+ * Other than aws_s3.table_import_from_s3(), the files are read by the service, so the database does not need any extension to
+ * access the files, and the rows get validated before they're sent to the database.
+ * Uncompressed files are split into chunks at line boundaries, compressed files are processed as one chunk each.
+ * The chunks are processed in parallel by a number of threads, each of which streams its rows into the table using its
+ * own connection of the writer.
+ * The progress of the chunks is reported to a {@link TransferTelemetry}, each chunk is reported as one thread.
+ *
+ * If a job data table is specified, each chunk is committed together with a row in that table which marks the chunk as finished
+ * and keeps its statistics. That makes the import resumable: Importing the same files again skips all chunks which have been
+ * finished before, while the rows of unfinished chunks have been rolled back.
+ */
+public class CopyImporter {
+  private static final Logger logger = LogManager.getLogger();
+  private static final long DEFAULT_CHUNK_SIZE = 64L * 1024 * 1024;
+  private static final int FLUSH_SIZE = 256 * 1024;
+  static final String CHUNK_FINISHED = "FINISHED";
+  private final DataSourceProvider dataSourceProvider;
+  private final InputSource inputSource;
+  private final Format format;
+  private int threadCount = 1;
+  private long chunkSize = DEFAULT_CHUNK_SIZE;
+  private TransferTelemetry telemetry;
+  private String jobDataTable;
+
+  public CopyImporter(DataSourceProvider dataSourceProvider, InputSource inputSource, Format format) {
+    this.dataSourceProvider = dataSourceProvider;
+    this.inputSource = inputSource;
+    this.format = format;
+  }
+
+  /**
+   * Imports all rows of the specified files into the target table.
+   * This method blocks until all files have been imported. If one chunk fails, all other chunks are cancelled.
+   * As each chunk is committed separately, the rows of chunks which have been completed before stay in the table.
+   *
+   * @param files The input files to be imported
+   * @param schema The schema of the target table
+   * @param table The target table
+   * @return The number of imported features and the number of bytes which have been read (including the chunks which have been
+   *  finished by former imports of the same files)
+   */
+  public FeatureStatistics importFiles(List<InputFile> files, String schema, String table) throws Exception {
+    Map<String, FeatureStatistics> finishedChunks = loadFinishedChunks(schema);
+    List<Chunk> chunks = planChunks(files);
+    logger.info("Importing {} files in {} chunks ({} finished before) into {}.{} using {} threads ...", files.size(), chunks.size(),
+        finishedChunks.size(), schema, table, threadCount);
+    if (telemetry == null)
+      telemetry = new TransferTelemetry();
+    telemetry.setTotalBytes(files.stream().mapToLong(InputFile::byteSize).sum());
+
+    String copyStatement = "COPY \"" + schema + "\".\"" + table + "\" (" + new CopyRowEncoder(format).columns()
+        + ") FROM STDIN WITH (FORMAT text)";
+    AtomicLong importedRows = new AtomicLong();
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      List<Future<?>> imports = new ArrayList<>();
+      for (Chunk chunk : chunks) {
+        FeatureStatistics finishedChunk = finishedChunks.get(chunk.id());
+        if (finishedChunk != null) {
+          importedRows.addAndGet(finishedChunk.getFeatureCount());
+          telemetry.update(chunk.id(), finishedChunk.getFeatureCount(), chunk.end - chunk.start);
+          telemetry.complete(chunk.id());
+          continue;
+        }
+        imports.add(executor.submit(() -> {
+          importedRows.addAndGet(importChunk(chunk, schema, copyStatement));
+          return null;
+        }));
+      }
+
+      for (Future<?> chunkImport : imports)
+        chunkImport.get();
+    }
+    catch (ExecutionException e) {
+      throw e.getCause() instanceof Exception cause ? cause : e;
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    long byteSize = files.stream().mapToLong(InputFile::byteSize).sum();
+    logger.info("Imported {} features ({} bytes) into {}.{}", importedRows.get(), byteSize, schema, table);
+    return new FeatureStatistics()
+        .withFeatureCount(importedRows.get())
+        .withByteSize(byteSize);
+  }
+
+  private Map<String, FeatureStatistics> loadFinishedChunks(String schema) throws SQLException {
+    if (jobDataTable == null)
+      return Map.of();
+
+    return buildLoadFinishedChunksQuery(schema).run(dataSourceProvider, rs -> {
+      Map<String, FeatureStatistics> finishedChunks = new HashMap<>();
+      while (rs.next())
+        finishedChunks.put(rs.getString("chunk_id"), new FeatureStatistics()
+            .withFeatureCount(rs.getLong("feature_count"))
+            .withByteSize(rs.getLong("byte_size")));
+      return finishedChunks;
+    });
+  }
+
+  private SQLQuery buildLoadFinishedChunksQuery(String schema) {
+    return new SQLQuery("SELECT chunk_id, (data->>'featureCount')::BIGINT AS feature_count, (data->>'byteSize')::BIGINT AS byte_size "
+        + "FROM ${schema}.${jobDataTable} WHERE state = #{state}")
+        .withVariable("schema", schema)
+        .withVariable("jobDataTable", jobDataTable)
+        .withNamedParameter("state", CHUNK_FINISHED);
+  }
+
+  private SQLQuery buildFinishChunkQuery(String schema, Chunk chunk, long featureCount) {
+    return new SQLQuery("INSERT INTO ${schema}.${jobDataTable} (chunk_id, state, data) "
+        + "VALUES (#{chunkId}, #{state}, jsonb_build_object('featureCount', #{featureCount}::BIGINT, 'byteSize', #{byteSize}::BIGINT))")
+        .withVariable("schema", schema)
+        .withVariable("jobDataTable", jobDataTable)
+        .withNamedParameter("chunkId", chunk.id())
+        .withNamedParameter("state", CHUNK_FINISHED)
+        .withNamedParameter("featureCount", featureCount)
+        .withNamedParameter("byteSize", chunk.end - chunk.start);
+  }
+
+  List<Chunk> planChunks(List<InputFile> files) {
+    List<Chunk> chunks = new ArrayList<>();
+    for (InputFile file : files) {
+      if (file.compressed())
+        //A compressed file can only be read from its start
+        chunks.add(new Chunk(file, 0, file.byteSize()));
+      else
+        for (long start = 0; start < file.byteSize(); start += chunkSize)
+          chunks.add(new Chunk(file, start, Math.min(start + chunkSize, file.byteSize())));
+    }
+    return chunks;
+  }
+
+  private long importChunk(Chunk chunk, String schema, String copyStatement) throws SQLException, IOException {
+    CopyRowEncoder encoder = new CopyRowEncoder(format);
+    String chunkId = chunk.id();
+    try (Connection connection = dataSourceProvider.getWriter().getConnection()) {
+      //The rows of the chunk are committed together with the state of the chunk
+      connection.setAutoCommit(false);
+      CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(copyStatement);
+      //The read bytes are counted before decompression, so they are comparable to the file sizes
+      try (CountingInputStream rawIn = new CountingInputStream(inputSource.open(chunk.file.key(),
+          chunk.file.compressed() ? 0 : Math.max(chunk.start - 1, 0)));
+          InputStream in = chunk.file.compressed() ? new GZIPInputStream(rawIn, 64 * 1024) : rawIn) {
+        //A chunk owns all lines which start within its range, the first (partial) line belongs to the previous chunk
+        LineReader reader = new LineReader(in, Math.max(chunk.start - 1, 0));
+        if (chunk.start == 0 || reader.skipLine()) {
+          StringBuilder rows = new StringBuilder(FLUSH_SIZE + FLUSH_SIZE / 4);
+          long rowCount = 0;
+          String line;
+          while ((chunk.file.compressed() || reader.position() < chunk.end) && (line = readLine(reader, chunk)) != null) {
+            try {
+              if (encoder.encode(line, rows))
+                rowCount++;
+            }
+            catch (IllegalArgumentException e) {
+              throw new IllegalArgumentException("Invalid row in " + chunk.file.key() + " before byte " + reader.position() + ": "
+                  + e.getMessage(), e);
+            }
+            if (rows.length() >= FLUSH_SIZE) {
+              flush(copyIn, rows);
+              telemetry.update(chunkId, rowCount, Math.min(rawIn.getCount(), chunk.end - chunk.start));
+            }
+          }
+          flush(copyIn, rows);
+        }
+        long importedRows = copyIn.endCopy();
+        finishChunk(connection, schema, chunk, importedRows);
+        connection.commit();
+        telemetry.update(chunkId, importedRows, chunk.end - chunk.start);
+        return importedRows;
+      }
+      catch (SQLException | IOException | RuntimeException e) {
+        if (copyIn.isActive())
+          copyIn.cancelCopy();
+        connection.rollback();
+        throw e;
+      }
+      finally {
+        telemetry.complete(chunkId);
+      }
+    }
+  }
+
+  private void finishChunk(Connection connection, String schema, Chunk chunk, long importedRows) throws SQLException {
+    if (jobDataTable == null)
+      return;
+    SQLQuery query = buildFinishChunkQuery(schema, chunk, importedRows).substitute();
+    new QueryRunner().update(connection, query.text(), query.parameters().toArray());
+  }
+
+  private static String readLine(LineReader reader, Chunk chunk) throws IOException {
+    //The other chunks are cancelled by interrupting their threads when one chunk fails
+    if (Thread.currentThread().isInterrupted())
+      throw new InterruptedIOException("Import of " + chunk.file.key() + " was cancelled");
+    return reader.readLine();
+  }
+
+  private static void flush(CopyIn copyIn, StringBuilder rows) throws SQLException {
+    if (rows.isEmpty())
+      return;
+    byte[] bytes = rows.toString().getBytes(UTF_8);
+    copyIn.writeToCopy(bytes, 0, bytes.length);
+    rows.setLength(0);
+  }
+
+  record Chunk(InputFile file, long start, long end) {
+    /**
+     * @return The ID of the chunk, which stays the same when the same files are imported again using the same chunk size
+     */
+    String id() {
+      return file.key() + "@" + start;
+    }
+  }
+
+  public int getThreadCount() {
+    return threadCount;
+  }
+
+  public void setThreadCount(int threadCount) {
+    this.threadCount = Math.max(threadCount, 1);
+  }
+
+  public CopyImporter withThreadCount(int threadCount) {
+    setThreadCount(threadCount);
+    return this;
+  }
+
+  public long getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * @param chunkSize The number of bytes of uncompressed files which are processed by one thread at a time
+   */
+  public void setChunkSize(long chunkSize) {
+    this.chunkSize = chunkSize;
+  }
+
+  public CopyImporter withChunkSize(long chunkSize) {
+    setChunkSize(chunkSize);
+    return this;
+  }
+
+  public String getJobDataTable() {
+    return jobDataTable;
+  }
+
+  /**
+   * @param jobDataTable The table (within the schema of the target table) in which the finished chunks are recorded, or
+   *  <code>null</code> if the import should not be resumable
+   */
+  public void setJobDataTable(String jobDataTable) {
+    this.jobDataTable = jobDataTable;
+  }
+
+  public CopyImporter withJobDataTable(String jobDataTable) {
+    setJobDataTable(jobDataTable);
+    return this;
+  }
+
+  public TransferTelemetry getTelemetry() {
+    return telemetry;
+  }
+
+  /**
+   * @param telemetry The telemetry to which the progress of the import should be reported
+   */
+  public void setTelemetry(TransferTelemetry telemetry) {
+    this.telemetry = telemetry;
+  }
+
+  public CopyImporter withTelemetry(TransferTelemetry telemetry) {
+    setTelemetry(telemetry);
+    return this;
+  }
+}
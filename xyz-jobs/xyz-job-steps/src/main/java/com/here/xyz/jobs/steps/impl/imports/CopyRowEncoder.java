@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.impl.imports;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.here.xyz.jobs.steps.impl.ImportFilesToSpace.Format;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Validates and normalizes the rows of an input file and encodes them as rows of the text format of <code>COPY FROM STDIN</code>.
+ * The validation is done in the service, so invalid rows are rejected before they're sent to the database.
+ *
+ * The supported formats are:
+ * <ul>
+ *   <li>{@link Format#GEOJSON}: One GeoJSON feature per line, encoded into the column "jsondata"</li>
+ *   <li>{@link Format#CSV_JSON_WKB}: One CSV row per line with the feature JSON (without geometry) and the hex encoded WKB of the
+ *   geometry, encoded into the columns "jsondata" and "geo". The CSV options are the same as the ones used by exports.</li>
+ * </ul>
+ */
+class CopyRowEncoder {
+  private static final ObjectMapper mapper = new ObjectMapper();
+  private static final char CSV_DELIMITER = ',';
+  private static final char CSV_QUOTE = '"';
+  private static final char CSV_ESCAPE = '\'';
+  private final Format format;
+
+  CopyRowEncoder(Format format) {
+    this.format = format;
+  }
+
+  /**
+   * @return The names of the columns which are written by the encoded rows
+   */
+  String columns() {
+    return format == Format.GEOJSON ? "jsondata" : "jsondata, geo";
+  }
+
+  /**
+   * Encodes one line of an input file into the target builder.
+   *
+   * @param line The line without its line terminator
+   * @param target The builder to which the encoded row (including its line terminator) is appended
+   * @return false if the line was blank and nothing was appended
+   * @throws IllegalArgumentException If the line is not valid for the format
+   */
+  boolean encode(String line, StringBuilder target) {
+    if (line.isBlank())
+      return false;
+    if (format == Format.GEOJSON)
+      appendText(target, normalizeFeature(line, true));
+    else {
+      List<String> fields = parseCsv(line);
+      if (fields.size() != 2)
+        throw new IllegalArgumentException("Expected 2 CSV columns but found " + fields.size());
+      appendText(target, normalizeFeature(fields.get(0), false));
+      target.append('\t');
+      String geo = fields.get(1);
+      if (geo == null || geo.isEmpty())
+        target.append("\\N");
+      else {
+        validateHexWkb(geo);
+        target.append(geo);
+      }
+    }
+    target.append('\n');
+    return true;
+  }
+
+  private static String normalizeFeature(String json, boolean geometryAllowed) {
+    if (json == null || json.isEmpty())
+      throw new IllegalArgumentException("Missing feature JSON");
+
+    JsonNode feature;
+    try {
+      feature = mapper.readTree(json);
+    }
+    catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+    }
+    if (feature == null || !feature.isObject())
+      throw new IllegalArgumentException("Feature is not a JSON object");
+    if (feature.has("type") && !"Feature".equals(feature.get("type").asText()))
+      throw new IllegalArgumentException("Unsupported type " + feature.get("type") + ", only Features are supported");
+
+    JsonNode geometry = feature.get("geometry");
+    if (geometry != null && !geometry.isNull()) {
+      if (!geometryAllowed)
+        throw new IllegalArgumentException("The geometry has to be provided as WKB");
+      if (!geometry.isObject() || !geometry.hasNonNull("type"))
+        throw new IllegalArgumentException("Invalid geometry");
+    }
+    JsonNode properties = feature.get("properties");
+    if (properties != null && !properties.isNull() && !properties.isObject())
+      throw new IllegalArgumentException("The properties have to be a JSON object");
+
+    //Re-serializing removes all insignificant whitespace
+    return feature.toString();
+  }
+
+  private static void validateHexWkb(String geo) {
+    if (geo.length() % 2 != 0)
+      throw new IllegalArgumentException("Invalid WKB: odd number of hex digits");
+    for (int i = 0; i < geo.length(); i++)
+      if (Character.digit(geo.charAt(i), 16) < 0)
+        throw new IllegalArgumentException("Invalid WKB: not a hex encoded value");
+  }
+
+  /**
+   * Appends a value escaped for the text format of COPY.
+   */
+  private static void appendText(StringBuilder target, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '\\' -> target.append("\\\\");
+        case '\n' -> target.append("\\n");
+        case '\r' -> target.append("\\r");
+        case '\t' -> target.append("\\t");
+        default -> target.append(c);
+      }
+    }
+  }
+
+  /**
+   * Parses a CSV row with the same semantics as PostgreSQL does for <code>DELIMITER ',' QUOTE '"' ESCAPE ''''</code>.
+   * Within a quoted value, the escape character only escapes the quote character and itself.
+   * An unquoted empty value is returned as <code>null</code>.
+   */
+  static List<String> parseCsv(String line) {
+    List<String> fields = new ArrayList<>();
+    StringBuilder value = new StringBuilder();
+    boolean quoted = false, wasQuoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quoted) {
+        if (c == CSV_ESCAPE && i + 1 < line.length() && (line.charAt(i + 1) == CSV_QUOTE || line.charAt(i + 1) == CSV_ESCAPE))
+          value.append(line.charAt(++i));
+        else if (c == CSV_QUOTE)
+          quoted = false;
+        else
+          value.append(c);
+      }
+      else if (c == CSV_QUOTE) {
+        quoted = true;
+        wasQuoted = true;
+      }
+      else if (c == CSV_DELIMITER) {
+        fields.add(value.isEmpty() && !wasQuoted ? null : value.toString());
+        value.setLength(0);
+        wasQuoted = false;
+      }
+      else
+        value.append(c);
+    }
+    if (quoted)
+      throw new IllegalArgumentException("Unterminated quoted CSV value");
+    fields.add(value.isEmpty() && !wasQuoted ? null : value.toString());
+    return fields;
+  }
+}
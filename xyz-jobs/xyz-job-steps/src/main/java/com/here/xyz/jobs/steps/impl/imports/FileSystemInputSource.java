@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.impl.imports;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * An {@link InputSource} reading the input files from a local directory.
+ */
+public class FileSystemInputSource implements InputSource {
+  private final Path root;
+
+  public FileSystemInputSource(Path root) {
+    this.root = root;
+  }
+
+  @Override
+  public List<InputFile> listFiles(String keyPrefix) throws IOException {
+    Path prefix = root.resolve(keyPrefix);
+    if (!Files.isDirectory(prefix))
+      return new ArrayList<>();
+
+    List<Path> paths;
+    try (Stream<Path> files = Files.walk(prefix)) {
+      paths = files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+    }
+
+    List<InputFile> inputFiles = new ArrayList<>();
+    for (Path path : paths) {
+      long size = Files.size(path);
+      if (size > 0)
+        inputFiles.add(new InputFile(root.relativize(path).toString().replace('\\', '/'), size, isCompressed(path)));
+    }
+    return inputFiles;
+  }
+
+  @Override
+  public InputStream open(String key, long offset) throws IOException {
+    FileChannel channel = FileChannel.open(root.resolve(key), StandardOpenOption.READ);
+    channel.position(offset);
+    return Channels.newInputStream(channel);
+  }
+
+  /**
+   * Local files have no content-encoding, so compressed files are detected by the magic bytes of the GZIP format.
+   */
+  private static boolean isCompressed(Path path) throws IOException {
+    try (InputStream in = Files.newInputStream(path)) {
+      int magic = in.read() | in.read() << 8;
+      return magic == GZIPInputStream.GZIP_MAGIC;
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.impl.imports;
+
+import com.amazonaws.services.s3.AmazonS3;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A source of input files for imports, which can be read starting at an arbitrary byte offset.
+ * That allows to split large uncompressed files into several chunks which get processed in parallel.
+ */
+public interface InputSource {
+
+  /**
+   * Creates the input source for the specified location.
+   * Supported schemes are <code>file</code> for a local directory and <code>s3</code> for a (S3 compatible) bucket and prefix.
+   *
+   * @param location The location of the input files, e.g. <code>s3://some-bucket/some/prefix</code>
+   * @param s3Client The S3 client to be used in case of an S3 location
+   * @return The input source for the location
+   */
+  static InputSource forLocation(URI location, AmazonS3 s3Client) {
+    if ("file".equals(location.getScheme()))
+      return new FileSystemInputSource(Path.of(location));
+    if ("s3".equals(location.getScheme()))
+      return new S3InputSource(s3Client, location.getHost(), location.getPath());
+    throw new IllegalArgumentException("Unsupported input location: " + location);
+  }
+
+  /**
+   * Lists all (non-empty) files of which the keys start with the specified prefix.
+   * @param keyPrefix The prefix, always ending with a slash
+   */
+  List<InputFile> listFiles(String keyPrefix) throws IOException;
+
+  /**
+   * Opens the file for reading, starting at the specified byte offset.
+   * The stream may be closed before all of its bytes have been read.
+   */
+  InputStream open(String key, long offset) throws IOException;
+
+  /**
+   * @param key The key of the file, relative to the location of the input source
+   * @param byteSize The size of the file as it is stored
+   * @param compressed Whether the file is compressed using GZIP
+   */
+  record InputFile(String key, long byteSize, boolean compressed) {}
+}
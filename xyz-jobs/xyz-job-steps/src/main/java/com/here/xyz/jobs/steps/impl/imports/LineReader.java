@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.impl.imports;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads UTF-8 encoded lines from a stream while keeping track of the byte position within the file.
+ * Other than a {@link java.io.BufferedReader}, it knows the exact byte offset at which each line starts, which is needed to
+ * split a file into chunks at line boundaries.
+ */
+class LineReader {
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private final InputStream in;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int bufferPosition;
+  private int bufferLimit;
+  private byte[] line = new byte[1024];
+  private long position;
+
+  /**
+   * @param in The stream to read from
+   * @param position The byte offset within the file at which the stream starts
+   */
+  LineReader(InputStream in, long position) {
+    this.in = in;
+    this.position = position;
+  }
+
+  /**
+   * @return The byte offset within the file at which the next line starts
+   */
+  long position() {
+    return position;
+  }
+
+  /**
+   * Reads the next line without its line terminator (LF or CRLF).
+   * @return The line or <code>null</code> if the end of the stream has been reached
+   */
+  String readLine() throws IOException {
+    int length = readLineBytes();
+    if (length < 0)
+      return null;
+    if (length > 0 && line[length - 1] == '\r')
+      length--;
+    return new String(line, 0, length, UTF_8);
+  }
+
+  /**
+   * Skips the remainder of the current line.
+   * @return false if the end of the stream has been reached
+   */
+  boolean skipLine() throws IOException {
+    return readLineBytes() >= 0;
+  }
+
+  private int readLineBytes() throws IOException {
+    int length = 0;
+    while (true) {
+      if (bufferPosition == bufferLimit && !fill())
+        return length == 0 ? -1 : length;
+
+      int start = bufferPosition;
+      while (bufferPosition < bufferLimit && buffer[bufferPosition] != '\n')
+        bufferPosition++;
+      int bytes = bufferPosition - start;
+      append(start, bytes, length);
+      length += bytes;
+      position += bytes;
+
+      if (bufferPosition < bufferLimit) {
+        //Consume the line feed
+        bufferPosition++;
+        position++;
+        return length;
+      }
+    }
+  }
+
+  private void append(int start, int bytes, int length) {
+    if (length + bytes > line.length)
+      line = Arrays.copyOf(line, Math.max(line.length * 2, length + bytes));
+    System.arraycopy(buffer, start, line, length, bytes);
+  }
+
+  private boolean fill() throws IOException {
+    int read = in.read(buffer);
+    if (read <= 0)
+      return false;
+    bufferPosition = 0;
+    bufferLimit = read;
+    return true;
+  }
+}
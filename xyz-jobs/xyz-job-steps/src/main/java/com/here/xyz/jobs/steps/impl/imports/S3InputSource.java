@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.impl.imports;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An {@link InputSource} reading the input files from an (S3 compatible) bucket.
+ * Each chunk of a file is read using a separate ranged GET request.
+ */
+public class S3InputSource implements InputSource {
+  private final AmazonS3 client;
+  private final String bucketName;
+  private final String prefix;
+
+  public S3InputSource(AmazonS3 client, String bucketName, String prefix) {
+    this.client = client;
+    this.bucketName = bucketName;
+    prefix = prefix == null ? "" : prefix.replaceAll("^/+|/+$", "");
+    this.prefix = prefix.isEmpty() ? "" : prefix + "/";
+  }
+
+  @Override
+  public List<InputFile> listFiles(String keyPrefix) throws IOException {
+    try {
+      ListObjectsV2Request request = new ListObjectsV2Request().withBucketName(bucketName).withPrefix(prefix + keyPrefix);
+      List<InputFile> inputFiles = new ArrayList<>();
+      ListObjectsV2Result result;
+      do {
+        result = client.listObjectsV2(request);
+        for (S3ObjectSummary summary : result.getObjectSummaries())
+          if (summary.getSize() > 0 && !summary.getKey().endsWith("/"))
+            inputFiles.add(new InputFile(summary.getKey().substring(prefix.length()), summary.getSize(), isCompressed(summary.getKey())));
+        request.setContinuationToken(result.getNextContinuationToken());
+      }
+      while (result.isTruncated());
+      return inputFiles;
+    }
+    catch (AmazonServiceException e) {
+      throw new IOException("Error listing " + keyPrefix + " in bucket " + bucketName, e);
+    }
+  }
+
+  @Override
+  public InputStream open(String key, long offset) throws IOException {
+    try {
+      GetObjectRequest request = new GetObjectRequest(bucketName, prefix + key);
+      if (offset > 0)
+        request.setRange(offset);
+      //Closing the content stream early aborts the request, so the rest of the object won't be transferred
+      return client.getObject(request).getObjectContent();
+    }
+    catch (AmazonServiceException e) {
+      throw new IOException("Error reading " + key + " from bucket " + bucketName, e);
+    }
+  }
+
+  private boolean isCompressed(String fullKey) {
+    ObjectMetadata metadata = client.getObjectMetadata(bucketName, fullKey);
+    return metadata.getContentEncoding() != null && metadata.getContentEncoding().equalsIgnoreCase("gzip");
+  }
+}
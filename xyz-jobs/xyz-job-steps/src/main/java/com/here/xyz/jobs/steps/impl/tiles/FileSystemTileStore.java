@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.impl.tiles;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A {@link TileStore} writing the tiles into a local directory.
+ */
+public class FileSystemTileStore implements TileStore {
+  private final Path root;
+
+  public FileSystemTileStore(Path root) {
+    this.root = root;
+  }
+
+  @Override
+  public byte[] read(String key) throws IOException {
+    try {
+      return Files.readAllBytes(root.resolve(key));
+    }
+    catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public void write(String key, byte[] value) throws IOException {
+    Path target = root.resolve(key);
+    Files.createDirectories(target.getParent());
+    //Write to a temporary file first, so readers never see partially written values
+    Path tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+    Files.write(tmp, value);
+    Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  @Override
+  public void delete(String key) throws IOException {
+    Files.deleteIfExists(root.resolve(key));
+  }
+
+  @Override
+  public void deleteAll(String keyPrefix) throws IOException {
+    Path prefix = root.resolve(keyPrefix);
+    if (!Files.isDirectory(prefix))
+      return;
+
+    try (Stream<Path> paths = Files.walk(prefix)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+        try {
+          Files.delete(path);
+        }
+        catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    }
+    catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  @Override
+  public List<String> listChildren(String keyPrefix) throws IOException {
+    Path prefix = root.resolve(keyPrefix);
+    if (!Files.isDirectory(prefix))
+      return List.of();
+
+    try (Stream<Path> paths = Files.list(prefix)) {
+      return paths.map(path -> path.getFileName().toString()).collect(Collectors.toList());
+    }
+  }
+}
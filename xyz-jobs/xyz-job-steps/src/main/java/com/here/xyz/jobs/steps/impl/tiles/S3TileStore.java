@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.impl.tiles;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest.KeyVersion;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link TileStore} writing the tiles into an (S3 compatible) bucket.
+ */
+public class S3TileStore implements TileStore {
+  private static final String MVT_CONTENT_TYPE = "application/vnd.mapbox-vector-tile";
+  private final AmazonS3 client;
+  private final String bucketName;
+  private final String prefix;
+
+  public S3TileStore(AmazonS3 client, String bucketName, String prefix) {
+    this.client = client;
+    this.bucketName = bucketName;
+    prefix = prefix == null ? "" : prefix.replaceAll("^/+|/+$", "");
+    this.prefix = prefix.isEmpty() ? "" : prefix + "/";
+  }
+
+  @Override
+  public byte[] read(String key) throws IOException {
+    try (S3Object object = client.getObject(bucketName, prefix + key)) {
+      return object.getObjectContent().readAllBytes();
+    }
+    catch (AmazonServiceException e) {
+      if (e.getStatusCode() == 404)
+        return null;
+      throw new IOException("Error reading " + key + " from bucket " + bucketName, e);
+    }
+  }
+
+  @Override
+  public void write(String key, byte[] value) throws IOException {
+    ObjectMetadata metadata = new ObjectMetadata();
+    metadata.setContentLength(value.length);
+    if (key.endsWith(TILE_SUFFIX))
+      metadata.setContentType(MVT_CONTENT_TYPE);
+
+    try {
+      client.putObject(bucketName, prefix + key, new ByteArrayInputStream(value), metadata);
+    }
+    catch (AmazonServiceException e) {
+      throw new IOException("Error writing " + key + " to bucket " + bucketName, e);
+    }
+  }
+
+  @Override
+  public void delete(String key) throws IOException {
+    try {
+      client.deleteObject(bucketName, prefix + key);
+    }
+    catch (AmazonServiceException e) {
+      throw new IOException("Error deleting " + key + " from bucket " + bucketName, e);
+    }
+  }
+
+  @Override
+  public void deleteAll(String keyPrefix) throws IOException {
+    try {
+      ListObjectsV2Request request = new ListObjectsV2Request().withBucketName(bucketName).withPrefix(prefix + keyPrefix);
+      ListObjectsV2Result result;
+      do {
+        result = client.listObjectsV2(request);
+        List<KeyVersion> keys = result.getObjectSummaries().stream()
+            .map(summary -> new KeyVersion(summary.getKey()))
+            .collect(Collectors.toList());
+        if (!keys.isEmpty())
+          client.deleteObjects(new DeleteObjectsRequest(bucketName).withKeys(keys).withQuiet(true));
+        request.setContinuationToken(result.getNextContinuationToken());
+      }
+      while (result.isTruncated());
+    }
+    catch (AmazonServiceException e) {
+      throw new IOException("Error deleting " + keyPrefix + " from bucket " + bucketName, e);
+    }
+  }
+
+  @Override
+  public List<String> listChildren(String keyPrefix) throws IOException {
+    try {
+      ListObjectsV2Request request = new ListObjectsV2Request()
+          .withBucketName(bucketName)
+          .withPrefix(prefix + keyPrefix)
+          .withDelimiter("/");
+      List<String> children = new ArrayList<>();
+      ListObjectsV2Result result;
+      do {
+        result = client.listObjectsV2(request);
+        result.getCommonPrefixes().forEach(commonPrefix -> children.add(childName(commonPrefix, keyPrefix)));
+        result.getObjectSummaries().forEach(summary -> children.add(childName(summary.getKey(), keyPrefix)));
+        request.setContinuationToken(result.getNextContinuationToken());
+      }
+      while (result.isTruncated());
+      return children;
+    }
+    catch (AmazonServiceException e) {
+      throw new IOException("Error listing " + keyPrefix + " in bucket " + bucketName, e);
+    }
+  }
+
+  private String childName(String key, String keyPrefix) {
+    String child = key.substring(prefix.length() + keyPrefix.length());
+    return child.endsWith("/") ? child.substring(0, child.length() - 1) : child;
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.impl.tiles;
+
+import static com.here.xyz.models.geojson.WebMercatorTile.MaxLatitude;
+import static com.here.xyz.models.geojson.WebMercatorTile.MinLatitude;
+
+import com.here.xyz.XyzSerializable;
+import com.here.xyz.models.geojson.WebMercatorTile;
+import com.here.xyz.models.geojson.coordinates.BBox;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes a complete set of pre-rendered tiles in a {@link TileStore}.
+ */
+public class TileSetMetadata implements XyzSerializable {
+  private String renderingId;
+  private long version;
+  private int minLevel;
+  private int maxLevel;
+  private BBox bbox;
+  private long tileCount;
+  private long createdAt;
+
+  /**
+   * @return The ID of the rendering of which the tiles are part of this tile set
+   */
+  public String getRenderingId() {
+    return renderingId;
+  }
+
+  public void setRenderingId(String renderingId) {
+    this.renderingId = renderingId;
+  }
+
+  public TileSetMetadata withRenderingId(String renderingId) {
+    setRenderingId(renderingId);
+    return this;
+  }
+
+  /**
+   * @return The space version of which the content was rendered into the tiles
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  public void setVersion(long version) {
+    this.version = version;
+  }
+
+  public TileSetMetadata withVersion(long version) {
+    setVersion(version);
+    return this;
+  }
+
+  public int getMinLevel() {
+    return minLevel;
+  }
+
+  public void setMinLevel(int minLevel) {
+    this.minLevel = minLevel;
+  }
+
+  public TileSetMetadata withMinLevel(int minLevel) {
+    setMinLevel(minLevel);
+    return this;
+  }
+
+  public int getMaxLevel() {
+    return maxLevel;
+  }
+
+  public void setMaxLevel(int maxLevel) {
+    this.maxLevel = maxLevel;
+  }
+
+  public TileSetMetadata withMaxLevel(int maxLevel) {
+    setMaxLevel(maxLevel);
+    return this;
+  }
+
+  public BBox getBbox() {
+    return bbox;
+  }
+
+  public void setBbox(BBox bbox) {
+    this.bbox = bbox;
+  }
+
+  public TileSetMetadata withBbox(BBox bbox) {
+    setBbox(bbox);
+    return this;
+  }
+
+  /**
+   * @return The number of non-empty tiles which have been written to the store
+   */
+  public long getTileCount() {
+    return tileCount;
+  }
+
+  public void setTileCount(long tileCount) {
+    this.tileCount = tileCount;
+  }
+
+  public TileSetMetadata withTileCount(long tileCount) {
+    setTileCount(tileCount);
+    return this;
+  }
+
+  public long getCreatedAt() {
+    return createdAt;
+  }
+
+  public void setCreatedAt(long createdAt) {
+    this.createdAt = createdAt;
+  }
+
+  public TileSetMetadata withCreatedAt(long createdAt) {
+    setCreatedAt(createdAt);
+    return this;
+  }
+
+  /**
+   * @return true, if the specified tile is part of this tile set
+   */
+  public boolean covers(WebMercatorTile tile) {
+    if (tile.level < minLevel || tile.level > maxLevel)
+      return false;
+    int[] range = tileRange(bbox, tile.level);
+    return tile.x >= range[0] && tile.x <= range[2] && tile.y >= range[1] && tile.y <= range[3];
+  }
+
+  /**
+   * Counts all tiles within the bounding box on the specified levels.
+   */
+  public static long countTiles(BBox bbox, int minLevel, int maxLevel) {
+    long tileCount = 0;
+    for (int level = minLevel; level <= maxLevel; level++)
+      tileCount += countTiles(tileRange(bbox, level));
+    return tileCount;
+  }
+
+  private static long countTiles(int[] range) {
+    return (long) (range[2] - range[0] + 1) * (range[3] - range[1] + 1);
+  }
+
+  /**
+   * Provides a contiguous part of all tiles within the bounding box on the specified levels.
+   * The tiles are enumerated level by level, column by column and row by row, so the same part always contains the same tiles.
+   *
+   * @param firstTile The index of the first tile of the part
+   * @param tileCount The maximum number of tiles of the part
+   * @return The tiles of the part
+   */
+  public static List<WebMercatorTile> tiles(BBox bbox, int minLevel, int maxLevel, long firstTile, int tileCount) {
+    List<WebMercatorTile> tiles = new ArrayList<>(tileCount);
+    long levelStart = 0;
+    for (int level = minLevel; level <= maxLevel && tiles.size() < tileCount; level++) {
+      int[] range = tileRange(bbox, level);
+      long levelTileCount = countTiles(range);
+      int height = range[3] - range[1] + 1;
+      for (long i = Math.max(0, firstTile - levelStart); i < levelTileCount && tiles.size() < tileCount; i++)
+        tiles.add(WebMercatorTile.forWeb(level, range[0] + (int) (i / height), range[1] + (int) (i % height)));
+      levelStart += levelTileCount;
+    }
+    return tiles;
+  }
+
+  /**
+   * Calculates the range of all tiles on the specified level which are intersecting the bounding box.
+   *
+   * @return The range as array of the form <code>[minX, minY, maxX, maxY]</code>
+   */
+  public static int[] tileRange(BBox bbox, int level) {
+    int maxIndex = (1 << level) - 1;
+    return new int[] {
+        tileX(bbox.minLon(), level, maxIndex),
+        tileY(Math.min(bbox.maxLat(), MaxLatitude), level, maxIndex),
+        tileX(bbox.maxLon(), level, maxIndex),
+        tileY(Math.max(bbox.minLat(), MinLatitude), level, maxIndex)
+    };
+  }
+
+  private static int tileX(double lon, int level, int maxIndex) {
+    return (int) Math.max(0, Math.min(maxIndex, Math.floor((lon + 180) / 360 * (1 << level))));
+  }
+
+  private static int tileY(double lat, int level, int maxIndex) {
+    double sinLatitude = Math.sin(lat * Math.PI / 180);
+    return (int) Math.max(0, Math.min(maxIndex,
+        Math.floor((.5 - Math.log((1 + sinLatitude) / (1 - sinLatitude)) / (4 * Math.PI)) * (1 << level))));
+  }
+}
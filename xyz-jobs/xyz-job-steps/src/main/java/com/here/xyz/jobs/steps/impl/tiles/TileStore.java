@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.impl.tiles;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.here.xyz.XyzSerializable;
+import com.here.xyz.models.geojson.WebMercatorTile;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A store for pre-rendered MVT tiles.
+ * Each tile set (e.g., the tiles of one space) is stored below its own key-prefix. Each rendering of a tile set writes its tiles
+ * below a separate sub-prefix. The {@link TileSetMetadata} of a tile set references the latest complete rendering and gets written
+ * only after all of its tiles have been written, so the tiles which are being read never change while a new rendering is in progress.
+ * Tiles which are covered by the metadata but do not exist in the store are empty.
+ *
+ * Implementations only have to provide the basic key-value operations.
+ */
+public interface TileStore {
+  String METADATA_KEY = "tileset.json";
+  String TILE_SUFFIX = ".mvt";
+  String BATCHES_KEY = "batches";
+
+  /**
+   * Creates the tile store for the specified location.
+   * Supported schemes are <code>file</code> for a local directory and <code>s3</code> for a (S3 compatible) bucket and prefix.
+   *
+   * @param location The location of the tile store, e.g. <code>s3://some-bucket/some/prefix</code>
+   * @param s3Client The S3 client to be used in case of an S3 location
+   * @return The tile store for the location
+   */
+  static TileStore forLocation(URI location, AmazonS3 s3Client) {
+    if ("file".equals(location.getScheme()))
+      return new FileSystemTileStore(Path.of(location));
+    if ("s3".equals(location.getScheme()))
+      return new S3TileStore(s3Client, location.getHost(), location.getPath());
+    throw new IllegalArgumentException("Unsupported tile store location: " + location);
+  }
+
+  /**
+   * @return The bytes stored for the key or <code>null</code> if no value exists for the key
+   */
+  byte[] read(String key) throws IOException;
+
+  void write(String key, byte[] value) throws IOException;
+
+  void delete(String key) throws IOException;
+
+  /**
+   * Deletes all values of which the keys start with the specified prefix.
+   * @param keyPrefix The prefix, always ending with a slash
+   */
+  void deleteAll(String keyPrefix) throws IOException;
+
+  /**
+   * Lists the names of the direct children below the specified prefix, i.e. the next path segments of all contained keys.
+   * @param keyPrefix The prefix, always ending with a slash
+   */
+  List<String> listChildren(String keyPrefix) throws IOException;
+
+  default byte[] readTile(String tileSetId, String renderingId, WebMercatorTile tile) throws IOException {
+    return read(tileKey(tileSetId, renderingId, tile));
+  }
+
+  default void writeTile(String tileSetId, String renderingId, WebMercatorTile tile, byte[] mvt) throws IOException {
+    write(tileKey(tileSetId, renderingId, tile), mvt);
+  }
+
+  default void deleteTile(String tileSetId, String renderingId, WebMercatorTile tile) throws IOException {
+    delete(tileKey(tileSetId, renderingId, tile));
+  }
+
+  /**
+   * @return The metadata of the tile set or <code>null</code> if the tile set does not exist or is not complete
+   */
+  default TileSetMetadata readMetadata(String tileSetId) throws IOException {
+    byte[] metadata = read(tileSetId + "/" + METADATA_KEY);
+    try {
+      return metadata == null ? null : XyzSerializable.deserialize(metadata, TileSetMetadata.class);
+    }
+    catch (JsonProcessingException e) {
+      throw new IOException("Error deserializing metadata of tile set " + tileSetId, e);
+    }
+  }
+
+  default void writeMetadata(String tileSetId, TileSetMetadata metadata) throws IOException {
+    write(tileSetId + "/" + METADATA_KEY, metadata.serialize().getBytes());
+  }
+
+  default void deleteMetadata(String tileSetId) throws IOException {
+    delete(tileSetId + "/" + METADATA_KEY);
+  }
+
+  /**
+   * Writes the metadata of a batch of tiles, once all tiles of the batch have been written into the rendering.
+   * The metadata of the batch contains the version of the content which was read for the batch and the number of written tiles.
+   *
+   * @param firstTile The index of the first tile of the batch, identifies the batch within the rendering
+   */
+  default void writeBatchMetadata(String tileSetId, String renderingId, long firstTile, TileSetMetadata metadata) throws IOException {
+    write(batchesKeyPrefix(tileSetId, renderingId) + firstTile + ".json", metadata.serialize().getBytes());
+  }
+
+  /**
+   * @return The metadata of all completed batches of the rendering
+   */
+  default List<TileSetMetadata> readBatchMetadata(String tileSetId, String renderingId) throws IOException {
+    List<TileSetMetadata> batches = new ArrayList<>();
+    for (String batchKey : listChildren(batchesKeyPrefix(tileSetId, renderingId))) {
+      if (!batchKey.endsWith(".json"))
+        //E.g., a value which is currently being written
+        continue;
+      byte[] metadata = read(batchesKeyPrefix(tileSetId, renderingId) + batchKey);
+      try {
+        if (metadata != null)
+          batches.add(XyzSerializable.deserialize(metadata, TileSetMetadata.class));
+      }
+      catch (JsonProcessingException e) {
+        throw new IOException("Error deserializing metadata of batch " + batchKey + " of tile set " + tileSetId, e);
+      }
+    }
+    return batches;
+  }
+
+  /**
+   * Deletes the tiles of all renderings of a tile set, except the specified one.
+   *
+   * @param keptRenderingId The rendering to be kept or <code>null</code> to delete all renderings
+   */
+  default void deleteRenderings(String tileSetId, String keptRenderingId) throws IOException {
+    for (String child : listChildren(tileSetId + "/"))
+      if (!METADATA_KEY.equals(child) && !child.equals(keptRenderingId))
+        deleteAll(tileSetId + "/" + child + "/");
+  }
+
+  private static String batchesKeyPrefix(String tileSetId, String renderingId) {
+    return tileSetId + "/" + renderingId + "/" + BATCHES_KEY + "/";
+  }
+
+  private static String tileKey(String tileSetId, String renderingId, WebMercatorTile tile) {
+    return tileSetId + "/" + renderingId + "/" + tile.level + "/" + tile.x + "/" + tile.y + TILE_SUFFIX;
+  }
+}
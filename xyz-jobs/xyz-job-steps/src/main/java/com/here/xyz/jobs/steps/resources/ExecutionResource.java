@@ -74,7 +74,7 @@ public abstract class ExecutionResource {
    *
    * @return The overall available virtual units of this resource
    */
-  protected abstract double getMaxVirtualUnits();
+  public abstract double getMaxVirtualUnits();
 
   /**
    * Provides all resource instances that are available in the system.
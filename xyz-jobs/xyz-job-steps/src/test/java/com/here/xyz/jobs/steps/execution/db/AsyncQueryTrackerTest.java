@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.execution.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+import org.junit.Test;
+
+public class AsyncQueryTrackerTest {
+  private static final String DB = "testDb";
+
+  @Test
+  public void completeAfterSubmission() {
+    AsyncQueryTracker tracker = new AsyncQueryTracker();
+    tracker.expectCallback("q1", DB);
+    tracker.expectCallback("q2", DB);
+
+    assertFalse("The step must not complete while queries are pending", tracker.submissionDone());
+    assertFalse(tracker.succeeded("q1"));
+    assertTrue("The last callback must complete the step", tracker.succeeded("q2"));
+    assertTrue(tracker.isCompletionReported());
+  }
+
+  @Test
+  public void callbacksBeforeSubmissionDone() {
+    AsyncQueryTracker tracker = new AsyncQueryTracker();
+    tracker.expectCallback("q1", DB);
+    assertFalse("The step must not complete while it is still submitting queries", tracker.succeeded("q1"));
+
+    tracker.expectCallback("q2", DB);
+    assertFalse(tracker.succeeded("q2"));
+    assertTrue("The step must complete once the submission is done", tracker.submissionDone());
+  }
+
+  @Test
+  public void noAsyncQueries() {
+    AsyncQueryTracker tracker = new AsyncQueryTracker();
+    assertTrue(tracker.submissionDone());
+  }
+
+  @Test
+  public void failureIsReportedOnce() {
+    AsyncQueryTracker tracker = new AsyncQueryTracker();
+    tracker.expectCallback("q1", DB);
+    tracker.expectCallback("q2", DB);
+    tracker.submissionDone();
+
+    assertTrue(tracker.failed("q1"));
+    assertFalse("No further callbacks are expected after a failure", tracker.hasPendingCallbacks());
+    assertFalse(tracker.failed("q2"));
+    assertFalse(tracker.succeeded("q2"));
+  }
+
+  @Test
+  public void unknownCallbacksAreIgnored() {
+    AsyncQueryTracker tracker = new AsyncQueryTracker();
+    tracker.expectCallback("q1", DB);
+    tracker.submissionDone();
+
+    assertFalse(tracker.succeeded("other"));
+    assertFalse(tracker.failed("other"));
+    assertEquals(Set.of("q1"), tracker.pendingQueryIds());
+  }
+
+  @Test
+  public void uncheckedQueries() {
+    AsyncQueryTracker tracker = new AsyncQueryTracker();
+    tracker.expectCallback("q1", DB);
+    tracker.addUncheckedQuery();
+    tracker.expectCallback("q2", DB);
+    tracker.dropCallback("q2");
+
+    assertFalse(tracker.submissionDone());
+    assertFalse("Unchecked queries can only be completed by the state checks", tracker.succeeded("q1"));
+    assertTrue(tracker.completeUnchecked());
+    assertFalse(tracker.completeUnchecked());
+  }
+
+  @Test
+  public void reset() {
+    AsyncQueryTracker tracker = new AsyncQueryTracker();
+    tracker.expectCallback("q1", DB);
+    tracker.submissionDone();
+    assertTrue(tracker.failed("q1"));
+
+    tracker.reset();
+    assertFalse(tracker.isSubmitted());
+    assertFalse(tracker.isCompletionReported());
+    tracker.expectCallback("q2", DB);
+    assertFalse(tracker.succeeded("q1"));
+    assertFalse(tracker.submissionDone());
+    assertTrue(tracker.succeeded("q2"));
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.execution.db;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import org.junit.Test;
+
+public class DatabaseBasedStepTest {
+
+  @Test
+  public void retryableSqlStates() {
+    //Connection failure, serialization failure, deadlock, insufficient resources, lock not available, admin shutdown, system error
+    for (String sqlState : List.of("08006", "08003", "40001", "40P01", "53100", "53300", "55P03", "57P01", "57P03", "58030"))
+      assertTrue(sqlState + " must be retryable", DatabaseBasedStep.isRetryable(sqlState));
+  }
+
+  @Test
+  public void nonRetryableSqlStates() {
+    //Query canceled / statement timeout, syntax error, unique violation, insufficient privilege, undefined table, raise exception
+    for (String sqlState : List.of("57014", "42601", "23505", "42501", "42P01", "P0001", "40002"))
+      assertFalse(sqlState + " must not be retryable", DatabaseBasedStep.isRetryable(sqlState));
+    assertFalse(DatabaseBasedStep.isRetryable(null));
+    assertFalse(DatabaseBasedStep.isRetryable(""));
+  }
+}
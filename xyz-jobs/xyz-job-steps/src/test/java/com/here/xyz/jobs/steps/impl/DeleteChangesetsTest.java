@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.impl;
+
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.here.xyz.util.service.BaseHttpServerVerticle.ValidationException;
+import org.junit.Test;
+
+public class DeleteChangesetsTest {
+
+  @Test
+  public void minVersionBelowTagIsAccepted() throws ValidationException {
+    DeleteChangesets.validateMinVersion(5, 5L, 10);
+    DeleteChangesets.validateMinVersion(5, 7L, 10);
+  }
+
+  @Test
+  public void minVersionWithoutTagsIsAccepted() throws ValidationException {
+    DeleteChangesets.validateMinVersion(10, null, 10);
+  }
+
+  @Test
+  public void minVersionAboveTagIsRejected() {
+    ValidationException e = assertThrows(ValidationException.class, () -> DeleteChangesets.validateMinVersion(6, 5L, 10));
+    assertTrue(e.getMessage().contains("Tag for version 5 exists"));
+  }
+
+  @Test
+  public void minVersionAboveHeadIsRejected() {
+    ValidationException e = assertThrows(ValidationException.class, () -> DeleteChangesets.validateMinVersion(11, null, 10));
+    assertTrue(e.getMessage().contains("HEAD (10)"));
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.impl.imports;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.here.xyz.jobs.steps.impl.ImportFilesToSpace.Format;
+import com.here.xyz.jobs.steps.impl.imports.CopyImporter.Chunk;
+import com.here.xyz.jobs.steps.impl.imports.InputSource.InputFile;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class CopyImporterTest {
+
+  private static CopyImporter importer(long chunkSize) {
+    return new CopyImporter(null, null, Format.GEOJSON).withChunkSize(chunkSize);
+  }
+
+  @Test
+  public void uncompressedFilesAreSplit() {
+    List<Chunk> chunks = importer(100).planChunks(List.of(new InputFile("a.geojson", 250, false)));
+
+    assertEquals(3, chunks.size());
+    assertEquals(0, chunks.get(0).start());
+    assertEquals(100, chunks.get(0).end());
+    assertEquals(200, chunks.get(2).start());
+    assertEquals(250, chunks.get(2).end());
+  }
+
+  @Test
+  public void chunksAreContiguous() {
+    List<Chunk> chunks = importer(64).planChunks(List.of(new InputFile("a.geojson", 1000, false)));
+
+    assertEquals(0, chunks.get(0).start());
+    for (int i = 1; i < chunks.size(); i++)
+      assertEquals(chunks.get(i - 1).end(), chunks.get(i).start());
+    assertEquals(1000, chunks.get(chunks.size() - 1).end());
+  }
+
+  @Test
+  public void compressedFilesAreOneChunk() {
+    List<Chunk> chunks = importer(100).planChunks(List.of(new InputFile("a.geojson.gz", 1000, true)));
+
+    assertEquals(1, chunks.size());
+    assertEquals(0, chunks.get(0).start());
+    assertEquals(1000, chunks.get(0).end());
+  }
+
+  @Test
+  public void fileOfChunkSize() {
+    assertEquals(1, importer(100).planChunks(List.of(new InputFile("a.geojson", 100, false))).size());
+  }
+
+  @Test
+  public void chunkIdsAreStable() {
+    List<InputFile> files = List.of(new InputFile("a.geojson", 250, false), new InputFile("b.geojson.gz", 80, true));
+    List<String> ids = importer(100).planChunks(files).stream().map(Chunk::id).collect(Collectors.toList());
+
+    assertEquals(List.of("a.geojson@0", "a.geojson@100", "a.geojson@200", "b.geojson.gz@0"), ids);
+    assertEquals(ids, importer(100).planChunks(files).stream().map(Chunk::id).collect(Collectors.toList()));
+    assertTrue(ids.stream().distinct().count() == ids.size());
+  }
+}
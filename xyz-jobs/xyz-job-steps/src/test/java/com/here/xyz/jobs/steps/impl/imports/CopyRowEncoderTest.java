@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.impl.imports;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import com.here.xyz.jobs.steps.impl.ImportFilesToSpace.Format;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class CopyRowEncoderTest {
+
+  private static String encode(Format format, String line) {
+    StringBuilder target = new StringBuilder();
+    new CopyRowEncoder(format).encode(line, target);
+    return target.toString();
+  }
+
+  @Test
+  public void columns() {
+    assertEquals("jsondata", new CopyRowEncoder(Format.GEOJSON).columns());
+    assertEquals("jsondata, geo", new CopyRowEncoder(Format.CSV_JSON_WKB).columns());
+  }
+
+  @Test
+  public void geoJsonIsNormalized() {
+    assertEquals("{\"type\":\"Feature\",\"id\":\"a\",\"properties\":{\"x\":1}}\n",
+        encode(Format.GEOJSON, "{ \"type\": \"Feature\", \"id\": \"a\", \"properties\": { \"x\": 1 } }"));
+  }
+
+  @Test
+  public void copyTextIsEscaped() {
+    assertEquals("{\"properties\":{\"x\":\"a\\\\\\\\b\\\\tc\"}}\n", encode(Format.GEOJSON, "{\"properties\":{\"x\":\"a\\\\b\\tc\"}}"));
+  }
+
+  @Test
+  public void blankLinesAreSkipped() {
+    StringBuilder target = new StringBuilder();
+    assertFalse(new CopyRowEncoder(Format.GEOJSON).encode("  ", target));
+    assertEquals("", target.toString());
+  }
+
+  @Test
+  public void invalidGeoJson() {
+    assertThrows(IllegalArgumentException.class, () -> encode(Format.GEOJSON, "{\"type\":"));
+    assertThrows(IllegalArgumentException.class, () -> encode(Format.GEOJSON, "[1, 2]"));
+    assertThrows(IllegalArgumentException.class, () -> encode(Format.GEOJSON, "{\"type\":\"FeatureCollection\"}"));
+    assertThrows(IllegalArgumentException.class, () -> encode(Format.GEOJSON, "{\"geometry\":{\"coordinates\":[]}}"));
+    assertThrows(IllegalArgumentException.class, () -> encode(Format.GEOJSON, "{\"properties\":[]}"));
+  }
+
+  @Test
+  public void csvJsonWkb() {
+    assertEquals("{\"id\":\"a\",\"properties\":{\"name\":\"x\"}}\t0101000000000000000000F03F0000000000000040\n",
+        encode(Format.CSV_JSON_WKB, "\"{'\"id'\":'\"a'\",'\"properties'\":{'\"name'\":'\"x'\"}}\",0101000000000000000000F03F0000000000000040"));
+  }
+
+  @Test
+  public void csvWithoutGeometry() {
+    assertEquals("{\"id\":\"a\"}\t\\N\n", encode(Format.CSV_JSON_WKB, "\"{'\"id'\":'\"a'\"}\","));
+  }
+
+  @Test
+  public void invalidCsv() {
+    assertThrows(IllegalArgumentException.class, () -> encode(Format.CSV_JSON_WKB, "\"{}\""));
+    assertThrows(IllegalArgumentException.class, () -> encode(Format.CSV_JSON_WKB, "\"{}\",01X1"));
+    assertThrows(IllegalArgumentException.class, () -> encode(Format.CSV_JSON_WKB, "\"{}\",011"));
+    assertThrows(IllegalArgumentException.class, () -> encode(Format.CSV_JSON_WKB, "\"{\"geometry\":{\"type\":\"Point\"}}\",01"));
+  }
+
+  @Test
+  public void parseCsv() {
+    assertEquals(Arrays.asList("a", null, "", "b,c", "d\"e"), CopyRowEncoder.parseCsv("a,,\"\",\"b,c\",\"d'\"e\""));
+    assertThrows(IllegalArgumentException.class, () -> CopyRowEncoder.parseCsv("\"unterminated"));
+  }
+}
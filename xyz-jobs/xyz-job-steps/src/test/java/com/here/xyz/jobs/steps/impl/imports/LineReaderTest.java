@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.impl.imports;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class LineReaderTest {
+
+  private static LineReader reader(String content, long position) {
+    return new LineReader(new ByteArrayInputStream(content.getBytes(UTF_8)), position);
+  }
+
+  @Test
+  public void readLines() throws IOException {
+    LineReader reader = reader("a\nbc\r\n\nd", 0);
+
+    assertEquals("a", reader.readLine());
+    assertEquals(2, reader.position());
+    assertEquals("bc", reader.readLine());
+    assertEquals(6, reader.position());
+    assertEquals("", reader.readLine());
+    assertEquals("d", reader.readLine());
+    assertEquals(8, reader.position());
+    assertNull(reader.readLine());
+  }
+
+  @Test
+  public void positionCountsBytes() throws IOException {
+    //"ä" and "€" are encoded using 2 and 3 bytes
+    LineReader reader = reader("ä€\nx\n", 10);
+
+    assertEquals("ä€", reader.readLine());
+    assertEquals(16, reader.position());
+    assertEquals("x", reader.readLine());
+    assertEquals(18, reader.position());
+  }
+
+  @Test
+  public void skipLine() throws IOException {
+    LineReader reader = reader("partial\nnext\n", 0);
+
+    assertTrue(reader.skipLine());
+    assertEquals("next", reader.readLine());
+    assertFalse(reader.skipLine());
+  }
+
+  @Test
+  public void longLines() throws IOException {
+    String longLine = "x".repeat(200_000);
+    LineReader reader = reader(longLine + "\n" + longLine, 0);
+
+    assertEquals(longLine, reader.readLine());
+    assertEquals(longLine, reader.readLine());
+    assertNull(reader.readLine());
+  }
+
+  @Test
+  public void chunksOwnTheLinesStartingWithinTheirRange() throws IOException {
+    String content = "line1\nline2\nline3\nline4\n";
+    int chunkSize = 8;
+    List<String> lines = new ArrayList<>();
+    for (int start = 0; start < content.length(); start += chunkSize) {
+      int end = Math.min(start + chunkSize, content.length());
+      //Same logic as the CopyImporter: start reading one byte before the chunk & skip the (partial) first line
+      long offset = Math.max(start - 1, 0);
+      LineReader reader = reader(content.substring((int) offset), offset);
+      if (start > 0 && !reader.skipLine())
+        continue;
+      String line;
+      while (reader.position() < end && (line = reader.readLine()) != null)
+        lines.add(line);
+    }
+    assertEquals(List.of("line1", "line2", "line3", "line4"), lines);
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.jobs.steps.impl.tiles;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.here.xyz.models.geojson.WebMercatorTile;
+import com.here.xyz.models.geojson.coordinates.BBox;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+
+public class TileSetMetadataTest {
+  private static final BBox WORLD = new BBox(-180, WebMercatorTile.MinLatitude, 180, WebMercatorTile.MaxLatitude);
+  private static final BBox BERLIN = new BBox(13.0, 52.3, 13.8, 52.7);
+
+  @Test
+  public void countTiles() {
+    assertEquals(1 + 4 + 16, TileSetMetadata.countTiles(WORLD, 0, 2));
+    assertEquals(TileSetMetadata.tiles(BERLIN, 8, 12, 0, 1000).size(), TileSetMetadata.countTiles(BERLIN, 8, 12));
+  }
+
+  @Test
+  public void batchesCoverAllTilesExactlyOnce() {
+    long tileCount = TileSetMetadata.countTiles(BERLIN, 6, 13);
+    Set<String> tiles = new HashSet<>();
+    int batchSize = 7;
+    for (long firstTile = 0; firstTile < tileCount; firstTile += batchSize)
+      for (WebMercatorTile tile : TileSetMetadata.tiles(BERLIN, 6, 13, firstTile, batchSize))
+        assertTrue(tiles.add(tile.asQuadkey()));
+
+    assertEquals(tileCount, tiles.size());
+    TileSetMetadata tileSet = new TileSetMetadata().withMinLevel(6).withMaxLevel(13).withBbox(BERLIN);
+    for (WebMercatorTile tile : TileSetMetadata.tiles(BERLIN, 6, 13, 0, (int) tileCount))
+      assertTrue(tileSet.covers(tile));
+  }
+
+  @Test
+  public void batchesAreStable() {
+    List<String> batch = new ArrayList<>();
+    for (WebMercatorTile tile : TileSetMetadata.tiles(WORLD, 0, 3, 3, 4))
+      batch.add(tile.level + "/" + tile.x + "/" + tile.y);
+    assertEquals(List.of("1/1/0", "1/1/1", "2/0/0", "2/0/1"), batch);
+  }
+
+  @Test
+  public void partialLastBatch() {
+    assertEquals(1, TileSetMetadata.tiles(WORLD, 0, 2, 20, 10).size());
+    assertEquals(0, TileSetMetadata.tiles(WORLD, 0, 2, 21, 10).size());
+  }
+
+  @Test
+  public void batchMetadata() throws IOException {
+    Path root = Files.createTempDirectory("tilestore");
+    TileStore tileStore = new FileSystemTileStore(root);
+    tileStore.writeTile("space1", "rendering1", WebMercatorTile.forWeb(0, 0, 0), new byte[] {1});
+    tileStore.writeBatchMetadata("space1", "rendering1", 0, new TileSetMetadata().withVersion(5).withTileCount(1));
+    tileStore.writeBatchMetadata("space1", "rendering1", 4096, new TileSetMetadata().withVersion(3).withTileCount(0));
+
+    List<TileSetMetadata> batches = tileStore.readBatchMetadata("space1", "rendering1");
+    assertEquals(2, batches.size());
+    assertEquals(3, batches.stream().mapToLong(TileSetMetadata::getVersion).min().getAsLong());
+
+    tileStore.deleteTile("space1", "rendering1", WebMercatorTile.forWeb(0, 0, 0));
+    assertNull(tileStore.readTile("space1", "rendering1", WebMercatorTile.forWeb(0, 0, 0)));
+    tileStore.deleteRenderings("space1", null);
+    assertTrue(tileStore.readBatchMetadata("space1", "rendering1").isEmpty());
+  }
+}
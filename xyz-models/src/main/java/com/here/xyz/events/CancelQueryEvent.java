@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.events;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+
+/**
+ * Cancels the storage queries which are still running for a former event, e.g., because the client which caused that event
+ * is not waiting for the response anymore.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonTypeName(value = "CancelQueryEvent")
+public final class CancelQueryEvent extends Event<CancelQueryEvent> {
+
+  private String queryId;
+
+  /**
+   * The ID of the queries to be cancelled. That is the stream ID of the event which caused the queries.
+   *
+   * @return the ID of the queries to be cancelled
+   */
+  public String getQueryId() {
+    return queryId;
+  }
+
+  public void setQueryId(String queryId) {
+    this.queryId = queryId;
+  }
+
+  public CancelQueryEvent withQueryId(String queryId) {
+    setQueryId(queryId);
+    return this;
+  }
+}
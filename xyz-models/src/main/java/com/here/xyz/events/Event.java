@@ -66,7 +66,8 @@ import java.util.Set;
     @JsonSubTypes.Type(value = DeleteChangesetsEvent.class, name = "DeleteChangesetsEvent"),
     @JsonSubTypes.Type(value = IterateChangesetsEvent.class, name = "IterateChangesetsEvent"),
     @JsonSubTypes.Type(value = GetChangesetStatisticsEvent.class, name = "GetChangesetStatisticsEvent"),
-    @JsonSubTypes.Type(value = OneTimeActionEvent.class, name = "OneTimeActionEvent")
+    @JsonSubTypes.Type(value = OneTimeActionEvent.class, name = "OneTimeActionEvent"),
+    @JsonSubTypes.Type(value = CancelQueryEvent.class, name = "CancelQueryEvent")
 })
 @JsonIgnoreProperties(ignoreUnknown = true)
 public abstract class Event<T extends Event> extends Payload {
@@ -80,6 +81,8 @@ public abstract class Event<T extends Event> extends Payload {
   @JsonView(ExcludeFromHash.class)
   private boolean preferPrimaryDataSource;
   @JsonView(ExcludeFromHash.class)
+  private boolean allowCaughtUpReplica;
+  @JsonView(ExcludeFromHash.class)
   private Map<String, Object> params;
   private TrustedParams trustedParams;
   private String space;
@@ -326,6 +329,28 @@ public abstract class Event<T extends Event> extends Payload {
     return (T) this;
   }
 
+  /**
+   * Whether the connector may use a replica data source even if {@link #getPreferPrimaryDataSource()} is true.
+   * The replica may only be used if it is known to have replayed all changes which have been committed on the primary before the
+   * connector received the event. Otherwise, the primary data source is used.
+   * That way no clocks of different hosts have to be compared with each other.
+   *
+   * @return true, if the connector may use a replica which has caught up
+   */
+  public boolean getAllowCaughtUpReplica() {
+    return allowCaughtUpReplica;
+  }
+
+  public void setAllowCaughtUpReplica(boolean allowCaughtUpReplica) {
+    this.allowCaughtUpReplica = allowCaughtUpReplica;
+  }
+
+  public T withAllowCaughtUpReplica(boolean allowCaughtUpReplica) {
+    setAllowCaughtUpReplica(allowCaughtUpReplica);
+    //noinspection unchecked
+    return (T) this;
+  }
+
   /**
    * The version of the event protocol.
    *
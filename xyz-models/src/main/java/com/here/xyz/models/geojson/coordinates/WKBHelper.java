@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.models.geojson.coordinates;
+
+import com.here.xyz.models.geojson.implementation.Geometry;
+import com.here.xyz.models.geojson.implementation.GeometryCollection;
+import com.here.xyz.models.geojson.implementation.GeometryItem;
+import com.here.xyz.models.geojson.implementation.LineString;
+import com.here.xyz.models.geojson.implementation.MultiLineString;
+import com.here.xyz.models.geojson.implementation.MultiPoint;
+import com.here.xyz.models.geojson.implementation.MultiPolygon;
+import com.here.xyz.models.geojson.implementation.Point;
+import com.here.xyz.models.geojson.implementation.Polygon;
+import java.util.List;
+
+/**
+ * Encodes GeoJSON geometries directly into 3D (E)WKB without converting them into JTS geometries first.
+ * The output is the same as the one of JTS' <code>WKBWriter(3)</code> (big endian, Z-flag in the type, no SRID) for geometries
+ * of which missing or NaN altitudes have been replaced by 0.
+ *
+ * Optionally the geometries can be encoded as ISO WKB (type code + 1000 instead of the Z-flag) as it's required e.g. by GeoParquet.
+ *
+ * The size of the encoded geometry is calculated upfront, so the geometry can be written into an exactly sized array or into
+ * a (re-used) buffer without any intermediate allocations.
+ */
+public class WKBHelper {
+  private static final byte BIG_ENDIAN = 0;
+  private static final int WKB_Z_FLAG = 0x80000000;
+  private static final int ISO_WKB_Z_OFFSET = 1000;
+  private static final int WKB_POINT = 1;
+  private static final int WKB_LINESTRING = 2;
+  private static final int WKB_POLYGON = 3;
+  private static final int WKB_MULTIPOINT = 4;
+  private static final int WKB_MULTILINESTRING = 5;
+  private static final int WKB_MULTIPOLYGON = 6;
+  private static final int WKB_GEOMETRYCOLLECTION = 7;
+  private static final int HEADER_SIZE = 1 + 4;
+  private static final int COUNT_SIZE = 4;
+  private static final int POSITION_SIZE = 3 * 8;
+
+  /**
+   * Encodes the geometry into a new array of the exact size.
+   */
+  public static byte[] geometryToWKB(Geometry geometry) {
+    byte[] wkb = new byte[wkbSize(geometry)];
+    write(geometry, wkb, 0);
+    return wkb;
+  }
+
+  /**
+   * Encodes the geometry as ISO WKB into a new array of the exact size.
+   */
+  public static byte[] geometryToISOWKB(Geometry geometry) {
+    byte[] wkb = new byte[wkbSize(geometry)];
+    write(geometry, wkb, 0, true);
+    return wkb;
+  }
+
+  /**
+   * Calculates the number of bytes the encoded geometry will take.
+   */
+  public static int wkbSize(Geometry geometry) {
+    if (geometry instanceof Point)
+      return HEADER_SIZE + POSITION_SIZE;
+    if (geometry instanceof LineString lineString)
+      return HEADER_SIZE + positionsSize(coordinates(lineString.getCoordinates()));
+    if (geometry instanceof Polygon polygon)
+      return HEADER_SIZE + ringsSize(coordinates(polygon.getCoordinates()));
+    if (geometry instanceof MultiPoint multiPoint)
+      return HEADER_SIZE + COUNT_SIZE + coordinates(multiPoint.getCoordinates()).size() * (HEADER_SIZE + POSITION_SIZE);
+    if (geometry instanceof MultiLineString multiLineString) {
+      int size = HEADER_SIZE + COUNT_SIZE;
+      for (LineStringCoordinates lineString : coordinates(multiLineString.getCoordinates()))
+        size += HEADER_SIZE + positionsSize(lineString);
+      return size;
+    }
+    if (geometry instanceof MultiPolygon multiPolygon) {
+      int size = HEADER_SIZE + COUNT_SIZE;
+      for (PolygonCoordinates polygon : coordinates(multiPolygon.getCoordinates()))
+        size += HEADER_SIZE + ringsSize(polygon);
+      return size;
+    }
+    if (geometry instanceof GeometryCollection geometryCollection) {
+      int size = HEADER_SIZE + COUNT_SIZE;
+      for (GeometryItem item : coordinates(geometryCollection.getGeometries()))
+        size += wkbSize(item);
+      return size;
+    }
+    throw new IllegalArgumentException("Unsupported geometry type: " + (geometry == null ? null : geometry.getClass().getSimpleName()));
+  }
+
+  /**
+   * Writes the encoded geometry into the target array. The target must provide at least {@link #wkbSize(Geometry)} bytes
+   * starting at the specified offset.
+   *
+   * @return The offset right after the written geometry
+   */
+  public static int write(Geometry geometry, byte[] target, int offset) {
+    return write(geometry, target, offset, false);
+  }
+
+  private static int write(Geometry geometry, byte[] target, int offset, boolean iso) {
+    if (geometry instanceof Point point) {
+      offset = writeHeader(target, offset, WKB_POINT, iso);
+      return writePosition(target, offset, coordinates(point.getCoordinates()));
+    }
+    if (geometry instanceof LineString lineString) {
+      offset = writeHeader(target, offset, WKB_LINESTRING, iso);
+      return writePositions(target, offset, coordinates(lineString.getCoordinates()));
+    }
+    if (geometry instanceof Polygon polygon) {
+      offset = writeHeader(target, offset, WKB_POLYGON, iso);
+      return writeRings(target, offset, coordinates(polygon.getCoordinates()));
+    }
+    if (geometry instanceof MultiPoint multiPoint) {
+      MultiPointCoordinates points = coordinates(multiPoint.getCoordinates());
+      offset = writeInt(target, writeHeader(target, offset, WKB_MULTIPOINT, iso), points.size());
+      for (PointCoordinates point : points)
+        offset = writePosition(target, writeHeader(target, offset, WKB_POINT, iso), point);
+      return offset;
+    }
+    if (geometry instanceof MultiLineString multiLineString) {
+      MultiLineStringCoordinates lineStrings = coordinates(multiLineString.getCoordinates());
+      offset = writeInt(target, writeHeader(target, offset, WKB_MULTILINESTRING, iso), lineStrings.size());
+      for (LineStringCoordinates lineString : lineStrings)
+        offset = writePositions(target, writeHeader(target, offset, WKB_LINESTRING, iso), lineString);
+      return offset;
+    }
+    if (geometry instanceof MultiPolygon multiPolygon) {
+      MultiPolygonCoordinates polygons = coordinates(multiPolygon.getCoordinates());
+      offset = writeInt(target, writeHeader(target, offset, WKB_MULTIPOLYGON, iso), polygons.size());
+      for (PolygonCoordinates polygon : polygons)
+        offset = writeRings(target, writeHeader(target, offset, WKB_POLYGON, iso), polygon);
+      return offset;
+    }
+    if (geometry instanceof GeometryCollection geometryCollection) {
+      List<GeometryItem> items = coordinates(geometryCollection.getGeometries());
+      offset = writeInt(target, writeHeader(target, offset, WKB_GEOMETRYCOLLECTION, iso), items.size());
+      for (GeometryItem item : items)
+        offset = write(item, target, offset, iso);
+      return offset;
+    }
+    throw new IllegalArgumentException("Unsupported geometry type: " + (geometry == null ? null : geometry.getClass().getSimpleName()));
+  }
+
+  private static <T> T coordinates(T coordinates) {
+    if (coordinates == null)
+      throw new IllegalArgumentException("Geometry without coordinates can not be encoded.");
+    return coordinates;
+  }
+
+  private static int positionsSize(List<? extends Position> positions) {
+    return COUNT_SIZE + positions.size() * POSITION_SIZE;
+  }
+
+  private static int ringsSize(List<LinearRingCoordinates> rings) {
+    int size = COUNT_SIZE;
+    for (LinearRingCoordinates ring : rings)
+      size += positionsSize(ring);
+    return size;
+  }
+
+  private static int writeHeader(byte[] target, int offset, int type, boolean iso) {
+    target[offset++] = BIG_ENDIAN;
+    return writeInt(target, offset, iso ? type + ISO_WKB_Z_OFFSET : type | WKB_Z_FLAG);
+  }
+
+  private static int writeRings(byte[] target, int offset, List<LinearRingCoordinates> rings) {
+    offset = writeInt(target, offset, rings.size());
+    for (LinearRingCoordinates ring : rings)
+      offset = writePositions(target, offset, ring);
+    return offset;
+  }
+
+  private static int writePositions(byte[] target, int offset, List<? extends Position> positions) {
+    int size = positions.size();
+    offset = writeInt(target, offset, size);
+    for (int i = 0; i < size; i++)
+      offset = writePosition(target, offset, positions.get(i));
+    return offset;
+  }
+
+  private static int writePosition(byte[] target, int offset, Position position) {
+    Double altitude = position.getAltitude();
+    offset = writeDouble(target, offset, position.getLongitude());
+    offset = writeDouble(target, offset, position.getLatitude());
+    //Avoid NaN values
+    return writeDouble(target, offset, altitude == null || altitude.isNaN() ? 0d : altitude);
+  }
+
+  private static int writeInt(byte[] target, int offset, int value) {
+    target[offset] = (byte) (value >>> 24);
+    target[offset + 1] = (byte) (value >>> 16);
+    target[offset + 2] = (byte) (value >>> 8);
+    target[offset + 3] = (byte) value;
+    return offset + 4;
+  }
+
+  private static int writeDouble(byte[] target, int offset, double value) {
+    long bits = Double.doubleToLongBits(value);
+    writeInt(target, offset, (int) (bits >>> 32));
+    return writeInt(target, offset + 4, (int) bits);
+  }
+}
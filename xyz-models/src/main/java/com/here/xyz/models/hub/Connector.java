@@ -130,6 +130,11 @@ public class Connector {
      */
     public boolean extensionSupport;
 
+    /**
+     * Whether the storage connector supports cancelling the queries of a former event by a CancelQueryEvent.
+     */
+    public boolean queryCancellation;
+
     @Override
     public boolean equals(Object o) {
       if (this == o) return true;
@@ -145,7 +150,8 @@ public class Connector {
           && Objects.equals(clusteringTypes, that.clusteringTypes)
           && storageUtilizationReporting == that.storageUtilizationReporting
           && mvtSupport == that.mvtSupport
-          && extensionSupport == that.extensionSupport;
+          && extensionSupport == that.extensionSupport
+          && queryCancellation == that.queryCancellation;
     }
   }
 
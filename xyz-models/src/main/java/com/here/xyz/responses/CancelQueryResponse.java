@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.responses;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.here.xyz.events.CancelQueryEvent;
+
+/**
+ * The response to a {@link CancelQueryEvent}.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonTypeName(value = "CancelQueryResponse")
+public class CancelQueryResponse extends XyzResponse<CancelQueryResponse> {
+
+  private int cancelledQueries;
+  private long cancelledQueriesRuntime;
+
+  /**
+   * @return The number of queries which have been cancelled
+   */
+  public int getCancelledQueries() {
+    return cancelledQueries;
+  }
+
+  public void setCancelledQueries(int cancelledQueries) {
+    this.cancelledQueries = cancelledQueries;
+  }
+
+  public CancelQueryResponse withCancelledQueries(int cancelledQueries) {
+    setCancelledQueries(cancelledQueries);
+    return this;
+  }
+
+  /**
+   * @return The time (in ms) the cancelled queries have been running in sum, when they got cancelled
+   */
+  public long getCancelledQueriesRuntime() {
+    return cancelledQueriesRuntime;
+  }
+
+  public void setCancelledQueriesRuntime(long cancelledQueriesRuntime) {
+    this.cancelledQueriesRuntime = cancelledQueriesRuntime;
+  }
+
+  public CancelQueryResponse withCancelledQueriesRuntime(long cancelledQueriesRuntime) {
+    setCancelledQueriesRuntime(cancelledQueriesRuntime);
+    return this;
+  }
+}
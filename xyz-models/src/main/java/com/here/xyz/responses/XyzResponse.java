@@ -48,7 +48,8 @@ import com.here.xyz.util.Hasher;
     @JsonSubTypes.Type(value = Changeset.class, name = "Changeset"),
     @JsonSubTypes.Type(value = ChangesetCollection.class, name = "ChangesetCollection"),
     @JsonSubTypes.Type(value = ConnectorStatus.class, name = "ConnectorStatus"),
-    @JsonSubTypes.Type(value = SpaceStatus.class, name = "SpaceStatus")
+    @JsonSubTypes.Type(value = SpaceStatus.class, name = "SpaceStatus"),
+    @JsonSubTypes.Type(value = CancelQueryResponse.class, name = "CancelQueryResponse")
 })
 public abstract class XyzResponse<T extends XyzResponse> extends Payload {
 
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.models.geojson.coordinates.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.here.xyz.models.geojson.coordinates.WKBHelper;
+import com.here.xyz.models.geojson.implementation.Geometry;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.io.WKBWriter;
+
+public class WKBHelperTest {
+
+  private static final String[] GEOMETRIES = {
+      "{\"type\":\"Point\",\"coordinates\":[8.5,50.1]}",
+      "{\"type\":\"Point\",\"coordinates\":[-122.4,37.7,12.5]}",
+      "{\"type\":\"LineString\",\"coordinates\":[[0,0],[1,1,5],[2,0.5]]}",
+      "{\"type\":\"Polygon\",\"coordinates\":[[[0,0],[10,0],[10,10],[0,10],[0,0]],[[2,2],[2,4],[4,4],[4,2],[2,2]]]}",
+      "{\"type\":\"MultiPoint\",\"coordinates\":[[1,2],[3,4,5]]}",
+      "{\"type\":\"MultiLineString\",\"coordinates\":[[[0,0],[1,1]],[[2,2],[3,3],[4,4]]]}",
+      "{\"type\":\"MultiPolygon\",\"coordinates\":[[[[0,0],[1,0],[1,1],[0,0]]],[[[5,5,1],[6,5,1],[6,6,1],[5,5,1]]]]}",
+      "{\"type\":\"GeometryCollection\",\"geometries\":[{\"type\":\"Point\",\"coordinates\":[1,2]},"
+          + "{\"type\":\"LineString\",\"coordinates\":[[0,0],[1,1]]}]}"
+  };
+
+  @Test
+  public void testSameAsJTS() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    for (String geometryJson : GEOMETRIES) {
+      Geometry geometry = mapper.readValue(geometryJson, Geometry.class);
+      assertArrayEquals(geometryJson, jtsWKB(geometry), WKBHelper.geometryToWKB(geometry));
+    }
+  }
+
+  @Test
+  public void testWriteIntoBuffer() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    byte[] buffer = new byte[4096];
+    int offset = 0;
+    for (String geometryJson : GEOMETRIES) {
+      Geometry geometry = mapper.readValue(geometryJson, Geometry.class);
+      int end = WKBHelper.write(geometry, buffer, offset);
+      assertEquals(geometryJson, WKBHelper.wkbSize(geometry), end - offset);
+      assertArrayEquals(geometryJson, jtsWKB(geometry), Arrays.copyOfRange(buffer, offset, end));
+      offset = end;
+    }
+  }
+
+  @Test
+  public void testISOWKB() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    for (String geometryJson : GEOMETRIES) {
+      Geometry geometry = mapper.readValue(geometryJson, Geometry.class);
+      byte[] ewkb = WKBHelper.geometryToWKB(geometry), isoWkb = WKBHelper.geometryToISOWKB(geometry);
+      assertEquals(geometryJson, ewkb.length, isoWkb.length);
+      //Only the type codes differ, the outer one is the first one
+      ByteBuffer ewkbBuffer = ByteBuffer.wrap(ewkb), isoBuffer = ByteBuffer.wrap(isoWkb);
+      assertEquals(geometryJson, ewkbBuffer.getInt(1) & 0x7FFFFFFF, isoBuffer.getInt(1) - 1000);
+    }
+  }
+
+  private static byte[] jtsWKB(Geometry geometry) {
+    org.locationtech.jts.geom.Geometry jtsGeometry = geometry.getJTSGeometry();
+    for (Coordinate coordinate : jtsGeometry.getCoordinates())
+      if (Double.isNaN(coordinate.z))
+        coordinate.z = 0;
+    return new WKBWriter(3).write(jtsGeometry);
+  }
+}
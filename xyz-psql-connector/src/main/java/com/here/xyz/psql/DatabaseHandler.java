@@ -39,6 +39,7 @@ import com.here.xyz.models.geojson.implementation.Properties;
 import com.here.xyz.models.geojson.implementation.XyzNamespace;
 import com.here.xyz.psql.query.ExtendedSpace;
 import com.here.xyz.psql.query.GetFeaturesById;
+import com.here.xyz.psql.query.GetStatistics;
 import com.here.xyz.psql.query.helpers.FetchExistingIds;
 import com.here.xyz.psql.query.helpers.FetchExistingIds.FetchIdsInput;
 import com.here.xyz.psql.query.helpers.versioning.GetNextVersion;
@@ -330,6 +331,7 @@ public abstract class DatabaseHandler extends StorageConnector {
                     connection.setAutoCommit(previousAutoCommitState);
                     connection.close();
                 }
+                GetStatistics.invalidateCache(ConnectorParameters.fromEvent(event).getConnectorId(), readTableFromEvent(event));
             }
 
             /** filter out failed ids */
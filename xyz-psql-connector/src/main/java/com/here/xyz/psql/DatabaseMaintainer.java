@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2017-2023 HERE Europe B.V.
+ * Copyright (C) 2017-2024 HERE Europe B.V.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -49,7 +49,7 @@ public class DatabaseMaintainer {
     private static final Logger logger = LogManager.getLogger();
 
     /** Is used to check against xyz_ext_version() */
-    public static final int XYZ_EXT_VERSION = 191;
+    public static final int XYZ_EXT_VERSION = 200;
 
     public static final int H3_CORE_VERSION = 108;
 
@@ -105,6 +105,9 @@ public class DatabaseMaintainer {
             //Check if all required extensions, schemas, tables and functions are present
             this.initialDBSetup(traceItem, autoIndexing, propertySearch);
 
+            //Apply the queued changes of the quadbin pyramids
+            this.applyQuadbinPyramids(traceItem);
+
             if (propertySearch)
                 //Trigger missing Index Maintenance (On-Demand & Auto-Indexing)
                 this.triggerIndexing(traceItem, autoIndexing);
@@ -259,6 +262,15 @@ public class DatabaseMaintainer {
         }
     }
 
+    private synchronized void applyQuadbinPyramids(TraceItem traceItem) {
+        try (final Connection connection = dataSourceProvider.getWriter().getConnection()) {
+            connection.createStatement().execute(MaintenanceSQL.generateApplyQuadbinPyramidsSQL(dbSettings.getSchema()));
+        }
+        catch (Exception e) {
+            logger.error("{} Failed to apply the quadbin pyramids on database: {} / {}@{} '{}'", traceItem, dbSettings.getDb(), dbSettings.getUser(), dbSettings.getHost(), e);
+        }
+    }
+
     private synchronized void triggerIndexing(TraceItem traceItem, boolean autoIndexing){
 
         /** Trigger Auto-Indexing and or On-Demand Index Maintenance  */
@@ -33,6 +33,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.here.xyz.XyzSerializable.Static;
 import com.here.xyz.connectors.runtime.ConnectorRuntime;
 import com.here.xyz.events.ModifyFeaturesEvent;
+import com.here.xyz.models.geojson.coordinates.WKBHelper;
 import com.here.xyz.models.geojson.implementation.Feature;
 import com.here.xyz.models.geojson.implementation.FeatureCollection;
 import com.here.xyz.models.geojson.implementation.Geometry;
@@ -43,15 +44,17 @@ import com.here.xyz.util.db.DatabaseSettings;
 import com.here.xyz.util.db.SQLQuery;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.locationtech.jts.geom.Coordinate;
-import org.locationtech.jts.io.WKBWriter;
 import org.postgresql.util.PGobject;
 
 public class DatabaseWriter {
@@ -216,13 +219,7 @@ public class DatabaseWriter {
             .withNamedParameter("baseVersion", baseVersion);
 
         Geometry geo = feature.getGeometry();
-        if (geo != null) {
-            //Avoid NaN values
-            assure3d(geo.getJTSGeometry().getCoordinates());
-            query.setNamedParameter("geo", new WKBWriter(3).write(geo.getJTSGeometry()));
-        }
-        else
-            query.setNamedParameter("geo", null);
+        query.setNamedParameter("geo", geo != null ? WKBHelper.geometryToWKB(geo) : null);
     }
 
     private static boolean getDeletedFlagFromFeature(Feature f) {
@@ -240,6 +237,9 @@ public class DatabaseWriter {
         long version, boolean uniqueConstraintExists) throws SQLException, JsonProcessingException {
         boolean transactional = event.getTransaction();
         connection.setAutoCommit(!transactional);
+        if (modifyFeaturesInBulk(dbh, event, action, responseCollection, fails, inputData, connection, version, uniqueConstraintExists))
+            return;
+
         SQLQuery modificationQuery = buildModificationStmtQuery(dbh, event, action, uniqueConstraintExists);
 
         List<String> idList = transactional ? new ArrayList<>() : null;
@@ -293,6 +293,146 @@ public class DatabaseWriter {
         }
     }
 
+    /**
+     * Writes all features of one modification type within a single statement by using the set-based variants of the write functions.
+     * The write functions return the IDs of all features which have been written successfully, so all other features have failed.
+     * If the statement fails as a whole, the features are written one by one to find out which ones are actually failing.
+     *
+     * @return true, if the features have been written, false if the features have to be written one by one instead
+     */
+    private static boolean modifyFeaturesInBulk(DatabaseHandler dbh, ModifyFeaturesEvent event, ModificationType action,
+        FeatureCollection responseCollection, List<FeatureCollection.ModificationFailure> fails, List inputData, Connection connection,
+        long version, boolean uniqueConstraintExists) throws SQLException, JsonProcessingException {
+        //The set-based write functions need unique IDs
+        Set<String> inputIds = new HashSet<>();
+        for (Object inputDatum : inputData)
+            if (!inputIds.add(getIdFromInput(action, inputDatum)))
+                return false;
+        if (inputIds.size() < 2 || inputIds.contains(null))
+            return false;
+
+        final boolean transactional = event.getTransaction();
+        logger.info("{} Executing action {} for {} features in bulk.", getStreamId(), action.name(), inputData.size());
+
+        List<Object> rows = new ArrayList<>();
+        List<Map<String, Object>> rowParams = new ArrayList<>();
+        for (final Object inputDatum : inputData) {
+            try {
+                SQLQuery rowQuery = new SQLQuery("");
+                fillModificationQueryFromInput(rowQuery, event, action, inputDatum, version);
+                rowParams.add(rowQuery.getNamedParameters());
+                rows.add(inputDatum);
+            }
+            catch (Exception e) {
+                if (transactional)
+                    throw e;
+                fails.add(new FeatureCollection.ModificationFailure().withId(getIdFromInput(action, inputDatum))
+                    .withMessage(e instanceof WriteFeatureException ? e.getMessage() : getFailedRowErrorMsg(action, event)));
+                logException(e, action, event);
+            }
+        }
+
+        Set<String> writtenIds = new HashSet<>();
+        SQLQuery bulkQuery = buildBulkModificationStmtQuery(dbh, event, action, uniqueConstraintExists)
+            .withNamedParameter("version", version)
+            .withNamedParameter("ids", rowParams.stream().map(params -> params.get("id")).toArray(String[]::new))
+            .withNamedParameter("operations", rowParams.stream().map(params -> params.get("operation")).toArray(String[]::new))
+            .withNamedParameter("authors", rowParams.stream().map(params -> params.get("author")).toArray(String[]::new))
+            .withNamedParameter("jsondatas", rowParams.stream()
+                .map(params -> params.get("jsondata") instanceof PGobject jsondata ? jsondata.getValue() : null).toArray(String[]::new))
+            .withNamedParameter("geos", rowParams.stream().map(params -> params.get("geo")).toArray(byte[][]::new))
+            .withNamedParameter("baseVersions", rowParams.stream()
+                .map(params -> params.get("baseVersion") instanceof Number baseVersion ? baseVersion.longValue() : null).toArray(Long[]::new));
+        try {
+            PreparedStatement ps = bulkQuery.prepareStatement(connection);
+            ps.setQueryTimeout(DatabaseHandler.calculateTimeout());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    writtenIds.add(rs.getString(1));
+            }
+        }
+        catch (SQLException e) {
+            //Missing table or statement timeout: Writing the features one by one would not help (or take even longer)
+            if ("42P01".equalsIgnoreCase(e.getSQLState()) || "57014".equalsIgnoreCase(e.getSQLState()))
+                throw e;
+            logException(e, action, event);
+
+            if (!transactional)
+                //Nothing was written, so write the features one by one to find out which ones are actually failing
+                writtenIds = writeOneByOne(dbh, event, action, rowParams, connection, uniqueConstraintExists);
+        }
+        finally {
+            bulkQuery.closeStatement();
+        }
+
+        for (int i = 0; i < rows.size(); i++) {
+            String id = (String) rowParams.get(i).get("id");
+            if (writtenIds.contains(id)) {
+                if (action != DELETE)
+                    responseCollection.getFeatures().add((Feature) rows.get(i));
+            }
+            else
+                fails.add(new FeatureCollection.ModificationFailure().withId(id).withMessage(getFailedRowErrorMsg(action, event)));
+        }
+
+        if (transactional && fails.size() > 0) {
+            logException(null, action, event);
+            throw new SQLException(getGeneralErrorMsg(action));
+        }
+        return true;
+    }
+
+    private static Set<String> writeOneByOne(DatabaseHandler dbh, ModifyFeaturesEvent event, ModificationType action,
+        List<Map<String, Object>> rowParams, Connection connection, boolean uniqueConstraintExists) throws SQLException {
+        Set<String> writtenIds = new HashSet<>();
+        SQLQuery modificationQuery = buildModificationStmtQuery(dbh, event, action, uniqueConstraintExists);
+        try {
+            for (Map<String, Object> params : rowParams) {
+                try {
+                    modificationQuery.setNamedParameters(params);
+                    PreparedStatement ps = modificationQuery.prepareStatement(connection);
+                    ps.setQueryTimeout(DatabaseHandler.calculateTimeout());
+                    ps.execute();
+                    writtenIds.add((String) params.get("id"));
+                }
+                catch (SQLException e) {
+                    if ("42P01".equalsIgnoreCase(e.getSQLState()))
+                        throw e;
+                    logException(e, action, event);
+                }
+            }
+        }
+        finally {
+            modificationQuery.closeStatement();
+        }
+        return writtenIds;
+    }
+
+    private static SQLQuery buildBulkModificationStmtQuery(DatabaseHandler dbHandler, ModifyFeaturesEvent event, ModificationType action,
+        boolean uniqueConstraintExists) {
+        //If versioning is activated for the space, always only perform inserts
+        if (event.getVersionsToKeep() > 1)
+            return setCommonParams(new SQLQuery("SELECT * FROM xyz_write_versioned_modification_operations(#{ids}::TEXT[], #{version}, "
+                + "#{operations}::CHAR[], #{jsondatas}::JSONB[], #{geos}::BYTEA[], #{baseVersions}::BIGINT[], #{schema}, #{table}, "
+                + "#{concurrencyCheck}, #{partitionSize})"), dbHandler, event)
+                .withNamedParameter("partitionSize", PARTITION_SIZE);
+        switch (action) {
+            case INSERT:
+                return setCommonParams(new SQLQuery("SELECT * FROM xyz_simple_upserts(#{ids}::TEXT[], #{version}, #{operations}::CHAR[], "
+                    + "#{authors}::TEXT[], #{jsondatas}::JSONB[], #{geos}::BYTEA[], #{schema}, #{table}, #{concurrencyCheck}, "
+                    + "#{uniqueConstraintExists})"), dbHandler, event)
+                    .withNamedParameter("uniqueConstraintExists", uniqueConstraintExists);
+            case UPDATE:
+                return setCommonParams(new SQLQuery("SELECT * FROM xyz_simple_updates(#{ids}::TEXT[], #{version}, #{operations}::CHAR[], "
+                    + "#{authors}::TEXT[], #{jsondatas}::JSONB[], #{geos}::BYTEA[], #{baseVersions}::BIGINT[], #{schema}, #{table}, "
+                    + "#{concurrencyCheck})"), dbHandler, event);
+            case DELETE:
+                return setCommonParams(new SQLQuery("SELECT * FROM xyz_simple_deletes(#{ids}::TEXT[], #{baseVersions}::BIGINT[], #{schema}, "
+                    + "#{table}, #{concurrencyCheck})"), dbHandler, event);
+        }
+        return null;
+    }
+
     private static String getFailedRowErrorMsg(ModificationType action, ModifyFeaturesEvent event) {
         switch (action) {
             case INSERT:
@@ -366,13 +506,6 @@ public class DatabaseWriter {
         }
     }
 
-    private static void assure3d(Coordinate[] coords){
-        for (Coordinate coord : coords){
-            if(Double.valueOf(coord.z).isNaN())
-                coord.z= 0;
-        }
-    }
-
     private static void logException(Exception e, ModificationType action, ModifyFeaturesEvent event){
         String table = XyzEventBasedQueryRunner.readTableFromEvent(event);
         String message = e != null && e.getMessage() != null && e.getMessage().contains("does not exist")
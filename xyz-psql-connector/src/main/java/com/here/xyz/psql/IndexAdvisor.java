@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql;
+
+import static com.here.xyz.events.PropertyQuery.QueryOperation.CONTAINS;
+import static com.here.xyz.events.PropertyQuery.QueryOperation.NOT_EQUALS;
+import static com.here.xyz.util.db.pg.IndexHelper.buildAttachPartitionIndexQuery;
+import static com.here.xyz.util.db.pg.IndexHelper.buildCreateIndexConcurrentlyQuery;
+import static com.here.xyz.util.db.pg.IndexHelper.buildCreateIndexOnOnlyQuery;
+import static com.here.xyz.util.db.pg.XyzSpaceTableHelper.HEAD_TABLE_SUFFIX;
+
+import com.here.xyz.events.PropertiesQuery;
+import com.here.xyz.events.PropertyQuery;
+import com.here.xyz.events.PropertyQuery.QueryOperation;
+import com.here.xyz.util.db.SQLQuery;
+import com.here.xyz.util.db.datasource.DataSourceProvider;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Captures the property search workload of the connector and creates indices for the property predicates which are used
+ * frequently and are either slow or get rejected because of a missing index.
+ *
+ * The workload is recorded per space, property and operation. Periodically the recorded workload gets evaluated and
+ * for the hottest predicates an index is created concurrently (that is, without blocking writes to the space).
+ * As partitioned tables do not support the concurrent index creation, the index of each partition is created concurrently and
+ * attached to an index of the space's root table afterwards.
+ * The indices are named and commented the same way as the ones of the database-side auto-indexing,
+ * so they are taken into account by the maintenance and by the search checks as automatically created indices.
+ * Each space has a budget of automatically created indices which will not be exceeded.
+ */
+public class IndexAdvisor {
+  private static final Logger logger = LogManager.getLogger();
+  private static final int MIN_CALLS = 10;
+  private static final long SLOW_SEARCH_MS = 1_000;
+  private static final long EVALUATION_INTERVAL_MS = TimeUnit.MINUTES.toMillis(5);
+  private static final int MAX_AUTO_INDICES_PER_SPACE = 3;
+  private static final int MAX_TRACKED_PREDICATES = 10_000;
+  private static final int INDEX_CREATION_TIMEOUT_SECONDS = 3600;
+  private static final String PROPERTIES_PREFIX = "properties.";
+  private static final Map<Predicate, Workload> workload = new ConcurrentHashMap<>();
+  private static final AtomicLong lastEvaluation = new AtomicLong(System.currentTimeMillis());
+  private static final ExecutorService indexingExecutor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "index-advisor");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Records the execution of a property search.
+   *
+   * @param databaseId The ID of the database the space is located in
+   * @param dataSourceProvider The data source provider of the database the space is located in
+   * @param schema The schema of the space table
+   * @param table The space table
+   * @param propertiesQuery The properties query of the search
+   * @param latencyMs The time it took to execute the search
+   * @param rejected Whether the search was rejected because of missing indices
+   */
+  public static void record(String databaseId, DataSourceProvider dataSourceProvider, String schema, String table,
+      PropertiesQuery propertiesQuery, long latencyMs, boolean rejected) {
+    if (propertiesQuery == null)
+      return;
+
+    boolean slow = rejected || latencyMs >= SLOW_SEARCH_MS;
+    propertiesQuery.stream()
+        .flatMap(List::stream)
+        .filter(propertyQuery -> propertyQuery != null && isIndexable(propertyQuery))
+        .map(propertyQuery -> new Predicate(databaseId, schema, table, propertyQuery.getKey(), propertyQuery.getOperation()))
+        .distinct()
+        .forEach(predicate -> {
+          if (workload.size() < MAX_TRACKED_PREDICATES || workload.containsKey(predicate))
+            workload.computeIfAbsent(predicate, p -> new Workload()).add(slow);
+        });
+
+    long lastEvaluationTime = lastEvaluation.get();
+    if (System.currentTimeMillis() - lastEvaluationTime >= EVALUATION_INTERVAL_MS
+        && lastEvaluation.compareAndSet(lastEvaluationTime, System.currentTimeMillis()))
+      indexingExecutor.submit(() -> evaluate(databaseId, dataSourceProvider));
+  }
+
+  private static boolean isIndexable(PropertyQuery propertyQuery) {
+    String key = propertyQuery.getKey();
+    return key != null && !key.isEmpty() && propertyQuery.getOperation() != NOT_EQUALS
+        //System properties are indexed anyway
+        && !"id".equals(key) && !"geometry.type".equals(key) && !key.startsWith(PROPERTIES_PREFIX + "@ns:com:here:xyz")
+        //Such keys are not supported by the index naming / commenting
+        && !key.contains("'") && !key.contains("\\");
+  }
+
+  /**
+   * Turns the hot & slow predicates of one database into index creations.
+   * The workload of other databases is kept for the evaluation of a later search on them.
+   */
+  private static void evaluate(String databaseId, DataSourceProvider dataSourceProvider) {
+    List<Entry<Predicate, Workload>> candidates = workload.entrySet().stream()
+        .filter(entry -> databaseId.equals(entry.getKey().databaseId))
+        .filter(entry -> entry.getValue().calls.get() >= MIN_CALLS && entry.getValue().slowCalls.get() * 2 >= entry.getValue().calls.get())
+        .sorted(Comparator.comparingLong((Entry<Predicate, Workload> entry) -> entry.getValue().slowCalls.get()).reversed())
+        .collect(Collectors.toList());
+
+    Map<String, Integer> budgets = new ConcurrentHashMap<>();
+    for (Entry<Predicate, Workload> candidate : candidates) {
+      Predicate predicate = candidate.getKey();
+      String indexName = indexName(predicate.table, plainPropertyKey(predicate.key));
+      try {
+        int budget = budgets.computeIfAbsent(predicate.schema + "." + predicate.table,
+            k -> remainingBudget(dataSourceProvider, predicate.schema, predicate.table));
+        if (budget <= 0 || validIndexExists(dataSourceProvider, predicate.schema, indexName))
+          continue;
+
+        createIndex(dataSourceProvider, predicate.schema, predicate.table, predicate.key, predicate.operation);
+        budgets.put(predicate.schema + "." + predicate.table, budget - 1);
+      }
+      catch (SQLException e) {
+        logger.warn("Error creating index {} for the property {} of space table {}.{}", indexName, predicate.key, predicate.schema,
+            predicate.table, e);
+      }
+      finally {
+        //Start collecting the workload of that predicate from scratch
+        workload.remove(predicate);
+      }
+    }
+  }
+
+  private static int remainingBudget(DataSourceProvider dataSourceProvider, String schema, String table) {
+    try {
+      int autoIndices = new SQLQuery("SELECT count(1) FROM pg_indexes WHERE schemaname = #{schema} AND tablename = #{table} "
+          + "AND indexname LIKE #{autoIndexPattern}")
+          .withNamedParameter("schema", schema)
+          .withNamedParameter("table", table)
+          .withNamedParameter("autoIndexPattern", ("idx_" + table + "_").replace("_", "\\_") + "%\\_a")
+          .run(dataSourceProvider, rs -> rs.next() ? rs.getInt(1) : 0);
+      return MAX_AUTO_INDICES_PER_SPACE - autoIndices;
+    }
+    catch (SQLException e) {
+      logger.warn("Error checking the automatically created indices of space table {}.{}", schema, table, e);
+      return 0;
+    }
+  }
+
+  /**
+   * An index of a partitioned table which exists but is not valid yet, is one whose creation was interrupted.
+   * Its creation gets continued.
+   */
+  private static boolean validIndexExists(DataSourceProvider dataSourceProvider, String schema, String indexName)
+      throws SQLException {
+    return new SQLQuery("SELECT 1 FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid "
+        + "JOIN pg_namespace n ON n.oid = c.relnamespace WHERE n.nspname = #{schema} AND c.relname = #{indexName} AND i.indisvalid")
+        .withNamedParameter("schema", schema)
+        .withNamedParameter("indexName", indexName)
+        .run(dataSourceProvider, rs -> rs.next());
+  }
+
+  /**
+   * Creates the index for a property predicate without blocking the writes to the space table.
+   * If the space table is partitioned, the index gets created on the root table only and the index of each partition gets
+   * created concurrently and attached to it afterwards.
+   * The creation can be repeated to continue an interrupted one.
+   */
+  static void createIndex(DataSourceProvider dataSourceProvider, String schema, String table, String key, QueryOperation operation)
+      throws SQLException {
+    String plainKey = plainPropertyKey(key);
+    String indexName = indexName(table, plainKey);
+    List<String> expressions = List.of("(" + propertyPath(key) + ")");
+    String method = operation == CONTAINS ? "GIN" : "BTREE";
+    logger.info("Creating index {} for the property {} of space table {}.{} based on the search workload", indexName, plainKey,
+        schema, table);
+
+    List<String> partitions = loadPartitions(dataSourceProvider, schema, table);
+    if (partitions.isEmpty())
+      buildCreateIndexConcurrentlyQuery(schema, table, expressions, method, indexName)
+          .withTimeout(INDEX_CREATION_TIMEOUT_SECONDS)
+          .withMaximumRetries(0)
+          .write(dataSourceProvider);
+    else {
+      //The root index is only a catalog entry, so it can be created quickly, even though it's not created concurrently
+      buildCreateIndexOnOnlyQuery(schema, table, expressions, method, indexName).write(dataSourceProvider);
+
+      for (String partition : partitions) {
+        String partitionIndexName = indexName + partition.substring(table.length());
+        try {
+          buildCreateIndexConcurrentlyQuery(schema, partition, expressions, method, partitionIndexName)
+              .withTimeout(INDEX_CREATION_TIMEOUT_SECONDS)
+              .withMaximumRetries(0)
+              .write(dataSourceProvider);
+        }
+        catch (SQLException e) {
+          //A failed concurrent creation leaves an invalid index behind, which would be skipped by a later attempt
+          new SQLQuery("DROP INDEX CONCURRENTLY IF EXISTS ${schema}.${indexName}")
+              .withVariable("schema", schema)
+              .withVariable("indexName", partitionIndexName)
+              .write(dataSourceProvider);
+          throw e;
+        }
+        buildAttachPartitionIndexQuery(schema, indexName, partitionIndexName).write(dataSourceProvider);
+      }
+    }
+
+    //The comment marks the index as one being created for that property (see xyz_index_list_all_available())
+    new SQLQuery("COMMENT ON INDEX ${schema}.${indexName} IS 'p.name=" + plainKey + "'")
+        .withVariable("schema", schema)
+        .withVariable("indexName", indexName)
+        .write(dataSourceProvider);
+  }
+
+  /**
+   * @return The partitions of the space table, starting with the HEAD partition, or an empty list if the table is not partitioned
+   */
+  private static List<String> loadPartitions(DataSourceProvider dataSourceProvider, String schema, String table) throws SQLException {
+    return new SQLQuery("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+        + "JOIN pg_class p ON p.oid = i.inhparent JOIN pg_namespace n ON n.oid = p.relnamespace "
+        + "WHERE n.nspname = #{schema} AND p.relname = #{table} ORDER BY c.relname = #{headPartition} DESC, c.relname")
+        .withNamedParameter("schema", schema)
+        .withNamedParameter("table", table)
+        .withNamedParameter("headPartition", table + HEAD_TABLE_SUFFIX)
+        .run(dataSourceProvider, rs -> {
+          List<String> partitions = new ArrayList<>();
+          while (rs.next())
+            partitions.add(rs.getString(1));
+          return partitions;
+        });
+  }
+
+  /**
+   * @return The property key in the notation of the database-side indexing, that is, without the "properties." prefix for
+   *  properties and with an "f." prefix for root properties
+   */
+  private static String plainPropertyKey(String key) {
+    return key.startsWith(PROPERTIES_PREFIX) ? key.substring(PROPERTIES_PREFIX.length()) : "f." + key;
+  }
+
+  private static String propertyPath(String key) {
+    return "jsondata" + Arrays.stream(key.split("\\.")).map(segment -> "->'" + segment + "'").collect(Collectors.joining());
+  }
+
+  /**
+   * Creates the same index name as xyz_index_name_for_property() for an automatically created index.
+   */
+  static String indexName(String table, String plainKey) {
+    try {
+      String md5 = HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(plainKey.getBytes(StandardCharsets.UTF_8)));
+      return "idx_" + table + "_" + md5.substring(0, 7) + "_a";
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private record Predicate(String databaseId, String schema, String table, String key, QueryOperation operation) {}
+
+  private static class Workload {
+    final AtomicLong calls = new AtomicLong();
+    final AtomicLong slowCalls = new AtomicLong();
+
+    void add(boolean slow) {
+      calls.incrementAndGet();
+      if (slow)
+        slowCalls.incrementAndGet();
+    }
+  }
+}
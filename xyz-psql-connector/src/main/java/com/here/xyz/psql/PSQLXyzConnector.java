@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2017-2023 HERE Europe B.V.
+ * Copyright (C) 2017-2024 HERE Europe B.V.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -26,6 +26,7 @@ import static com.here.xyz.responses.XyzError.NOT_IMPLEMENTED;
 
 import com.here.xyz.connectors.ErrorResponseException;
 import com.here.xyz.connectors.runtime.ConnectorRuntime;
+import com.here.xyz.events.CancelQueryEvent;
 import com.here.xyz.events.DeleteChangesetsEvent;
 import com.here.xyz.events.GetChangesetStatisticsEvent;
 import com.here.xyz.events.GetFeaturesByBBoxEvent;
@@ -44,6 +45,7 @@ import com.here.xyz.events.ModifySubscriptionEvent;
 import com.here.xyz.events.SearchForFeaturesEvent;
 import com.here.xyz.models.geojson.implementation.Feature;
 import com.here.xyz.models.geojson.implementation.FeatureCollection;
+import com.here.xyz.psql.query.CancelQuery;
 import com.here.xyz.psql.query.DeleteChangesets;
 import com.here.xyz.psql.query.GetChangesetStatistics;
 import com.here.xyz.psql.query.GetFeaturesByBBox;
@@ -61,7 +63,9 @@ import com.here.xyz.psql.query.ModifySpace;
 import com.here.xyz.psql.query.ModifySubscription;
 import com.here.xyz.psql.query.SearchForFeatures;
 import com.here.xyz.psql.query.XyzEventBasedQueryRunner;
+import com.here.xyz.psql.query.bbox.QuadbinPyramid;
 import com.here.xyz.psql.tools.DhString;
+import com.here.xyz.responses.CancelQueryResponse;
 import com.here.xyz.responses.ErrorResponse;
 import com.here.xyz.responses.HealthStatus;
 import com.here.xyz.responses.SuccessResponse;
@@ -200,6 +204,7 @@ public class PSQLXyzConnector extends DatabaseHandler {
 
   @Override
   protected XyzResponse processIterateFeaturesEvent(IterateFeaturesEvent event) throws Exception {
+    final long startTime = System.currentTimeMillis();
     try {
       logger.info("{} Received "+event.getClass().getSimpleName(), traceItem);
       if (IterateFeaturesSorted.isOrderByEvent(event))
@@ -211,15 +216,24 @@ public class PSQLXyzConnector extends DatabaseHandler {
       return checkSQLException(e, XyzEventBasedQueryRunner.readTableFromEvent(event));
     }
     finally {
+      recordSearchWorkload(event, startTime, false);
       logger.info("{} Finished " + event.getClass().getSimpleName(), traceItem);
     }
   }
 
   @Override
   protected XyzResponse processSearchForFeaturesEvent(SearchForFeaturesEvent event) throws Exception {
+    final long startTime = System.currentTimeMillis();
+    boolean rejected = false;
     try {
       logger.info("{} Received "+event.getClass().getSimpleName(), traceItem);
-      SearchForFeatures.checkCanSearchFor(event, dataSourceProvider);
+      try {
+        SearchForFeatures.checkCanSearchFor(event, dataSourceProvider);
+      }
+      catch (ErrorResponseException e) {
+        rejected = true;
+        throw e;
+      }
 
       // For testing purposes.
       if (event.getSpace().contains("illegal_argument")) //TODO: Remove testing code from the actual connector implementation
@@ -232,10 +246,18 @@ public class PSQLXyzConnector extends DatabaseHandler {
       return checkSQLException(e, XyzEventBasedQueryRunner.readTableFromEvent(event));
     }
     finally {
+      recordSearchWorkload(event, startTime, rejected);
       logger.info("{} Finished " + event.getClass().getSimpleName(), traceItem);
     }
   }
 
+  private void recordSearchWorkload(SearchForFeaturesEvent event, long startTime, boolean rejected) {
+    ConnectorParameters connectorParameters = ConnectorParameters.fromEvent(event);
+    if (connectorParameters.isAutoIndexing() && connectorParameters.isPropertySearch())
+      IndexAdvisor.record(dbSettings.getId(), dataSourceProvider, dbSettings.getSchema(),
+          XyzEventBasedQueryRunner.readTableFromEvent(event), event.getPropertiesQuery(), System.currentTimeMillis() - startTime, rejected);
+  }
+
   @Override
   protected XyzResponse processLoadFeaturesEvent(LoadFeaturesEvent event) throws Exception {
     try{
@@ -295,6 +317,7 @@ public class PSQLXyzConnector extends DatabaseHandler {
       validateModifySpaceEvent(event);
 
       XyzResponse response = write(new ModifySpace(event).withDbMaintainer(dbMaintainer));
+      GetStatistics.invalidateCache(ConnectorParameters.fromEvent(event).getConnectorId(), XyzEventBasedQueryRunner.readTableFromEvent(event));
       logger.debug("{} Successfully created table for space id '{}'", traceItem, event.getSpace());
       return response;
     }
@@ -335,11 +358,39 @@ public class PSQLXyzConnector extends DatabaseHandler {
     }
   }
 
+  @Override
+  protected XyzResponse processCancelQueryEvent(CancelQueryEvent event) throws Exception {
+    try {
+      logger.info("{} Received CancelQueryEvent for query {}", traceItem, event.getQueryId());
+      CancelQueryResponse response = run(new CancelQuery(event));
+      //The queries to be cancelled could also be running on the replica
+      if (dataSourceProvider.hasReader()) {
+        CancelQuery replicaCancellation = new CancelQuery(event);
+        replicaCancellation.setUseReadReplica(true);
+        CancelQueryResponse replicaResponse = run(replicaCancellation);
+        response
+            .withCancelledQueries(response.getCancelledQueries() + replicaResponse.getCancelledQueries())
+            .withCancelledQueriesRuntime(response.getCancelledQueriesRuntime() + replicaResponse.getCancelledQueriesRuntime());
+      }
+      logger.info("{} Cancelled {} queries of query {} which have been running for {}ms in sum", traceItem,
+          response.getCancelledQueries(), event.getQueryId(), response.getCancelledQueriesRuntime());
+      return response;
+    }
+    catch (SQLException e) {
+      return checkSQLException(e, null);
+    }
+    finally {
+      logger.info("{} Finished CancelQueryEvent", traceItem);
+    }
+  }
+
   @Override
   protected XyzResponse processDeleteChangesetsEvent(DeleteChangesetsEvent event) throws Exception {
     try {
       logger.info("{} Received " + event.getClass().getSimpleName(), traceItem);
-      return write(new DeleteChangesets(event));
+      XyzResponse response = write(new DeleteChangesets(event));
+      GetStatistics.invalidateCache(ConnectorParameters.fromEvent(event).getConnectorId(), XyzEventBasedQueryRunner.readTableFromEvent(event));
+      return response;
     }
     catch (SQLException e) {
       return checkSQLException(e, XyzEventBasedQueryRunner.readTableFromEvent(event));
@@ -379,6 +430,9 @@ public class PSQLXyzConnector extends DatabaseHandler {
     final ConnectorParameters connectorParameters = ConnectorParameters.fromEvent(event);
     final boolean connectorSupportsAI = connectorParameters.isAutoIndexing();
 
+    if (ModifySpaceEvent.Operation.UPDATE == event.getOperation() || ModifySpaceEvent.Operation.CREATE == event.getOperation())
+      QuadbinPyramid.validate(event.getParams());
+
     if ((ModifySpaceEvent.Operation.UPDATE == event.getOperation()
             || ModifySpaceEvent.Operation.CREATE == event.getOperation())
             && connectorParameters.isPropertySearch()) {
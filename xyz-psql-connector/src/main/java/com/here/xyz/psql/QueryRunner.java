@@ -89,9 +89,18 @@ public abstract class QueryRunner<E extends Object, R extends Object> implements
     return write(getDataSourceProvider());
   }
 
-  private SQLQuery prepareQuery() throws SQLException, ErrorResponseException {
+  protected SQLQuery prepareQuery() throws SQLException, ErrorResponseException {
     if (query == null)
       query = buildQuery(input);
+    return prepareQuery(query);
+  }
+
+  /**
+   * Prepares a query for being executed within the current connector invocation.
+   * Runners which are executing further queries next to the one built by {@link #buildQuery(Object)} must prepare them using
+   * this method as well.
+   */
+  protected SQLQuery prepareQuery(SQLQuery query) throws SQLException {
     return query
         .withQueryId(ConnectorRuntime.getInstance().getStreamId())
         .withTimeout(calculateTimeout())
@@ -136,7 +145,7 @@ public abstract class QueryRunner<E extends Object, R extends Object> implements
     return this;
   }
 
-  private DatabaseSettings getDbSettings() {
+  protected DatabaseSettings getDbSettings() {
     if (getDataSourceProvider() instanceof PooledDataSources sourceProvider)
       return sourceProvider.getDatabaseSettings();
     throw new IllegalStateException("The DataSourceProvider does not provide database settings.");
@@ -133,6 +133,11 @@ public class MaintenanceSQL {
                 + "','" + password + "','" + database + "','" + host + "'," + port + ",'" + schema + ",h3,public,topology')";
     }
 
+    /** Apply the queued changes of all quadbin pyramids (see QuadbinPyramid) */
+    public static String generateApplyQuadbinPyramidsSQL(String schema){
+        return "SELECT xyz_qk_pyramid_apply_all('" + schema + "')";
+    }
+
     /** Get status of running index queries (statistic,analyzing,creation,deletion) */
     public static String checkIDXStatus = "SELECT * FROM xyz_index_status();";
 
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql.query;
+
+import static com.here.xyz.util.db.SQLQuery.QUERY_ID;
+
+import com.here.xyz.connectors.ErrorResponseException;
+import com.here.xyz.events.CancelQueryEvent;
+import com.here.xyz.psql.QueryRunner;
+import com.here.xyz.responses.CancelQueryResponse;
+import com.here.xyz.util.db.SQLQuery;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Terminates all statements which are labeled with the query ID of the {@link CancelQueryEvent}.
+ * As the statements could run on the writer or the reader, this runner has to be run on both of them.
+ */
+public class CancelQuery extends QueryRunner<CancelQueryEvent, CancelQueryResponse> {
+
+  public CancelQuery(CancelQueryEvent event) throws SQLException, ErrorResponseException {
+    super(event);
+  }
+
+  @Override
+  protected SQLQuery buildQuery(CancelQueryEvent event) throws SQLException, ErrorResponseException {
+    return SQLQuery.buildKillByLabelQuery(QUERY_ID, event.getQueryId());
+  }
+
+  @Override
+  public CancelQueryResponse handle(ResultSet rs) throws SQLException {
+    int cancelledQueries = 0;
+    long runtime = 0;
+    while (rs.next())
+      if (rs.getBoolean("terminated")) {
+        cancelledQueries++;
+        runtime += rs.getLong("runtime");
+      }
+    return new CancelQueryResponse()
+        .withCancelledQueries(cancelledQueries)
+        .withCancelledQueriesRuntime(runtime);
+  }
+}
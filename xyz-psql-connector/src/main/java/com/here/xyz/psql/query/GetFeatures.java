@@ -36,16 +36,35 @@ import com.here.xyz.models.hub.Ref;
 import com.here.xyz.psql.DatabaseWriter.ModificationType;
 import com.here.xyz.responses.XyzResponse;
 import com.here.xyz.util.db.SQLQuery;
+import com.here.xyz.util.db.datasource.DataSourceProvider;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class GetFeatures<E extends ContextAwareEvent, R extends XyzResponse> extends ExtendedSpace<E, R> {
   protected static final long MAX_RESULT_SIZE = 100 * 1024 * 1024;
   public static final long GEOMETRY_DECIMAL_DIGITS = 8;
   public static long MAX_BIGINT = Long.MAX_VALUE;
+  /*
+  The maximum number of parts of one request which are run in parallel.
+  The threads are shared by all requests, so parts of concurrent requests wait for a free thread.
+   */
+  private static final int MAX_PARTITION_PARALLELISM = 8;
+  private static final int PARTITION_THREADS = 32;
+  private static final ExecutorService partitionExecutor = createPartitionExecutor();
   private boolean historyEnabled;
 
   public GetFeatures(E event) throws SQLException, ErrorResponseException {
@@ -257,6 +276,104 @@ public abstract class GetFeatures<E extends ContextAwareEvent, R extends XyzResp
     return (R) featureCollection;
   }
 
+  private static ExecutorService createPartitionExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(PARTITION_THREADS, PARTITION_THREADS, 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), runnable -> {
+          Thread thread = new Thread(runnable, "partitioned-query");
+          thread.setDaemon(true);
+          return thread;
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Runs multiple queries, each covering a part of the requested area, in parallel and merges their results.
+   * A feature being returned by multiple parts is contained only once in the resulting feature collection.
+   * The parallelism is bounded by {@link #MAX_PARTITION_PARALLELISM} and by the size of the connection pool,
+   * further parts are run as soon as one of the request's threads becomes free.
+   *
+   * @param dataSourceProvider The data source provider to run the queries against
+   * @param partQueries The queries of all parts, they will be prepared on the calling thread
+   * @param limit The maximum number of features to be returned in total
+   * @return The merged feature collection
+   * @throws SQLException When any of the queries failed
+   */
+  protected FeatureCollection runPartitioned(DataSourceProvider dataSourceProvider, List<SQLQuery> partQueries, long limit)
+      throws SQLException {
+    return runPartitioned(dataSourceProvider, partQueries, limit, true);
+  }
+
+  /**
+   * Runs multiple queries in parallel and merges their results.
+   *
+   * @param deduplicate Whether a feature being returned by multiple parts should be contained only once in the result.
+   *  If the parts are known to return disjoint results (or multiple versions of the same feature are requested),
+   *  this should be <code>false</code>.
+   * @see #runPartitioned(DataSourceProvider, List, long)
+   */
+  protected FeatureCollection runPartitioned(DataSourceProvider dataSourceProvider, List<SQLQuery> partQueries, long limit,
+      boolean deduplicate) throws SQLException {
+    //Do not use more threads than connections are available in the pool
+    int parallelism = Math.max(1, Math.min(Math.min(partQueries.size(), MAX_PARTITION_PARALLELISM),
+        getDbSettings().getDbMaxPoolSize()));
+    List<List<SQLQuery>> queryGroups = new ArrayList<>();
+    for (int i = 0; i < partQueries.size(); i++) {
+      if (i < parallelism)
+        queryGroups.add(new ArrayList<>());
+      queryGroups.get(i % parallelism).add(prepareQuery(partQueries.get(i)));
+    }
+
+    Set<String> featureIds = ConcurrentHashMap.newKeySet();
+    Queue<String> features = new ConcurrentLinkedQueue<>();
+    AtomicLong featureCount = new AtomicLong();
+    AtomicLong resultSize = new AtomicLong();
+    List<Future<Void>> executions = new ArrayList<>();
+    for (List<SQLQuery> queryGroup : queryGroups)
+      executions.add(partitionExecutor.submit(() -> {
+        for (SQLQuery query : queryGroup) {
+          //Skip the remaining parts as soon as the limit is reached
+          if (featureCount.get() >= limit)
+            break;
+          query.run(dataSourceProvider, rs -> {
+            while (rs.next()) {
+              StringBuilder feature = new StringBuilder();
+              handleFeature(rs, feature);
+              feature.setLength(feature.length() - 1);
+              if (deduplicate && !featureIds.add(rs.getString("id")))
+                continue;
+              features.add(feature.toString());
+              featureCount.incrementAndGet();
+              if (resultSize.addAndGet(feature.length()) > MAX_RESULT_SIZE)
+                throw new SQLException("Maximum response char limit of " + MAX_RESULT_SIZE + " reached");
+            }
+            return null;
+          }, isUseReadReplica());
+        }
+        return null;
+      }));
+
+    try {
+      for (Future<Void> execution : executions)
+        execution.get();
+    }
+    catch (InterruptedException e) {
+      throw new SQLException("Interrupted while running the partitioned queries.", e);
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof SQLException sqlException)
+        throw sqlException;
+      throw new SQLException("Error running the partitioned queries.", e.getCause());
+    }
+    finally {
+      executions.forEach(execution -> execution.cancel(true));
+    }
+
+    FeatureCollection featureCollection = new FeatureCollection();
+    featureCollection._setFeatures("[" + String.join(",", features.stream().limit(limit).toList()) + "]");
+    return featureCollection;
+  }
+
   protected void handleFeature(ResultSet rs, StringBuilder result) throws SQLException {
     String geom = rs.getString("geo");
     result.append(rs.getString("jsondata"));
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2017-2023 HERE Europe B.V.
+ * Copyright (C) 2017-2024 HERE Europe B.V.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -33,8 +33,11 @@ import com.here.xyz.models.geojson.coordinates.BBox;
 import com.here.xyz.responses.BinaryResponse;
 import com.here.xyz.responses.XyzResponse;
 import com.here.xyz.util.db.SQLQuery;
+import com.here.xyz.util.db.datasource.DataSourceProvider;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class GetFeaturesByBBox<E extends GetFeaturesByBBoxEvent, R extends XyzResponse> extends Spatial<E, R> {
 
@@ -42,18 +45,44 @@ public class GetFeaturesByBBox<E extends GetFeaturesByBBoxEvent, R extends XyzRe
   private static String mvtPropertiesFlattenSql = "( select jsonb_object_agg('properties.' || jkey,jval) from prj_flatten( jsonb_set((jsondata)->'properties','{id}', to_jsonb( jsondata->>'id' )) ))";
   private static String
       mvtPropertiesSql        = "( select jsonb_object_agg(key, case when jsonb_typeof(value) in ('object', 'array') then to_jsonb(value::text) else value end) from jsonb_each(jsonb_set((jsondata)->'properties','{id}', to_jsonb(jsondata->>'id'))))";
+  private static final int MIN_BBOX_PARTS = 4;
+  private static final int MAX_BBOX_PARTS = 16;
+  private static final int MAX_PARTITIONING_LEVEL = 20;
   private boolean isMvtRequested;
+  private final long limit;
+  private List<BBox> bboxParts;
+  private BBox currentPart;
+  private List<SQLQuery> partQueries;
 
   public GetFeaturesByBBox(E event) throws SQLException, ErrorResponseException {
     super(event);
+    limit = event.getLimit();
+    //Subclasses are producing other kinds of results than plain features, so only partition the plain feature queries
+    if (getClass() == GetFeaturesByBBox.class && isBigQuery(event) && !isMvtRequested(event) && !event.getRef().isAllVersions())
+      bboxParts = partition(event.getBbox());
+  }
+
+  private static boolean isBigQuery(GetFeaturesByBBoxEvent event) {
+    return event.getBbox().widthInDegree(false) >= (360d / 4d) || event.getBbox().heightInDegree() >= (180d / 4d);
   }
 
   @Override
   protected SQLQuery buildQuery(E event) throws SQLException, ErrorResponseException {
-    if (event.getBbox().widthInDegree(false) >= (360d / 4d) || event.getBbox().heightInDegree() >= (180d / 4d)) //Is it a "big" query?
+    if (isBigQuery(event))
       //Check if Properties are indexed
       checkCanSearchFor(event, getDataSourceProvider());
 
+    if (bboxParts != null) {
+      //Build one query per part of the bbox
+      partQueries = new ArrayList<>();
+      for (BBox part : bboxParts) {
+        currentPart = part;
+        partQueries.add(super.buildQuery(event));
+      }
+      currentPart = null;
+      return partQueries.get(0);
+    }
+
     SQLQuery query = super.buildQuery(event);
 
     if (isMvtRequested = isMvtRequested(event))
@@ -79,9 +108,82 @@ public class GetFeaturesByBBox<E extends GetFeaturesByBBoxEvent, R extends XyzRe
     return br;
   }
 
+  @Override
+  protected R run(DataSourceProvider dataSourceProvider) throws SQLException, ErrorResponseException {
+    if (bboxParts == null)
+      return super.run(dataSourceProvider);
+
+    //Preparing the query also builds the queries for all other parts
+    prepareQuery();
+    return (R) runPartitioned(dataSourceProvider, partQueries, limit);
+  }
+
+  /**
+   * Splits a bbox into parts which are aligned to the web mercator tiles of the lowest level on which the bbox intersects
+   * at least {@link #MIN_BBOX_PARTS} tiles.
+   * If the bbox intersects more than {@link #MAX_BBOX_PARTS} tiles on that level, it is not partitioned.
+   *
+   * @return The parts of the bbox or null if the bbox is not subject to partitioning
+   */
+  static List<BBox> partition(BBox bbox) {
+    //Bboxes crossing the antimeridian are not partitioned
+    if (bbox.minLon() >= bbox.maxLon() || bbox.minLat() >= bbox.maxLat())
+      return null;
+
+    double minLat = Math.max(bbox.minLat(), WebMercatorTile.MinLatitude), maxLat = Math.min(bbox.maxLat(), WebMercatorTile.MaxLatitude);
+    for (int level = 1; level <= MAX_PARTITIONING_LEVEL; level++) {
+      int maxIndex = (1 << level) - 1,
+          minX = tileIndex(tileX(bbox.minLon(), level), maxIndex), maxX = tileIndex(tileX(bbox.maxLon(), level), maxIndex),
+          minY = tileIndex(tileY(maxLat, level), maxIndex), maxY = tileIndex(tileY(minLat, level), maxIndex);
+      int tileCount = (maxX - minX + 1) * (maxY - minY + 1);
+      if (tileCount < MIN_BBOX_PARTS)
+        continue;
+      if (tileCount > MAX_BBOX_PARTS)
+        return null;
+
+      List<BBox> parts = new ArrayList<>();
+      for (int x = minX; x <= maxX; x++)
+        for (int y = minY; y <= maxY; y++) {
+          BBox tileBbox = WebMercatorTile.forWeb(level, x, y).getBBox(false);
+          //The outer parts are cut down to the bbox, the parts at the poles are extended to the bbox
+          parts.add(new BBox(
+              x == minX ? bbox.minLon() : tileBbox.minLon(),
+              y == maxY ? bbox.minLat() : Math.max(tileBbox.minLat(), bbox.minLat()),
+              x == maxX ? bbox.maxLon() : tileBbox.maxLon(),
+              y == minY ? bbox.maxLat() : Math.min(tileBbox.maxLat(), bbox.maxLat())));
+        }
+      return parts;
+    }
+    return null;
+  }
+
+  private static double tileX(double lon, int level) {
+    return (lon + 180) / 360 * (1 << level);
+  }
+
+  private static double tileY(double lat, int level) {
+    double sinLatitude = Math.sin(lat * Math.PI / 180);
+    return (.5 - Math.log((1 + sinLatitude) / (1 - sinLatitude)) / (4 * Math.PI)) * (1 << level);
+  }
+
+  //The bounds of the world (e.g., a longitude of 180) lie on the far edge of the last tile
+  private static int tileIndex(double tileCoordinate, int maxIndex) {
+    return Math.max(0, Math.min(maxIndex, (int) Math.floor(tileCoordinate)));
+  }
+
   @Override
   protected SQLQuery buildGeoFilter(GetFeaturesByBBoxEvent event) {
-    return buildGeoFilterFromBbox(event.getBbox());
+    return buildGeoFilterFromBbox(currentPart != null ? currentPart : event.getBbox());
+  }
+
+  @Override
+  protected SQLQuery buildRawGeoExpression(E event) {
+    if (currentPart == null || !event.getClip())
+      return super.buildRawGeoExpression(event);
+
+    //A feature could intersect multiple parts, so always clip by the whole bbox
+    return new SQLQuery("ST_Intersection(ST_MakeValid(geo), ${{geoFilter}})")
+        .withQueryFragment("geoFilter", buildGeoFilterFromBbox(event.getBbox()));
   }
 
   protected SQLQuery buildGeoFilterFromBbox(BBox bbox) {
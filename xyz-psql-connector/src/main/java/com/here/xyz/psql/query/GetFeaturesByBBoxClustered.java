@@ -31,6 +31,7 @@ import com.here.xyz.events.GetFeaturesByTileEvent;
 import com.here.xyz.models.geojson.WebMercatorTile;
 import com.here.xyz.models.geojson.coordinates.BBox;
 import com.here.xyz.psql.factory.TweaksSQL;
+import com.here.xyz.psql.query.bbox.QuadbinPyramid;
 import com.here.xyz.psql.tools.DhString;
 import com.here.xyz.responses.XyzResponse;
 import com.here.xyz.util.db.SQLQuery;
@@ -319,12 +320,16 @@ public class GetFeaturesByBBoxClustered<E extends GetFeaturesByBBoxEvent, R exte
   private SQLQuery generateQuadbinClusteringSQL(GetFeaturesByBBoxEvent event, int resolution, String quadMode, WebMercatorTile tile,
       BBox bbox, boolean isTileRequest, boolean clippedOnBbox, boolean noBuffer, boolean convertGeo2Geojson) {
     int effectiveLevel = tile.level + resolution;
+    QuadbinPyramid pyramid = QuadbinPyramid.fromEvent(event);
+    //The pyramid holds the counts of all features, so it can not be used if the features have to be filtered by properties
+    boolean usePyramid = pyramid != null && pyramid.covers(effectiveLevel) && event.getPropertiesQuery() == null;
 
     double bufferSizeInDeg = tile.getBBox(false).widthInDegree(true) / (Math.pow(2, resolution) *  1024.0);
     String realCountCondition = "",
         boolCountCondition = "FALSE",
         _pureEstimation = "select sum( ti.tbl_est_cnt * xyz_postgis_selectivity( ti.tbloid, 'geo',qkbbox) )::bigint from tblinfo ti",
         pureEstimation = "",
+        estimatedCondition = "NOT(real_condition)",
         resultQkGeo = (!noBuffer ? DhString.format("ST_Buffer(qkbbox, -%f)",bufferSizeInDeg) : "qkbbox"),
         geoPrj  = ( convertGeo2Geojson ? "ST_AsGeojson( qkgeo , 8 )::jsonb" : "qkgeo" ),
         bboxSql = DhString.format( DhString.format("ST_MakeEnvelope(%%.%1$df,%%.%1$df,%%.%1$df,%%.%1$df, 4326)", 14 /*GEOMETRY_DECIMAL_DIGITS*/), bbox.minLon(), bbox.minLat(), bbox.maxLon(), bbox.maxLat() ),
@@ -362,6 +367,18 @@ public class GetFeaturesByBBoxClustered<E extends GetFeaturesByBBoxEvent, R exte
         break;
     }
 
+    String pyramidReady = "FALSE";
+    if (usePyramid) {
+      //Exact counts are read from the pyramid (once it's filled), no need for estimations or live counts
+      pyramidReady = QuadbinPyramid.buildReadySql();
+      String pyramidCount = COUNTMODE_BOOL.equals(quadMode) ? "least(" + pyramid.buildCountSql("quaddata.qk") + ", 1)"
+          : pyramid.buildCountSql("quaddata.qk");
+      boolCountCondition = "NOT pyramid_ready AND (" + boolCountCondition + ")";
+      realCountCondition = "NOT pyramid_ready AND (" + realCountCondition + ")";
+      pureEstimation = "CASE WHEN pyramid_ready THEN " + pyramidCount + " ELSE (" + pureEstimation + ") END";
+      estimatedCondition = "NOT(pyramid_ready OR real_condition)";
+    }
+
     return new SQLQuery(
         /*cte begin*/
         "with  "+
@@ -375,7 +392,7 @@ public class GetFeaturesByBBoxClustered<E extends GetFeaturesByBBoxEvent, R exte
             "   left join pg_class c2 on (c2.oid = pm.inhrelid) "+
             "   where c1.oid = ('${schema}.${headTable}')::regclass "+
             "), "+
-            "tbl_stats as ( select sum(tbl_est_cnt) as est_cnt from tblinfo ), "+
+            "tbl_stats as ( select sum(tbl_est_cnt) as est_cnt, ("+pyramidReady+") as pyramid_ready from tblinfo ), "+
             "quadkeys  as ( "+ coveringQksSql + " ), "+
             "quaddata  as ( select qk, xyz_qk_qk2bbox( qk ) as qkbbox, ( select array[r.level,r.colx,r.rowy] from xyz_qk_qk2lrc(qk) r ) as qkxyz from quadkeys ), "+
             "qk_stats  as ( select ("+boolCountCondition+") as bool_condition, ("+realCountCondition+") as real_condition, * from (select *, ("+pureEstimation+") as cond_est_cnt, floor(est_cnt/pow(4,qkxyz[1]))::bigint as equi_cnt from tbl_stats, quaddata ) a ) "+
@@ -385,7 +402,7 @@ public class GetFeaturesByBBoxClustered<E extends GetFeaturesByBBoxEvent, R exte
             "    ( select row_to_json( ftr ) from "+
             "	  ( select 'Feature'::text as type, ('x' || left(md5(qk), 15))::bit(60)::bigint::text as id, "+
             "	    ( select row_to_json( prop ) from "+
-            "		  ( select cnt_bbox_est as count, qk, qkxyz as zxy, row(qkxyz[3],qkxyz[2],qkxyz[1])::text as xyz, NOT(real_condition) as estimated, est_cnt::bigint as total_count, equi_cnt as equipartition_count "+
+            "		  ( select cnt_bbox_est as count, qk, qkxyz as zxy, row(qkxyz[3],qkxyz[2],qkxyz[1])::text as xyz, "+estimatedCondition+" as estimated, est_cnt::bigint as total_count, equi_cnt as equipartition_count "+
             "		  ) prop "+
             "		) as properties "+
             "	  ) ftr "+
@@ -398,7 +415,7 @@ public class GetFeaturesByBBoxClustered<E extends GetFeaturesByBBoxEvent, R exte
             "        END "+
             "    ) as qkgeo"+
             "    FROM "+
-            "    (SELECT real_condition,est_cnt,equi_cnt,qk,qkbbox,qkxyz,"+
+            "    (SELECT real_condition,pyramid_ready,est_cnt,equi_cnt,qk,qkbbox,qkxyz,"+
             "        ("+
             "        CASE"+
             "         WHEN bool_condition THEN "+
@@ -416,6 +433,8 @@ public class GetFeaturesByBBoxClustered<E extends GetFeaturesByBBoxEvent, R exte
             ") x WHERE qkgeo IS NOT null ")
         .withVariable(SCHEMA, getSchema())
         .withVariable("headTable", getDefaultTable((E) event) + HEAD_TABLE_SUFFIX)
+        .withVariable("pyramidTable", QuadbinPyramid.getTableName(getDefaultTable((E) event)))
+        .withVariable("pyramidDeltaTable", QuadbinPyramid.getDeltaTableName(getDefaultTable((E) event)))
         .withQueryFragment("propertiesQuery", event.getPropertiesQuery() != null ? generatePropertiesQuery(event) : new SQLQuery("TRUE"));
   }
 
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2017-2023 HERE Europe B.V.
+ * Copyright (C) 2017-2024 HERE Europe B.V.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,16 +24,62 @@ import com.here.xyz.events.GetFeaturesByGeometryEvent;
 import com.here.xyz.models.geojson.coordinates.WKTHelper;
 import com.here.xyz.models.geojson.implementation.FeatureCollection;
 import com.here.xyz.util.db.SQLQuery;
+import com.here.xyz.util.db.datasource.DataSourceProvider;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Polygonal;
+import org.locationtech.jts.io.WKBWriter;
 
 public class GetFeaturesByGeometry extends Spatial<GetFeaturesByGeometryEvent, FeatureCollection> {
+  /*
+  Filter geometries with more vertices than this threshold are subdivided into pieces, which are queried separately.
+  That way the spatial index can prune much better, and the exact intersection checks are done against much simpler geometries.
+   */
+  private static final int SUBDIVISION_THRESHOLD = 1024;
+  private static final int MAX_PIECE_VERTICES = 256;
+  private static final int MAX_PIECES = 32;
+  private final long limit;
+  private List<byte[]> filterPieces;
+  private byte[] currentPiece;
+  private List<SQLQuery> pieceQueries;
 
   public GetFeaturesByGeometry(GetFeaturesByGeometryEvent event) throws SQLException, ErrorResponseException {
     super(event);
+    limit = event.getLimit();
+    if (event.getH3Index() == null && event.getGeometry() != null && !event.getRef().isAllVersions())
+      filterPieces = subdivide(event.getGeometry().getJTSGeometry());
+  }
+
+  @Override
+  protected SQLQuery buildQuery(GetFeaturesByGeometryEvent event) throws SQLException, ErrorResponseException {
+    if (filterPieces == null)
+      return super.buildQuery(event);
+
+    //Build one query per piece of the filter geometry
+    pieceQueries = new ArrayList<>();
+    for (byte[] piece : filterPieces) {
+      currentPiece = piece;
+      pieceQueries.add(super.buildQuery(event));
+    }
+    currentPiece = null;
+    return pieceQueries.get(0);
   }
 
   @Override
   protected SQLQuery buildGeoFilter(GetFeaturesByGeometryEvent event) {
+    if (currentPiece == null)
+      return buildFullGeoFilter(event);
+
+    return wrapWithBuffer(new SQLQuery("ST_GeomFromWKB(#{filterPiece}, 4326)").withNamedParameter("filterPiece", currentPiece),
+        event.getRadius());
+  }
+
+  private SQLQuery buildFullGeoFilter(GetFeaturesByGeometryEvent event) {
     final int radius = event.getRadius();
 
     SQLQuery geoFilter = event.getH3Index() != null
@@ -41,6 +87,10 @@ public class GetFeaturesByGeometry extends Spatial<GetFeaturesByGeometryEvent, F
             : new SQLQuery("ST_GeomFromText(#{wkbGeometry}" + (radius != 0 ? "" : ", 4326") + ")")
             .withNamedParameter("wkbGeometry", WKTHelper.geometryToWKB(event.getGeometry()));
 
+    return wrapWithBuffer(geoFilter, radius);
+  }
+
+  private SQLQuery wrapWithBuffer(SQLQuery geoFilter, int radius) {
     if (radius != 0)
       //Wrap the geoFilter with ST_Buffer to enlarge the input geometry
       geoFilter = new SQLQuery("ST_Buffer(${{wrappedGeoFilter}}::geography, #{radius})::geometry")
@@ -48,4 +98,66 @@ public class GetFeaturesByGeometry extends Spatial<GetFeaturesByGeometryEvent, F
               .withNamedParameter("radius", radius);
     return geoFilter;
   }
+
+  @Override
+  protected SQLQuery buildRawGeoExpression(GetFeaturesByGeometryEvent event) {
+    if (currentPiece == null || !event.getClip())
+      return super.buildRawGeoExpression(event);
+
+    //A feature could intersect multiple pieces, so always clip by the whole filter geometry
+    return new SQLQuery("ST_Intersection(ST_MakeValid(geo), ${{geoFilter}})")
+        .withQueryFragment("geoFilter", buildFullGeoFilter(event));
+  }
+
+  @Override
+  protected FeatureCollection run(DataSourceProvider dataSourceProvider) throws SQLException, ErrorResponseException {
+    if (filterPieces == null)
+      return super.run(dataSourceProvider);
+
+    //Preparing the query also builds the queries for all other pieces
+    prepareQuery();
+    return runPartitioned(dataSourceProvider, pieceQueries, limit);
+  }
+
+  /**
+   * Subdivides a large polygonal geometry into pieces with at most {@link #MAX_PIECE_VERTICES} vertices each
+   * (as far as {@link #MAX_PIECES} allows). The geometry with the most vertices gets split into two halves of its bounding box
+   * until all pieces are small enough.
+   *
+   * @return The pieces as WKB or null if the geometry is not subject to subdivision
+   */
+  static List<byte[]> subdivide(Geometry geometry) {
+    if (!(geometry instanceof Polygonal) || geometry.getNumPoints() <= SUBDIVISION_THRESHOLD)
+      return null;
+
+    PriorityQueue<Geometry> pieces = new PriorityQueue<>(Comparator.comparingInt(Geometry::getNumPoints).reversed());
+    pieces.add(geometry);
+    try {
+      while (pieces.size() < MAX_PIECES && pieces.peek().getNumPoints() > MAX_PIECE_VERTICES) {
+        Geometry piece = pieces.poll();
+        Envelope env = piece.getEnvelopeInternal();
+        boolean splitX = env.getWidth() >= env.getHeight();
+        double center = splitX ? env.centre().x : env.centre().y;
+        for (Envelope half : splitX
+            ? new Envelope[]{new Envelope(env.getMinX(), center, env.getMinY(), env.getMaxY()),
+                new Envelope(center, env.getMaxX(), env.getMinY(), env.getMaxY())}
+            : new Envelope[]{new Envelope(env.getMinX(), env.getMaxX(), env.getMinY(), center),
+                new Envelope(env.getMinX(), env.getMaxX(), center, env.getMaxY())}) {
+          Geometry halfPiece = piece.intersection(piece.getFactory().toGeometry(half));
+          if (!halfPiece.isEmpty())
+            pieces.add(halfPiece);
+        }
+      }
+    }
+    catch (RuntimeException e) {
+      //The geometry can not be split (e.g., due to an invalid topology), so query it as a whole
+      return null;
+    }
+
+    if (pieces.size() <= 1)
+      return null;
+
+    WKBWriter wkbWriter = new WKBWriter();
+    return pieces.stream().map(wkbWriter::write).toList();
+  }
 }
@@ -33,18 +33,25 @@ import com.here.xyz.models.geojson.coordinates.BBox;
 import com.here.xyz.responses.ChangesetsStatisticsResponse;
 import com.here.xyz.responses.StatisticsResponse;
 import com.here.xyz.responses.StatisticsResponse.Value;
+import com.here.xyz.util.db.ConnectorParameters;
 import com.here.xyz.util.db.SQLQuery;
 import com.here.xyz.util.db.datasource.DataSourceProvider;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class GetStatistics extends XyzQueryRunner<GetStatisticsEvent, StatisticsResponse> {
   private String spaceId;
   private Map<String, Object> connectorParams;
+  private StatisticsCacheKey cacheKey;
+  private long readHeadVersion;
   private static final Pattern BBOX_PATTERN = Pattern.compile("^BOX\\(([-\\d\\.]*)\\s([-\\d\\.]*),([-\\d\\.]*)\\s([-\\d\\.]*)\\)$");
 
   public GetStatistics(GetStatisticsEvent event) throws SQLException, ErrorResponseException {
@@ -52,12 +59,30 @@ public class GetStatistics extends XyzQueryRunner<GetStatisticsEvent, Statistics
     setUseReadReplica(true);
     spaceId = event.getSpace();
     connectorParams = event.getConnectorParams();
+    cacheKey = isCacheable(event) ? new StatisticsCacheKey(ConnectorParameters.fromEvent(event).getConnectorId(),
+        readTableFromEvent(event), event.getContext()) : null;
   }
 
+  /**
+   * The statistics of composite spaces (in DEFAULT or SUPER context) also depend on the state of the extended space(s).
+   * As the HEAD version of the extending table does not reflect changes in the extended tables, such results may not be cached.
+   */
+  private static boolean isCacheable(GetStatisticsEvent event) {
+    return event.getContext() == SpaceContext.EXTENSION || event.getParams() == null || !event.getParams().containsKey("extends");
+  }
+
+  /*
+  NOTE: The HEAD version is read within the same statement (and therefore on the same replica) as the statistics.
+  The statistics function takes the table name from the row of the HEAD version, so it is evaluated afterwards and the statistics are
+  at least as recent as the version under which they get cached.
+   */
   @Override
   protected SQLQuery buildQuery(GetStatisticsEvent event) throws SQLException, ErrorResponseException {
-    return new SQLQuery("SELECT * FROM ${schema}.xyz_statistic_space(#{schema}, #{table}, #{isExtension} )")
+    return new SQLQuery("SELECT head.version AS \"headVersion\", stats.* "
+        + "FROM (SELECT max(version) AS version, #{table}::TEXT AS table_name FROM ${schema}.${table}) head, "
+        + "LATERAL ${schema}.xyz_statistic_space(#{schema}, head.table_name, #{isExtension}) stats")
         .withVariable(SCHEMA, getSchema())
+        .withVariable(TABLE, getDefaultTable(event))
         .withNamedParameter(SCHEMA, getSchema())
         .withNamedParameter(TABLE, getDefaultTable(event))
         .withNamedParameter("isExtension", event.getContext() == SpaceContext.EXTENSION);
@@ -82,7 +107,17 @@ public class GetStatistics extends XyzQueryRunner<GetStatisticsEvent, Statistics
       throw new RuntimeException(e);
     }
 
-    return super.run(dataSourceProvider)
+    //The statistics of a space can only change if a new version was written, so a cached result for the current HEAD version is still valid
+    StatisticsResponse statistics = cacheKey != null ? StatisticsCache.get(cacheKey, maxVersion) : null;
+    if (statistics == null) {
+      //Take the generation before reading, so that a result which is overtaken by an invalidation won't be cached
+      long generation = cacheKey != null ? StatisticsCache.generation(cacheKey) : 0;
+      statistics = super.run(dataSourceProvider);
+      if (cacheKey != null)
+        StatisticsCache.put(cacheKey, readHeadVersion, generation, statistics);
+    }
+
+    return statistics
         .withMinVersion(new Value<>(minVersion).withEstimated(false))
         .withMaxVersion(new Value<>(maxVersion).withEstimated(false))
         .withMinTagVersion(minTagVersion);
@@ -93,6 +128,8 @@ public class GetStatistics extends XyzQueryRunner<GetStatisticsEvent, Statistics
     try {
       rs.next();
 
+      String headVersion = rs.getString("headVersion");
+      readHeadVersion = headVersion == null ? -1 : Long.parseLong(headVersion);
       StatisticsResponse.Value<Long> tablesize = XyzSerializable.deserialize(rs.getString("tablesize"), new TypeReference<Value<Long>>() {});
       StatisticsResponse.Value<List<String>> geometryTypes = XyzSerializable
           .deserialize(rs.getString("geometryTypes"), new TypeReference<StatisticsResponse.Value<List<String>>>() {
@@ -136,4 +173,90 @@ public class GetStatistics extends XyzQueryRunner<GetStatisticsEvent, Statistics
       throw new SQLException("Error parsing JSON of statistics result.");
     }
   }
+
+  /**
+   * Invalidates all cached statistics of the specified space table.
+   * Must be called after each write to the table, because not all writes lead to a new HEAD version.
+   * (e.g. deletions in spaces with versionsToKeep = 1 are removing the rows physically)
+   * @param connectorId The ID of the connector which is holding the table
+   * @param table The space table
+   */
+  public static void invalidateCache(String connectorId, String table) {
+    StatisticsCache.invalidate(connectorId, table);
+  }
+
+  private record StatisticsCacheKey(String connectorId, String table, SpaceContext context) {
+    private TableKey tableKey() {
+      return new TableKey(connectorId, table);
+    }
+  }
+
+  private record TableKey(String connectorId, String table) {}
+
+  private record CachedStatistics(long headVersion, StatisticsResponse statistics, long expireTs) {
+    private boolean isValidFor(long headVersion) {
+      return this.headVersion == headVersion && System.currentTimeMillis() < expireTs;
+    }
+  }
+
+  private static class StatisticsCache {
+    private static final int MAX_ENTRIES = 1024;
+    /*
+    NOTE: Writes which are not performed by this connector instance are only recognized by a new HEAD version.
+    The max age is bounding the staleness for such writes which don't create a new HEAD version.
+     */
+    private static final long MAX_AGE = TimeUnit.MINUTES.toMillis(5);
+    private static final Map<StatisticsCacheKey, CachedStatistics> cache = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Entry<StatisticsCacheKey, CachedStatistics> eldest) {
+        return size() > MAX_ENTRIES;
+      }
+    };
+    /*
+    The generation of a table is increased by each invalidation. A fill may only put its result if the generation of the table is
+    still the one which was taken before the statistics were read.
+    Tables without a (retained) generation have the highest generation which has been evicted so far, so an eviction can never lead to
+    the generation of a table going back to a value which was taken before.
+     */
+    private static final Map<TableKey, Long> generations = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Entry<TableKey, Long> eldest) {
+        if (size() <= MAX_ENTRIES)
+          return false;
+        evictedGeneration = Math.max(evictedGeneration, eldest.getValue());
+        return true;
+      }
+    };
+    private static long lastGeneration;
+    private static long evictedGeneration;
+
+    private static synchronized long generation(StatisticsCacheKey key) {
+      return generations.getOrDefault(key.tableKey(), evictedGeneration);
+    }
+
+    private static synchronized StatisticsResponse get(StatisticsCacheKey key, long headVersion) {
+      CachedStatistics cached = cache.get(key);
+      if (cached == null)
+        return null;
+      if (!cached.isValidFor(headVersion)) {
+        cache.remove(key);
+        return null;
+      }
+      //Always return a copy as the response will be modified later on
+      return cached.statistics().copy();
+    }
+
+    private static synchronized void put(StatisticsCacheKey key, long headVersion, long generation, StatisticsResponse statistics) {
+      if (generation(key) != generation)
+        return;
+      StatisticsResponse copy = statistics.copy();
+      if (copy != null)
+        cache.put(key, new CachedStatistics(headVersion, copy, System.currentTimeMillis() + MAX_AGE));
+    }
+
+    private static synchronized void invalidate(String connectorId, String table) {
+      generations.put(new TableKey(connectorId, table), ++lastGeneration);
+      cache.keySet().removeIf(key -> Objects.equals(key.connectorId(), connectorId) && Objects.equals(key.table(), table));
+    }
+  }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2017-2023 HERE Europe B.V.
+ * Copyright (C) 2017-2024 HERE Europe B.V.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,24 +19,25 @@
 
 package com.here.xyz.psql.query;
 
-import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_DEFAULT;
-
-import com.fasterxml.jackson.annotation.JsonInclude;
-import com.here.xyz.XyzSerializable;
 import com.here.xyz.connectors.ErrorResponseException;
 import com.here.xyz.events.LoadFeaturesEvent;
 import com.here.xyz.models.geojson.implementation.FeatureCollection;
 import com.here.xyz.util.db.SQLQuery;
+import com.here.xyz.util.db.datasource.DataSourceProvider;
 import java.sql.SQLException;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Map.Entry;
 
 public class LoadFeatures extends GetFeatures<LoadFeaturesEvent, FeatureCollection> {
+  /*
+  Requests for more IDs than this are split into chunks of that size, which are loaded in parallel.
+   */
+  private static final int CHUNK_SIZE = 1000;
   private boolean isForHistoryQuery;
+  private List<Entry<String, String>> currentChunk;
+  private List<SQLQuery> chunkQueries;
 
   public LoadFeatures(LoadFeaturesEvent event) throws SQLException, ErrorResponseException {
     super(event);
@@ -45,6 +46,23 @@ public class LoadFeatures extends GetFeatures<LoadFeaturesEvent, FeatureCollecti
 
   @Override
   protected SQLQuery buildQuery(LoadFeaturesEvent event) throws SQLException, ErrorResponseException {
+    List<Entry<String, String>> input = new ArrayList<>(event.getIdsMap().entrySet());
+    if (input.size() <= CHUNK_SIZE) {
+      currentChunk = input;
+      return buildChunkQuery(event);
+    }
+
+    //Build one query per chunk of the requested IDs
+    chunkQueries = new ArrayList<>();
+    for (int i = 0; i < input.size(); i += CHUNK_SIZE) {
+      currentChunk = input.subList(i, Math.min(i + CHUNK_SIZE, input.size()));
+      chunkQueries.add(buildChunkQuery(event));
+    }
+    return chunkQueries.get(0);
+  }
+
+  private SQLQuery buildChunkQuery(LoadFeaturesEvent event) throws SQLException, ErrorResponseException {
+    isForHistoryQuery = false;
     if (event.getVersionsToKeep() > 1) {
       SQLQuery headQuery = super.buildQuery(event);
       isForHistoryQuery = true;
@@ -58,61 +76,33 @@ public class LoadFeatures extends GetFeatures<LoadFeaturesEvent, FeatureCollecti
 
   @Override
   protected SQLQuery buildFilterWhereClause(LoadFeaturesEvent event) {
-    final Map<String, String> idMap = event.getIdsMap();
+    String[] ids = currentChunk.stream().map(Map.Entry::getKey).toArray(String[]::new);
 
     if (event.getVersionsToKeep() > 1) {
-      Set<String> idsOnly = new HashSet<>();
-      Map<String, String> idsWithVersions = new HashMap<>();
-
-      idMap.forEach((k, v) -> {
-        idsOnly.add(k);
-        if (v != null)
-          idsWithVersions.put(k, v);
-      });
+      if (isForHistoryQuery) {
+        List<Entry<String, String>> idsWithVersions = currentChunk.stream().filter(e -> e.getValue() != null).toList();
+        //Join the requested (id, version) pairs as an unnested table instead of listing them in the query
+        return new SQLQuery("(id, version) IN (SELECT * FROM unnest(#{historyIds}::TEXT[], #{historyVersions}::BIGINT[]))")
+            .withNamedParameter("historyIds", idsWithVersions.stream().map(Map.Entry::getKey).toArray(String[]::new))
+            .withNamedParameter("historyVersions", idsWithVersions.stream().map(e -> Long.parseLong(e.getValue())).toArray(Long[]::new));
+      }
 
-      if (isForHistoryQuery)
-        return new SQLQuery("(id, version) IN (${{loadFeaturesInput}})")
-            .withQueryFragment("loadFeaturesInput", buildLoadFeaturesInputFragment(
-                idsWithVersions.entrySet().stream().map(e -> LoadFeatureVersionInput.of(e.getKey(), Long.parseLong(e.getValue())))
-                    .collect(Collectors.toList()), false));
-
-      return new SQLQuery("(id, next_version) IN (${{loadFeaturesInputIdsOnly}})")
-          .withQueryFragment("loadFeaturesInputIdsOnly", buildLoadFeaturesInputFragment(idsOnly
-              .stream()
-              .map(id -> LoadFeatureVersionInput.of(id))
-              .collect(Collectors.toList()), true));
+      return new SQLQuery("id IN (SELECT unnest(#{headIds}::TEXT[])) AND next_version = max_bigint()")
+          .withNamedParameter("headIds", ids);
     }
     else
       return new SQLQuery("id = ANY(#{ids})")
-          .withNamedParameter("ids", idMap.keySet().toArray(new String[0]));
-  }
-
-  private static SQLQuery buildLoadFeaturesInputFragment(List<LoadFeatureVersionInput> input, boolean head) {
-    String inputParamName = head ? "headIds" : "historyIds";
-    //NOTE: If the version of the input object = -1 (default / unset) this will be translated into max_bigint() by the following query
-    return new SQLQuery("SELECT * FROM "
-        + "json_populate_recordset((null, max_bigint())::LOAD_FEATURE_VERSION_INPUT, #{" + inputParamName + "}::JSON)")
-        .withNamedParameter(inputParamName, XyzSerializable.serialize(input));
+          .withNamedParameter("ids", ids);
   }
 
-  /**
-   * The java type representation of the Postgres types LOAD_FEATURE_VERSION_INPUT.
-   * This class is used for serialization to enable passing an array of complex type as a parameter to the LFE query.
-   */
-  @JsonInclude(NON_DEFAULT)
-  private static class LoadFeatureVersionInput implements XyzSerializable {
-    public String id;
-    public long version = -1;
+  @Override
+  protected FeatureCollection run(DataSourceProvider dataSourceProvider) throws SQLException, ErrorResponseException {
+    //Preparing the query also builds the queries for all chunks
+    prepareQuery();
+    if (chunkQueries == null)
+      return super.run(dataSourceProvider);
 
-    public static LoadFeatureVersionInput of(String id) {
-      LoadFeatureVersionInput input = new LoadFeatureVersionInput();
-      input.id = id;
-      return input;
-    }
-    public static LoadFeatureVersionInput of(String id, long version) {
-      LoadFeatureVersionInput input = of(id);
-      input.version = version;
-      return input;
-    }
+    //The chunks contain disjoint IDs, but each chunk may return multiple versions of the same feature
+    return runPartitioned(dataSourceProvider, chunkQueries, Long.MAX_VALUE, false);
   }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2017-2023 HERE Europe B.V.
+ * Copyright (C) 2017-2024 HERE Europe B.V.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,7 +25,11 @@ import static com.here.xyz.events.ModifySpaceEvent.Operation.UPDATE;
 import static com.here.xyz.psql.query.helpers.versioning.GetNextVersion.VERSION_SEQUENCE_SUFFIX;
 import static com.here.xyz.util.db.pg.XyzSpaceTableHelper.SCHEMA;
 import static com.here.xyz.util.db.pg.XyzSpaceTableHelper.TABLE;
+import static com.here.xyz.util.db.pg.XyzSpaceTableHelper.buildCreateHistoryIndexQuery;
 import static com.here.xyz.util.db.pg.XyzSpaceTableHelper.buildCreateSpaceTableQueries;
+import static com.here.xyz.util.db.pg.XyzSpaceTableHelper.buildDisableHistoryLayoutQuery;
+import static com.here.xyz.util.db.pg.XyzSpaceTableHelper.buildEnableHistoryLayoutQuery;
+import static com.here.xyz.util.db.pg.XyzSpaceTableHelper.buildLoadHistoryPartitionsQuery;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -36,6 +40,7 @@ import com.here.xyz.events.ModifySpaceEvent;
 import com.here.xyz.events.ModifySpaceEvent.Operation;
 import com.here.xyz.models.hub.Space;
 import com.here.xyz.psql.DatabaseMaintainer;
+import com.here.xyz.psql.query.bbox.QuadbinPyramid;
 import com.here.xyz.responses.SuccessResponse;
 import com.here.xyz.util.db.SQLQuery;
 import com.here.xyz.util.db.datasource.DataSourceProvider;
@@ -58,8 +63,12 @@ public class ModifySpace extends ExtendedSpace<ModifySpaceEvent, SuccessResponse
     public static final String SPACE_META_TABLE = "space_meta";
     public static final String SPACE_META_TABLE_FQN = XYZ_CONFIG_SCHEMA + "." + SPACE_META_TABLE;
     public static final String I_SEQUENCE_SUFFIX = "_i_seq";
+    public static final String VERSION_RANGE_HISTORY = "versionRangeHistory";
     private Operation operation;
     private String spaceId;
+    private String table;
+    private boolean versionRangeHistory;
+    private boolean quadbinPyramid;
     private DatabaseMaintainer dbMaintainer;
 
     public ModifySpace(ModifySpaceEvent event) throws SQLException, ErrorResponseException {
@@ -67,6 +76,9 @@ public class ModifySpace extends ExtendedSpace<ModifySpaceEvent, SuccessResponse
         setUseReadReplica(false);
         operation = event.getOperation();
         spaceId = event.getSpace();
+        table = getDefaultTable(event);
+        versionRangeHistory = operation != DELETE && isVersionRangeHistory(event);
+        quadbinPyramid = operation != DELETE && QuadbinPyramid.fromEvent(event) != null;
     }
 
     @Override
@@ -84,6 +96,19 @@ public class ModifySpace extends ExtendedSpace<ModifySpaceEvent, SuccessResponse
             //Write metadata
             queries.add(buildSpaceMetaUpsertQuery(event));
 
+            //Create / remove the optional quadbin pyramid
+            QuadbinPyramid pyramid = QuadbinPyramid.fromEvent(event);
+            if (pyramid != null)
+                queries.add(pyramid.buildEnableQuery(getSchema(), table));
+            else if (event.getOperation() == UPDATE)
+                queries.add(QuadbinPyramid.buildDisableQuery(getSchema(), table));
+
+            //Activate / deactivate the optional version-range history layout
+            if (isVersionRangeHistory(event))
+                queries.add(buildEnableHistoryLayoutQuery(getSchema(), table, event.getSpaceDefinition().getVersionsToKeep()));
+            else if (event.getOperation() == UPDATE)
+                queries.add(buildDisableHistoryLayoutQuery(getSchema(), table));
+
             return SQLQuery.batchOf(queries).withLock(table);
         }
         else if (event.getOperation() == DELETE)
@@ -92,14 +117,44 @@ public class ModifySpace extends ExtendedSpace<ModifySpaceEvent, SuccessResponse
         return null;
     }
 
+    /**
+     * The version-range history layout gets activated by the storage param {@value #VERSION_RANGE_HISTORY} of a versioned space.
+     */
+    private static boolean isVersionRangeHistory(ModifySpaceEvent event) {
+        return event.getParams() != null && Boolean.TRUE.equals(event.getParams().get(VERSION_RANGE_HISTORY))
+            && event.getSpaceDefinition() != null && event.getSpaceDefinition().getVersionsToKeep() > 1;
+    }
+
     @Override
     public SuccessResponse write(DataSourceProvider dataSourceProvider) throws SQLException, ErrorResponseException {
         SuccessResponse response = super.write(dataSourceProvider);
+        if (versionRangeHistory)
+            createHistoryIndices(dataSourceProvider);
+        if (quadbinPyramid)
+            //Fill the pyramid after the (locked) modification of the space, writes to the space continue meanwhile
+            QuadbinPyramid.buildBackfillQuery(getSchema(), table).run(dataSourceProvider, false);
         if (operation != Operation.DELETE)
             getDbMaintainer().maintainSpace(ConnectorRuntime.getInstance().getStreamId(), getSchema(), spaceId);
         return response;
     }
 
+    /**
+     * Creates the BRIN indices of the already existing history partitions concurrently.
+     * That's done after the (locked) modification of the space, as creating the indices within it would block the writes to the space
+     * during the whole creation. History partitions which got created in the meantime got their index already.
+     */
+    private void createHistoryIndices(DataSourceProvider dataSourceProvider) throws SQLException {
+        List<String> partitions = buildLoadHistoryPartitionsQuery(getSchema(), table).run(dataSourceProvider, rs -> {
+            List<String> result = new ArrayList<>();
+            while (rs.next())
+                result.add(rs.getString(1));
+            return result;
+        }, false);
+
+        for (String partition : partitions)
+            buildCreateHistoryIndexQuery(getSchema(), partition).write(dataSourceProvider);
+    }
+
     @Override
     protected SuccessResponse handleWrite(int[] rowCounts) {
         return new SuccessResponse().withStatus("OK");
@@ -241,7 +296,7 @@ public class ModifySpace extends ExtendedSpace<ModifySpaceEvent, SuccessResponse
 
     public SQLQuery buildCleanUpQuery(ModifySpaceEvent event) {
         String table = getDefaultTable(event);
-        SQLQuery q = new SQLQuery("${{deleteMetadata}} ${{deleteIndexStatus}} ${{dropTable}} ${{dropISequence}} ${{dropVersionSequence}}")
+        SQLQuery q = new SQLQuery("${{deleteMetadata}} ${{deleteIndexStatus}} ${{dropTable}} ${{dropPyramidTable}} ${{dropPyramidDeltaTable}} ${{dropISequence}} ${{dropVersionSequence}}")
             .withQueryFragment(
                 "deleteMetadata",
                 "DELETE FROM ${configSchema}.${spaceMetaTable} WHERE h_id = #{table} AND schem = #{schema};"
@@ -251,6 +306,8 @@ public class ModifySpace extends ExtendedSpace<ModifySpaceEvent, SuccessResponse
                 "DELETE FROM ${configSchema}.${idxStatusTable} WHERE spaceid = #{table} AND schem = #{schema};"
             )
             .withQueryFragment("dropTable", "DROP TABLE IF EXISTS ${schema}.${table};")
+            .withQueryFragment("dropPyramidTable", "DROP TABLE IF EXISTS ${schema}.${pyramidTable};")
+            .withQueryFragment("dropPyramidDeltaTable", "DROP TABLE IF EXISTS ${schema}.${pyramidDeltaTable};")
             .withQueryFragment("dropISequence", "DROP SEQUENCE IF EXISTS ${schema}.${iSequence};")
             .withQueryFragment("dropVersionSequence", "DROP SEQUENCE IF EXISTS ${schema}.${versionSequence};");
 
@@ -262,6 +319,8 @@ public class ModifySpace extends ExtendedSpace<ModifySpaceEvent, SuccessResponse
             .withVariable("configSchema", XYZ_CONFIG_SCHEMA)
             .withVariable("idxStatusTable", IDX_STATUS_TABLE)
             .withVariable("spaceMetaTable", SPACE_META_TABLE)
+            .withVariable("pyramidTable", QuadbinPyramid.getTableName(table))
+            .withVariable("pyramidDeltaTable", QuadbinPyramid.getDeltaTableName(table))
             .withVariable("iSequence", table + I_SEQUENCE_SUFFIX)
             .withVariable("versionSequence", getDefaultTable(event) + VERSION_SEQUENCE_SUFFIX);
     }
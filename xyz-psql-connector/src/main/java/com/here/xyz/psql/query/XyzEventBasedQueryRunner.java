@@ -29,10 +29,13 @@ import java.util.Map;
 
 public abstract class XyzEventBasedQueryRunner<E extends Event, R extends Object> extends QueryRunner<E, R> {
   private boolean preferPrimaryDataSource;
+  private boolean allowCaughtUpReplica;
+  private final long receivedAt = System.nanoTime();
 
   public XyzEventBasedQueryRunner(E event) throws SQLException, ErrorResponseException {
     super(event);
     preferPrimaryDataSource = event.getPreferPrimaryDataSource();
+    allowCaughtUpReplica = event.getAllowCaughtUpReplica();
   }
 
   public static String readTableFromEvent(Event event) {
@@ -56,7 +59,12 @@ public abstract class XyzEventBasedQueryRunner<E extends Event, R extends Object
 
   @Override
   public boolean isUseReadReplica() {
+    if (!super.isUseReadReplica())
+      return false;
+    //Use the replica only if it has caught up with all changes the event has to see, otherwise fall back to the writer
+    if (allowCaughtUpReplica)
+      return getDataSourceProvider().isReaderCaughtUp(receivedAt);
     //Always use the writer in case of event.preferPrimaryDataSource == true
-    return super.isUseReadReplica() && !preferPrimaryDataSource;
+    return !preferPrimaryDataSource;
   }
 }
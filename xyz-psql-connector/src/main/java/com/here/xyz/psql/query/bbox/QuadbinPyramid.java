@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql.query.bbox;
+
+import static com.here.xyz.responses.XyzError.ILLEGAL_ARGUMENT;
+import static com.here.xyz.util.db.pg.XyzSpaceTableHelper.SCHEMA;
+import static com.here.xyz.util.db.pg.XyzSpaceTableHelper.TABLE;
+
+import com.here.xyz.connectors.ErrorResponseException;
+import com.here.xyz.events.Event;
+import com.here.xyz.util.db.SQLQuery;
+import java.util.Map;
+
+/**
+ * An optional per-space aggregation pyramid, holding the exact feature counts per quadkey for a configurable range of levels.
+ * The pyramid gets activated by the storage param {@value #QUADBIN_PYRAMID} of a space, e.g.:
+ * <code>"quadbinPyramid": {"minLevel": 2, "maxLevel": 14}</code>
+ *
+ * The pyramid table is filled once after being activated (see {@link #buildBackfillQuery(String, String)}) and is only used for reading
+ * when that is done. Afterwards, the changes of each write statement are aggregated by a statement trigger on the space table
+ * and queued in a delta table. The queued deltas are applied to the pyramid asynchronously by the maintenance
+ * (see {@link #buildApplyQuery(String, String)}), so writers never update the same pyramid cells concurrently.
+ * Readers add the queued deltas to the counts of the pyramid.
+ * Each feature is counted exactly once per level, by the quadkey of its representative point.
+ * Requests for levels lower than minLevel are aggregated from the minLevel cells.
+ */
+public class QuadbinPyramid {
+  public static final String QUADBIN_PYRAMID = "quadbinPyramid";
+  public static final String PYRAMID_TABLE_SUFFIX = "_qkpyramid";
+  public static final String DELTA_TABLE_SUFFIX = PYRAMID_TABLE_SUFFIX + "_delta";
+  private static final String MIN_LEVEL = "minLevel";
+  private static final String MAX_LEVEL = "maxLevel";
+  private static final int MAX_SUPPORTED_LEVEL = 20;
+  private final int minLevel;
+  private final int maxLevel;
+
+  private QuadbinPyramid(int minLevel, int maxLevel) {
+    this.minLevel = minLevel;
+    this.maxLevel = maxLevel;
+  }
+
+  /**
+   * Reads the pyramid configuration from the storage params of the event.
+   * @return The pyramid configuration or <code>null</code> if the space has no (valid) pyramid configured
+   */
+  public static QuadbinPyramid fromEvent(Event event) {
+    try {
+      return fromParams(event.getParams());
+    }
+    catch (ErrorResponseException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Validates the pyramid configuration of the storage params.
+   * @throws ErrorResponseException if the pyramid configuration is invalid
+   */
+  public static void validate(Map<String, Object> params) throws ErrorResponseException {
+    fromParams(params);
+  }
+
+  private static QuadbinPyramid fromParams(Map<String, Object> params) throws ErrorResponseException {
+    //The counts of composite spaces depend on the extended spaces which are not part of the pyramid
+    if (params == null || !(params.get(QUADBIN_PYRAMID) instanceof Map<?, ?> config) || params.containsKey("extends"))
+      return null;
+
+    if (!(config.get(MAX_LEVEL) instanceof Integer maxLevel) || maxLevel < 0 || maxLevel > MAX_SUPPORTED_LEVEL)
+      throw new ErrorResponseException(ILLEGAL_ARGUMENT, QUADBIN_PYRAMID + "." + MAX_LEVEL + " must be an integer between 0 and "
+          + MAX_SUPPORTED_LEVEL + ".");
+
+    Object minLevelValue = config.get(MIN_LEVEL) != null ? config.get(MIN_LEVEL) : 0;
+    if (!(minLevelValue instanceof Integer minLevel) || minLevel < 0 || minLevel > maxLevel)
+      throw new ErrorResponseException(ILLEGAL_ARGUMENT, QUADBIN_PYRAMID + "." + MIN_LEVEL + " must be an integer between 0 and "
+          + MAX_LEVEL + ".");
+
+    return new QuadbinPyramid(minLevel, maxLevel);
+  }
+
+  /**
+   * @return true, if the counts of quadkeys on the specified level can be read from the pyramid
+   */
+  public boolean covers(int level) {
+    return level <= maxLevel;
+  }
+
+  /**
+   * Builds the SQL expression which reads the exact count of features within a quadkey from the pyramid and its queued deltas.
+   * The returned expression contains the variables <code>${schema}</code>, <code>${pyramidTable}</code> and
+   * <code>${pyramidDeltaTable}</code>, which have to be set on the containing query using {@link #getTableName(String)} and
+   * {@link #getDeltaTableName(String)}.
+   * @param quadkeyColumn The (fully qualified) column of the outer query containing the quadkey
+   */
+  public String buildCountSql(String quadkeyColumn) {
+    return "(SELECT coalesce(sum(p.cnt), 0) FROM "
+        + "(SELECT qk, cnt FROM ${schema}.${pyramidTable} UNION ALL SELECT qk, cnt FROM ${schema}.${pyramidDeltaTable}) p "
+        + "WHERE p.qk >= " + quadkeyColumn + " AND p.qk < " + quadkeyColumn + " || '4' "
+        + "AND length(p.qk) = greatest(length(" + quadkeyColumn + "), " + minLevel + "))";
+  }
+
+  /**
+   * Builds the SQL expression which checks whether the pyramid was filled already and can be used for reading.
+   * The returned expression contains the same variables as {@link #buildCountSql(String)}.
+   */
+  public static String buildReadySql() {
+    return "coalesce((obj_description('${schema}.${pyramidTable}'::regclass, 'pg_class')::jsonb->>'ready')::boolean, false)";
+  }
+
+  public static String getTableName(String table) {
+    return table + PYRAMID_TABLE_SUFFIX;
+  }
+
+  public static String getDeltaTableName(String table) {
+    return table + DELTA_TABLE_SUFFIX;
+  }
+
+  public SQLQuery buildEnableQuery(String schema, String table) {
+    return new SQLQuery("SELECT xyz_qk_pyramid_enable(#{schema}, #{table}, #{minLevel}, #{maxLevel})")
+        .withNamedParameter(SCHEMA, schema)
+        .withNamedParameter(TABLE, table)
+        .withNamedParameter("minLevel", minLevel)
+        .withNamedParameter("maxLevel", maxLevel);
+  }
+
+  /**
+   * Fills the pyramid from the current HEAD state, if that was not done already.
+   * NOTE: This query may run long and must not be part of a transaction which holds locks of the space table.
+   */
+  public static SQLQuery buildBackfillQuery(String schema, String table) {
+    return new SQLQuery("SELECT xyz_qk_pyramid_backfill(#{schema}, #{table})")
+        .withNamedParameter(SCHEMA, schema)
+        .withNamedParameter(TABLE, table);
+  }
+
+  /**
+   * Applies the queued deltas of the pyramid of a space to the pyramid, if the space has a pyramid.
+   */
+  public static SQLQuery buildApplyQuery(String schema, String table) {
+    return new SQLQuery("SELECT xyz_qk_pyramid_apply(#{schema}, #{table})")
+        .withNamedParameter(SCHEMA, schema)
+        .withNamedParameter(TABLE, table);
+  }
+
+  public static SQLQuery buildDisableQuery(String schema, String table) {
+    return new SQLQuery("SELECT xyz_qk_pyramid_disable(#{schema}, #{table})")
+        .withNamedParameter(SCHEMA, schema)
+        .withNamedParameter(TABLE, table);
+  }
+}
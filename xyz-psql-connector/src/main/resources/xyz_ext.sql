@@ -108,6 +108,14 @@ DROP FUNCTION IF EXISTS qk_s_get_fc_of_tiles_txt_v4(
 -- xyz_qk_bbox2zooml						:	select xyz_qk_bbox2zooml(
 --													ST_GeomFromText('POLYGON((49.1430885846288 -122.003173828125,49.1430885846288 -122.001800537109,49.1439869452885
 --													-122.001800537109,49.1439869452885 -122.003173828125,49.1430885846288 -122.003173828125))' ));
+-- xyz_qk_pyramid_cells						:	select xyz_qk_pyramid_cells(ST_GeomFromText( 'POINT( -64.78767  32.29703)' ), 2, 5)
+-- xyz_qk_pyramid_enable					:	select xyz_qk_pyramid_enable('xyz', 'QgQCHStH', 2, 14)
+-- xyz_qk_pyramid_backfill					:	select xyz_qk_pyramid_backfill('xyz', 'QgQCHStH')
+-- xyz_qk_pyramid_apply						:	select xyz_qk_pyramid_apply('xyz', 'QgQCHStH')
+-- xyz_qk_pyramid_apply_all					:	select xyz_qk_pyramid_apply_all('xyz')
+-- xyz_qk_pyramid_disable					:	select xyz_qk_pyramid_disable('xyz', 'QgQCHStH')
+-- xyz_history_layout_enable				:	select xyz_history_layout_enable('xyz', 'QgQCHStH', 100)
+-- xyz_history_layout_disable				:	select xyz_history_layout_disable('xyz', 'QgQCHStH')
 ---------------------------------------------------------------------------------
 ---------------------------------------------------------------------------------
 ------ XYZ Index maintenance table	: xyz_config.xyz_idxs_status maintenance ----
@@ -140,7 +148,7 @@ DROP FUNCTION IF EXISTS qk_s_get_fc_of_tiles_txt_v4(
 CREATE OR REPLACE FUNCTION xyz_ext_version()
   RETURNS integer AS
 $BODY$
- select 191
+ select 200
 $BODY$
   LANGUAGE sql IMMUTABLE;
 ----------
@@ -2824,6 +2832,274 @@ $body$ -- select round( ( ln( 360 ) - ln( st_xmax(i.env) - st_xmin(i.env) )  )/
 $body$
 LANGUAGE sql IMMUTABLE;
 ------------------------------------------------
+---------------- QUADBIN_PYRAMID ---------------
+------------------------------------------------
+CREATE OR REPLACE FUNCTION xyz_qk_pyramid_counted( operation CHAR, geo geometry )
+	RETURNS boolean AS
+$BODY$
+	/**
+	* Description: Returns true if a row of the HEAD partition is counted in the quadbin pyramid.
+	*		Deleted features and features without (or with empty) geometry are not counted.
+	*/
+	select operation NOT IN ('D', 'H', 'J') AND geo IS NOT NULL AND NOT ST_IsEmpty(geo)
+$BODY$
+LANGUAGE sql IMMUTABLE;
+------------------------------------------------
+------------------------------------------------
+CREATE OR REPLACE FUNCTION xyz_qk_pyramid_cells( geo geometry, min_level integer, max_level integer )
+	RETURNS text[] AS
+$BODY$
+	/**
+	* Description: Returns the quadkeys of all pyramid levels (min_level .. max_level) which contain the representative point of a geometry.
+	*		As only one point is taken per geometry, each feature is counted exactly once per level.
+	*
+	* Parameters:
+	*   @geo			- the geometry of the feature
+	*   @min_level		- the lowest level of the pyramid
+	*   @max_level		- the highest level of the pyramid
+	*/
+	select array_agg( left( q.qk, l.lev ) order by l.lev )
+	from
+	( select xyz_qk_point2qk( ST_SetSRID( ST_MakePoint( greatest( -180.0, least( 179.9999999, ST_X( p.pt ) ) ),
+	                                                    greatest( -85.0511287, least( 85.0511287, ST_Y( p.pt ) ) ) ), 4326 ), max_level ) as qk
+	  from ( select ST_PointOnSurface( ST_Force2D( geo ) ) as pt ) p
+	) q, generate_series( min_level, max_level ) l(lev)
+$BODY$
+LANGUAGE sql IMMUTABLE;
+------------------------------------------------
+------------------------------------------------
+CREATE OR REPLACE FUNCTION xyz_qk_pyramid_trigger()
+	RETURNS trigger AS
+$BODY$
+	/**
+	* Description: Queues the changes of the quadbin pyramid of a space. Must be installed as AFTER STATEMENT trigger on the (root) table
+	*		of the space, once per operation, referencing the transition tables "old_rows" and / or "new_rows".
+	*		The changes of all rows of the statement are aggregated per quadkey and appended to the delta table of the pyramid.
+	*		As no pyramid cell is updated here, concurrent writers do not block each other.
+	*		The queued deltas are applied to the pyramid asynchronously by xyz_qk_pyramid_apply().
+	*		Only rows of the HEAD are counted, so rows which are moved out of the HEAD (new versions in history-enabled spaces) are subtracted.
+	*
+	* Parameters (TG_ARGV):
+	*   [0]			- the fully qualified name of the delta table
+	*   [1]			- the lowest level of the pyramid
+	*   [2]			- the highest level of the pyramid
+	*/
+	DECLARE delta_table text := TG_ARGV[0];
+	DECLARE min_level integer := TG_ARGV[1]::integer;
+	DECLARE max_level integer := TG_ARGV[2]::integer;
+	DECLARE old_changes text := 'SELECT geo, -1 AS cnt FROM old_rows WHERE next_version = max_bigint() AND xyz_qk_pyramid_counted( operation, geo )';
+	DECLARE new_changes text := 'SELECT geo, 1 AS cnt FROM new_rows WHERE next_version = max_bigint() AND xyz_qk_pyramid_counted( operation, geo )';
+	DECLARE changes text;
+BEGIN
+	changes := CASE TG_OP
+		WHEN 'INSERT' THEN new_changes
+		WHEN 'DELETE' THEN old_changes
+		ELSE old_changes || ' UNION ALL ' || new_changes
+	END;
+
+	EXECUTE format( 'INSERT INTO %s (qk, cnt) '
+	             || 'SELECT c.qk, sum(r.cnt) FROM (%s) r, unnest( xyz_qk_pyramid_cells( r.geo, %s, %s ) ) c(qk) '
+	             || 'GROUP BY c.qk HAVING sum(r.cnt) != 0',
+	                delta_table, changes, min_level, max_level );
+
+	RETURN NULL;
+END;
+$BODY$
+LANGUAGE plpgsql VOLATILE;
+------------------------------------------------
+------------------------------------------------
+CREATE OR REPLACE FUNCTION xyz_qk_pyramid_drop_triggers( schema text, tbl text )
+	RETURNS void AS
+$BODY$
+	/**
+	* Description: Removes the triggers which are queuing the changes of the quadbin pyramid of a space (if existing).
+	*
+	* Parameters:
+	*   @schema			- schema in which the XYZ-spaces are located
+	*   @tbl			- the (root) table of the space
+	*/
+	DECLARE pyramid_table text := tbl || '_qkpyramid';
+	DECLARE op text;
+BEGIN
+	IF to_regclass( format( '%I.%I', schema, tbl ) ) IS NULL THEN
+		RETURN;
+	END IF;
+
+	FOREACH op IN ARRAY ARRAY['insert', 'update', 'delete'] LOOP
+		EXECUTE format( 'DROP TRIGGER IF EXISTS %I ON %I.%I', pyramid_table || '_' || op, schema, tbl );
+	END LOOP;
+END;
+$BODY$
+LANGUAGE plpgsql VOLATILE;
+------------------------------------------------
+------------------------------------------------
+CREATE OR REPLACE FUNCTION xyz_qk_pyramid_enable( schema text, tbl text, min_level integer, max_level integer )
+	RETURNS void AS
+$BODY$
+	/**
+	* Description: Creates (or re-creates) the (empty) quadbin pyramid of a space for the given level range and installs the triggers
+	*		which are queuing the changes of the pyramid.
+	*		The pyramid has to be filled by xyz_qk_pyramid_backfill() afterwards, until then it is not marked as "ready".
+	*		If the pyramid already exists with the same level range, nothing is done.
+	*		NOTE: The backfill is not done here, as this function is called while the space is locked for writes.
+	*
+	* Parameters:
+	*   @schema			- schema in which the XYZ-spaces are located
+	*   @tbl			- the (root) table of the space
+	*   @min_level		- the lowest level of the pyramid
+	*   @max_level		- the highest level of the pyramid
+	*/
+	DECLARE pyramid_table text := tbl || '_qkpyramid';
+	DECLARE delta_table text := tbl || '_qkpyramid_delta';
+	DECLARE pyramid_config jsonb := jsonb_build_object( 'minLevel', min_level, 'maxLevel', max_level );
+	DECLARE op text;
+BEGIN
+	IF obj_description( to_regclass( format( '%I.%I', schema, pyramid_table ) ), 'pg_class' )::jsonb - 'ready' = pyramid_config THEN
+		RETURN;
+	END IF;
+
+	PERFORM xyz_qk_pyramid_drop_triggers( schema, tbl );
+	EXECUTE format( 'CREATE TABLE IF NOT EXISTS %I.%I (qk TEXT COLLATE "C" PRIMARY KEY, cnt BIGINT NOT NULL)', schema, pyramid_table );
+	EXECUTE format( 'CREATE TABLE IF NOT EXISTS %I.%I (qk TEXT COLLATE "C" NOT NULL, cnt BIGINT NOT NULL)', schema, delta_table );
+	EXECUTE format( 'CREATE INDEX IF NOT EXISTS %I ON %I.%I (qk)', 'idx_' || delta_table || '_qk', schema, delta_table );
+	EXECUTE format( 'TRUNCATE %I.%I, %I.%I', schema, pyramid_table, schema, delta_table );
+
+	-- Transition tables can only be used by triggers for exactly one operation
+	FOREACH op IN ARRAY ARRAY['insert', 'update', 'delete'] LOOP
+		EXECUTE format( 'CREATE TRIGGER %I AFTER %s ON %I.%I REFERENCING %s '
+		             || 'FOR EACH STATEMENT EXECUTE PROCEDURE xyz_qk_pyramid_trigger(%L, %s, %s)',
+		                pyramid_table || '_' || op, op, schema, tbl,
+		                CASE op WHEN 'insert' THEN 'NEW TABLE AS new_rows' WHEN 'delete' THEN 'OLD TABLE AS old_rows'
+		                        ELSE 'OLD TABLE AS old_rows NEW TABLE AS new_rows' END,
+		                format( '%I.%I', schema, delta_table ), min_level, max_level );
+	END LOOP;
+
+	EXECUTE format( 'COMMENT ON TABLE %I.%I IS %L', schema, pyramid_table, pyramid_config );
+END;
+$BODY$
+LANGUAGE plpgsql VOLATILE;
+------------------------------------------------
+------------------------------------------------
+CREATE OR REPLACE FUNCTION xyz_qk_pyramid_backfill( schema text, tbl text )
+	RETURNS void AS
+$BODY$
+	/**
+	* Description: Fills the (empty) quadbin pyramid of a space from the current HEAD state and marks it as "ready" afterwards.
+	*		Only a lock of the pyramid is held, writes to the space continue meanwhile and get queued by xyz_qk_pyramid_trigger().
+	*		If the pyramid does not exist or is already "ready", nothing is done.
+	*
+	* Parameters:
+	*   @schema			- schema in which the XYZ-spaces are located
+	*   @tbl			- the (root) table of the space
+	*/
+	DECLARE pyramid_table text := tbl || '_qkpyramid';
+	DECLARE delta_table text := tbl || '_qkpyramid_delta';
+	DECLARE pyramid_config jsonb;
+BEGIN
+	IF to_regclass( format( '%I.%I', schema, pyramid_table ) ) IS NULL THEN
+		RETURN;
+	END IF;
+
+	-- Serializes the backfill with other backfills and with xyz_qk_pyramid_apply()
+	PERFORM pg_advisory_xact_lock( hashtext( format( '%I.%I', schema, pyramid_table ) ) );
+
+	pyramid_config := obj_description( to_regclass( format( '%I.%I', schema, pyramid_table ) ), 'pg_class' )::jsonb;
+	IF coalesce( ( pyramid_config->>'ready' )::boolean, false ) THEN
+		RETURN;
+	END IF;
+
+	-- Both parts run on the same snapshot: The queued deltas of all writes which are visible to it are already part of the counted HEAD state.
+	-- The deltas of writes which are not visible to it stay queued.
+	EXECUTE format( 'WITH discarded AS (DELETE FROM %1$I.%2$I) '
+	             || 'INSERT INTO %1$I.%3$I (qk, cnt) '
+	             || 'SELECT c.qk, count(1) FROM %1$I.%4$I h, unnest( xyz_qk_pyramid_cells( h.geo, %5$s, %6$s ) ) c(qk) '
+	             || 'WHERE h.next_version = max_bigint() AND xyz_qk_pyramid_counted( h.operation, h.geo ) GROUP BY c.qk',
+	                schema, delta_table, pyramid_table, tbl, pyramid_config->>'minLevel', pyramid_config->>'maxLevel' );
+
+	EXECUTE format( 'COMMENT ON TABLE %I.%I IS %L', schema, pyramid_table, pyramid_config || '{"ready": true}'::jsonb );
+END;
+$BODY$
+LANGUAGE plpgsql VOLATILE;
+------------------------------------------------
+------------------------------------------------
+CREATE OR REPLACE FUNCTION xyz_qk_pyramid_apply( schema text, tbl text )
+	RETURNS void AS
+$BODY$
+	/**
+	* Description: Applies the queued deltas of the quadbin pyramid of a space to the pyramid.
+	*		Readers always add the queued deltas to the counts of the pyramid, so this is only needed to keep the delta table small.
+	*		If the pyramid is not "ready" yet or the pyramid is already being modified by another transaction, nothing is done.
+	*
+	* Parameters:
+	*   @schema			- schema in which the XYZ-spaces are located
+	*   @tbl			- the (root) table of the space
+	*/
+	DECLARE pyramid_table text := tbl || '_qkpyramid';
+	DECLARE delta_table text := tbl || '_qkpyramid_delta';
+BEGIN
+	IF to_regclass( format( '%I.%I', schema, delta_table ) ) IS NULL
+	  OR NOT pg_try_advisory_xact_lock( hashtext( format( '%I.%I', schema, pyramid_table ) ) )
+	  OR NOT coalesce( ( obj_description( to_regclass( format( '%I.%I', schema, pyramid_table ) ), 'pg_class' )::jsonb->>'ready' )::boolean, false ) THEN
+		RETURN;
+	END IF;
+
+	EXECUTE format( 'WITH applied AS (DELETE FROM %1$I.%2$I RETURNING qk, cnt) '
+	             || 'INSERT INTO %1$I.%3$I AS p (qk, cnt) SELECT qk, sum(cnt) FROM applied GROUP BY qk ORDER BY qk '
+	             || 'ON CONFLICT (qk) DO UPDATE SET cnt = p.cnt + EXCLUDED.cnt',
+	                schema, delta_table, pyramid_table );
+
+	EXECUTE format( 'DELETE FROM %I.%I WHERE cnt = 0', schema, pyramid_table );
+END;
+$BODY$
+LANGUAGE plpgsql VOLATILE;
+------------------------------------------------
+------------------------------------------------
+CREATE OR REPLACE FUNCTION xyz_qk_pyramid_apply_all( schema text )
+	RETURNS void AS
+$BODY$
+	/**
+	* Description: Applies the queued deltas of all quadbin pyramids within a schema (see xyz_qk_pyramid_apply()).
+	*
+	* Parameters:
+	*   @schema			- schema in which the XYZ-spaces are located
+	*/
+	DECLARE delta_table text;
+BEGIN
+	FOR delta_table IN SELECT tablename FROM pg_tables WHERE schemaname = schema AND tablename LIKE '%\_qkpyramid\_delta' LOOP
+		BEGIN
+			PERFORM xyz_qk_pyramid_apply( schema, left( delta_table, -length( '_qkpyramid_delta' ) ) );
+		EXCEPTION WHEN OTHERS THEN
+			RAISE WARNING 'Could not apply the quadbin pyramid deltas of %.%: %', schema, delta_table, SQLERRM;
+		END;
+	END LOOP;
+END;
+$BODY$
+LANGUAGE plpgsql VOLATILE;
+------------------------------------------------
+------------------------------------------------
+CREATE OR REPLACE FUNCTION xyz_qk_pyramid_disable( schema text, tbl text )
+	RETURNS void AS
+$BODY$
+	/**
+	* Description: Removes the quadbin pyramid of a space (if existing).
+	*
+	* Parameters:
+	*   @schema			- schema in which the XYZ-spaces are located
+	*   @tbl			- the (root) table of the space
+	*/
+	DECLARE pyramid_table text := tbl || '_qkpyramid';
+	DECLARE delta_table text := tbl || '_qkpyramid_delta';
+BEGIN
+	IF to_regclass( format( '%I.%I', schema, pyramid_table ) ) IS NULL THEN
+		RETURN;
+	END IF;
+
+	PERFORM xyz_qk_pyramid_drop_triggers( schema, tbl );
+	EXECUTE format( 'DROP TABLE IF EXISTS %I.%I, %I.%I', schema, pyramid_table, schema, delta_table );
+END;
+$BODY$
+LANGUAGE plpgsql VOLATILE;
+------------------------------------------------
 ------ftm - fast tile mode ------------------------------------------
 CREATE OR REPLACE FUNCTION ftm_SimplifyPreserveTopology( geo geometry, tolerance float)
   RETURNS geometry AS
@@ -3095,6 +3371,118 @@ $BODY$
 LANGUAGE plpgsql VOLATILE;
 ------------------------------------------------
 ------------------------------------------------
+-- The following functions are the set-based variants of the write functions above.
+-- They are taking parallel arrays (one element per feature), write all features within one statement
+-- and return the IDs of the features which have been written successfully. All other features have failed.
+-- NOTE: The IDs within one call must be unique.
+CREATE OR REPLACE FUNCTION xyz_write_versioned_modification_operations(ids TEXT[], version BIGINT, operations CHAR[], jsondatas JSONB[], geos BYTEA[], baseVersions BIGINT[], schema TEXT, tableName TEXT, concurrencyCheck BOOLEAN, partitionSize BIGINT)
+    RETURNS SETOF TEXT AS
+$BODY$
+    DECLARE
+        updatedIds TEXT[];
+    BEGIN
+        -- First update the affected old versions of the features to make their next_version pointing to the new version
+        EXECUTE
+            format('WITH updated AS (UPDATE %I.%I AS tbl SET next_version = $1 '
+                       || 'FROM unnest($2, $3, $4) AS i(id, operation, base_version) '
+                       || 'WHERE tbl.id = i.id AND tbl.next_version = $5 '
+                       || 'AND CASE WHEN $6 AND i.operation NOT IN (''I'', ''H'') THEN tbl.version = i.base_version ELSE tbl.version < $1 END '
+                       || 'RETURNING tbl.id) SELECT array_agg(id) FROM updated',
+                   schema, tableName)
+            INTO updatedIds
+            USING version, ids, operations, baseVersions, max_bigint(), concurrencyCheck;
+
+        -- Now actually insert the new versions of the features, modifications of features without a matching HEAD version are failing
+        RETURN QUERY EXECUTE
+            format('INSERT INTO %I.%I (id, version, operation, author, jsondata, geo) '
+                       || 'SELECT i.id, $1, i.operation, i.jsondata->''properties''->''@ns:com:here:xyz''->>''author'', i.jsondata, '
+                       || 'CASE WHEN i.geo IS NULL THEN NULL ELSE ST_Force3D(ST_GeomFromWKB(i.geo, 4326)) END '
+                       || 'FROM unnest($2, $3, $4, $5) AS i(id, operation, jsondata, geo) '
+                       || 'WHERE i.operation IN (''I'', ''H'') OR i.id = ANY($6) '
+                       || 'RETURNING id',
+                   schema, tableName)
+            USING version, ids, operations, jsondatas, geos, coalesce(updatedIds, '{}'::TEXT[]);
+
+        -- If the current history partition is nearly full, create the next one already
+        IF version % partitionSize > partitionSize - 50 THEN
+            EXECUTE xyz_create_history_partition(schema, tableName, (floor(version / partitionSize) + 1)::BIGINT, partitionSize);
+        END IF;
+    END
+$BODY$
+LANGUAGE plpgsql VOLATILE;
+------------------------------------------------
+------------------------------------------------
+CREATE OR REPLACE FUNCTION xyz_simple_upserts(ids TEXT[], version BIGINT, operations CHAR[], authors TEXT[], jsondatas JSONB[], geos BYTEA[], schema TEXT, tableName TEXT, concurrencyCheck BOOLEAN, uniqueConstraintExists BOOLEAN)
+    RETURNS SETOF TEXT AS
+$BODY$
+    DECLARE
+        insertQuery TEXT;
+    BEGIN
+        insertQuery = 'INSERT INTO %I.%I AS tbl (id, version, operation, author, jsondata, geo) '
+                          || 'SELECT i.id, $1, i.operation, i.author, i.jsondata, '
+                          || 'CASE WHEN i.geo IS NULL THEN NULL ELSE ST_Force3D(ST_GeomFromWKB(i.geo, 4326)) END '
+                          || 'FROM unnest($2, $3, $4, $5, $6) AS i(id, operation, author, jsondata, geo)';
+        IF concurrencyCheck THEN
+            -- Features which are existing already are failing
+            insertQuery = insertQuery || ' ON CONFLICT DO NOTHING';
+        ELSEIF uniqueConstraintExists THEN
+            -- This query will perform an update instead of failing in case of a conflict
+            insertQuery = insertQuery || ' ON CONFLICT (id, next_version) DO UPDATE SET ' ||
+                          'version = greatest(tbl.version, EXCLUDED.version), ' ||
+                          'operation = CASE WHEN xyz_isHideOperation(EXCLUDED.operation) THEN ''J'' ELSE ''U'' END, ' ||
+                          'author = EXCLUDED.author, ' ||
+                          'jsondata = EXCLUDED.jsondata, ' ||
+                          'geo = EXCLUDED.geo';
+        END IF;
+
+        RETURN QUERY EXECUTE format(insertQuery || ' RETURNING tbl.id', schema, tableName)
+            USING version, ids, operations, authors, jsondatas, geos;
+    END
+$BODY$
+LANGUAGE plpgsql VOLATILE;
+------------------------------------------------
+------------------------------------------------
+CREATE OR REPLACE FUNCTION xyz_simple_updates(ids TEXT[], version BIGINT, operations CHAR[], authors TEXT[], jsondatas JSONB[], geos BYTEA[], baseVersions BIGINT[], schema TEXT, tableName TEXT, concurrencyCheck BOOLEAN)
+    RETURNS SETOF TEXT AS
+$BODY$
+    BEGIN
+        -- Features which are not existing (anymore) or which are not matching their base version are failing
+        RETURN QUERY EXECUTE
+            format('UPDATE %I.%I AS tbl SET version = $1, operation = i.operation, author = i.author, jsondata = i.jsondata, '
+                       || 'geo = CASE WHEN i.geo IS NULL THEN NULL ELSE ST_Force3D(ST_GeomFromWKB(i.geo, 4326)) END '
+                       || 'FROM unnest($2, $3, $4, $5, $6, $7) AS i(id, operation, author, jsondata, geo, base_version) '
+                       || 'WHERE tbl.id = i.id AND (NOT $8 OR CASE WHEN i.base_version IS NULL THEN tbl.next_version = $9 ELSE tbl.version = i.base_version END) '
+                       || 'RETURNING tbl.id',
+                   schema, tableName)
+            USING version, ids, operations, authors, jsondatas, geos, baseVersions, concurrencyCheck, max_bigint();
+    END
+$BODY$
+LANGUAGE plpgsql VOLATILE;
+------------------------------------------------
+------------------------------------------------
+CREATE OR REPLACE FUNCTION xyz_simple_deletes(ids TEXT[], baseVersions BIGINT[], schema TEXT, tableName TEXT, concurrencyCheck BOOLEAN)
+    RETURNS SETOF TEXT AS
+$BODY$
+    BEGIN
+        IF NOT concurrencyCheck THEN
+            -- Same as in xyz_simple_delete(): Deleting a feature which is not existing (anymore) is no failure
+            EXECUTE format('DELETE FROM %I.%I WHERE id = ANY($1)', schema, tableName) USING ids;
+            RETURN QUERY SELECT unnest(ids);
+            RETURN;
+        END IF;
+
+        -- Features which are not existing (anymore) or which are not matching their base version are failing
+        RETURN QUERY EXECUTE
+            format('DELETE FROM %I.%I AS tbl USING unnest($1, $2) AS i(id, base_version) '
+                       || 'WHERE tbl.id = i.id AND CASE WHEN i.base_version IS NULL THEN tbl.next_version = $3 ELSE tbl.version = i.base_version END '
+                       || 'RETURNING tbl.id',
+                   schema, tableName)
+            USING ids, baseVersions, max_bigint();
+    END
+$BODY$
+LANGUAGE plpgsql VOLATILE;
+------------------------------------------------
+------------------------------------------------
 DO $$
 BEGIN
     IF NOT EXISTS (SELECT 1 FROM pg_type WHERE typname = 'load_feature_version_input') THEN
@@ -3110,15 +3498,129 @@ END$$;
 CREATE OR REPLACE FUNCTION xyz_create_history_partition(schema TEXT, rootTable TEXT, partitionNo BIGINT, partitionSize BIGINT)
     RETURNS VOID AS
 $BODY$
+DECLARE
+    partitionTable TEXT := rootTable || '_p' || partitionNo;
+    isNewPartition BOOLEAN := to_regclass(format('%I.%I', schema, partitionTable)) IS NULL;
 BEGIN
     RAISE NOTICE 'Creating new history partition for %.% with partition no % ...',
         schema, rootTable, partitionNo;
     EXECUTE
         format('CREATE TABLE IF NOT EXISTS %I.%I PARTITION OF %I.%I FOR VALUES FROM (%L) TO (%L)',
-            schema, (rootTable || '_p' || partitionNo), schema, rootTable,
+            schema, partitionTable, schema, rootTable,
             partitionSize * partitionNo, partitionSize * (partitionNo + 1));
     RAISE NOTICE 'Partition no % was successfully created (or existed already) for %.%.',
         partitionNo, schema, rootTable;
+
+    IF isNewPartition AND xyz_history_layout_config(schema, rootTable) IS NOT NULL THEN
+        -- The new partition is still empty, so creating the index is cheap
+        EXECUTE format('CREATE INDEX IF NOT EXISTS %I ON %I.%I USING BRIN (version)', 'idx_' || partitionTable || '_version_brin',
+            schema, partitionTable);
+    END IF;
+END
+$BODY$
+LANGUAGE plpgsql VOLATILE;
+------------------------------------------------
+------------------------------------------------
+CREATE OR REPLACE FUNCTION xyz_history_layout_config(schema TEXT, tbl TEXT)
+    RETURNS JSONB AS
+$BODY$
+    /**
+    * Description: Returns the configuration of the version-range history layout of a space or NULL if it is not active.
+    */
+    SELECT CASE WHEN description LIKE '{"versionsToKeep":%' THEN description::JSONB END
+        FROM (SELECT obj_description(to_regclass(format('%I.%I', schema, tbl)), 'pg_class') AS description) d;
+$BODY$
+LANGUAGE sql STABLE;
+------------------------------------------------
+------------------------------------------------
+CREATE OR REPLACE FUNCTION xyz_history_layout_enable(schema TEXT, tbl TEXT, versions_to_keep BIGINT)
+    RETURNS VOID AS
+$BODY$
+    /**
+    * Description: Activates (or re-configures) the version-range history layout of a space.
+    *       Each history partition (which is a range of next_version) which gets created from now on, gets a BRIN index on the
+    *       version column. The BRIN indices of the already existing history partitions have to be created concurrently by the
+    *       caller (see ModifySpace), as creating them here would block the writes to the space during the whole creation.
+    *       The history partitions which fell out of versionsToKeep are dropped by the maintenance (see xyz_history_layout_prune()).
+    *
+    * Parameters:
+    *   @schema             - schema in which the XYZ-spaces are located
+    *   @tbl                - the (root) table of the space
+    *   @versions_to_keep   - the number of versions to be kept in the history
+    */
+BEGIN
+    EXECUTE format('COMMENT ON TABLE %I.%I IS %L', schema, tbl, format('{"versionsToKeep": %s}', versions_to_keep));
+END
+$BODY$
+LANGUAGE plpgsql VOLATILE;
+------------------------------------------------
+------------------------------------------------
+CREATE OR REPLACE FUNCTION xyz_history_layout_disable(schema TEXT, tbl TEXT)
+    RETURNS VOID AS
+$BODY$
+    /**
+    * Description: Deactivates the version-range history layout of a space (if active).
+    *
+    * Parameters:
+    *   @schema             - schema in which the XYZ-spaces are located
+    *   @tbl                - the (root) table of the space
+    */
+DECLARE
+    partitionTable TEXT;
+BEGIN
+    IF xyz_history_layout_config(schema, tbl) IS NULL THEN
+        RETURN;
+    END IF;
+
+    FOR partitionTable IN SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                              WHERE i.inhparent = to_regclass(format('%I.%I', schema, tbl)) LOOP
+        EXECUTE format('DROP INDEX IF EXISTS %I.%I', schema, 'idx_' || partitionTable || '_version_brin');
+    END LOOP;
+
+    EXECUTE format('COMMENT ON TABLE %I.%I IS NULL', schema, tbl);
+END
+$BODY$
+LANGUAGE plpgsql VOLATILE;
+------------------------------------------------
+------------------------------------------------
+DROP FUNCTION IF EXISTS xyz_history_layout_prune(TEXT, TEXT, BIGINT);
+CREATE OR REPLACE FUNCTION xyz_history_layout_prune(schema TEXT, tbl TEXT, partitionSize BIGINT, minVersion BIGINT)
+    RETURNS VOID AS
+$BODY$
+    /**
+    * Description: Drops the history partitions of a space with active version-range history layout, which only contain versions
+    *       older than minVersion. The remaining rows older than minVersion are kept, so no rows have to be deleted.
+    *       The minAvailableVersion of the space is moved to the version right below the oldest remaining history partition.
+    *       Dropping a partition locks the root table exclusively, so this function is only called by the maintenance
+    *       (see xyz_advanced_delete_changesets()) and not while writing features. The caller is responsible for not passing
+    *       a minVersion which is greater than the version of the oldest tag.
+    *
+    * Parameters:
+    *   @schema             - schema in which the XYZ-spaces are located
+    *   @tbl                - the (root) table of the space
+    *   @partitionSize      - the size of the history partitions
+    *   @minVersion         - the new minimum version of the space
+    */
+DECLARE
+    oldestPartitionStart BIGINT;
+BEGIN
+    -- Rather fail and retry with the next maintenance than queuing up the writes to the space behind the lock
+    PERFORM set_config('lock_timeout', '5s', true);
+    PERFORM xyz_drop_changeset_partitions(schema, tbl, partitionSize, minVersion);
+
+    oldestPartitionStart := (SELECT min(substring(range_expression, 0, position('''' IN range_expression))::BIGINT)
+        FROM (SELECT substring(pg_get_expr(c.relpartbound, c.oid, true), 19) AS range_expression
+            FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = to_regclass(format('%I.%I', schema, tbl)) AND c.relname != tbl || '_head') partition_ranges);
+    IF oldestPartitionStart IS NULL OR oldestPartitionStart <= 0 THEN
+        RETURN;
+    END IF;
+
+    -- All rows with a next_version of at least oldestPartitionStart are kept, so all versions from the one below on are complete
+    UPDATE xyz_config.space_meta
+        SET meta = meta || jsonb_build_object('minAvailableVersion',
+            greatest(COALESCE((meta->'minAvailableVersion')::BIGINT, 0), oldestPartitionStart - 1))
+        WHERE h_id = tbl AND schem = schema;
 END
 $BODY$
 LANGUAGE plpgsql VOLATILE;
@@ -3126,6 +3628,20 @@ LANGUAGE plpgsql VOLATILE;
 ------------------------------------------------
 CREATE OR REPLACE FUNCTION xyz_delete_changesets(schema TEXT, tableName TEXT, partitionSize BIGINT, minVersion BIGINT) RETURNS VOID AS
 $BODY$
+BEGIN
+    PERFORM xyz_drop_changeset_partitions(schema, tableName, partitionSize, minVersion);
+
+    -- Purge the remainder in the new oldest partition
+    EXECUTE 'DELETE FROM "' || schema || '"."' || tableName || '" WHERE next_version <= ' || minVersion;
+END
+$BODY$
+LANGUAGE plpgsql VOLATILE;
+------------------------------------------------
+------------------------------------------------
+-- Drops all history partitions which only contain versions older than minVersion.
+-- Dropping a partition is cheap, so the remaining rows can be purged afterwards (e.g., batch wise using xyz_delete_changesets_batch)
+CREATE OR REPLACE FUNCTION xyz_drop_changeset_partitions(schema TEXT, tableName TEXT, partitionSize BIGINT, minVersion BIGINT) RETURNS VOID AS
+$BODY$
 DECLARE
     minRangeMin BIGINT;
 BEGIN
@@ -3139,9 +3655,80 @@ BEGIN
     FOR partitionNo IN (minRangeMin / partitionSize)..((minVersion + 1) / partitionSize - 1) LOOP
         EXECUTE 'DROP TABLE IF EXISTS "' || schema || '"."' || tableName || '_p' || partitionNo || '"';
     END LOOP;
+END
+$BODY$
+LANGUAGE plpgsql VOLATILE;
+------------------------------------------------
+------------------------------------------------
+-- Deletes at most batchSize rows which are older than minVersion and returns the number of deleted rows.
+-- The rows are addressed by their physical location, so each batch only touches the rows it actually deletes.
+CREATE OR REPLACE FUNCTION xyz_delete_changesets_batch(schema TEXT, tableName TEXT, minVersion BIGINT, batchSize INTEGER) RETURNS BIGINT AS
+$BODY$
+DECLARE
+    deletedRows BIGINT;
+BEGIN
+    EXECUTE format('DELETE FROM %1$I.%2$I WHERE (tableoid, ctid) IN '
+                   || '(SELECT tableoid, ctid FROM %1$I.%2$I WHERE next_version <= %3$s LIMIT %4$s)',
+                   schema, tableName, minVersion, batchSize);
+    GET DIAGNOSTICS deletedRows = ROW_COUNT;
+    RETURN deletedRows;
+END
+$BODY$
+LANGUAGE plpgsql VOLATILE;
+------------------------------------------------
+------------------------------------------------
+-- Returns the number of WAL bytes which the most lagging streaming replica of this database did not replay yet.
+-- NOTE: Replicas which are not using the streaming replication (e.g., Aurora readers) are not listed in pg_stat_replication.
+CREATE OR REPLACE FUNCTION xyz_replication_lag_bytes() RETURNS BIGINT AS
+$BODY$
+    SELECT COALESCE(max(pg_wal_lsn_diff(pg_current_wal_lsn(), replay_lsn)), 0)::BIGINT FROM pg_stat_replication;
+$BODY$
+LANGUAGE sql VOLATILE;
+------------------------------------------------
+------------------------------------------------
+-- Purges all changesets which are older than minVersion and returns the number of deleted rows (not including the rows of dropped partitions).
+-- All outdated history partitions are dropped first. The remaining rows are deleted using xyz_delete_changesets_batch().
+-- Each batch is committed separately through a loopback connection, so no long-running locks are held and the WAL is written in
+-- small portions. After each batch the purge pauses as long as the replication lag is greater than maxLagBytes.
+-- If a progress table (with a single row and the column deleted_rows) is specified, the count of each batch is added to it
+-- within the same transaction as the batch itself, so the progress can be read by other sessions while the purge is running.
+DROP FUNCTION IF EXISTS xyz_purge_changesets(TEXT, TEXT, BIGINT, BIGINT, INTEGER, BIGINT, TEXT);
+CREATE OR REPLACE FUNCTION xyz_purge_changesets(schema TEXT, tableName TEXT, partitionSize BIGINT, minVersion BIGINT,
+    batchSize INTEGER, maxLagBytes BIGINT, password TEXT, progressTable TEXT DEFAULT NULL) RETURNS BIGINT AS
+$BODY$
+DECLARE
+    deletedRows BIGINT := 0;
+    deletedInBatch BIGINT;
+    lagBytes BIGINT;
+BEGIN
+    PERFORM CASE WHEN ARRAY['purge'] <@ dblink_get_connections() THEN dblink_disconnect('purge') END;
+    PERFORM dblink_connect('purge', 'host = localhost dbname = ' || current_database() || ' user = ' || CURRENT_USER || ' password = ' || password);
 
-    -- Purge the remainder in the new oldest partition
-    EXECUTE 'DELETE FROM "' || schema || '"."' || tableName || '" WHERE next_version <= ' || minVersion;
+    PERFORM * FROM dblink('purge', format('SELECT 1 FROM xyz_drop_changeset_partitions(%L, %L, %s, %s)',
+        schema, tableName, partitionSize, minVersion)) AS t(done INTEGER);
+
+    LOOP
+        IF progressTable IS NULL THEN
+            SELECT n INTO deletedInBatch FROM dblink('purge', format('SELECT xyz_delete_changesets_batch(%L, %L, %s, %s)',
+                schema, tableName, minVersion, batchSize)) AS t(n BIGINT);
+        ELSE
+            SELECT n INTO deletedInBatch FROM dblink('purge', format('WITH batch AS (SELECT xyz_delete_changesets_batch(%L, %L, %s, %s) AS n), '
+                || 'progress AS (UPDATE %I.%I SET deleted_rows = deleted_rows + (SELECT n FROM batch)) SELECT n FROM batch',
+                schema, tableName, minVersion, batchSize, schema, progressTable)) AS t(n BIGINT);
+        END IF;
+        deletedRows := deletedRows + deletedInBatch;
+        EXIT WHEN deletedInBatch < batchSize;
+
+        LOOP
+            -- The lag is checked through the loopback connection as well, to get a fresh value for each check
+            SELECT lag INTO lagBytes FROM dblink('purge', 'SELECT xyz_replication_lag_bytes()') AS t(lag BIGINT);
+            EXIT WHEN lagBytes <= maxLagBytes;
+            PERFORM pg_sleep(1);
+        END LOOP;
+    END LOOP;
+
+    PERFORM dblink_disconnect('purge');
+    RETURN deletedRows;
 END
 $BODY$
 LANGUAGE plpgsql VOLATILE;
@@ -3195,6 +3782,12 @@ BEGIN
 		RETURN;
     END IF;
 
+	IF xyz_history_layout_config(schema, tablename) IS NOT NULL THEN
+		-- With the version-range history layout only whole history partitions get dropped
+		PERFORM xyz_history_layout_prune(schema, tablename, partitionsize, calculated_min_version);
+		RETURN;
+    END IF;
+
 	PERFORM asyncify('SELECT xyz_delete_changesets(''' || schema || ''', ''' || tableName || ''', ' ||  partitionSize || ', ' || calculated_min_version || ')', pw);
 
     update xyz_config.space_meta
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.here.xyz.XyzSerializable;
+import com.here.xyz.events.GetFeaturesByBBoxEvent;
+import com.here.xyz.events.GetFeaturesByGeometryEvent;
+import com.here.xyz.events.ModifyFeaturesEvent;
+import com.here.xyz.models.geojson.coordinates.BBox;
+import com.here.xyz.models.geojson.coordinates.LineStringCoordinates;
+import com.here.xyz.models.geojson.coordinates.LinearRingCoordinates;
+import com.here.xyz.models.geojson.coordinates.PointCoordinates;
+import com.here.xyz.models.geojson.coordinates.PolygonCoordinates;
+import com.here.xyz.models.geojson.coordinates.Position;
+import com.here.xyz.models.geojson.implementation.Feature;
+import com.here.xyz.models.geojson.implementation.FeatureCollection;
+import com.here.xyz.models.geojson.implementation.LineString;
+import com.here.xyz.models.geojson.implementation.Point;
+import com.here.xyz.models.geojson.implementation.Polygon;
+import com.here.xyz.models.geojson.implementation.Properties;
+import com.here.xyz.psql.query.GetFeaturesByBBox;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks that big bbox queries, which are run as multiple tile-aligned parts (see {@link GetFeaturesByBBox}),
+ * return the same features as the according unpartitioned query.
+ */
+public class PSQLBBoxPartitionIT extends PSQLAbstractIT {
+
+    private static final BBox BIG_BBOX = new BBox(-170, -80, 170, 80);
+
+    @BeforeClass
+    public static void init() throws Exception {
+        initEnv(null);
+    }
+
+    @Before
+    public void createTable() throws Exception {
+        invokeCreateTestSpace(defaultTestConnectorParams, TEST_SPACE_ID);
+
+        List<Feature> features = new ArrayList<>();
+        //A grid of points, some of them lying exactly on the borders of the parts
+        for (int lon = -180; lon <= 180; lon += 15)
+            for (int lat = -85; lat <= 85; lat += 17)
+                features.add(feature("p_" + lon + "_" + lat, new Point().withCoordinates(new PointCoordinates(lon, lat))));
+        for (double lon : new double[]{-90, 0, 90})
+            features.add(feature("border_" + lon, new Point().withCoordinates(new PointCoordinates(lon, 0))));
+        //Lines crossing multiple parts
+        for (int lat = -70; lat <= 70; lat += 35) {
+            LineStringCoordinates line = new LineStringCoordinates();
+            line.add(new Position(-160, lat));
+            line.add(new Position(160, -lat));
+            features.add(feature("line_" + lat, new LineString().withCoordinates(line)));
+        }
+
+        invokeLambda(new ModifyFeaturesEvent()
+            .withConnectorParams(defaultTestConnectorParams)
+            .withSpace(TEST_SPACE_ID)
+            .withTransaction(true)
+            .withInsertFeatures(features));
+    }
+
+    @After
+    public void shutdown() throws Exception { invokeDeleteTestSpace(null); }
+
+    @Test
+    public void partitionedResultsEqualUnpartitionedResults() throws Exception {
+        FeatureCollection partitioned = readByBBox(false, 100_000);
+        FeatureCollection unpartitioned = readByGeometry(false);
+
+        assertTrue(unpartitioned.getFeatures().size() > 0);
+        assertEquals(ids(unpartitioned), ids(partitioned));
+        //No feature is returned twice
+        assertEquals(partitioned.getFeatures().size(), ids(partitioned).size());
+    }
+
+    @Test
+    public void partitionedResultsAreClippedByTheWholeBBox() throws Exception {
+        Map<String, String> partitioned = geometries(readByBBox(true, 100_000));
+        Map<String, String> unpartitioned = geometries(readByGeometry(true));
+
+        assertEquals(unpartitioned, partitioned);
+    }
+
+    @Test
+    public void partitionedResultsRespectTheLimit() throws Exception {
+        FeatureCollection partitioned = readByBBox(false, 10);
+
+        assertEquals(10, partitioned.getFeatures().size());
+        assertTrue(ids(readByGeometry(false)).containsAll(ids(partitioned)));
+    }
+
+    private FeatureCollection readByBBox(boolean clip, long limit) throws Exception {
+        GetFeaturesByBBoxEvent event = new GetFeaturesByBBoxEvent();
+        event.setConnectorParams(defaultTestConnectorParams);
+        event.setSpace(TEST_SPACE_ID);
+        event.setBbox(BIG_BBOX);
+        event.setClip(clip);
+        event.setLimit(limit);
+        return XyzSerializable.deserialize(invokeLambda(event));
+    }
+
+    private FeatureCollection readByGeometry(boolean clip) throws Exception {
+        LinearRingCoordinates ring = new LinearRingCoordinates();
+        ring.add(new Position(BIG_BBOX.minLon(), BIG_BBOX.minLat()));
+        ring.add(new Position(BIG_BBOX.maxLon(), BIG_BBOX.minLat()));
+        ring.add(new Position(BIG_BBOX.maxLon(), BIG_BBOX.maxLat()));
+        ring.add(new Position(BIG_BBOX.minLon(), BIG_BBOX.maxLat()));
+        ring.add(new Position(BIG_BBOX.minLon(), BIG_BBOX.minLat()));
+        PolygonCoordinates polygon = new PolygonCoordinates();
+        polygon.add(ring);
+
+        return XyzSerializable.deserialize(invokeLambda(new GetFeaturesByGeometryEvent()
+            .withConnectorParams(defaultTestConnectorParams)
+            .withSpace(TEST_SPACE_ID)
+            .withGeometry(new Polygon().withCoordinates(polygon))
+            .withClip(clip)));
+    }
+
+    private static List<String> ids(FeatureCollection featureCollection) throws Exception {
+        return featureCollection.getFeatures().stream().map(Feature::getId).distinct().sorted().collect(Collectors.toList());
+    }
+
+    private static Map<String, String> geometries(FeatureCollection featureCollection) throws Exception {
+        return featureCollection.getFeatures().stream()
+            .collect(Collectors.toMap(Feature::getId, feature -> feature.getGeometry().getJTSGeometry().norm().toText()));
+    }
+
+    private static Feature feature(String id, com.here.xyz.models.geojson.implementation.Geometry geometry) {
+        return new Feature()
+            .withId(id)
+            .withGeometry(geometry)
+            .withProperties(new Properties());
+    }
+}
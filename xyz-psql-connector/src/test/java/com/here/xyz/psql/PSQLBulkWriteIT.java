@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.here.xyz.XyzSerializable;
+import com.here.xyz.events.ModifyFeaturesEvent;
+import com.here.xyz.models.geojson.coordinates.PointCoordinates;
+import com.here.xyz.models.geojson.implementation.Feature;
+import com.here.xyz.models.geojson.implementation.FeatureCollection;
+import com.here.xyz.models.geojson.implementation.Point;
+import com.here.xyz.models.geojson.implementation.Properties;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class PSQLBulkWriteIT extends PSQLAbstractIT {
+
+    @BeforeClass
+    public static void init() throws Exception {
+        initEnv(null);
+    }
+
+    @Before
+    public void createTable() throws Exception {
+        invokeCreateTestSpace(defaultTestConnectorParams, TEST_SPACE_ID);
+    }
+
+    @After
+    public void shutdown() throws Exception { invokeDeleteTestSpace(null); }
+
+    @Test
+    public void bulkInsertAndUpdate() throws Exception {
+        FeatureCollection inserted = write(new ModifyFeaturesEvent().withInsertFeatures(features("a", "b", "c")));
+        assertNull(inserted.getFailed());
+        assertEquals(3, inserted.getFeatures().size());
+
+        List<Feature> updates = features("a", "b", "c");
+        updates.forEach(feature -> feature.getProperties().put("test", "updated"));
+        FeatureCollection updated = write(new ModifyFeaturesEvent().withUpdateFeatures(updates));
+        assertNull(updated.getFailed());
+        assertEquals(3, updated.getFeatures().size());
+        updated.getFeatures().forEach(feature -> assertEquals("updated", feature.getProperties().get("test")));
+    }
+
+    @Test
+    public void bulkDeleteOfMissingFeaturesWithoutConflictDetection() throws Exception {
+        write(new ModifyFeaturesEvent().withInsertFeatures(features("a", "b")));
+
+        Map<String, String> deletions = new HashMap<>();
+        deletions.put("a", null);
+        deletions.put("b", null);
+        deletions.put("doesnotexist", null);
+        FeatureCollection deleted = write(new ModifyFeaturesEvent().withDeleteFeatures(deletions));
+
+        //As for single deletions, deleting a feature which does not exist is no failure without conflict detection
+        assertNull(deleted.getFailed());
+        assertEquals(3, deleted.getDeleted().size());
+        assertTrue(deleted.getDeleted().contains("doesnotexist"));
+    }
+
+    @Test
+    public void bulkDeleteOfMissingFeaturesWithConflictDetection() throws Exception {
+        write(new ModifyFeaturesEvent().withInsertFeatures(features("a", "b")));
+
+        Map<String, String> deletions = new HashMap<>();
+        deletions.put("a", null);
+        deletions.put("b", null);
+        deletions.put("doesnotexist", null);
+        FeatureCollection deleted = write(new ModifyFeaturesEvent()
+            .withConflictDetectionEnabled(true)
+            .withDeleteFeatures(deletions));
+
+        assertEquals(1, deleted.getFailed().size());
+        assertEquals("doesnotexist", deleted.getFailed().get(0).getId());
+        assertEquals(DatabaseWriter.DELETE_ERROR_CONCURRENCY, deleted.getFailed().get(0).getMessage());
+        assertEquals(2, deleted.getDeleted().size());
+    }
+
+    @Test
+    public void bulkInsertFallsBackToOneByOne() throws Exception {
+        //Let exactly one row of the bulk statement fail, so that the whole bulk statement fails
+        try (Connection connection = LAMBDA.dataSourceProvider.getWriter().getConnection()) {
+            connection.createStatement().execute("ALTER TABLE \"public\".\"" + TEST_SPACE_ID + "\" "
+                + "ADD CONSTRAINT no_bad_ids CHECK (id <> 'bad')");
+        }
+
+        FeatureCollection inserted = write(new ModifyFeaturesEvent().withInsertFeatures(features("a", "bad", "c")));
+
+        assertEquals(1, inserted.getFailed().size());
+        assertEquals("bad", inserted.getFailed().get(0).getId());
+        assertEquals(List.of("a", "c"), inserted.getFeatures().stream().map(Feature::getId).sorted().collect(Collectors.toList()));
+    }
+
+    private FeatureCollection write(ModifyFeaturesEvent event) throws Exception {
+        return XyzSerializable.deserialize(invokeLambda(event
+            .withConnectorParams(defaultTestConnectorParams)
+            .withSpace(TEST_SPACE_ID)
+            .withTransaction(false)));
+    }
+
+    private static List<Feature> features(String... ids) {
+        List<Feature> features = new ArrayList<>();
+        for (String id : ids)
+            features.add(new Feature()
+                .withId(id)
+                .withGeometry(new Point().withCoordinates(new PointCoordinates(8.0, 50.0)))
+                .withProperties(new Properties()));
+        return features;
+    }
+}
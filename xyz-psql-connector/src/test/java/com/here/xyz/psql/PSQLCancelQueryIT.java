@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+
+package com.here.xyz.psql;
+
+import static com.here.xyz.util.db.SQLQuery.QUERY_ID;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.here.xyz.XyzSerializable;
+import com.here.xyz.events.CancelQueryEvent;
+import com.here.xyz.responses.CancelQueryResponse;
+import com.here.xyz.util.db.SQLQuery;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class PSQLCancelQueryIT extends PSQLAbstractIT {
+    private static final String LABEL = "cancelQueryIT";
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @BeforeClass
+    public static void init() throws Exception {
+        initEnv(null);
+    }
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void cancelQueryTerminatesLabeledStatements() throws Exception {
+        //Statements without labels are running next to the one to be cancelled, they must neither break the cancellation nor get cancelled
+        Future<?> unlabeled = runAsync(new SQLQuery("SELECT pg_sleep(3)").withLabelsEnabled(false));
+        Future<?> labeled = runAsync(new SQLQuery("SELECT pg_sleep(30)").withQueryId("someQueryToCancel"));
+        awaitActive(QUERY_ID, "someQueryToCancel");
+
+        CancelQueryResponse response = XyzSerializable.deserialize(invokeLambda(new CancelQueryEvent()
+            .withConnectorParams(defaultTestConnectorParams)
+            .withQueryId("someQueryToCancel")));
+
+        assertEquals(1, response.getCancelledQueries());
+        assertTerminated(labeled);
+        unlabeled.get(10, SECONDS);
+        assertFalse(isActive(QUERY_ID, "someQueryToCancel"));
+    }
+
+    @Test
+    public void cancelQueryWithoutMatchingStatements() throws Exception {
+        Future<?> unlabeled = runAsync(new SQLQuery("SELECT pg_sleep(2)").withLabelsEnabled(false));
+
+        CancelQueryResponse response = XyzSerializable.deserialize(invokeLambda(new CancelQueryEvent()
+            .withConnectorParams(defaultTestConnectorParams)
+            .withQueryId("notRunning")));
+
+        assertEquals(0, response.getCancelledQueries());
+        unlabeled.get(10, SECONDS);
+    }
+
+    @Test
+    public void killByLabel() throws Exception {
+        Future<?> unlabeled = runAsync(new SQLQuery("SELECT pg_sleep(3)").withLabelsEnabled(false));
+        Future<?> labeled = runAsync(new SQLQuery("SELECT pg_sleep(30)").withLabel(LABEL, "someValue"));
+        Future<?> otherValue = runAsync(new SQLQuery("SELECT pg_sleep(3)").withLabel(LABEL, "otherValue"));
+        awaitActive(LABEL, "someValue");
+
+        SQLQuery.killByLabel(LABEL, "someValue", LAMBDA.dataSourceProvider, false);
+
+        assertTerminated(labeled);
+        unlabeled.get(10, SECONDS);
+        otherValue.get(10, SECONDS);
+    }
+
+    private Future<?> runAsync(SQLQuery query) {
+        return executor.submit(() -> {
+            query.run(LAMBDA.dataSourceProvider);
+            return null;
+        });
+    }
+
+    private static boolean isActive(String labelIdentifier, String labelValue) throws SQLException {
+        return SQLQuery.buildActiveLabelValuesQuery(labelIdentifier, List.of(labelValue))
+            .run(LAMBDA.dataSourceProvider, rs -> rs.next());
+    }
+
+    private static void awaitActive(String labelIdentifier, String labelValue) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!isActive(labelIdentifier, labelValue)) {
+            if (System.currentTimeMillis() > deadline)
+                fail("The statement with label " + labelIdentifier + "=" + labelValue + " did not start.");
+            Thread.sleep(50);
+        }
+    }
+
+    private static void assertTerminated(Future<?> statement) throws Exception {
+        try {
+            statement.get(10, SECONDS);
+            fail("The statement was not terminated.");
+        }
+        catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SQLException);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql;
+
+import static com.here.xyz.util.db.pg.XyzSpaceTableHelper.PARTITION_SIZE;
+import static org.junit.Assert.assertEquals;
+
+import com.here.xyz.util.db.datasource.PooledDataSources;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class PSQLChangesetPurgeIT extends PSQLAbstractIT {
+    private static final String SCHEMA = "public";
+    private static final int FEATURE_COUNT = 10;
+    private static final long HEAD_VERSION = 5;
+    private static final String PROGRESS_TABLE = TEST_SPACE_ID + "_purge_progress";
+
+    @BeforeClass
+    public static void init() throws Exception {
+        initEnv(null);
+    }
+
+    @Before
+    public void createSpace() throws Exception {
+        invokeCreateTestSpace(TEST_SPACE_ID);
+        //Each feature has one row per version, all rows but the HEAD one are outdated
+        try (Connection connection = LAMBDA.dataSourceProvider.getWriter().getConnection()) {
+            connection.createStatement().execute("INSERT INTO \"" + SCHEMA + "\".\"" + TEST_SPACE_ID + "\" "
+                + "(id, version, next_version, operation, author, jsondata) "
+                + "SELECT 'f' || f, v, CASE WHEN v = " + HEAD_VERSION + " THEN max_bigint() ELSE v + 1 END, "
+                + "CASE WHEN v = 1 THEN 'I' ELSE 'U' END, 'test', '{}'::JSONB "
+                + "FROM generate_series(1, " + FEATURE_COUNT + ") f, generate_series(1, " + HEAD_VERSION + ") v");
+        }
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        try (Connection connection = LAMBDA.dataSourceProvider.getWriter().getConnection()) {
+            connection.createStatement().execute("DROP TABLE IF EXISTS \"" + SCHEMA + "\".\"" + PROGRESS_TABLE + "\"");
+        }
+        invokeDeleteTestSpace(null);
+    }
+
+    @Test
+    public void purgeInMultipleBatches() throws Exception {
+        //Versions 1 & 2 are not visible in version 3 anymore
+        assertEquals(2 * FEATURE_COUNT, purge(3, 3));
+        assertEquals((HEAD_VERSION - 2) * FEATURE_COUNT, countRows());
+        assertEquals(0, countRows(3));
+    }
+
+    @Test
+    public void purgeWithBatchSizeMatchingTheRowCount() throws Exception {
+        assertEquals(FEATURE_COUNT, purge(2, FEATURE_COUNT));
+        assertEquals((HEAD_VERSION - 1) * FEATURE_COUNT, countRows());
+    }
+
+    @Test
+    public void purgeKeepsHead() throws Exception {
+        assertEquals((HEAD_VERSION - 1) * FEATURE_COUNT, purge(HEAD_VERSION, 7));
+        assertEquals(FEATURE_COUNT, countRows());
+        //Purging again is a no-op
+        assertEquals(0, purge(HEAD_VERSION, 7));
+    }
+
+    @Test
+    public void purgeReportsTheProgressOfEachBatch() throws Exception {
+        try (Connection connection = LAMBDA.dataSourceProvider.getWriter().getConnection()) {
+            connection.createStatement().execute("CREATE TABLE \"" + SCHEMA + "\".\"" + PROGRESS_TABLE + "\" (deleted_rows BIGINT NOT NULL); "
+                + "INSERT INTO \"" + SCHEMA + "\".\"" + PROGRESS_TABLE + "\" VALUES (0)");
+        }
+
+        assertEquals(2 * FEATURE_COUNT, purge(3, 3, PROGRESS_TABLE));
+        assertEquals(2 * FEATURE_COUNT, readDeletedRows());
+        //A resumed purge keeps on counting
+        assertEquals((HEAD_VERSION - 3) * FEATURE_COUNT, purge(HEAD_VERSION, 7, PROGRESS_TABLE));
+        assertEquals((HEAD_VERSION - 1) * FEATURE_COUNT, readDeletedRows());
+    }
+
+    private long purge(long minVersion, int batchSize) throws SQLException {
+        return purge(minVersion, batchSize, null);
+    }
+
+    private long purge(long minVersion, int batchSize, String progressTable) throws SQLException {
+        String password = ((PooledDataSources) LAMBDA.dataSourceProvider).getDatabaseSettings().getPassword();
+        try (Connection connection = LAMBDA.dataSourceProvider.getWriter().getConnection();
+            PreparedStatement stmt = connection.prepareStatement("SELECT xyz_purge_changesets(?, ?, ?, ?, ?, ?, ?, ?)")) {
+            stmt.setString(1, SCHEMA);
+            stmt.setString(2, TEST_SPACE_ID);
+            stmt.setLong(3, PARTITION_SIZE);
+            stmt.setLong(4, minVersion);
+            stmt.setInt(5, batchSize);
+            stmt.setLong(6, Long.MAX_VALUE);
+            stmt.setString(7, password);
+            stmt.setString(8, progressTable);
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private long readDeletedRows() throws SQLException {
+        try (Connection connection = LAMBDA.dataSourceProvider.getWriter().getConnection();
+            ResultSet rs = connection.createStatement().executeQuery("SELECT deleted_rows FROM \"" + SCHEMA + "\".\"" + PROGRESS_TABLE + "\"")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private long countRows() throws SQLException {
+        return countRows(Long.MAX_VALUE);
+    }
+
+    private long countRows(long maxNextVersion) throws SQLException {
+        try (Connection connection = LAMBDA.dataSourceProvider.getWriter().getConnection();
+            PreparedStatement stmt = connection.prepareStatement("SELECT count(*) FROM \"" + SCHEMA + "\".\"" + TEST_SPACE_ID
+                + "\" WHERE next_version <= ?")) {
+            stmt.setLong(1, maxNextVersion);
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql;
+
+import static com.here.xyz.psql.query.ModifySpace.VERSION_RANGE_HISTORY;
+import static com.here.xyz.util.db.pg.XyzSpaceTableHelper.PARTITION_SIZE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.here.xyz.XyzSerializable;
+import com.here.xyz.events.ModifySpaceEvent;
+import com.here.xyz.models.hub.Space;
+import com.here.xyz.responses.SuccessResponse;
+import com.here.xyz.util.db.datasource.PooledDataSources;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class PSQLHistoryLayoutIT extends PSQLAbstractIT {
+    private static final String SCHEMA = "public";
+    private static final int VERSIONS_TO_KEEP = 10;
+    private static final long HEAD_VERSION = 3 * PARTITION_SIZE + PARTITION_SIZE / 2;
+
+    @BeforeClass
+    public static void init() throws Exception {
+        initEnv(null);
+    }
+
+    @Before
+    public void createSpace() throws Exception {
+        ModifySpaceEvent mse = new ModifySpaceEvent()
+            .withSpace(TEST_SPACE_ID)
+            .withOperation(ModifySpaceEvent.Operation.CREATE)
+            .withConnectorParams(defaultTestConnectorParams)
+            .withParams(Map.of(VERSION_RANGE_HISTORY, true))
+            .withSpaceDefinition(new Space()
+                .withId(TEST_SPACE_ID)
+                .withVersionsToKeep(VERSIONS_TO_KEEP));
+        SuccessResponse response = XyzSerializable.deserialize(invokeLambda(mse));
+        assertEquals("OK", response.getStatus());
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        invokeDeleteTestSpace(null);
+    }
+
+    @Test
+    public void existingPartitionsGetIndexed() throws Exception {
+        assertTrue(indexExists(TEST_SPACE_ID + "_p0"));
+    }
+
+    @Test
+    public void creatingPartitionsDoesNotPrune() throws Exception {
+        writeHistory();
+
+        for (int partitionNo = 0; partitionNo <= 3; partitionNo++) {
+            assertTrue(partitionExists(partitionNo));
+            assertTrue(indexExists(TEST_SPACE_ID + "_p" + partitionNo));
+        }
+        assertEquals(-1, loadMinAvailableVersion());
+    }
+
+    @Test
+    public void maintenancePrunesPartitions() throws Exception {
+        writeHistory();
+        purge(-1);
+
+        //The partitions p0 - p2 only contain versions older than HEAD_VERSION - VERSIONS_TO_KEEP + 1
+        assertFalse(partitionExists(0));
+        assertFalse(partitionExists(2));
+        assertTrue(partitionExists(3));
+        assertEquals(3 * PARTITION_SIZE - 1, loadMinAvailableVersion());
+    }
+
+    @Test
+    public void maintenanceKeepsTaggedVersions() throws Exception {
+        writeHistory();
+        long minTagVersion = PARTITION_SIZE + PARTITION_SIZE / 2;
+        purge(minTagVersion);
+
+        assertFalse(partitionExists(0));
+        assertTrue(partitionExists(1));
+        assertTrue(loadMinAvailableVersion() <= minTagVersion);
+    }
+
+    /**
+     * Creates the history partitions p1 - p3 and a HEAD version within the range of p3.
+     */
+    private void writeHistory() throws SQLException {
+        try (Connection connection = LAMBDA.dataSourceProvider.getWriter().getConnection()) {
+            for (int partitionNo = 1; partitionNo <= 3; partitionNo++) {
+                try (PreparedStatement stmt = connection.prepareStatement("SELECT xyz_create_history_partition(?, ?, ?, ?)")) {
+                    stmt.setString(1, SCHEMA);
+                    stmt.setString(2, TEST_SPACE_ID);
+                    stmt.setLong(3, partitionNo);
+                    stmt.setLong(4, PARTITION_SIZE);
+                    stmt.execute();
+                }
+            }
+            connection.createStatement().execute("INSERT INTO \"" + SCHEMA + "\".\"" + TEST_SPACE_ID + "\" "
+                + "(id, version, operation, author, jsondata) VALUES ('f1', " + HEAD_VERSION + ", 'I', 'test', '{}'::JSONB)");
+        }
+    }
+
+    private void purge(long minTagVersion) throws SQLException {
+        String password = ((PooledDataSources) LAMBDA.dataSourceProvider).getDatabaseSettings().getPassword();
+        try (Connection connection = LAMBDA.dataSourceProvider.getWriter().getConnection();
+            PreparedStatement stmt = connection.prepareStatement("SELECT xyz_advanced_delete_changesets(?, ?, ?, ?, ?, ?)")) {
+            stmt.setString(1, SCHEMA);
+            stmt.setString(2, TEST_SPACE_ID);
+            stmt.setLong(3, PARTITION_SIZE);
+            stmt.setLong(4, VERSIONS_TO_KEEP);
+            stmt.setLong(5, minTagVersion);
+            stmt.setString(6, password);
+            stmt.execute();
+        }
+    }
+
+    private boolean partitionExists(int partitionNo) throws SQLException {
+        return exists("SELECT 1 FROM pg_tables WHERE schemaname = ? AND tablename = ?", TEST_SPACE_ID + "_p" + partitionNo);
+    }
+
+    private boolean indexExists(String partitionTable) throws SQLException {
+        return exists("SELECT 1 FROM pg_indexes WHERE schemaname = ? AND indexname = ?", "idx_" + partitionTable + "_version_brin");
+    }
+
+    private boolean exists(String query, String name) throws SQLException {
+        try (Connection connection = LAMBDA.dataSourceProvider.getWriter().getConnection();
+            PreparedStatement stmt = connection.prepareStatement(query)) {
+            stmt.setString(1, SCHEMA);
+            stmt.setString(2, name);
+            return stmt.executeQuery().next();
+        }
+    }
+
+    private long loadMinAvailableVersion() throws SQLException {
+        try (Connection connection = LAMBDA.dataSourceProvider.getWriter().getConnection();
+            PreparedStatement stmt = connection.prepareStatement("SELECT COALESCE((meta->'minAvailableVersion')::BIGINT, -1) "
+                + "FROM xyz_config.space_meta WHERE h_id = ? AND schem = ?")) {
+            stmt.setString(1, TEST_SPACE_ID);
+            stmt.setString(2, SCHEMA);
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql;
+
+import static com.here.xyz.events.PropertyQuery.QueryOperation.EQUALS;
+import static com.here.xyz.util.db.pg.XyzSpaceTableHelper.PARTITION_SIZE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.here.xyz.XyzSerializable;
+import com.here.xyz.events.ModifySpaceEvent;
+import com.here.xyz.models.hub.Space;
+import com.here.xyz.responses.SuccessResponse;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class PSQLIndexAdvisorIT extends PSQLAbstractIT {
+    private static final String SCHEMA = "public";
+    private static final String KEY = "properties.name";
+
+    @BeforeClass
+    public static void init() throws Exception {
+        initEnv(null);
+    }
+
+    @Before
+    public void createVersionedSpace() throws Exception {
+        ModifySpaceEvent mse = new ModifySpaceEvent()
+            .withSpace(TEST_SPACE_ID)
+            .withOperation(ModifySpaceEvent.Operation.CREATE)
+            .withConnectorParams(defaultTestConnectorParams)
+            .withSpaceDefinition(new Space()
+                .withId(TEST_SPACE_ID)
+                .withVersionsToKeep(10));
+        SuccessResponse response = XyzSerializable.deserialize(invokeLambda(mse));
+        assertEquals("OK", response.getStatus());
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        invokeDeleteTestSpace(null);
+    }
+
+    @Test
+    public void createIndexOnPartitionedTable() throws Exception {
+        IndexAdvisor.createIndex(LAMBDA.dataSourceProvider, SCHEMA, TEST_SPACE_ID, KEY, EQUALS);
+
+        String indexName = IndexAdvisor.indexName(TEST_SPACE_ID, "name");
+        assertTrue(isValid(indexName));
+        //Each partition got its own index which is attached to the one of the root table
+        assertEquals(countPartitions(TEST_SPACE_ID), countPartitions(indexName));
+        assertTrue(isValid(indexName + "_head"));
+        assertTrue(isValid(indexName + "_p0"));
+    }
+
+    @Test
+    public void createIndexIsRepeatable() throws Exception {
+        IndexAdvisor.createIndex(LAMBDA.dataSourceProvider, SCHEMA, TEST_SPACE_ID, KEY, EQUALS);
+        IndexAdvisor.createIndex(LAMBDA.dataSourceProvider, SCHEMA, TEST_SPACE_ID, KEY, EQUALS);
+
+        String indexName = IndexAdvisor.indexName(TEST_SPACE_ID, "name");
+        assertTrue(isValid(indexName));
+        assertEquals(countPartitions(TEST_SPACE_ID), countPartitions(indexName));
+    }
+
+    @Test
+    public void newPartitionsGetTheIndex() throws Exception {
+        IndexAdvisor.createIndex(LAMBDA.dataSourceProvider, SCHEMA, TEST_SPACE_ID, KEY, EQUALS);
+        try (Connection connection = LAMBDA.dataSourceProvider.getWriter().getConnection();
+            PreparedStatement stmt = connection.prepareStatement("SELECT xyz_create_history_partition(?, ?, 1, ?)")) {
+            stmt.setString(1, SCHEMA);
+            stmt.setString(2, TEST_SPACE_ID);
+            stmt.setLong(3, PARTITION_SIZE);
+            stmt.execute();
+        }
+
+        String indexName = IndexAdvisor.indexName(TEST_SPACE_ID, "name");
+        assertTrue(isValid(indexName));
+        assertEquals(countPartitions(TEST_SPACE_ID), countPartitions(indexName));
+    }
+
+    private boolean isValid(String indexName) throws SQLException {
+        try (Connection connection = LAMBDA.dataSourceProvider.getWriter().getConnection();
+            PreparedStatement stmt = connection.prepareStatement("SELECT i.indisvalid FROM pg_index i "
+                + "JOIN pg_class c ON c.oid = i.indexrelid JOIN pg_namespace n ON n.oid = c.relnamespace "
+                + "WHERE n.nspname = ? AND c.relname = ?")) {
+            stmt.setString(1, SCHEMA);
+            stmt.setString(2, indexName);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    /**
+     * Counts the partitions of a table or the attached partition indices of an index.
+     */
+    private long countPartitions(String relation) throws SQLException {
+        try (Connection connection = LAMBDA.dataSourceProvider.getWriter().getConnection();
+            PreparedStatement stmt = connection.prepareStatement("SELECT count(1) FROM pg_inherits i "
+                + "JOIN pg_class p ON p.oid = i.inhparent JOIN pg_namespace n ON n.oid = p.relnamespace "
+                + "WHERE n.nspname = ? AND p.relname = ?")) {
+            stmt.setString(1, SCHEMA);
+            stmt.setString(2, relation);
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -29,11 +29,18 @@ import com.here.xyz.models.geojson.implementation.Properties;
 import com.here.xyz.models.geojson.implementation.XyzNamespace;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 public class PSQLLoadFeatures extends PSQLAbstractIT {
+  //More than two chunks of IDs (see LoadFeatures#CHUNK_SIZE)
+  private static final int MANY_FEATURES = 2500;
 
   @Before
   public void createTable() throws Exception {
@@ -79,4 +86,67 @@ public class PSQLLoadFeatures extends PSQLAbstractIT {
     assertTrue(loadedFeatures.getFeatures().stream().anyMatch(f -> "F2".equals(f.getId())));
     assertTrue(loadedFeatures.getFeatures().stream().allMatch(f -> f.getProperties().getXyzNamespace().getVersion() == 0));
   }
+
+  @Test
+  public void testLoadMultipleChunksOfIds() throws Exception {
+    List<String> ids = writeManyFeatures();
+    Map<String, String> idsMap = new HashMap<>();
+    ids.forEach(id -> idsMap.put(id, null));
+
+    //Without versions only the "id = ANY()" condition is used for each chunk
+    FeatureCollection loadedFeatures = deserializeResponse(invokeLambda(new LoadFeaturesEvent()
+        .withConnectorParams(defaultTestConnectorParams)
+        .withSpace("foo")
+        .withVersionsToKeep(1)
+        .withIdsMap(idsMap)));
+
+    assertEquals(Set.copyOf(ids), loadedFeatures.getFeatures().stream().map(Feature::getId).collect(Collectors.toSet()));
+    assertEquals(ids.size(), loadedFeatures.getFeatures().size());
+  }
+
+  @Test
+  public void testLoadMultipleChunksOfIdsWithVersions() throws Exception {
+    List<String> ids = writeManyFeatures();
+    //Update all features, so that version 0 is only available in the history
+    List<Feature> updates = ids.stream()
+        .map(id -> new Feature().withId(id).withProperties(new Properties().with("updated", true)))
+        .collect(Collectors.toList());
+    invokeLambda(new ModifyFeaturesEvent()
+        .withConnectorParams(defaultTestConnectorParams)
+        .withSpace("foo")
+        .withTransaction(true)
+        .withVersionsToKeep(10)
+        .withUpdateFeatures(updates));
+
+    Map<String, String> idsMap = new HashMap<>();
+    ids.forEach(id -> idsMap.put(id, "0"));
+    FeatureCollection loadedFeatures = deserializeResponse(invokeLambda(new LoadFeaturesEvent()
+        .withConnectorParams(defaultTestConnectorParams)
+        .withSpace("foo")
+        .withVersionsToKeep(10)
+        .withIdsMap(idsMap)));
+
+    //Each chunk returns the HEAD version and the requested version of its features
+    Map<String, Set<Long>> versionsById = loadedFeatures.getFeatures().stream().collect(Collectors.groupingBy(Feature::getId,
+        Collectors.mapping(f -> f.getProperties().getXyzNamespace().getVersion(), Collectors.toSet())));
+    assertEquals(Set.copyOf(ids), versionsById.keySet());
+    assertTrue(versionsById.values().stream().allMatch(versions -> versions.equals(Set.of(0L, 1L))));
+  }
+
+  /**
+   * Writes more features than are loaded within one chunk by LoadFeatures.
+   */
+  private List<String> writeManyFeatures() throws Exception {
+    XyzNamespace xyzNamespace = new XyzNamespace().withSpace("foo").withCreatedAt(1517504700726L);
+    List<String> ids = IntStream.range(0, MANY_FEATURES).mapToObj(i -> "M" + i).collect(Collectors.toList());
+    invokeLambda(new ModifyFeaturesEvent()
+        .withConnectorParams(defaultTestConnectorParams)
+        .withSpace("foo")
+        .withTransaction(true)
+        .withVersionsToKeep(10)
+        .withInsertFeatures(ids.stream()
+            .map(id -> new Feature().withId(id).withProperties(new Properties().withXyzNamespace(xyzNamespace)))
+            .collect(Collectors.toList())));
+    return ids;
+  }
 }
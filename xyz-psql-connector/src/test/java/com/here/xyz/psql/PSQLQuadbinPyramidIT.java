@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql;
+
+import static com.here.xyz.psql.query.bbox.QuadbinPyramid.QUADBIN_PYRAMID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.here.xyz.XyzSerializable;
+import com.here.xyz.events.GetFeaturesByTileEvent;
+import com.here.xyz.events.ModifyFeaturesEvent;
+import com.here.xyz.events.ModifySpaceEvent;
+import com.here.xyz.models.geojson.WebMercatorTile;
+import com.here.xyz.models.geojson.coordinates.PointCoordinates;
+import com.here.xyz.models.geojson.implementation.Feature;
+import com.here.xyz.models.geojson.implementation.FeatureCollection;
+import com.here.xyz.models.geojson.implementation.Point;
+import com.here.xyz.models.geojson.implementation.Properties;
+import com.here.xyz.models.hub.Space;
+import com.here.xyz.psql.query.bbox.QuadbinPyramid;
+import com.here.xyz.responses.SuccessResponse;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class PSQLQuadbinPyramidIT extends PSQLAbstractIT {
+    private static final String SCHEMA = "public";
+    private static final Map<String, Object> PYRAMID_PARAMS = Map.of(QUADBIN_PYRAMID, Map.of("minLevel", 1, "maxLevel", 5));
+
+    @BeforeClass
+    public static void init() throws Exception {
+        initEnv(null);
+    }
+
+    /**
+     * Creates a space with features and activates the pyramid afterwards, so that the existing features have to be backfilled.
+     * The quadkeys of the features on level 2 are:
+     * "12" for p1 - p3, "13" for p4 and "21" for p5
+     */
+    @Before
+    public void createSpace() throws Exception {
+        invokeCreateTestSpace(defaultTestConnectorParams, TEST_SPACE_ID);
+        invokeLambda(new ModifyFeaturesEvent()
+            .withConnectorParams(defaultTestConnectorParams)
+            .withSpace(TEST_SPACE_ID)
+            .withTransaction(true)
+            .withInsertFeatures(List.of(
+                point("p1", 10, 10),
+                point("p2", 20, 20),
+                point("p3", 30, 30),
+                point("p4", 100, 10),
+                point("p5", -50, -50))));
+
+        ModifySpaceEvent mse = new ModifySpaceEvent()
+            .withSpace(TEST_SPACE_ID)
+            .withOperation(ModifySpaceEvent.Operation.UPDATE)
+            .withConnectorParams(defaultTestConnectorParams)
+            .withParams(PYRAMID_PARAMS)
+            .withSpaceDefinition(new Space().withId(TEST_SPACE_ID));
+        SuccessResponse response = XyzSerializable.deserialize(invokeLambda(mse));
+        assertEquals("OK", response.getStatus());
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        invokeDeleteTestSpace(null);
+    }
+
+    @Test
+    public void backfillCountsExistingFeatures() throws Exception {
+        assertTrue(isReady());
+        assertEquals(0, countDeltas());
+
+        assertEquals(4, count("1"));
+        assertEquals(1, count("2"));
+        assertEquals(3, count("12"));
+        assertEquals(1, count("13"));
+        assertEquals(1, count("21"));
+    }
+
+    @Test
+    public void triggerKeepsCountsCurrent() throws Exception {
+        modifyFeatures();
+
+        assertTrue(countDeltas() > 0);
+        assertExpectedCountsAfterModification();
+
+        //Applying the queued deltas does not change the counts
+        applyDeltas();
+        assertEquals(0, countDeltas());
+        assertExpectedCountsAfterModification();
+    }
+
+    @Test
+    public void clusteredCountsAreReadFromThePyramid() throws Exception {
+        Map<String, Integer> counts = readClusteredCounts();
+        assertEquals(Map.of("12", 3, "13", 1), counts);
+
+        //Queued deltas are part of the counts
+        modifyFeatures();
+        assertEquals(Map.of("12", 2, "13", 1), readClusteredCounts());
+    }
+
+    /**
+     * Moves p3 from "12" to "30", deletes p4 from "13" and inserts p6 into "13".
+     */
+    private void modifyFeatures() throws Exception {
+        invokeLambda(new ModifyFeaturesEvent()
+            .withConnectorParams(defaultTestConnectorParams)
+            .withSpace(TEST_SPACE_ID)
+            .withUpdateFeatures(List.of(point("p3", 30, -30))));
+        invokeLambda(new ModifyFeaturesEvent()
+            .withConnectorParams(defaultTestConnectorParams)
+            .withSpace(TEST_SPACE_ID)
+            .withDeleteFeatures(Collections.singletonMap("p4", null)));
+        invokeLambda(new ModifyFeaturesEvent()
+            .withConnectorParams(defaultTestConnectorParams)
+            .withSpace(TEST_SPACE_ID)
+            .withInsertFeatures(List.of(point("p6", 120, 20))));
+    }
+
+    private void assertExpectedCountsAfterModification() throws SQLException {
+        assertEquals(3, count("1"));
+        assertEquals(1, count("2"));
+        assertEquals(1, count("3"));
+        assertEquals(2, count("12"));
+        assertEquals(1, count("13"));
+        assertEquals(1, count("30"));
+    }
+
+    private Map<String, Integer> readClusteredCounts() throws Exception {
+        WebMercatorTile tile = WebMercatorTile.forWeb(1, 1, 0);
+        GetFeaturesByTileEvent event = new GetFeaturesByTileEvent();
+        event.setConnectorParams(defaultTestConnectorParams);
+        event.setSpace(TEST_SPACE_ID);
+        event.setParams(PYRAMID_PARAMS);
+        event.setLevel(tile.level);
+        event.setX(tile.x);
+        event.setY(tile.y);
+        event.setBbox(tile.getBBox(false));
+        event.setClusteringType("quadbin");
+        //The estimated mode would not return exact counts without the pyramid
+        event.setClusteringParams(Map.of("resolution", 1, "countmode", "estimated"));
+
+        FeatureCollection result = XyzSerializable.deserialize(invokeLambda(event));
+        Map<String, Integer> counts = new HashMap<>();
+        for (Feature cluster : result.getFeatures()) {
+            assertFalse(cluster.getProperties().get("estimated"));
+            counts.put(cluster.getProperties().get("qk"), ((Number) cluster.getProperties().get("count")).intValue());
+        }
+        return counts;
+    }
+
+    private boolean isReady() throws SQLException {
+        return querySingleLong("SELECT coalesce((obj_description(to_regclass(?), 'pg_class')::jsonb->>'ready')::boolean, false)::int",
+            fqn(QuadbinPyramid.getTableName(TEST_SPACE_ID))) == 1;
+    }
+
+    private long count(String quadkey) throws SQLException {
+        return querySingleLong("SELECT coalesce(sum(cnt), 0) FROM (SELECT qk, cnt FROM " + fqn(QuadbinPyramid.getTableName(TEST_SPACE_ID))
+            + " UNION ALL SELECT qk, cnt FROM " + fqn(QuadbinPyramid.getDeltaTableName(TEST_SPACE_ID)) + ") p WHERE qk = ?", quadkey);
+    }
+
+    private long countDeltas() throws SQLException {
+        return querySingleLong("SELECT count(1) FROM " + fqn(QuadbinPyramid.getDeltaTableName(TEST_SPACE_ID)));
+    }
+
+    private void applyDeltas() throws SQLException {
+        try (Connection connection = LAMBDA.dataSourceProvider.getWriter().getConnection()) {
+            connection.createStatement().execute("SELECT xyz_qk_pyramid_apply('" + SCHEMA + "', '" + TEST_SPACE_ID + "')");
+        }
+    }
+
+    private long querySingleLong(String query, String... parameters) throws SQLException {
+        try (Connection connection = LAMBDA.dataSourceProvider.getWriter().getConnection();
+            PreparedStatement stmt = connection.prepareStatement(query)) {
+            for (int i = 0; i < parameters.length; i++)
+                stmt.setString(i + 1, parameters[i]);
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static String fqn(String table) {
+        return "\"" + SCHEMA + "\".\"" + table + "\"";
+    }
+
+    private static Feature point(String id, double lon, double lat) {
+        return new Feature()
+            .withId(id)
+            .withGeometry(new Point().withCoordinates(new PointCoordinates(lon, lat)))
+            .withProperties(new Properties());
+    }
+}
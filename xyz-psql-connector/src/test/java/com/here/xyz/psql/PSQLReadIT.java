@@ -542,6 +542,33 @@ public class PSQLReadIT extends PSQLAbstractIT {
         }
     }
 
+    @Test
+    public void testGetStatisticsEventAfterDeletion() throws Exception {
+        String insertResponse = invokeLambdaFromFile("/events/InsertFeaturesEventTransactional.json");
+        FeatureCollection insertedFeatures = XyzSerializable.deserialize(insertResponse);
+
+        GetStatisticsEvent getStatsEvent = new GetStatisticsEvent()
+            .withConnectorParams(defaultTestConnectorParams)
+            .withSpace("foo");
+
+        StatisticsResponse response = XyzSerializable.deserialize(invokeLambda(getStatsEvent));
+        assertEquals(Long.valueOf(3), response.getCount().getValue());
+
+        //Repeated calls for an unchanged space must return the same statistics
+        response = XyzSerializable.deserialize(invokeLambda(getStatsEvent));
+        assertEquals(Long.valueOf(3), response.getCount().getValue());
+
+        //Deleting a feature (physically) does not produce a new HEAD version, but the statistics must still be updated
+        ModifyFeaturesEvent mfevent = new ModifyFeaturesEvent()
+            .withConnectorParams(defaultTestConnectorParams)
+            .withSpace("foo")
+            .withDeleteFeatures(Collections.singletonMap(insertedFeatures.getFeatures().get(0).getId(), null));
+        invokeLambda(mfevent);
+
+        response = XyzSerializable.deserialize(invokeLambda(getStatsEvent));
+        assertEquals(Long.valueOf(2), response.getCount().getValue());
+    }
+
     @Test
     public void testIterate() throws Exception {
         final String response = invokeLambdaFromFile("/events/IterateMySpace.json");
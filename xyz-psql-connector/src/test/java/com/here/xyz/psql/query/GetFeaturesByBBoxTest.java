@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.here.xyz.models.geojson.coordinates.BBox;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+
+public class GetFeaturesByBBoxTest {
+  private static final GeometryFactory FACTORY = new GeometryFactory();
+
+  private static Geometry toGeometry(BBox bbox) {
+    return FACTORY.toGeometry(new Envelope(bbox.minLon(), bbox.maxLon(), bbox.minLat(), bbox.maxLat()));
+  }
+
+  private static void assertPartition(BBox bbox) {
+    List<BBox> parts = GetFeaturesByBBox.partition(bbox);
+    assertTrue(parts.size() >= 4);
+    assertTrue(parts.size() <= 16);
+
+    //The parts cover exactly the bbox without overlapping each other
+    Geometry bboxGeometry = toGeometry(bbox);
+    List<Geometry> partGeometries = parts.stream().map(GetFeaturesByBBoxTest::toGeometry).toList();
+    assertEquals(bboxGeometry.getArea(), partGeometries.stream().mapToDouble(Geometry::getArea).sum(), 1e-6);
+    assertEquals(0, FACTORY.buildGeometry(partGeometries).union().symDifference(bboxGeometry).getArea(), 1e-6);
+  }
+
+  @Test
+  public void testPartitionOfTheWorld() {
+    assertPartition(new BBox(-180, -90, 180, 90));
+  }
+
+  @Test
+  public void testPartitionOfRandomBigBboxes() {
+    Random random = new Random(42);
+    for (int i = 0; i < 1_000; i++) {
+      double width = 90 + random.nextDouble() * 269, height = 0.1 + random.nextDouble() * 160;
+      double west = -180 + random.nextDouble() * (360 - width), south = -85 + random.nextDouble() * (170 - height);
+      BBox bbox = new BBox(west, south, west + width, south + height);
+      if (GetFeaturesByBBox.partition(bbox) != null)
+        assertPartition(bbox);
+    }
+  }
+
+  @Test
+  public void testNoPartitionAcrossTheAntimeridian() {
+    assertNull(GetFeaturesByBBox.partition(new BBox(90, -45, -90, 45)));
+  }
+}
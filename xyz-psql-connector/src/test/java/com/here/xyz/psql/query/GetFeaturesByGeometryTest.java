@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+
+public class GetFeaturesByGeometryTest {
+  private static final GeometryFactory FACTORY = new GeometryFactory();
+
+  private static Polygon circle(int vertices) {
+    Coordinate[] ring = new Coordinate[vertices + 1];
+    for (int i = 0; i < vertices; i++) {
+      double angle = 2 * Math.PI * i / vertices;
+      ring[i] = new Coordinate(10 + 5 * Math.cos(angle), 50 + 5 * Math.sin(angle));
+    }
+    ring[vertices] = ring[0];
+    return FACTORY.createPolygon(ring);
+  }
+
+  private static List<Geometry> read(List<byte[]> pieces) throws ParseException {
+    WKBReader reader = new WKBReader();
+    List<Geometry> geometries = new ArrayList<>();
+    for (byte[] piece : pieces)
+      geometries.add(reader.read(piece));
+    return geometries;
+  }
+
+  @Test
+  public void testSmallGeometriesAreNotSubdivided() {
+    assertNull(GetFeaturesByGeometry.subdivide(circle(1000)));
+  }
+
+  @Test
+  public void testNonPolygonalGeometriesAreNotSubdivided() {
+    assertNull(GetFeaturesByGeometry.subdivide(circle(2000).getExteriorRing()));
+  }
+
+  @Test
+  public void testSubdivision() throws ParseException {
+    Polygon polygon = circle(2000);
+    List<Geometry> pieces = read(GetFeaturesByGeometry.subdivide(polygon));
+
+    assertTrue(pieces.size() > 1);
+    assertTrue(pieces.size() <= 32);
+    for (Geometry piece : pieces)
+      assertTrue(piece.getNumPoints() <= 256);
+
+    //The pieces cover exactly the original geometry without overlapping each other
+    Geometry union = FACTORY.buildGeometry(pieces).union();
+    assertEquals(polygon.getArea(), pieces.stream().mapToDouble(Geometry::getArea).sum(), 1e-9);
+    assertEquals(0, union.symDifference(polygon).getArea(), 1e-9);
+  }
+
+  @Test
+  public void testNumberOfPiecesIsLimited() throws ParseException {
+    List<Geometry> pieces = read(GetFeaturesByGeometry.subdivide(circle(100_000)));
+    assertEquals(32, pieces.size());
+  }
+}
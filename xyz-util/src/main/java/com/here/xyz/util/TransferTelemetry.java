@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.util;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.here.xyz.util.service.Core;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.LongSupplier;
+
+/**
+ * Live telemetry of a running data transfer (e.g. an import or an export) which is processed by multiple threads in parallel.
+ *
+ * Each thread reports its cumulative counters of rows and bytes using {@link #update(String, long, long)}.
+ * Once a thread has been completed, its counters are kept as part of the totals, but it is not taken into account for the lag anymore.
+ * The throughput is measured over windows of at least {@link #RATE_WINDOW_MS} milliseconds.
+ * If the total number of bytes (or rows) is known, the time of completion gets estimated based on the current throughput.
+ *
+ * All methods are thread-safe.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TransferTelemetry {
+  public static final long RATE_WINDOW_MS = 5_000;
+  private final Map<String, ThreadProgress> threads = new HashMap<>();
+  private final LongSupplier clock;
+  private final long startedAt;
+  private long completedRows;
+  private long completedBytes;
+  private long totalRows;
+  private long totalBytes;
+  private long sampleTime;
+  private long sampleRows;
+  private long sampleBytes;
+  private double rowsPerSecond = -1;
+  private double bytesPerSecond = -1;
+
+  public TransferTelemetry() {
+    this(Core::currentTimeMillis);
+  }
+
+  /**
+   * @param clock The source of the current time in milliseconds
+   */
+  TransferTelemetry(LongSupplier clock) {
+    this.clock = clock;
+    startedAt = sampleTime = clock.getAsLong();
+  }
+
+  /**
+   * Reports the progress of one thread.
+   *
+   * @param threadId The ID of the thread
+   * @param rows The number of rows which have been transferred by the thread so far
+   * @param bytes The number of bytes which have been transferred by the thread so far
+   */
+  public synchronized void update(String threadId, long rows, long bytes) {
+    long now = clock.getAsLong();
+    ThreadProgress progress = threads.computeIfAbsent(threadId, id -> new ThreadProgress(now));
+    if (rows != progress.rows || bytes != progress.bytes) {
+      progress.rows = rows;
+      progress.bytes = bytes;
+      progress.lastChange = now;
+    }
+    sample(now);
+  }
+
+  /**
+   * Marks a thread as completed. Its counters stay part of the totals.
+   */
+  public synchronized void complete(String threadId) {
+    ThreadProgress progress = threads.remove(threadId);
+    if (progress != null) {
+      completedRows += progress.rows;
+      completedBytes += progress.bytes;
+    }
+    sample(clock.getAsLong());
+  }
+
+  /**
+   * Marks all threads as completed, which are not part of the specified active threads.
+   */
+  public synchronized void completeAllExcept(Collection<String> activeThreadIds) {
+    for (Iterator<Entry<String, ThreadProgress>> it = threads.entrySet().iterator(); it.hasNext(); ) {
+      Entry<String, ThreadProgress> thread = it.next();
+      if (!activeThreadIds.contains(thread.getKey())) {
+        completedRows += thread.getValue().rows;
+        completedBytes += thread.getValue().bytes;
+        it.remove();
+      }
+    }
+    sample(clock.getAsLong());
+  }
+
+  /**
+   * Adds rows & bytes which have been transferred without being reported by a thread (e.g. before the telemetry was started).
+   */
+  public synchronized void addCompleted(long rows, long bytes) {
+    completedRows += rows;
+    completedBytes += bytes;
+    //Do not count it into the current rate window
+    sampleRows += rows;
+    sampleBytes += bytes;
+  }
+
+  private void sample(long now) {
+    long elapsed = now - sampleTime;
+    if (elapsed < RATE_WINDOW_MS)
+      return;
+    long rows = getRows(), bytes = getBytes();
+    rowsPerSecond = (rows - sampleRows) * 1000d / elapsed;
+    bytesPerSecond = (bytes - sampleBytes) * 1000d / elapsed;
+    sampleTime = now;
+    sampleRows = rows;
+    sampleBytes = bytes;
+  }
+
+  public long getStartedAt() {
+    return startedAt;
+  }
+
+  public synchronized long getRows() {
+    return completedRows + threads.values().stream().mapToLong(progress -> progress.rows).sum();
+  }
+
+  public synchronized long getBytes() {
+    return completedBytes + threads.values().stream().mapToLong(progress -> progress.bytes).sum();
+  }
+
+  /**
+   * The number of rows per second which have been transferred during the last rate window.
+   * As long as the first window is not complete yet, the average since the start is returned.
+   */
+  public synchronized double getRowsPerSecond() {
+    sample(clock.getAsLong());
+    return rowsPerSecond >= 0 ? rowsPerSecond : average(getRows() - sampleRows);
+  }
+
+  /**
+   * The number of bytes per second which have been transferred during the last rate window.
+   * As long as the first window is not complete yet, the average since the start is returned.
+   */
+  public synchronized double getBytesPerSecond() {
+    sample(clock.getAsLong());
+    return bytesPerSecond >= 0 ? bytesPerSecond : average(getBytes() - sampleBytes);
+  }
+
+  private double average(long count) {
+    long elapsed = clock.getAsLong() - startedAt;
+    return elapsed <= 0 ? 0 : count * 1000d / elapsed;
+  }
+
+  /**
+   * The lag of each active thread, which is the time in milliseconds since its counters have changed the last time.
+   */
+  public synchronized Map<String, Long> getThreadLags() {
+    long now = clock.getAsLong();
+    Map<String, Long> lags = new HashMap<>();
+    threads.forEach((threadId, progress) -> lags.put(threadId, now - progress.lastChange));
+    return lags;
+  }
+
+  public synchronized long getMaxThreadLag() {
+    long now = clock.getAsLong();
+    return threads.values().stream().mapToLong(progress -> now - progress.lastChange).max().orElse(0);
+  }
+
+  /**
+   * Estimates the time of completion based on the current throughput.
+   * The estimation is based on the bytes if the total number of bytes is known, otherwise on the rows.
+   *
+   * @return The estimated end time in milliseconds, or -1 if no estimation is possible
+   */
+  public synchronized long getEstimatedEndTime() {
+    if (totalBytes > 0)
+      return estimateEndTime(totalBytes - getBytes(), getBytesPerSecond());
+    if (totalRows > 0)
+      return estimateEndTime(totalRows - getRows(), getRowsPerSecond());
+    return -1;
+  }
+
+  /**
+   * The completed fraction (between 0 and 1) of the transfer.
+   * The progress is based on the bytes if the total number of bytes is known, otherwise on the rows.
+   *
+   * @return The progress, or -1 if neither the total number of bytes nor the one of rows is known
+   */
+  public synchronized float getProgress() {
+    if (totalBytes > 0)
+      return Math.min(1f, (float) getBytes() / totalBytes);
+    if (totalRows > 0)
+      return Math.min(1f, (float) getRows() / totalRows);
+    return -1;
+  }
+
+  private long estimateEndTime(long remaining, double perSecond) {
+    long now = clock.getAsLong();
+    if (remaining <= 0)
+      return now;
+    if (perSecond <= 0)
+      return -1;
+    return now + (long) (remaining * 1000 / perSecond);
+  }
+
+  public synchronized long getTotalRows() {
+    return totalRows;
+  }
+
+  /**
+   * @param totalRows The number of rows to be transferred in total, or 0 if unknown
+   */
+  public synchronized void setTotalRows(long totalRows) {
+    this.totalRows = totalRows;
+  }
+
+  public TransferTelemetry withTotalRows(long totalRows) {
+    setTotalRows(totalRows);
+    return this;
+  }
+
+  public synchronized long getTotalBytes() {
+    return totalBytes;
+  }
+
+  /**
+   * @param totalBytes The number of bytes to be transferred in total, or 0 if unknown
+   */
+  public synchronized void setTotalBytes(long totalBytes) {
+    this.totalBytes = totalBytes;
+  }
+
+  public TransferTelemetry withTotalBytes(long totalBytes) {
+    setTotalBytes(totalBytes);
+    return this;
+  }
+
+  private static class ThreadProgress {
+    private long rows;
+    private long bytes;
+    private long lastChange;
+
+    private ThreadProgress(long lastChange) {
+      this.lastChange = lastChange;
+    }
+  }
+}
@@ -741,19 +741,54 @@ public class SQLQuery {
 
   private static void killByLabel(String labelIdentifier, String labelValue, long timeout, DataSourceProvider dataSourceProvider,
       boolean useReplica) throws SQLException {
-    SQLQuery labelMatching = new SQLQuery("substring(query, "
-        + "strpos(query, '/*labels(') + 9, "
-        + "strpos(query, ')*/') - 10)::json->>#{labelIdentifier} = #{labelValue}")
-        .withNamedParameter("labelIdentifier", labelIdentifier)
-        .withNamedParameter("labelValue", labelValue);
+    buildKillByLabelQuery(labelIdentifier, labelValue).run(dataSourceProvider, useReplica);
+  }
 
-    new SQLQuery("SELECT pg_terminate_backend(pid) FROM pg_stat_activity "
+  /**
+   * Builds a query which terminates all active statements having the specified label.
+   * The resulting rows contain the columns "terminated" (boolean) and "runtime" which is the time (in ms) the terminated statement
+   * was running already.
+   *
+   * @param labelIdentifier The key of the label
+   * @param labelValue The value of the label
+   * @return The query which terminates the according statements when being run
+   */
+  public static SQLQuery buildKillByLabelQuery(String labelIdentifier, String labelValue) {
+    return new SQLQuery("SELECT pg_terminate_backend(pid) AS terminated, "
+        + "(extract(epoch FROM now() - query_start) * 1000)::BIGINT AS runtime FROM pg_stat_activity "
         + "WHERE state = 'active' "
-        + "AND ${{labelMatching}} "
+        + "AND ${{labelValueOfQuery}} = #{labelValue} "
         + "AND pid != pg_backend_pid()")
-        .withQueryFragment("labelMatching", labelMatching)
-        .withNamedParameter("labelValue", labelValue)
-        .run(dataSourceProvider, useReplica);
+        .withQueryFragment("labelValueOfQuery", buildLabelValueFragment(labelIdentifier))
+        .withNamedParameter("labelValue", labelValue);
+  }
+
+  /**
+   * Builds a query which returns the distinct values of the specified label for all active statements which are having one of
+   * the specified label values.
+   * The resulting rows contain the column "labelValue". Statements without labels are ignored.
+   *
+   * @param labelIdentifier The key of the label
+   * @param labelValues The label values to be checked
+   * @return The query which returns the label values of the active statements when being run
+   */
+  public static SQLQuery buildActiveLabelValuesQuery(String labelIdentifier, List<String> labelValues) {
+    return new SQLQuery("SELECT DISTINCT label_value AS \"labelValue\" FROM ("
+        + "SELECT ${{labelValueOfQuery}} AS label_value "
+        + "FROM pg_stat_activity WHERE state = 'active' AND pid != pg_backend_pid()) activity "
+        + "WHERE label_value = ANY(#{labelValues})")
+        .withQueryFragment("labelValueOfQuery", buildLabelValueFragment(labelIdentifier))
+        .withNamedParameter("labelValues", labelValues.toArray(new String[0]));
+  }
+
+  /**
+   * The value of the specified label of the statement in the column "query" (of pg_stat_activity).
+   * Statements which do not start with labels (see {@link #injectLabels()}) have no label value, so their text is never parsed.
+   */
+  private static SQLQuery buildLabelValueFragment(String labelIdentifier) {
+    return new SQLQuery("CASE WHEN strpos(query, '/*labels(') = 1 AND strpos(query, ')*/') > 10 "
+        + "THEN substring(query, 10, strpos(query, ')*/') - 10)::json->>#{labelIdentifier} END")
+        .withNamedParameter("labelIdentifier", labelIdentifier);
   }
 
   private static String getClashing(Map<String, ?> map1, Map<String, ?> map2) {
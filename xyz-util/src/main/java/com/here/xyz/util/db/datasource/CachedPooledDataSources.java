@@ -49,6 +49,12 @@ public class CachedPooledDataSources extends PooledDataSources {
     return getCachedDataSources().getWriter();
   }
 
+  @Override
+  public ReplicaLagTracker getLagTracker() {
+    //Use the tracker of the cached data sources, so the tracked lag survives this (short living) provider instance
+    return getCachedDataSources().getLagTracker();
+  }
+
   public static void invalidateCache() {
     Map<String, Map<String, StaticDataSources>> oldCache = new HashMap<>(cache);
     logger.info("Clearing data sources cache. Current cache size: {}, Closing old data sources ...", cache.size());
@@ -24,6 +24,7 @@ import javax.sql.DataSource;
 public abstract class DataSourceProvider implements AutoCloseable {
 
   static DataSourceProvider defaultProvider;
+  private volatile ReplicaLagTracker lagTracker;
 
   public abstract DataSource getReader();
 
@@ -33,6 +34,33 @@ public abstract class DataSourceProvider implements AutoCloseable {
     return getReader() != null && getReader() != getWriter();
   }
 
+  /**
+   * Checks whether the reader is known to have replayed all changes which have been committed on the writer before the specified
+   * point in time. Reads which have to see these changes may only be routed to the reader if this method returns true.
+   *
+   * @param minNanoTime The point in time (as returned by {@link System#nanoTime()} of this process) up to which the reader must have
+   *  caught up
+   * @return true, if the reader has caught up or if there is no separate reader at all
+   */
+  public boolean isReaderCaughtUp(long minNanoTime) {
+    if (!hasReader())
+      return true;
+    return getLagTracker().hasReplayedUntil(minNanoTime);
+  }
+
+  /**
+   * @return The tracker which keeps track of the replication lag between the writer and the reader of this provider
+   */
+  public ReplicaLagTracker getLagTracker() {
+    if (lagTracker == null) {
+      synchronized (this) {
+        if (lagTracker == null)
+          lagTracker = new ReplicaLagTracker(this);
+      }
+    }
+    return lagTracker;
+  }
+
   public static DataSourceProvider getDefaultProvider() {
     return defaultProvider;
   }
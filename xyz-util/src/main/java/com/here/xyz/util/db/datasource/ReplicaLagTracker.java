@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.util.db.datasource;
+
+import com.here.xyz.util.db.SQLQuery;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps track of how far the reader of a {@link DataSourceProvider} has replayed the WAL of its writer.
+ *
+ * The tracker samples the current WAL position of the writer and remembers the point in time at which the sampling started.
+ * As soon as the reader has replayed the WAL up to a sampled position, all changes which have been committed on the writer
+ * before the according point in time are visible on the reader.
+ * All points in time are taken from {@link System#nanoTime()} of this process, so they are never compared with the clock of another
+ * host.
+ *
+ * Sampling only happens on demand, that is, when a read has to see changes which are newer than the ones the reader is known to
+ * have replayed already. At most one sampling is running at a time. All reads which are arriving while a sampling is running
+ * are served together by the one following it, so the number of round trips to the writer does not grow with the number of reads.
+ *
+ * Usually a read follows a write closely, so the reader has not replayed the latest position of the writer yet at the time it gets
+ * sampled. Therefore, a sampling polls the position of the reader for a short, bounded time until it has caught up with the
+ * sampled position of the writer, rather than falling back to the writer immediately.
+ */
+public class ReplicaLagTracker {
+  private static final Logger logger = LogManager.getLogger();
+  private static final int MAX_PENDING_POSITIONS = 128;
+  private static final int SAMPLE_TIMEOUT_SECONDS = 1;
+  private static final long MAX_CATCH_UP_WAIT_MS = 50;
+  private static final long CATCH_UP_POLL_INTERVAL_MS = 5;
+  private final WalPositionSource walPositions;
+  private final long maxCatchUpWaitNanos;
+  //The positions of the writer which have not been replayed by the reader yet, ordered by their sample time
+  private final Deque<WalPosition> pendingPositions = new ArrayDeque<>();
+  //The sample which is currently running and the one which will run right after it, guarded by this
+  private Sample runningSample;
+  private Sample nextSample;
+  private volatile boolean replayedAnything;
+  private volatile long replayedUntil;
+  private volatile long lagBytes = -1;
+
+  ReplicaLagTracker(DataSourceProvider dataSources) {
+    this(new DatabaseWalPositions(dataSources), MAX_CATCH_UP_WAIT_MS);
+  }
+
+  ReplicaLagTracker(WalPositionSource walPositions, long maxCatchUpWaitMs) {
+    this.walPositions = walPositions;
+    this.maxCatchUpWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxCatchUpWaitMs);
+  }
+
+  /**
+   * Checks whether the reader has replayed all changes which have been committed on the writer before the specified point in time.
+   * If that is not known yet, the positions of the writer and the reader are sampled once more.
+   * Any error during the sampling is treated as if the reader has not caught up.
+   *
+   * @param minNanoTime The point in time (as returned by {@link System#nanoTime()}) up to which the reader must have caught up
+   * @return true, if the reader has caught up
+   */
+  public boolean hasReplayedUntil(long minNanoTime) {
+    if (isReplayedUntil(minNanoTime))
+      return true;
+
+    Sample sample;
+    Sample predecessor = null;
+    boolean sampleHere = false;
+    synchronized (this) {
+      if (runningSample != null && runningSample.startedAt - minNanoTime >= 0)
+        //The running sample started after the specified point in time already, so it covers all changes the caller has to see
+        sample = runningSample;
+      else if (nextSample != null)
+        sample = nextSample;
+      else {
+        sample = new Sample();
+        sampleHere = true;
+        if (runningSample != null) {
+          //Run the new sample right after the running one, so it starts after the specified point in time
+          nextSample = sample;
+          predecessor = runningSample;
+        }
+        else
+          start(sample);
+      }
+    }
+
+    if (sampleHere)
+      runSample(sample, predecessor);
+
+    try {
+      sample.done.get(TimeUnit.SECONDS.toNanos(2 * SAMPLE_TIMEOUT_SECONDS) + maxCatchUpWaitNanos, TimeUnit.NANOSECONDS);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    catch (ExecutionException | TimeoutException e) {
+      logger.warn("Error sampling the replication lag of the reader. Falling back to the writer.", e);
+      return false;
+    }
+    return isReplayedUntil(minNanoTime);
+  }
+
+  private boolean isReplayedUntil(long minNanoTime) {
+    return replayedAnything && replayedUntil - minNanoTime >= 0;
+  }
+
+  /**
+   * Must be called while holding the lock of this tracker.
+   */
+  private void start(Sample sample) {
+    sample.startedAt = System.nanoTime();
+    runningSample = sample;
+  }
+
+  private void runSample(Sample sample, Sample predecessor) {
+    if (predecessor != null) {
+      //Only one sample may run at a time, the outcome of the predecessor does not matter
+      predecessor.done.handle((result, error) -> null).join();
+      synchronized (this) {
+        nextSample = null;
+        start(sample);
+      }
+    }
+
+    try {
+      sample(sample.startedAt);
+      sample.done.complete(null);
+    }
+    catch (SQLException | RuntimeException e) {
+      sample.done.completeExceptionally(e);
+    }
+    finally {
+      synchronized (this) {
+        if (runningSample == sample)
+          runningSample = null;
+      }
+    }
+  }
+
+  private void sample(long sampledAt) throws SQLException {
+    Long writerLsn = walPositions.writerLsn();
+    if (writerLsn == null)
+      return;
+    if (pendingPositions.size() >= MAX_PENDING_POSITIONS)
+      pendingPositions.pollFirst();
+    WalPosition latestPosition = new WalPosition(sampledAt, writerLsn);
+    pendingPositions.addLast(latestPosition);
+
+    long waitUntil = System.nanoTime() + maxCatchUpWaitNanos;
+    while (true) {
+      Long readerLsn = walPositions.readerReplayLsn();
+      if (readerLsn == null) {
+        //The reader does not expose its replay position, so it can never be considered to be caught up
+        logger.debug("The reader does not provide its WAL replay position.");
+        return;
+      }
+
+      lagBytes = Math.max(0, latestPosition.lsn - readerLsn);
+      while (!pendingPositions.isEmpty() && pendingPositions.peekFirst().lsn <= readerLsn) {
+        long positionSampledAt = pendingPositions.pollFirst().sampledAt;
+        if (!replayedAnything || positionSampledAt - replayedUntil > 0)
+          replayedUntil = positionSampledAt;
+        replayedAnything = true;
+      }
+
+      if (lagBytes == 0 || System.nanoTime() - waitUntil >= 0)
+        break;
+      try {
+        //Give the reader a moment to replay the latest position of the writer
+        Thread.sleep(CATCH_UP_POLL_INTERVAL_MS);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+
+    logger.debug("Reader has replayed the writer's changes until {}, the replication lag is {} bytes", replayedUntil, lagBytes);
+  }
+
+  /**
+   * @return The point in time (as returned by {@link System#nanoTime()}) before which all changes of the writer are known to be
+   *  visible on the reader
+   */
+  public long getReplayedUntil() {
+    return replayedUntil;
+  }
+
+  /**
+   * @return The number of WAL bytes the reader was behind the writer at the last sampling or -1 if no sampling took place yet
+   */
+  public long getLagBytes() {
+    return lagBytes;
+  }
+
+  private static class Sample {
+    final CompletableFuture<Void> done = new CompletableFuture<>();
+    //Guarded by the lock of the tracker
+    long startedAt;
+  }
+
+  private record WalPosition(long sampledAt, long lsn) {}
+
+  /**
+   * Provides the current WAL positions of the writer and the reader as byte offsets.
+   */
+  interface WalPositionSource {
+    /**
+     * @return The current WAL position of the writer or null if it is not known
+     */
+    Long writerLsn() throws SQLException;
+
+    /**
+     * @return The WAL position up to which the reader has replayed the changes of the writer or null if it is not known
+     */
+    Long readerReplayLsn() throws SQLException;
+  }
+
+  private record DatabaseWalPositions(DataSourceProvider dataSources) implements WalPositionSource {
+    @Override
+    public Long writerLsn() throws SQLException {
+      return new SQLQuery("SELECT (pg_current_wal_lsn() - '0/0'::pg_lsn)::BIGINT")
+          .withTimeout(SAMPLE_TIMEOUT_SECONDS)
+          .withMaximumRetries(0)
+          .run(dataSources, rs -> rs.next() ? rs.getLong(1) : null, false);
+    }
+
+    @Override
+    public Long readerReplayLsn() throws SQLException {
+      //A reader which is not in recovery is no replica of the writer, but the writer itself (e.g., in local setups)
+      return new SQLQuery("SELECT CASE WHEN pg_is_in_recovery() THEN (pg_last_wal_replay_lsn() - '0/0'::pg_lsn)::BIGINT "
+          + "ELSE #{maxLsn} END")
+          .withNamedParameter("maxLsn", Long.MAX_VALUE)
+          .withTimeout(SAMPLE_TIMEOUT_SECONDS)
+          .withMaximumRetries(0)
+          .run(dataSources, rs -> rs.next() ? (Long) rs.getObject(1) : null, true);
+    }
+  }
+}
@@ -48,10 +48,48 @@ public class IndexHelper {
     return buildCreateIndexQuery(schema, table, columnNamesOrExpressions, method, indexName, null);
   }
 
+  /**
+   * Builds a query which creates the index without locking the table against writes.
+   * NOTE: The resulting query must not be executed within a transaction block.
+   */
+  public static SQLQuery buildCreateIndexConcurrentlyQuery(String schema, String table, List<String> columnNamesOrExpressions,
+      String method, String indexName) {
+    return buildCreateIndexQuery(schema, table, columnNamesOrExpressions, method, indexName, null, true);
+  }
+
+  /**
+   * Builds a query which creates the index on a partitioned table only, but not on its partitions.
+   * The index stays invalid until an index of each partition got attached to it (see {@link #buildAttachPartitionIndexQuery}).
+   * Partitions which are created afterwards get the index automatically.
+   */
+  public static SQLQuery buildCreateIndexOnOnlyQuery(String schema, String table, List<String> columnNamesOrExpressions,
+      String method, String indexName) {
+    return buildCreateIndexQuery(schema, table, columnNamesOrExpressions, method, indexName, null, false, true);
+  }
+
+  public static SQLQuery buildAttachPartitionIndexQuery(String schema, String indexName, String partitionIndexName) {
+    return new SQLQuery("ALTER INDEX ${schema}.${indexName} ATTACH PARTITION ${schema}.${partitionIndexName}")
+        .withVariable("schema", schema)
+        .withVariable("indexName", indexName)
+        .withVariable("partitionIndexName", partitionIndexName);
+  }
+
   private static SQLQuery buildCreateIndexQuery(String schema, String table, List<String> columnNamesOrExpressions, String method,
       String indexName, String predicate) {
-      return new SQLQuery("CREATE INDEX ${{queryComment}} IF NOT EXISTS ${indexName} ON ${schema}.${table} USING " + method
+    return buildCreateIndexQuery(schema, table, columnNamesOrExpressions, method, indexName, predicate, false);
+  }
+
+  private static SQLQuery buildCreateIndexQuery(String schema, String table, List<String> columnNamesOrExpressions, String method,
+      String indexName, String predicate, boolean concurrently) {
+    return buildCreateIndexQuery(schema, table, columnNamesOrExpressions, method, indexName, predicate, concurrently, false);
+  }
+
+  private static SQLQuery buildCreateIndexQuery(String schema, String table, List<String> columnNamesOrExpressions, String method,
+      String indexName, String predicate, boolean concurrently, boolean only) {
+      return new SQLQuery("CREATE INDEX ${{queryComment}} ${{concurrently}} IF NOT EXISTS ${indexName} ON ${{only}} ${schema}.${table} USING " + method
           + " (" + String.join(", ", columnNamesOrExpressions) + ") ${{predicate}}")
+          .withQueryFragment("concurrently", concurrently ? "CONCURRENTLY" : "")
+          .withQueryFragment("only", only ? "ONLY" : "")
           .withVariable("schema", schema)
           .withVariable("table", table)
           .withVariable("indexName", indexName)
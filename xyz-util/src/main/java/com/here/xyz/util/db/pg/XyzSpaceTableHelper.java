@@ -20,6 +20,7 @@
 package com.here.xyz.util.db.pg;
 
 import static com.here.xyz.models.hub.Space.TABLE_NAME;
+import static com.here.xyz.util.db.pg.IndexHelper.buildCreateIndexConcurrentlyQuery;
 import static com.here.xyz.util.db.pg.IndexHelper.buildCreateIndexQuery;
 import static com.here.xyz.util.db.pg.IndexHelper.buildDropIndexQuery;
 import static com.here.xyz.util.db.pg.XyzSpaceTableHelper.Index.AUTHOR;
@@ -176,6 +177,42 @@ public class XyzSpaceTableHelper {
           "SELECT xyz_create_history_partition('" + schema + "', '" + rootTable + "', " + partitionNo + ", " + PARTITION_SIZE + ")");
   }
 
+  /**
+   * Builds the query which activates the version-range history layout for a space table.
+   * History partitions which get created afterwards get a BRIN index on the version automatically. The indices of the existing
+   * history partitions have to be created separately (see {@link #buildCreateHistoryIndexQuery(String, String)}).
+   * Partitions which fell out of the specified number of versions to keep are dropped by the maintenance.
+   */
+  public static SQLQuery buildEnableHistoryLayoutQuery(String schema, String table, int versionsToKeep) {
+    return new SQLQuery("SELECT xyz_history_layout_enable(#{schema}, #{table}, #{versionsToKeep})")
+        .withNamedParameter(SCHEMA, schema)
+        .withNamedParameter(TABLE, table)
+        .withNamedParameter("versionsToKeep", versionsToKeep);
+  }
+
+  public static SQLQuery buildLoadHistoryPartitionsQuery(String schema, String table) {
+    return new SQLQuery("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+        + "WHERE i.inhparent = to_regclass(format('%I.%I', #{schema}, #{table})) AND c.relname != #{headPartition}")
+        .withNamedParameter(SCHEMA, schema)
+        .withNamedParameter(TABLE, table)
+        .withNamedParameter("headPartition", table + HEAD_TABLE_SUFFIX);
+  }
+
+  /**
+   * Builds the query which creates the BRIN index on the version of an existing history partition without blocking writes.
+   * NOTE: The resulting query must not be executed within a transaction block.
+   */
+  public static SQLQuery buildCreateHistoryIndexQuery(String schema, String partitionTable) {
+    return buildCreateIndexConcurrentlyQuery(schema, partitionTable, List.of("version"), "BRIN",
+        "idx_" + partitionTable + "_version_brin");
+  }
+
+  public static SQLQuery buildDisableHistoryLayoutQuery(String schema, String table) {
+    return new SQLQuery("SELECT xyz_history_layout_disable(#{schema}, #{table})")
+        .withNamedParameter(SCHEMA, schema)
+        .withNamedParameter(TABLE, table);
+  }
+
   public static SQLQuery buildCreateSpaceTableQuery(String schema, String table) {
       String tableFields = "id TEXT NOT NULL, "
               + "version BIGINT NOT NULL, "
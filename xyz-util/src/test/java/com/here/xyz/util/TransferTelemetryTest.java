@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class TransferTelemetryTest {
+  private final AtomicLong now = new AtomicLong(1_000_000);
+  private final TransferTelemetry telemetry = new TransferTelemetry(now::get);
+
+  @Test
+  public void testTotalsIncludeCompletedThreads() {
+    telemetry.update("t1", 10, 100);
+    telemetry.update("t2", 20, 200);
+    telemetry.complete("t1");
+    telemetry.update("t2", 30, 300);
+
+    assertEquals(40, telemetry.getRows());
+    assertEquals(400, telemetry.getBytes());
+    assertEquals(Map.of("t2", 0L), telemetry.getThreadLags());
+  }
+
+  @Test
+  public void testCompleteAllExcept() {
+    telemetry.update("t1", 10, 100);
+    telemetry.update("t2", 20, 200);
+    telemetry.completeAllExcept(List.of("t2"));
+
+    assertEquals(Map.of("t2", 0L), telemetry.getThreadLags());
+    assertEquals(30, telemetry.getRows());
+    assertEquals(300, telemetry.getBytes());
+  }
+
+  @Test
+  public void testThreadLag() {
+    telemetry.update("t1", 10, 100);
+    telemetry.update("t2", 10, 100);
+    now.addAndGet(3_000);
+    telemetry.update("t1", 20, 200);
+    //No change of the counters, so the lag keeps growing
+    telemetry.update("t2", 10, 100);
+    now.addAndGet(1_000);
+
+    assertEquals(Map.of("t1", 1_000L, "t2", 4_000L), telemetry.getThreadLags());
+    assertEquals(4_000, telemetry.getMaxThreadLag());
+  }
+
+  @Test
+  public void testRateWindow() {
+    now.addAndGet(1_000);
+    telemetry.update("t1", 100, 1_000);
+    //The first window is not complete yet, so the average since the start is used
+    assertEquals(100, telemetry.getRowsPerSecond(), 0.001);
+    assertEquals(1_000, telemetry.getBytesPerSecond(), 0.001);
+
+    now.addAndGet(TransferTelemetry.RATE_WINDOW_MS - 1_000);
+    telemetry.update("t1", 500, 5_000);
+    assertEquals(100, telemetry.getRowsPerSecond(), 0.001);
+
+    //Only the transfer of the last window is taken into account
+    now.addAndGet(TransferTelemetry.RATE_WINDOW_MS);
+    telemetry.update("t1", 750, 7_500);
+    assertEquals(50, telemetry.getRowsPerSecond(), 0.001);
+    assertEquals(500, telemetry.getBytesPerSecond(), 0.001);
+  }
+
+  @Test
+  public void testAddCompletedIsNotCountedIntoTheRate() {
+    telemetry.addCompleted(1_000, 10_000);
+    now.addAndGet(TransferTelemetry.RATE_WINDOW_MS);
+    telemetry.update("t1", 50, 500);
+
+    assertEquals(1_050, telemetry.getRows());
+    assertEquals(10, telemetry.getRowsPerSecond(), 0.001);
+    assertEquals(100, telemetry.getBytesPerSecond(), 0.001);
+  }
+
+  @Test
+  public void testEstimatedEndTimeFromBytes() {
+    telemetry.setTotalBytes(10_000);
+    telemetry.setTotalRows(1);
+    assertEquals(-1, telemetry.getEstimatedEndTime());
+
+    now.addAndGet(TransferTelemetry.RATE_WINDOW_MS);
+    telemetry.update("t1", 1, 5_000);
+    //1000 bytes per second, 5000 bytes remaining
+    assertEquals(now.get() + 5_000, telemetry.getEstimatedEndTime());
+
+    telemetry.update("t1", 1, 10_000);
+    assertEquals(now.get(), telemetry.getEstimatedEndTime());
+  }
+
+  @Test
+  public void testEstimatedEndTimeFromRows() {
+    telemetry.setTotalRows(300);
+    now.addAndGet(TransferTelemetry.RATE_WINDOW_MS);
+    telemetry.update("t1", 100, 0);
+    //20 rows per second, 200 rows remaining
+    assertEquals(now.get() + 10_000, telemetry.getEstimatedEndTime());
+  }
+
+  @Test
+  public void testEstimatedEndTimeUnknownTotals() {
+    now.addAndGet(TransferTelemetry.RATE_WINDOW_MS);
+    telemetry.update("t1", 100, 1_000);
+    assertEquals(-1, telemetry.getEstimatedEndTime());
+    assertEquals(-1, telemetry.getProgress(), 0);
+  }
+
+  @Test
+  public void testProgress() {
+    telemetry.setTotalRows(1_000);
+    telemetry.update("t1", 250, 0);
+    assertEquals(0.25, telemetry.getProgress(), 0.001);
+
+    //The bytes take precedence if known
+    telemetry.setTotalBytes(1_000);
+    telemetry.update("t1", 250, 800);
+    assertEquals(0.8, telemetry.getProgress(), 0.001);
+
+    telemetry.update("t1", 250, 1_200);
+    assertTrue(telemetry.getProgress() <= 1);
+    assertEquals(1, telemetry.getProgress(), 0);
+  }
+}
@@ -21,7 +21,9 @@ package com.here.xyz.util.db;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
+import java.util.List;
 import org.junit.Test;
 
 public class SQLQueryUnitTests {
@@ -74,4 +76,12 @@ public class SQLQueryUnitTests {
         .withQueryFragment("fragmentB", new SQLQuery("#{myParam}").withNamedParameter("myParam", "World"));
     assertThrows(RuntimeException.class, () -> q.substitute());
   }
+
+  @Test
+  public void testKillByLabelQueryOnlyParsesLabeledStatements() {
+    SQLQuery q = SQLQuery.buildKillByLabelQuery(SQLQuery.QUERY_ID, "someQueryId").withLabelsEnabled(false);
+    q.substitute();
+    assertTrue(q.text().contains("CASE WHEN strpos(query, '/*labels(') = 1 AND strpos(query, ')*/') > 10 THEN substring(query, 10, "));
+    assertEquals(List.of(SQLQuery.QUERY_ID, "someQueryId"), q.parameters());
+  }
 }
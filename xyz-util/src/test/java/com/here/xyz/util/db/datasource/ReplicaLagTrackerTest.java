@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2017-2024 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+
+package com.here.xyz.util.db.datasource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.here.xyz.util.db.datasource.ReplicaLagTracker.WalPositionSource;
+import java.lang.Thread.State;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Test;
+
+public class ReplicaLagTrackerTest {
+  private final TestWalPositions walPositions = new TestWalPositions();
+  private final ExecutorService readers = Executors.newCachedThreadPool();
+
+  @After
+  public void shutdown() {
+    readers.shutdownNow();
+  }
+
+  @Test
+  public void caughtUpReader() {
+    ReplicaLagTracker tracker = new ReplicaLagTracker(walPositions, 0);
+    walPositions.writerLsn.set(100);
+    walPositions.readerLsn.set(100);
+    long writtenAt = System.nanoTime();
+
+    assertTrue(tracker.hasReplayedUntil(writtenAt));
+    assertEquals(0, tracker.getLagBytes());
+    assertTrue(tracker.getReplayedUntil() - writtenAt >= 0);
+  }
+
+  @Test
+  public void laggingReader() {
+    ReplicaLagTracker tracker = new ReplicaLagTracker(walPositions, 0);
+    walPositions.writerLsn.set(100);
+    walPositions.readerLsn.set(40);
+
+    assertFalse(tracker.hasReplayedUntil(System.nanoTime()));
+    assertEquals(60, tracker.getLagBytes());
+  }
+
+  @Test
+  public void readerWithoutReplayPosition() {
+    ReplicaLagTracker tracker = new ReplicaLagTracker(walPositions, 0);
+    walPositions.writerLsn.set(100);
+    walPositions.readerLsn.set(-1);
+
+    assertFalse(tracker.hasReplayedUntil(System.nanoTime()));
+  }
+
+  @Test
+  public void readerCatchesUpWithinWaitTime() {
+    ReplicaLagTracker tracker = new ReplicaLagTracker(walPositions, 5_000);
+    walPositions.writerLsn.set(100);
+    walPositions.readerLsn.set(40);
+    //The reader replays the latest position of the writer with the third poll
+    walPositions.readerLsnAfterPolls(3, 100);
+
+    assertTrue(tracker.hasReplayedUntil(System.nanoTime()));
+    assertEquals(3, walPositions.readerPolls.get());
+    assertEquals(1, walPositions.writerPolls.get());
+  }
+
+  @Test
+  public void formerSampleIsReused() {
+    ReplicaLagTracker tracker = new ReplicaLagTracker(walPositions, 0);
+    walPositions.writerLsn.set(100);
+    walPositions.readerLsn.set(100);
+    long writtenAt = System.nanoTime();
+    assertTrue(tracker.hasReplayedUntil(writtenAt));
+
+    //Changes before the last sampling are known to be replayed already
+    assertTrue(tracker.hasReplayedUntil(writtenAt - 1_000));
+    assertEquals(1, walPositions.writerPolls.get());
+  }
+
+  @Test
+  public void concurrentReadsShareSamples() throws Exception {
+    ReplicaLagTracker tracker = new ReplicaLagTracker(walPositions, 0);
+    walPositions.writerLsn.set(100);
+    walPositions.readerLsn.set(Long.MAX_VALUE);
+    CountDownLatch writerPolled = new CountDownLatch(1), releaseWriter = new CountDownLatch(1);
+    walPositions.blockFirstWriterPoll(writerPolled, releaseWriter);
+
+    long firstWriteAt = System.nanoTime();
+    Future<Boolean> first = readers.submit(() -> tracker.hasReplayedUntil(firstWriteAt));
+    assertTrue(writerPolled.await(5, TimeUnit.SECONDS));
+
+    //All reads which arrive while the first sample is running have to see newer changes, they are served by one further sample
+    List<Thread> waitingThreads = Collections.synchronizedList(new ArrayList<>());
+    List<Future<Boolean>> following = new ArrayList<>();
+    CountDownLatch started = new CountDownLatch(10);
+    for (int i = 0; i < 10; i++)
+      following.add(readers.submit(() -> {
+        waitingThreads.add(Thread.currentThread());
+        started.countDown();
+        return tracker.hasReplayedUntil(System.nanoTime());
+      }));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    awaitWaiting(waitingThreads);
+    releaseWriter.countDown();
+
+    assertTrue(first.get(5, TimeUnit.SECONDS));
+    for (Future<Boolean> read : following)
+      assertTrue(read.get(5, TimeUnit.SECONDS));
+    assertEquals(2, walPositions.writerPolls.get());
+  }
+
+  private static void awaitWaiting(List<Thread> threads) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5_000;
+    synchronized (threads) {
+      for (Thread thread : threads)
+        while (thread.getState() != State.WAITING && thread.getState() != State.TIMED_WAITING
+            && System.currentTimeMillis() < deadline)
+          Thread.sleep(5);
+    }
+  }
+
+  private static class TestWalPositions implements WalPositionSource {
+    final AtomicLong writerLsn = new AtomicLong();
+    final AtomicLong readerLsn = new AtomicLong();
+    final AtomicInteger writerPolls = new AtomicInteger();
+    final AtomicInteger readerPolls = new AtomicInteger();
+    private int caughtUpAfterPolls = Integer.MAX_VALUE;
+    private long caughtUpLsn;
+    private CountDownLatch writerPolled;
+    private CountDownLatch releaseWriter;
+
+    void readerLsnAfterPolls(int polls, long lsn) {
+      caughtUpAfterPolls = polls;
+      caughtUpLsn = lsn;
+    }
+
+    void blockFirstWriterPoll(CountDownLatch writerPolled, CountDownLatch releaseWriter) {
+      this.writerPolled = writerPolled;
+      this.releaseWriter = releaseWriter;
+    }
+
+    @Override
+    public Long writerLsn() {
+      if (writerPolls.incrementAndGet() == 1 && releaseWriter != null) {
+        writerPolled.countDown();
+        try {
+          releaseWriter.await(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return writerLsn.get();
+    }
+
+    @Override
+    public Long readerReplayLsn() {
+      if (readerPolls.incrementAndGet() >= caughtUpAfterPolls)
+        return caughtUpLsn;
+      return readerLsn.get() < 0 ? null : readerLsn.get();
+    }
+  }
+}